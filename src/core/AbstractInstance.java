@@ -594,7 +594,7 @@ public abstract class AbstractInstance implements Instance, Serializable, Revisi
 	 *            the weight
 	 */
 	@Override
-	public final void setWeight(double weight) {
+	public void setWeight(double weight) {
 
 		m_Weight = weight;
 	}
@@ -718,8 +718,8 @@ public abstract class AbstractInstance implements Instance, Serializable, Revisi
 	public final String toStringMaxDecimalDigits(int afterDecimalPoint) {
 		StringBuffer text = new StringBuffer(toStringNoWeight(afterDecimalPoint));
 
-		if (m_Weight != 1.0) {
-			text.append(",{" + Utils.doubleToString(m_Weight, afterDecimalPoint) + "}");
+		if (weight() != 1.0) {
+			text.append(",{" + Utils.doubleToString(weight(), afterDecimalPoint) + "}");
 		}
 
 		return text.toString();
@@ -869,7 +869,7 @@ public abstract class AbstractInstance implements Instance, Serializable, Revisi
 	 * @return the instance's weight as a double
 	 */
 	@Override
-	public final/* @pure@ */double weight() {
+	public/* @pure@ */double weight() {
 
 		return m_Weight;
 	}
@@ -900,4 +900,40 @@ public abstract class AbstractInstance implements Instance, Serializable, Revisi
 	 *            the attribute's position
 	 */
 	protected abstract void forceInsertAttributeAt(int position);
+
+	/**
+	 * Deletes several attributes at once. The default implementation deletes
+	 * them one at a time; subclasses rebuild their values only once.
+	 * 
+	 * @param positions
+	 *            the attributes' positions, ascending and without duplicates
+	 */
+	protected void forceDeleteAttributesAt(int[] positions) {
+
+		for (int k = positions.length - 1; k >= 0; k--) {
+			forceDeleteAttributeAt(positions[k]);
+		}
+	}
+
+	/**
+	 * Inserts several consecutive attributes at the given position (0 to
+	 * numAttributes()) with the given values. The default implementation
+	 * inserts them one at a time; subclasses rebuild their values only once.
+	 * 
+	 * @param position
+	 *            the position of the first new attribute
+	 * @param values
+	 *            the values of the new attributes, not kept by the instance
+	 */
+	protected void forceInsertAttributesAt(int position, double[] values) {
+
+		for (int k = 0; k < values.length; k++) {
+			forceInsertAttributeAt(position + k);
+		}
+		for (int k = 0; k < values.length; k++) {
+			if (!Utils.isMissingValue(values[k])) {
+				setValue(position + k, values[k]);
+			}
+		}
+	}
 }
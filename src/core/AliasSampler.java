@@ -0,0 +1,317 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    AliasSampler.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Draws indices with replacement according to a weight vector, using
+ * Walker's alias method (see pp. 232 of "Stochastic Simulation" by B.D.
+ * Ripley, 1987). The alias tables are built once and can be reused for any
+ * number of draws, each of which takes constant time. Given the same random
+ * number generator, the draws are the same as the ones made by
+ * Instances.resampleWithWeights().
+ * <p/>
+ *
+ * Several bootstrap samples can be drawn at once, in parallel if desired.
+ * Sample i is always drawn with a random number generator seeded with the
+ * i-th number of the sequence produced by new Random(seed), so the samples
+ * only depend on the seed, not on the number of threads. They can be
+ * returned as drawn indices or as counts per index.
+ *
+ * @version $Revision$
+ * @see Instances#resampleWithWeights(Random, double[], boolean[], boolean)
+ */
+public class AliasSampler implements Serializable, RevisionHandler {
+
+	/** for serialization */
+	private static final long serialVersionUID = 4690214357382245069L;
+
+	/** the thresholds, offset by the index of their cell */
+	protected double[] m_Q;
+
+	/** the aliases */
+	protected int[] m_A;
+
+	/**
+	 * Builds the alias tables for the given weights.
+	 *
+	 * @param weights
+	 *            the weight vector, is not changed
+	 * @throws IllegalArgumentException
+	 *             if the weights contain negative values or sum to zero
+	 */
+	public AliasSampler(double[] weights) {
+
+		// Walker's method, see pp. 232 of "Stochastic Simulation" by B.D.
+		// Ripley
+		double[] P = new double[weights.length];
+		System.arraycopy(weights, 0, P, 0, weights.length);
+		Utils.normalize(P);
+		double[] Q = new double[weights.length];
+		int[] A = new int[weights.length];
+		int[] W = new int[weights.length];
+		int M = weights.length;
+		int NN = -1;
+		int NP = M;
+		for (int I = 0; I < M; I++) {
+			if (P[I] < 0) {
+				throw new IllegalArgumentException("Weights have to be positive.");
+			}
+			Q[I] = M * P[I];
+			if (Q[I] < 1.0) {
+				W[++NN] = I;
+			} else {
+				W[--NP] = I;
+			}
+		}
+		if (NN > -1 && NP < M) {
+			for (int S = 0; S < M - 1; S++) {
+				int I = W[S];
+				int J = W[NP];
+				A[I] = J;
+				Q[J] += Q[I] - 1.0;
+				if (Q[J] < 1.0) {
+					NP++;
+				}
+				if (NP >= M) {
+					break;
+				}
+			}
+			// A[W[M]] = W[M];
+		}
+
+		for (int I = 0; I < M; I++) {
+			Q[I] += I;
+		}
+
+		m_Q = Q;
+		m_A = A;
+	}
+
+	/**
+	 * Returns the number of indices that can be drawn.
+	 *
+	 * @return the length of the weight vector
+	 */
+	public/* @pure@ */int size() {
+
+		return m_Q.length;
+	}
+
+	/**
+	 * Draws a single index.
+	 *
+	 * @param random
+	 *            the random number generator
+	 * @return the index
+	 */
+	public int draw(Random random) {
+
+		double U = m_Q.length * random.nextDouble();
+		int I = (int) U;
+		return (U < m_Q[I]) ? I : m_A[I];
+	}
+
+	/**
+	 * Draws indices with replacement.
+	 *
+	 * @param random
+	 *            the random number generator
+	 * @param numDraws
+	 *            the number of indices to draw
+	 * @return the drawn indices, in the order they were drawn
+	 */
+	public int[] draw(Random random, int numDraws) {
+
+		int[] draws = new int[numDraws];
+		for (int i = 0; i < numDraws; i++) {
+			draws[i] = draw(random);
+		}
+		return draws;
+	}
+
+	/**
+	 * Draws indices with replacement and counts how often each index was
+	 * drawn.
+	 *
+	 * @param random
+	 *            the random number generator
+	 * @param numDraws
+	 *            the number of indices to draw
+	 * @return the counts, one per index
+	 */
+	public int[] counts(Random random, int numDraws) {
+
+		int[] counts = new int[m_Q.length];
+		for (int i = 0; i < numDraws; i++) {
+			counts[draw(random)]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Draws several bootstrap samples, each consisting of as many draws as
+	 * there are weights.
+	 *
+	 * @param numSamples
+	 *            the number of samples
+	 * @param seed
+	 *            the seed from which the seeds of the samples are derived
+	 * @param numThreads
+	 *            the number of threads, 1 to draw sequentially, 0 or less for
+	 *            the number of available processors
+	 * @return the drawn indices of each sample, in the order they were drawn
+	 */
+	public int[][] drawSamples(int numSamples, long seed, int numThreads) {
+
+		return sample(numSamples, seed, numThreads, false);
+	}
+
+	/**
+	 * Draws several bootstrap samples, each consisting of as many draws as
+	 * there are weights, and returns how often each index was drawn.
+	 *
+	 * @param numSamples
+	 *            the number of samples
+	 * @param seed
+	 *            the seed from which the seeds of the samples are derived
+	 * @param numThreads
+	 *            the number of threads, 1 to draw sequentially, 0 or less for
+	 *            the number of available processors
+	 * @return the counts of each sample, one per index
+	 */
+	public int[][] countSamples(int numSamples, long seed, int numThreads) {
+
+		return sample(numSamples, seed, numThreads, true);
+	}
+
+	/**
+	 * Returns the seeds of the random number generators used for the given
+	 * number of samples.
+	 *
+	 * @param numSamples
+	 *            the number of samples
+	 * @param seed
+	 *            the seed from which the seeds of the samples are derived
+	 * @return the seeds
+	 */
+	public static long[] sampleSeeds(int numSamples, long seed) {
+
+		Random random = new Random(seed);
+		long[] seeds = new long[numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			seeds[i] = random.nextLong();
+		}
+		return seeds;
+	}
+
+	/**
+	 * Draws several bootstrap samples.
+	 *
+	 * @param numSamples
+	 *            the number of samples
+	 * @param seed
+	 *            the seed from which the seeds of the samples are derived
+	 * @param numThreads
+	 *            the number of threads, 0 or less for the number of available
+	 *            processors
+	 * @param counts
+	 *            true to return counts, false to return the drawn indices
+	 * @return the samples
+	 */
+	protected int[][] sample(int numSamples, long seed, int numThreads, boolean counts) {
+
+		long[] seeds = sampleSeeds(numSamples, seed);
+		int[][] result = new int[numSamples][];
+		if (numThreads <= 0) {
+			numThreads = Runtime.getRuntime().availableProcessors();
+		}
+		numThreads = Math.min(numThreads, numSamples);
+		if (numThreads <= 1) {
+			for (int i = 0; i < numSamples; i++) {
+				result[i] = sample(seeds[i], counts);
+			}
+			return result;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		try {
+			List<ForkJoinTask<?>> tasks = new ArrayList<>(numSamples);
+			for (int i = 0; i < numSamples; i++) {
+				int index = i;
+				tasks.add(pool.submit(() -> {
+					result[index] = sample(seeds[index], counts);
+				}));
+			}
+			for (ForkJoinTask<?> task : tasks) {
+				task.get();
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while drawing samples");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Draws one bootstrap sample.
+	 *
+	 * @param seed
+	 *            the seed of the sample
+	 * @param counts
+	 *            true to return counts, false to return the drawn indices
+	 * @return the sample
+	 */
+	protected int[] sample(long seed, boolean counts) {
+
+		Random random = new Random(seed);
+		return counts ? counts(random, m_Q.length) : draw(random, m_Q.length);
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
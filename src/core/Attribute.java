@@ -26,8 +26,8 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
-import java.util.Hashtable;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Calendar;
 
 /**
@@ -477,22 +477,21 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 	public final/* @ pure @ */Enumeration<Object> enumerateValues() {
 
 		if (isNominal() || isString()) {
-			final Enumeration<Object> ee = new WekaEnumeration<Object>(
-					((NominalAttributeInfo) m_AttributeInfo).m_Values);
+			final StringDictionary dictionary = ((NominalAttributeInfo) m_AttributeInfo).m_Dictionary;
 			return new Enumeration<Object>() {
+				private int m_Next;
+
 				@Override
 				public boolean hasMoreElements() {
-					return ee.hasMoreElements();
+					return m_Next < dictionary.size();
 				}
 
 				@Override
 				public Object nextElement() {
-					Object oo = ee.nextElement();
-					if (oo instanceof SerializedObject) {
-						return ((SerializedObject) oo).getObject();
-					} else {
-						return oo;
+					if (!hasMoreElements()) {
+						throw new NoSuchElementException();
 					}
+					return dictionary.get(m_Next++);
 				}
 			};
 		}
@@ -546,18 +545,16 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 		}
 
 		if (isNominal() && att.isNominal()) {
-			if (((NominalAttributeInfo) m_AttributeInfo).m_Values
-					.size() != ((NominalAttributeInfo) att.m_AttributeInfo).m_Values.size()) {
-				return "Different number of labels: " + ((NominalAttributeInfo) m_AttributeInfo).m_Values.size()
-						+ " != " + ((NominalAttributeInfo) att.m_AttributeInfo).m_Values.size();
+			StringDictionary labels = ((NominalAttributeInfo) m_AttributeInfo).m_Dictionary;
+			StringDictionary otherLabels = ((NominalAttributeInfo) att.m_AttributeInfo).m_Dictionary;
+			if (labels.size() != otherLabels.size()) {
+				return "Different number of labels: " + labels.size() + " != " + otherLabels.size();
 			}
 
-			for (int i = 0; i < ((NominalAttributeInfo) m_AttributeInfo).m_Values.size(); i++) {
-				if (!((NominalAttributeInfo) m_AttributeInfo).m_Values.get(i)
-						.equals(((NominalAttributeInfo) att.m_AttributeInfo).m_Values.get(i))) {
-					return "Labels differ at position " + (i + 1) + ": "
-							+ ((NominalAttributeInfo) m_AttributeInfo).m_Values.get(i) + " != "
-							+ ((NominalAttributeInfo) att.m_AttributeInfo).m_Values.get(i);
+			for (int i = 0; i < labels.size(); i++) {
+				if (!labels.valueEquals(i, otherLabels, i)) {
+					return "Labels differ at position " + (i + 1) + ": " + labels.get(i) + " != "
+							+ otherLabels.get(i);
 				}
 			}
 
@@ -699,20 +696,7 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 		if (!isNominal() && !isString()) {
 			return -1;
 		}
-		Object store = value;
-		if (value.length() > STRING_COMPRESS_THRESHOLD) {
-			try {
-				store = new SerializedObject(value, true);
-			} catch (Exception ex) {
-				System.err.println("Couldn't compress string attribute value -" + " searching uncompressed.");
-			}
-		}
-		Integer val = ((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.get(store);
-		if (val == null) {
-			return -1;
-		} else {
-			return val.intValue();
-		}
+		return ((NominalAttributeInfo) m_AttributeInfo).m_Dictionary.indexOf(value);
 	}
 
 	/**
@@ -791,8 +775,10 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 
 		if (!isNominal() && !isString() && !isRelationValued()) {
 			return 0;
+		} else if (isRelationValued()) {
+			return ((RelationalAttributeInfo) m_AttributeInfo).m_Values.size();
 		} else {
-			return ((NominalAttributeInfo) m_AttributeInfo).m_Values.size();
+			return ((NominalAttributeInfo) m_AttributeInfo).m_Dictionary.size();
 		}
 	}
 
@@ -884,13 +870,7 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 		if (!isNominal() && !isString()) {
 			return "";
 		} else {
-			Object val = ((NominalAttributeInfo) m_AttributeInfo).m_Values.get(valIndex);
-
-			// If we're storing strings compressed, uncompress it.
-			if (val instanceof SerializedObject) {
-				val = ((SerializedObject) val).getObject();
-			}
-			return (String) val;
+			return ((NominalAttributeInfo) m_AttributeInfo).m_Dictionary.get(valIndex);
 		}
 	}
 
@@ -944,24 +924,7 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 		if (!isString()) {
 			return -1;
 		}
-		Object store = value;
-
-		if (value.length() > STRING_COMPRESS_THRESHOLD) {
-			try {
-				store = new SerializedObject(value, true);
-			} catch (Exception ex) {
-				System.err.println("Couldn't compress string attribute value -" + " storing uncompressed.");
-			}
-		}
-		Integer index = ((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.get(store);
-		if (index != null) {
-			return index.intValue();
-		} else {
-			int intIndex = ((NominalAttributeInfo) m_AttributeInfo).m_Values.size();
-			((NominalAttributeInfo) m_AttributeInfo).m_Values.add(store);
-			((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.put(store, Integer.valueOf(intIndex));
-			return intIndex;
-		}
+		return ((NominalAttributeInfo) m_AttributeInfo).m_Dictionary.add(value);
 	}
 
 	/**
@@ -977,8 +940,7 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 			return;
 		}
 
-		((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.clear();
-		((NominalAttributeInfo) m_AttributeInfo).m_Values.clear();
+		((NominalAttributeInfo) m_AttributeInfo).m_Dictionary.clear();
 		if (value != null) {
 			addStringValue(value);
 		}
@@ -1006,16 +968,8 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 		if (!isString()) {
 			return -1;
 		}
-		Object store = ((NominalAttributeInfo) src.m_AttributeInfo).m_Values.get(index);
-		Integer oldIndex = ((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.get(store);
-		if (oldIndex != null) {
-			return oldIndex.intValue();
-		} else {
-			int intIndex = ((NominalAttributeInfo) m_AttributeInfo).m_Values.size();
-			((NominalAttributeInfo) m_AttributeInfo).m_Values.add(store);
-			((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.put(store, Integer.valueOf(intIndex));
-			return intIndex;
-		}
+		return ((NominalAttributeInfo) m_AttributeInfo).m_Dictionary
+				.add(((NominalAttributeInfo) src.m_AttributeInfo).m_Dictionary, index);
 	}
 
 	/**
@@ -1035,13 +989,13 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 			throw new IllegalArgumentException("Incompatible value for " + "relation-valued attribute.\n"
 					+ ((RelationalAttributeInfo) m_AttributeInfo).m_Header.equalHeadersMsg(value));
 		}
-		Integer index = ((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.get(value);
+		Integer index = ((RelationalAttributeInfo) m_AttributeInfo).m_Hashtable.get(value);
 		if (index != null) {
 			return index.intValue();
 		} else {
-			int intIndex = ((NominalAttributeInfo) m_AttributeInfo).m_Values.size();
-			((NominalAttributeInfo) m_AttributeInfo).m_Values.add(value);
-			((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.put(value, Integer.valueOf(intIndex));
+			int intIndex = ((RelationalAttributeInfo) m_AttributeInfo).m_Values.size();
+			((RelationalAttributeInfo) m_AttributeInfo).m_Values.add(value);
+			((RelationalAttributeInfo) m_AttributeInfo).m_Hashtable.put(value, Integer.valueOf(intIndex));
 			return intIndex;
 		}
 	}
@@ -1055,10 +1009,8 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 	 */
 	final void addValue(String value) {
 
-		((NominalAttributeInfo) m_AttributeInfo).m_Values = Utils
-				.cast(((NominalAttributeInfo) m_AttributeInfo).m_Values.clone());
-		((NominalAttributeInfo) m_AttributeInfo).m_Hashtable = Utils
-				.cast(((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.clone());
+		((NominalAttributeInfo) m_AttributeInfo).m_Dictionary = ((NominalAttributeInfo) m_AttributeInfo).m_Dictionary
+				.copy();
 		forceAddValue(value);
 	}
 
@@ -1101,26 +1053,14 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 		if (!isNominal() && !isString() && !isRelationValued()) {
 			throw new IllegalArgumentException(
 					"Can only remove value of " + "nominal, string or relation-" + " valued attribute!");
+		} else if (isRelationValued()) {
+			((RelationalAttributeInfo) m_AttributeInfo).m_Values = Utils
+					.cast(((RelationalAttributeInfo) m_AttributeInfo).m_Values.clone());
+			((RelationalAttributeInfo) m_AttributeInfo).m_Values.remove(index);
 		} else {
-			((NominalAttributeInfo) m_AttributeInfo).m_Values = Utils
-					.cast(((NominalAttributeInfo) m_AttributeInfo).m_Values.clone());
-			((NominalAttributeInfo) m_AttributeInfo).m_Values.remove(index);
-			if (!isRelationValued()) {
-				Hashtable<Object, Integer> hash = new Hashtable<>(
-						((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.size());
-				Enumeration<Object> enu = ((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.keys();
-				while (enu.hasMoreElements()) {
-					Object string = enu.nextElement();
-					Integer valIndexObject = ((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.get(string);
-					int valIndex = valIndexObject.intValue();
-					if (valIndex > index) {
-						hash.put(string, Integer.valueOf(valIndex - 1));
-					} else if (valIndex < index) {
-						hash.put(string, valIndexObject);
-					}
-				}
-				((NominalAttributeInfo) m_AttributeInfo).m_Hashtable = hash;
-			}
+			StringDictionary dictionary = ((NominalAttributeInfo) m_AttributeInfo).m_Dictionary.copy();
+			dictionary.remove(index);
+			((NominalAttributeInfo) m_AttributeInfo).m_Dictionary = dictionary;
 		}
 	}
 
@@ -1134,17 +1074,7 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 	// @ ensures m_Values.size() == \old(m_Values.size()) + 1;
 	final void forceAddValue(String value) {
 
-		Object store = value;
-		if (value.length() > STRING_COMPRESS_THRESHOLD) {
-			try {
-				store = new SerializedObject(value, true);
-			} catch (Exception ex) {
-				System.err.println("Couldn't compress string attribute value -" + " storing uncompressed.");
-			}
-		}
-		((NominalAttributeInfo) m_AttributeInfo).m_Values.add(store);
-		((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.put(store,
-				Integer.valueOf(((NominalAttributeInfo) m_AttributeInfo).m_Values.size() - 1));
+		((NominalAttributeInfo) m_AttributeInfo).m_Dictionary.add(value);
 	}
 
 	/**
@@ -1180,22 +1110,9 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 		switch (m_Type) {
 		case NOMINAL:
 		case STRING:
-			((NominalAttributeInfo) m_AttributeInfo).m_Values = Utils
-					.cast(((NominalAttributeInfo) m_AttributeInfo).m_Values.clone());
-			((NominalAttributeInfo) m_AttributeInfo).m_Hashtable = Utils
-					.cast(((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.clone());
-			Object store = string;
-			if (string.length() > STRING_COMPRESS_THRESHOLD) {
-				try {
-					store = new SerializedObject(string, true);
-				} catch (Exception ex) {
-					System.err.println("Couldn't compress string attribute value -" + " storing uncompressed.");
-				}
-			}
-			((NominalAttributeInfo) m_AttributeInfo).m_Hashtable
-					.remove(((NominalAttributeInfo) m_AttributeInfo).m_Values.get(index));
-			((NominalAttributeInfo) m_AttributeInfo).m_Values.set(index, store);
-			((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.put(store, Integer.valueOf(index));
+			StringDictionary dictionary = ((NominalAttributeInfo) m_AttributeInfo).m_Dictionary.copy();
+			dictionary.set(index, string);
+			((NominalAttributeInfo) m_AttributeInfo).m_Dictionary = dictionary;
 			break;
 		default:
 			throw new IllegalArgumentException("Can only set values for nominal" + " or string attributes!");
@@ -1220,9 +1137,9 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 				throw new IllegalArgumentException("Can't set relational value. " + "Headers not compatible.\n"
 						+ data.equalHeadersMsg(((RelationalAttributeInfo) m_AttributeInfo).m_Header));
 			}
-			((NominalAttributeInfo) m_AttributeInfo).m_Values = Utils
-					.cast(((NominalAttributeInfo) m_AttributeInfo).m_Values.clone());
-			((NominalAttributeInfo) m_AttributeInfo).m_Values.set(index, data);
+			((RelationalAttributeInfo) m_AttributeInfo).m_Values = Utils
+					.cast(((RelationalAttributeInfo) m_AttributeInfo).m_Values.clone());
+			((RelationalAttributeInfo) m_AttributeInfo).m_Values.set(index, data);
 		} else {
 			throw new IllegalArgumentException("Can only set value for" + " relation-valued attributes!");
 		}
@@ -1432,7 +1349,9 @@ public class Attribute implements Copyable, Serializable, RevisionHandler {
 		if (m_Type != NUMERIC) {
 			// do label range check
 			int intVal = (int) value;
-			if (intVal < 0 || intVal >= ((NominalAttributeInfo) m_AttributeInfo).m_Hashtable.size()) {
+			int size = isRelationValued() ? ((RelationalAttributeInfo) m_AttributeInfo).m_Hashtable.size()
+					: ((NominalAttributeInfo) m_AttributeInfo).m_Dictionary.size();
+			if (intVal < 0 || intVal >= size) {
 				return false;
 			}
 		} else {
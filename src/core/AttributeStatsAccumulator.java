@@ -0,0 +1,580 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    AttributeStatsAccumulator.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Collects the values of one attribute one instance at a time and produces
+ * the same AttributeStats as Instances.attributeStats(int) would for the
+ * instances seen so far, together with the weighted moments used by
+ * Instances.variance(int). Memory grows with the number of distinct values,
+ * not with the number of instances. Distinct values are counted in a
+ * primitive open-addressing table, nominal labels in plain arrays.
+ * <p/>
+ *
+ * accumulate(Instances, int) computes the accumulators of all attributes in a
+ * single pass over the data, optionally in parallel on chunks of rows whose
+ * results are merged afterwards.
+ *
+ * @version $Revision$
+ * @see InstanceStream
+ */
+public class AttributeStatsAccumulator implements Serializable, RevisionHandler {
+
+	/** for serialization */
+	private static final long serialVersionUID = -1708452693581347703L;
+
+	/** the minimum number of rows per chunk when accumulating in parallel */
+	public static final int MIN_CHUNK_SIZE = 1024;
+
+	/** the number of rows processed together by accumulate() */
+	protected static final int BLOCK_SIZE = 1024;
+
+	/**
+	 * Counts and weights of distinct double values in an open-addressing hash
+	 * table with linear probing. Values are compared by their bits, like
+	 * Double.equals().
+	 */
+	protected static class ValueCounts implements Serializable {
+
+		/** for serialization */
+		private static final long serialVersionUID = 6205906453302826839L;
+
+		/** the bits of the values, valid where the count is non-zero */
+		protected long[] m_Keys = new long[16];
+
+		/** the counts of the values, 0 for empty slots */
+		protected int[] m_Counts = new int[16];
+
+		/** the weights of the values */
+		protected double[] m_Weights = new double[16];
+
+		/** the number of distinct values */
+		protected int m_Size;
+
+		/**
+		 * Returns the slot for the given bits, either holding them or empty.
+		 *
+		 * @param bits
+		 *            the bits of the value
+		 * @return the slot
+		 */
+		protected int slot(long bits) {
+
+			int mask = m_Keys.length - 1;
+			int h = (int) (bits ^ (bits >>> 32)) * 0x9E3779B9;
+			int i = (h ^ (h >>> 16)) & mask;
+			while (m_Counts[i] != 0 && m_Keys[i] != bits) {
+				i = (i + 1) & mask;
+			}
+			return i;
+		}
+
+		/**
+		 * Adds occurrences of a value.
+		 *
+		 * @param value
+		 *            the value
+		 * @param count
+		 *            the number of occurrences, at least 1
+		 * @param weight
+		 *            their total weight
+		 */
+		public void add(double value, int count, double weight) {
+
+			long bits = Double.doubleToLongBits(value);
+			int i = slot(bits);
+			if (m_Counts[i] == 0) {
+				m_Keys[i] = bits;
+				m_Size++;
+				if (2 * m_Size > m_Keys.length) {
+					m_Counts[i] = count;
+					m_Weights[i] = weight;
+					grow();
+					return;
+				}
+			}
+			m_Counts[i] += count;
+			m_Weights[i] += weight;
+		}
+
+		/**
+		 * Doubles the size of the table.
+		 */
+		protected void grow() {
+
+			long[] keys = m_Keys;
+			int[] counts = m_Counts;
+			double[] weights = m_Weights;
+			m_Keys = new long[keys.length * 2];
+			m_Counts = new int[keys.length * 2];
+			m_Weights = new double[keys.length * 2];
+			for (int j = 0; j < keys.length; j++) {
+				if (counts[j] != 0) {
+					int i = slot(keys[j]);
+					m_Keys[i] = keys[j];
+					m_Counts[i] = counts[j];
+					m_Weights[i] = weights[j];
+				}
+			}
+		}
+	}
+
+	/** the index of the attribute */
+	protected int m_AttIndex;
+
+	/** the number of values seen */
+	protected int m_TotalCount;
+
+	/** the number of missing values seen */
+	protected int m_MissingCount;
+
+	/** the counts of the labels if the attribute is nominal, null otherwise */
+	protected int[] m_LabelCounts;
+
+	/** the weights of the labels if the attribute is nominal */
+	protected double[] m_LabelWeights;
+
+	/** count and weight of each distinct value, for non-nominal attributes */
+	protected ValueCounts m_Counts;
+
+	/** the total weight of the non-missing values */
+	protected double m_SumOfWeights;
+
+	/** the weighted sum of the non-missing values */
+	protected double m_WeightedSum;
+
+	/** the running weighted mean of the non-missing values */
+	protected double m_Mean;
+
+	/** the weighted sum of squared differences from the running mean */
+	protected double m_SumSquaredDifferences = Double.NaN;
+
+	/** the smallest non-missing value */
+	protected double m_Min = Double.NaN;
+
+	/** the largest non-missing value */
+	protected double m_Max = Double.NaN;
+
+	/**
+	 * Creates an accumulator for the given attribute.
+	 *
+	 * @param att
+	 *            the attribute, its index is used for looking up the values
+	 */
+	public AttributeStatsAccumulator(Attribute att) {
+
+		m_AttIndex = att.index();
+		if (att.isNominal()) {
+			m_LabelCounts = new int[att.numValues()];
+			m_LabelWeights = new double[att.numValues()];
+		} else {
+			m_Counts = new ValueCounts();
+		}
+	}
+
+	/**
+	 * Returns the index of the attribute whose values are collected.
+	 *
+	 * @return the index
+	 */
+	public int getAttributeIndex() {
+		return m_AttIndex;
+	}
+
+	/**
+	 * Adds the attribute's value of the given instance.
+	 *
+	 * @param inst
+	 *            the instance
+	 */
+	public void add(Instance inst) {
+		add(inst.value(m_AttIndex), inst.weight());
+	}
+
+	/**
+	 * Adds a value.
+	 *
+	 * @param value
+	 *            the value in internal format
+	 * @param weight
+	 *            the weight of the value
+	 */
+	public void add(double value, double weight) {
+
+		m_TotalCount++;
+		if (Utils.isMissingValue(value)) {
+			m_MissingCount++;
+			return;
+		}
+
+		if (m_LabelCounts != null) {
+			int label = (int) value;
+			if (label >= m_LabelCounts.length) {
+				m_LabelCounts = Arrays.copyOf(m_LabelCounts, label + 1);
+				m_LabelWeights = Arrays.copyOf(m_LabelWeights, label + 1);
+			}
+			m_LabelCounts[label]++;
+			m_LabelWeights[label] += weight;
+		} else {
+			m_Counts.add(value, 1, weight);
+		}
+
+		m_WeightedSum += weight * value;
+		if (Double.isNaN(m_SumSquaredDifferences)) {
+			// the first value is treated separately, like in variance(int)
+			m_Mean = value;
+			m_SumOfWeights = weight;
+			m_SumSquaredDifferences = 0;
+			m_Min = value;
+			m_Max = value;
+			return;
+		}
+		double delta = weight * (value - m_Mean);
+		m_SumOfWeights += weight;
+		m_Mean += delta / m_SumOfWeights;
+		m_SumSquaredDifferences += delta * (value - m_Mean);
+		if (value < m_Min) {
+			m_Min = value;
+		} else if (value > m_Max) {
+			m_Max = value;
+		}
+	}
+
+	/**
+	 * Adds the values collected by another accumulator for the same
+	 * attribute. Counts are merged exactly; the moments are combined with the
+	 * pairwise update and may differ from a sequential pass in the last bits.
+	 *
+	 * @param other
+	 *            the other accumulator
+	 */
+	public void merge(AttributeStatsAccumulator other) {
+
+		m_TotalCount += other.m_TotalCount;
+		m_MissingCount += other.m_MissingCount;
+		if (m_LabelCounts != null) {
+			if (other.m_LabelCounts.length > m_LabelCounts.length) {
+				m_LabelCounts = Arrays.copyOf(m_LabelCounts, other.m_LabelCounts.length);
+				m_LabelWeights = Arrays.copyOf(m_LabelWeights, other.m_LabelCounts.length);
+			}
+			for (int i = 0; i < other.m_LabelCounts.length; i++) {
+				m_LabelCounts[i] += other.m_LabelCounts[i];
+				m_LabelWeights[i] += other.m_LabelWeights[i];
+			}
+		} else {
+			ValueCounts counts = other.m_Counts;
+			for (int i = 0; i < counts.m_Keys.length; i++) {
+				if (counts.m_Counts[i] != 0) {
+					m_Counts.add(Double.longBitsToDouble(counts.m_Keys[i]), counts.m_Counts[i], counts.m_Weights[i]);
+				}
+			}
+		}
+
+		if (Double.isNaN(other.m_SumSquaredDifferences)) {
+			return;
+		}
+		m_WeightedSum += other.m_WeightedSum;
+		if (Double.isNaN(m_SumSquaredDifferences)) {
+			m_Mean = other.m_Mean;
+			m_SumOfWeights = other.m_SumOfWeights;
+			m_SumSquaredDifferences = other.m_SumSquaredDifferences;
+			m_Min = other.m_Min;
+			m_Max = other.m_Max;
+			return;
+		}
+		double sumOfWeights = m_SumOfWeights + other.m_SumOfWeights;
+		if (sumOfWeights != 0) {
+			double delta = other.m_Mean - m_Mean;
+			m_Mean += delta * other.m_SumOfWeights / sumOfWeights;
+			m_SumSquaredDifferences += other.m_SumSquaredDifferences
+					+ delta * delta * m_SumOfWeights * other.m_SumOfWeights / sumOfWeights;
+		}
+		m_SumOfWeights = sumOfWeights;
+		m_Min = Math.min(m_Min, other.m_Min);
+		m_Max = Math.max(m_Max, other.m_Max);
+	}
+
+	/**
+	 * Returns the number of values seen, including missing ones.
+	 *
+	 * @return the number of values
+	 */
+	public int getTotalCount() {
+		return m_TotalCount;
+	}
+
+	/**
+	 * Returns the number of missing values seen.
+	 *
+	 * @return the number of missing values
+	 */
+	public int getMissingCount() {
+		return m_MissingCount;
+	}
+
+	/**
+	 * Returns the number of distinct non-missing values seen.
+	 *
+	 * @return the number of distinct values
+	 */
+	public int getDistinctCount() {
+
+		if (m_LabelCounts == null) {
+			return m_Counts.m_Size;
+		}
+		int result = 0;
+		for (int count : m_LabelCounts) {
+			if (count > 0) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the total weight of the non-missing values.
+	 *
+	 * @return the sum of weights
+	 */
+	public double getSumOfWeights() {
+		return m_SumOfWeights;
+	}
+
+	/**
+	 * Returns the weighted mean of the non-missing values, 0 if there are
+	 * none, like Instances.meanOrMode(int) for numeric attributes.
+	 *
+	 * @return the mean
+	 */
+	public double getMean() {
+		return (m_SumOfWeights <= 0) ? 0 : m_WeightedSum / m_SumOfWeights;
+	}
+
+	/**
+	 * Returns the weighted variance of the non-missing values, computed like
+	 * Instances.variance(int).
+	 *
+	 * @return the variance, NaN if the sum of weights is at most 1
+	 */
+	public double getVariance() {
+
+		if (Double.isNaN(m_SumSquaredDifferences) || m_SumOfWeights <= 1) {
+			return Double.NaN;
+		}
+		double result = m_SumSquaredDifferences / (m_SumOfWeights - 1);
+		return (result < 0) ? 0 : result;
+	}
+
+	/**
+	 * Returns the smallest non-missing value.
+	 *
+	 * @return the minimum, NaN if all values are missing
+	 */
+	public double getMin() {
+		return m_Min;
+	}
+
+	/**
+	 * Returns the largest non-missing value.
+	 *
+	 * @return the maximum, NaN if all values are missing
+	 */
+	public double getMax() {
+		return m_Max;
+	}
+
+	/**
+	 * Returns the index of the label with the largest total weight.
+	 *
+	 * @return the mode, 0 if the attribute is not nominal or all values are
+	 *         missing
+	 */
+	public int getMode() {
+		return (m_LabelWeights == null || m_LabelWeights.length == 0) ? 0 : Utils.maxIndex(m_LabelWeights);
+	}
+
+	/**
+	 * Returns the counts of the labels if the attribute is nominal.
+	 *
+	 * @return the counts, null if the attribute is not nominal
+	 */
+	public int[] getLabelCounts() {
+		return (m_LabelCounts == null) ? null : m_LabelCounts.clone();
+	}
+
+	/**
+	 * Returns the statistics of the values added so far.
+	 *
+	 * @return the statistics
+	 */
+	public AttributeStats getStats() {
+
+		AttributeStats result = new AttributeStats();
+		result.totalCount = m_TotalCount;
+		result.missingCount = m_MissingCount;
+		if (m_LabelCounts != null) {
+			result.nominalCounts = new int[m_LabelCounts.length];
+			result.nominalWeights = new double[m_LabelCounts.length];
+			for (int i = 0; i < m_LabelCounts.length; i++) {
+				if (m_LabelCounts[i] > 0) {
+					result.addDistinct(i, m_LabelCounts[i], m_LabelWeights[i]);
+				}
+			}
+		} else {
+			for (int i = 0; i < m_Counts.m_Keys.length; i++) {
+				if (m_Counts.m_Counts[i] != 0) {
+					result.addDistinct(Double.longBitsToDouble(m_Counts.m_Keys[i]), m_Counts.m_Counts[i],
+							m_Counts.m_Weights[i]);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the accumulators of all attributes in a single pass over the
+	 * data. With more than one thread, chunks of rows are processed in
+	 * parallel and merged in order.
+	 *
+	 * @param data
+	 *            the dataset
+	 * @param numThreads
+	 *            the number of threads, 1 for a sequential pass, 0 or less
+	 *            for the number of available processors
+	 * @return the accumulators, one per attribute
+	 */
+	public static AttributeStatsAccumulator[] accumulate(Instances data, int numThreads) {
+
+		if (numThreads <= 0) {
+			numThreads = Runtime.getRuntime().availableProcessors();
+		}
+		int numChunks = Math.min(4 * numThreads, data.numInstances() / MIN_CHUNK_SIZE);
+		if (numThreads == 1 || numChunks < 2) {
+			return accumulate(data, 0, data.numInstances());
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		try {
+			List<ForkJoinTask<AttributeStatsAccumulator[]>> tasks = new ArrayList<>(numChunks);
+			for (int i = 0; i < numChunks; i++) {
+				int first = (int) ((long) data.numInstances() * i / numChunks);
+				int last = (int) ((long) data.numInstances() * (i + 1) / numChunks);
+				tasks.add(pool.submit(() -> accumulate(data, first, last)));
+			}
+			AttributeStatsAccumulator[] result = null;
+			for (ForkJoinTask<AttributeStatsAccumulator[]> task : tasks) {
+				AttributeStatsAccumulator[] chunk = task.get();
+				if (result == null) {
+					result = chunk;
+				} else {
+					for (int j = 0; j < result.length; j++) {
+						result[j].merge(chunk[j]);
+					}
+				}
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while computing statistics");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Computes the accumulators of all attributes over a range of rows. The
+	 * rows are processed in blocks, attribute by attribute within a block, so
+	 * that the counts of one attribute stay in the cache while its values are
+	 * added. Sparse rows are merged with the attribute indices instead of
+	 * looking up every value.
+	 *
+	 * @param data
+	 *            the dataset
+	 * @param first
+	 *            the first row
+	 * @param last
+	 *            the row after the last one
+	 * @return the accumulators, one per attribute
+	 */
+	protected static AttributeStatsAccumulator[] accumulate(Instances data, int first, int last) {
+
+		int numAtts = data.numAttributes();
+		AttributeStatsAccumulator[] result = new AttributeStatsAccumulator[numAtts];
+		for (int i = 0; i < numAtts; i++) {
+			result[i] = new AttributeStatsAccumulator(data.attribute(i));
+		}
+
+		Instance[] rows = new Instance[BLOCK_SIZE];
+		double[] weights = new double[BLOCK_SIZE];
+		int[] numValues = new int[BLOCK_SIZE];
+		int[] positions = new int[BLOCK_SIZE];
+		for (int start = first; start < last; start += BLOCK_SIZE) {
+			int size = Math.min(BLOCK_SIZE, last - start);
+			for (int r = 0; r < size; r++) {
+				rows[r] = data.instance(start + r);
+				weights[r] = rows[r].weight();
+				numValues[r] = rows[r].numValues();
+				positions[r] = 0;
+			}
+			for (int i = 0; i < numAtts; i++) {
+				AttributeStatsAccumulator accumulator = result[i];
+				for (int r = 0; r < size; r++) {
+					int j = positions[r];
+					if (j < numValues[r] && rows[r].index(j) == i) {
+						accumulator.add(rows[r].valueSparse(j), weights[r]);
+						positions[r] = j + 1;
+					} else {
+						accumulator.add(0, weights[r]);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -1124,13 +1124,12 @@ public class Capabilities implements Cloneable, Serializable, RevisionHandler {
 			return true;
 		}
 
-		int i, n, m;
+		int i, n;
 		Attribute att;
-		Instance inst;
 		boolean testClass;
 		Capabilities cap;
-		boolean missing;
 		Iterator<Capability> iter;
+		DataProfile profile;
 
 		// shall we test the data?
 		if (!m_InstancesTest) {
@@ -1148,24 +1147,25 @@ public class Capabilities implements Cloneable, Serializable, RevisionHandler {
 			return false;
 		}
 
+		profile = data.getDataProfile();
+
 		// do wee need to test the class attribute, i.e., is the class attribute
 		// within the range of attributes?
 		testClass = (data.classIndex() > -1) && (data.classIndex() >= fromIndex) && (data.classIndex() <= toIndex);
 
-		// attributes
-		for (i = fromIndex; i <= toIndex; i++) {
-			att = data.attribute(i);
-
-			// class is handled separately
-			if (i == data.classIndex()) {
-				continue;
-			}
-
-			// check attribute types
-			if (!test(att)) {
-				return false;
+		// attributes: the outcome of test(Attribute) only depends on the kind
+		// of the attribute, so testing the first attribute of each kind is
+		// enough; the first failing attribute determines the message
+		n = -1;
+		for (i = 0; i < DataProfile.NUM_KINDS; i++) {
+			int first = profile.firstOfKind(i, fromIndex, toIndex);
+			if ((first > -1) && ((n == -1) || (first < n)) && !test(data.attribute(first))) {
+				n = first;
 			}
 		}
+		if (n > -1) {
+			return test(data.attribute(n));
+		}
 
 		// class
 		if (!handles(Capability.NO_CLASS) && (data.classIndex() == -1)) {
@@ -1196,21 +1196,13 @@ public class Capabilities implements Cloneable, Serializable, RevisionHandler {
 			// missing class labels
 			if (m_MissingClassValuesTest) {
 				if (!handles(Capability.MISSING_CLASS_VALUES)) {
-					for (i = 0; i < data.numInstances(); i++) {
-						if (data.instance(i).classIsMissing()) {
-							m_FailReason = new WekaException(createMessage("Cannot handle missing class values!"));
-							return false;
-						}
+					if (profile.hasMissingClassValues()) {
+						m_FailReason = new WekaException(createMessage("Cannot handle missing class values!"));
+						return false;
 					}
 				} else {
 					if (m_MinimumNumberInstancesTest) {
-						int hasClass = 0;
-
-						for (i = 0; i < data.numInstances(); i++) {
-							if (!data.instance(i).classIsMissing()) {
-								hasClass++;
-							}
-						}
+						int hasClass = profile.numClassValues();
 
 						// not enough instances with class labels?
 						if (hasClass < getMinimumNumberInstances()) {
@@ -1227,51 +1219,10 @@ public class Capabilities implements Cloneable, Serializable, RevisionHandler {
 		// missing values
 		if (m_MissingValuesTest) {
 			if (!handles(Capability.MISSING_VALUES)) {
-				missing = false;
-				for (i = 0; i < data.numInstances(); i++) {
-					inst = data.instance(i);
-
-					if (inst instanceof SparseInstance) {
-						for (m = 0; m < inst.numValues(); m++) {
-							n = inst.index(m);
-
-							// out of scope?
-							if (n < fromIndex) {
-								continue;
-							}
-							if (n > toIndex) {
-								break;
-							}
-
-							// skip class
-							if (n == inst.classIndex()) {
-								continue;
-							}
-
-							if (inst.isMissing(n)) {
-								missing = true;
-								break;
-							}
-						}
-					} else {
-						for (n = fromIndex; n <= toIndex; n++) {
-							// skip class
-							if (n == inst.classIndex()) {
-								continue;
-							}
-
-							if (inst.isMissing(n)) {
-								missing = true;
-								break;
-							}
-						}
-					}
-
-					if (missing) {
-						m_FailReason = new NoSupportForMissingValuesException(
-								createMessage("Cannot handle missing values!"));
-						return false;
-					}
+				if (profile.firstMissing(fromIndex, toIndex) > -1) {
+					m_FailReason = new NoSupportForMissingValuesException(
+							createMessage("Cannot handle missing values!"));
+					return false;
 				}
 			}
 		}
@@ -1555,11 +1506,10 @@ public class Capabilities implements Cloneable, Serializable, RevisionHandler {
 	public static Capabilities forInstances(Instances data, boolean multi) throws Exception {
 		Capabilities result;
 		Capabilities multiInstance;
-		int i, n, m;
-		Instance inst;
-		boolean missing;
+		DataProfile profile;
 
 		result = new Capabilities(null);
+		profile = data.getDataProfile();
 
 		// class
 		if (data.classIndex() == -1) {
@@ -1598,90 +1548,44 @@ public class Capabilities implements Cloneable, Serializable, RevisionHandler {
 			}
 
 			// missing class values
-			for (i = 0; i < data.numInstances(); i++) {
-				if (data.instance(i).classIsMissing()) {
-					result.enable(Capability.MISSING_CLASS_VALUES);
-					break;
-				}
+			if (profile.hasMissingClassValues()) {
+				result.enable(Capability.MISSING_CLASS_VALUES);
 			}
 		}
 
 		// attributes
-		for (i = 0; i < data.numAttributes(); i++) {
-			// skip class
-			if (i == data.classIndex()) {
-				continue;
-			}
-
-			switch (data.attribute(i).type()) {
-			case Attribute.NOMINAL:
-				result.enable(Capability.UNARY_ATTRIBUTES);
-				if (data.attribute(i).numValues() == 2) {
-					result.enable(Capability.BINARY_ATTRIBUTES);
-				} else if (data.attribute(i).numValues() > 2) {
-					result.enable(Capability.NOMINAL_ATTRIBUTES);
-				}
-				break;
-
-			case Attribute.NUMERIC:
-				result.enable(Capability.NUMERIC_ATTRIBUTES);
-				break;
-
-			case Attribute.DATE:
-				result.enable(Capability.DATE_ATTRIBUTES);
-				break;
-
-			case Attribute.STRING:
-				result.enable(Capability.STRING_ATTRIBUTES);
-				break;
-
-			case Attribute.RELATIONAL:
-				result.enable(Capability.RELATIONAL_ATTRIBUTES);
-				break;
-
-			default:
-				throw new UnsupportedAttributeTypeException(
-						"Unknown attribute type '" + data.attribute(i).type() + "'!");
-			}
+		if (profile.hasKind(DataProfile.KIND_UNKNOWN)) {
+			throw new UnsupportedAttributeTypeException("Unknown attribute type '"
+					+ data.attribute(profile.firstOfKind(DataProfile.KIND_UNKNOWN, 0, data.numAttributes() - 1))
+							.type() + "'!");
+		}
+		if (profile.hasKind(DataProfile.KIND_EMPTY_NOMINAL) || profile.hasKind(DataProfile.KIND_UNARY)) {
+			result.enable(Capability.UNARY_ATTRIBUTES);
+		}
+		if (profile.hasKind(DataProfile.KIND_BINARY)) {
+			result.enable(Capability.UNARY_ATTRIBUTES);
+			result.enable(Capability.BINARY_ATTRIBUTES);
+		}
+		if (profile.hasKind(DataProfile.KIND_NOMINAL)) {
+			result.enable(Capability.UNARY_ATTRIBUTES);
+			result.enable(Capability.NOMINAL_ATTRIBUTES);
+		}
+		if (profile.hasKind(DataProfile.KIND_NUMERIC)) {
+			result.enable(Capability.NUMERIC_ATTRIBUTES);
+		}
+		if (profile.hasKind(DataProfile.KIND_DATE)) {
+			result.enable(Capability.DATE_ATTRIBUTES);
+		}
+		if (profile.hasKind(DataProfile.KIND_STRING)) {
+			result.enable(Capability.STRING_ATTRIBUTES);
+		}
+		if (profile.hasKind(DataProfile.KIND_RELATIONAL)) {
+			result.enable(Capability.RELATIONAL_ATTRIBUTES);
 		}
 
 		// missing values
-		missing = false;
-		for (i = 0; i < data.numInstances(); i++) {
-			inst = data.instance(i);
-
-			if (inst instanceof SparseInstance) {
-				for (m = 0; m < inst.numValues(); m++) {
-					n = inst.index(m);
-
-					// skip class
-					if (n == inst.classIndex()) {
-						continue;
-					}
-
-					if (inst.isMissing(n)) {
-						missing = true;
-						break;
-					}
-				}
-			} else {
-				for (n = 0; n < data.numAttributes(); n++) {
-					// skip class
-					if (n == inst.classIndex()) {
-						continue;
-					}
-
-					if (inst.isMissing(n)) {
-						missing = true;
-						break;
-					}
-				}
-			}
-
-			if (missing) {
-				result.enable(Capability.MISSING_VALUES);
-				break;
-			}
+		if (profile.firstMissing(0, data.numAttributes() - 1) > -1) {
+			result.enable(Capability.MISSING_VALUES);
 		}
 
 		// multi-instance data?
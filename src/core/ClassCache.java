@@ -22,6 +22,7 @@ package core;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -31,14 +32,22 @@ import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 /**
- * A singleton that stores all classes on the classpath.
+ * A singleton that stores all classes on the classpath. The content of jars
+ * is taken from a persistent ClassIndex (see getIndexFile()), so that only
+ * jars that were added or changed since the last run are read; directories
+ * are always scanned.
  * 
  * @author fracpete (fracpete at waikato dot ac dot nz)
  * @version $Revision$
@@ -51,6 +60,15 @@ public class ClassCache implements RevisionHandler {
 	/** the key for the default package. */
 	public final static String DEFAULT_PACKAGE = "DEFAULT";
 
+	/** the maximum number of threads scanning the classpath. */
+	public final static int MAX_THREADS = 8;
+
+	/**
+	 * the system property with the file of the persistent index, an empty
+	 * value disables the index.
+	 */
+	public final static String INDEX_FILE_PROPERTY = ClassCache.class.getName() + ".indexFile";
+
 	static {
 		// notify if VERBOSE is still on
 		if (VERBOSE) {
@@ -64,11 +82,47 @@ public class ClassCache implements RevisionHandler {
 	 */
 	protected Hashtable<String, HashSet<String>> m_Cache;
 
+	/** the persistent index of the jars, null if not used. */
+	protected ClassIndex m_Index;
+
+	/** the absolute paths of the parts of the classpath seen so far. */
+	protected Set<String> m_Parts;
+
 	/**
 	 * Initializes the cache.
 	 */
 	public ClassCache() {
 		super();
+		initialize();
+	}
+
+	/**
+	 * Returns the file of the persistent index: the value of the system
+	 * property INDEX_FILE_PROPERTY if set, otherwise "classcache.idx" in the
+	 * "wekafiles" directory in the user's home directory.
+	 * 
+	 * @return the file, null if the index is disabled
+	 */
+	public static File getIndexFile() {
+		String file;
+
+		file = System.getProperty(INDEX_FILE_PROPERTY);
+		if (file == null) {
+			return new File(System.getProperty("user.home"), "wekafiles" + File.separator + "classcache.idx");
+		} else if (file.length() == 0) {
+			return null;
+		} else {
+			return new File(file);
+		}
+	}
+
+	/**
+	 * Returns the persistent index of the jars on the classpath.
+	 * 
+	 * @return the index, null if not used
+	 */
+	public ClassIndex getIndex() {
+		return m_Index;
 	}
 
 	/**
@@ -157,23 +211,28 @@ public class ClassCache implements RevisionHandler {
 	}
 
 	/**
-	 * Fills the class cache with classes in the specified directory.
+	 * Collects the classes in the specified directory.
 	 * 
 	 * @param prefix
 	 *            the package prefix so far, null for default package
 	 * @param dir
 	 *            the directory to search
+	 * @param classnames
+	 *            the list to add the class names to
 	 */
-	protected void initFromDir(String prefix, File dir) {
+	protected static void scanDir(String prefix, File dir, List<String> classnames) {
 		File[] files;
 
 		// check classes
 		files = dir.listFiles(new ClassFileFilter());
+		if (files == null) {
+			return;
+		}
 		for (File file : files) {
 			if (prefix == null) {
-				add(file.getName());
+				classnames.add(file.getName());
 			} else {
-				add(prefix + "." + file.getName());
+				classnames.add(prefix + "." + file.getName());
 			}
 		}
 
@@ -181,41 +240,28 @@ public class ClassCache implements RevisionHandler {
 		files = dir.listFiles(new DirectoryFilter());
 		for (File file : files) {
 			if (prefix == null) {
-				initFromDir(file.getName(), file);
+				scanDir(file.getName(), file, classnames);
 			} else {
-				initFromDir(prefix + "." + file.getName(), file);
+				scanDir(prefix + "." + file.getName(), file, classnames);
 			}
 		}
 	}
 
 	/**
-	 * Fills the class cache with classes in the specified directory.
-	 * 
-	 * @param dir
-	 *            the directory to search
-	 */
-	protected void initFromDir(File dir) {
-		if (VERBOSE) {
-			System.out.println("Analyzing directory: " + dir);
-		}
-		initFromDir(null, dir);
-	}
-
-	/**
-	 * Analyzes the MANIFEST.MF file of a jar whether additional jars are listed
-	 * in the "Class-Path" key.
+	 * Collects the jars listed in the "Class-Path" key of a manifest.
 	 * 
 	 * @param manifest
-	 *            the manifest to analyze
+	 *            the manifest to analyze, can be null
+	 * @param parts
+	 *            the list to add the jars to
 	 */
-	protected void initFromManifest(Manifest manifest) {
+	protected static void scanManifest(Manifest manifest, List<String> parts) {
 		if (manifest == null) {
 			return;
 		}
 
 		Attributes atts;
 		String cp;
-		String[] parts;
 
 		atts = manifest.getMainAttributes();
 		cp = atts.getValue("Class-Path");
@@ -223,52 +269,160 @@ public class ClassCache implements RevisionHandler {
 			return;
 		}
 
-		parts = cp.split(" ");
-		for (String part : parts) {
+		for (String part : cp.split(" ")) {
 			if (part.trim().length() == 0) {
 				return;
 			}
 			if (part.toLowerCase().endsWith(".jar")) {
-				initFromClasspathPart(part);
+				parts.add(part);
 			}
 		}
 	}
 
 	/**
-	 * Fills the class cache with classes from the specified jar.
+	 * Collects the classes in the specified jar and the jars listed in its
+	 * manifest, using the index if there is one.
 	 * 
 	 * @param file
 	 *            the jar to inspect
+	 * @param result
+	 *            the result to add to
 	 */
-	protected void initFromJar(File file) {
-		JarFile jar;
-		JarEntry entry;
-		Enumeration<JarEntry> enm;
-
+	protected void scanJar(File file, ScanResult result) {
 		if (VERBOSE) {
 			System.out.println("Analyzing jar: " + file);
 		}
 
-		if (!file.exists()) {
-			System.out.println("Jar does not exist: " + file);
+		if (m_Index != null) {
+			try {
+				ClassIndex.Entry indexed = m_Index.get(file);
+				Collections.addAll(result.m_Classnames, indexed.getClassnames());
+				for (String part : indexed.getManifestClassPath()) {
+					if (part.toLowerCase().endsWith(".jar")) {
+						result.m_ClassPath.add(part);
+					}
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
 			return;
 		}
 
-		try {
-			jar = new JarFile(file);
-			enm = jar.entries();
+		try (JarFile jar = new JarFile(file)) {
+			Enumeration<JarEntry> enm = jar.entries();
 			while (enm.hasMoreElements()) {
-				entry = enm.nextElement();
+				JarEntry entry = enm.nextElement();
 				if (entry.getName().endsWith(".class")) {
-					add(entry.getName());
+					result.m_Classnames.add(entry.getName());
 				}
 			}
-			initFromManifest(jar.getManifest());
+			scanManifest(jar.getManifest(), result.m_ClassPath);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Collects the classes in a directory or jar. Does not change the cache,
+	 * so that several parts can be scanned concurrently.
+	 * 
+	 * @param file
+	 *            the directory or jar
+	 * @return the classes and the further parts of the classpath
+	 */
+	protected ScanResult scan(File file) {
+		ScanResult result;
+
+		result = new ScanResult();
+		if (file.isDirectory()) {
+			if (VERBOSE) {
+				System.out.println("Analyzing directory: " + file);
+			}
+			scanDir(null, file, result.m_Classnames);
+		} else if (file.exists()) {
+			scanJar(file, result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Adds the classes found by a scan to the cache.
+	 * 
+	 * @param result
+	 *            the result of the scan
+	 */
+	protected void merge(ScanResult result) {
+		for (String classname : result.m_Classnames) {
+			add(classname);
+		}
+	}
+
+	/**
+	 * Fills the class cache with classes in the specified directory.
+	 * 
+	 * @param prefix
+	 *            the package prefix so far, null for default package
+	 * @param dir
+	 *            the directory to search
+	 */
+	protected void initFromDir(String prefix, File dir) {
+		ScanResult result;
+
+		result = new ScanResult();
+		scanDir(prefix, dir, result.m_Classnames);
+		merge(result);
+	}
+
+	/**
+	 * Fills the class cache with classes in the specified directory.
+	 * 
+	 * @param dir
+	 *            the directory to search
+	 */
+	protected void initFromDir(File dir) {
+		if (VERBOSE) {
+			System.out.println("Analyzing directory: " + dir);
+		}
+		initFromDir(null, dir);
+	}
+
+	/**
+	 * Analyzes the MANIFEST.MF file of a jar whether additional jars are listed
+	 * in the "Class-Path" key.
+	 * 
+	 * @param manifest
+	 *            the manifest to analyze
+	 */
+	protected void initFromManifest(Manifest manifest) {
+		ArrayList<String> parts;
+
+		parts = new ArrayList<>();
+		scanManifest(manifest, parts);
+		initFromClasspath(parts);
+	}
+
+	/**
+	 * Fills the class cache with classes from the specified jar.
+	 * 
+	 * @param file
+	 *            the jar to inspect
+	 */
+	protected void initFromJar(File file) {
+		if (!file.exists()) {
+			System.out.println("Jar does not exist: " + file);
+			return;
+		}
+		if (!m_Parts.add(file.getAbsolutePath())) {
+			return;
+		}
+
+		ScanResult result = new ScanResult();
+		scanJar(file, result);
+		merge(result);
+		initFromClasspath(result.m_ClassPath);
+	}
+
 	/**
 	 * Returns all the stored packages.
 	 * 
@@ -294,12 +448,13 @@ public class ClassCache implements RevisionHandler {
 	}
 
 	/**
-	 * Analyzes a part of the classpath.
+	 * Turns a part of the classpath into a file.
 	 * 
 	 * @param part
-	 *            the part to analyze
+	 *            the part, a path or a "file:" URL
+	 * @return the file, null if the part cannot be interpreted
 	 */
-	protected void initFromClasspathPart(String part) {
+	protected static File toFile(String part) {
 		File file;
 
 		file = null;
@@ -307,44 +462,190 @@ public class ClassCache implements RevisionHandler {
 			part = part.replace(" ", "%20");
 			try {
 				file = new File(new java.net.URI(part));
-			} catch (URISyntaxException e) {
+			} catch (URISyntaxException | IllegalArgumentException e) {
 				System.err.println("Failed to generate URI: " + part);
 				e.printStackTrace();
 			}
 		} else {
 			file = new File(part);
 		}
-		if (file == null) {
-			System.err.println("Skipping: " + part);
+
+		return file;
+	}
+
+	/**
+	 * Analyzes a part of the classpath.
+	 * 
+	 * @param part
+	 *            the part to analyze
+	 */
+	protected void initFromClasspathPart(String part) {
+		ArrayList<String> parts;
+
+		parts = new ArrayList<>();
+		parts.add(part);
+		initFromClasspath(parts);
+	}
+
+	/**
+	 * Analyzes parts of the classpath, including the jars listed in the
+	 * manifests of the jars. The parts are scanned concurrently, round by
+	 * round (the jars found in the manifests of one round make up the next
+	 * one), and the results of each round are added to the cache in classpath
+	 * order. Parts that were analyzed already are skipped.
+	 * 
+	 * @param parts
+	 *            the parts to analyze
+	 */
+	protected void initFromClasspath(List<String> parts) {
+		ArrayList<File> round;
+		int numThreads;
+		ForkJoinPool pool;
+
+		round = newParts(parts);
+		if (round.size() == 0) {
 			return;
 		}
+		numThreads = Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS);
+		pool = (numThreads > 1) ? new ForkJoinPool(numThreads) : null;
+		try {
+			while (round.size() > 0) {
+				ArrayList<ScanResult> results = new ArrayList<>(round.size());
+				if ((pool == null) || (round.size() == 1)) {
+					for (File file : round) {
+						results.add(scan(file));
+					}
+				} else {
+					ArrayList<ForkJoinTask<ScanResult>> tasks = new ArrayList<>(round.size());
+					for (File file : round) {
+						tasks.add(pool.submit(() -> scan(file)));
+					}
+					for (ForkJoinTask<ScanResult> task : tasks) {
+						results.add(task.get());
+					}
+				}
 
-		// find classes
-		if (file.isDirectory()) {
-			initFromDir(file);
-		} else if (file.exists()) {
-			initFromJar(file);
+				ArrayList<String> next = new ArrayList<>();
+				for (ScanResult result : results) {
+					merge(result);
+					next.addAll(result.m_ClassPath);
+				}
+				round = newParts(next);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while scanning the classpath");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Turns parts of the classpath into files, leaving out the ones that
+	 * cannot be interpreted or were seen before.
+	 * 
+	 * @param parts
+	 *            the parts
+	 * @return the files to analyze
+	 */
+	protected ArrayList<File> newParts(List<String> parts) {
+		ArrayList<File> result;
+		File file;
+
+		result = new ArrayList<>();
+		for (String part : parts) {
+			if (VERBOSE) {
+				System.out.println("Classpath-part: " + part);
+			}
+			file = toFile(part);
+			if (file == null) {
+				System.err.println("Skipping: " + part);
+				continue;
+			}
+			if (!file.isDirectory() && !file.exists()) {
+				if (part.toLowerCase().endsWith(".jar")) {
+					System.out.println("Jar does not exist: " + file);
+				}
+				continue;
+			}
+			if (m_Parts.add(file.getAbsolutePath())) {
+				result.add(file);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the parts of the classpath: the URLs of the class loader if it
+	 * is a URLClassLoader, otherwise the entries of the "java.class.path" and
+	 * "jdk.module.path" system properties.
+	 * 
+	 * @return the parts
+	 */
+	protected ArrayList<String> classpathParts() {
+		ArrayList<String> result;
+
+		result = new ArrayList<>();
+		if (getClass().getClassLoader() instanceof URLClassLoader) {
+			for (URL url : ((URLClassLoader) getClass().getClassLoader()).getURLs()) {
+				result.add(url.toString());
+			}
+		} else {
+			for (String property : new String[] { "java.class.path", "jdk.module.path" }) {
+				String path = System.getProperty(property);
+				if (path == null) {
+					continue;
+				}
+				StringTokenizer tok = new StringTokenizer(path, File.pathSeparator);
+				while (tok.hasMoreTokens()) {
+					result.add(tok.nextToken());
+				}
+			}
 		}
+
+		return result;
 	}
 
 	/**
 	 * Initializes the cache.
 	 */
 	protected void initialize() {
-		String part = "";
-		URLClassLoader sysLoader;
-		URL[] urls;
+		File indexFile;
 
 		m_Cache = new Hashtable<>();
-
-		sysLoader = (URLClassLoader) getClass().getClassLoader();
-		urls = sysLoader.getURLs();
-		for (URL url : urls) {
-			part = url.toString();
-			if (VERBOSE) {
-				System.out.println("Classpath-part: " + part);
+		m_Parts = new HashSet<>();
+
+		indexFile = getIndexFile();
+		m_Index = (indexFile == null) ? null : ClassIndex.load(indexFile);
+
+		initFromClasspath(classpathParts());
+
+		// forget about jars that no longer exist; other applications may
+		// share the index with a different classpath
+		if (m_Index != null) {
+			m_Index.retainExisting();
+			m_Index.setActivePaths(m_Parts);
+			if (m_Index.isModified()) {
+				try {
+					m_Index.save(indexFile);
+				} catch (IOException e) {
+					if (VERBOSE) {
+						System.err.println("Failed to save class index " + indexFile + ": " + e);
+					}
+				}
 			}
-			initFromClasspathPart(part);
 		}
 	}
 
@@ -406,6 +707,21 @@ public class ClassCache implements RevisionHandler {
 		}
 	}
 
+	/**
+	 * The classes and the further parts of the classpath found in one part of
+	 * the classpath.
+	 * 
+	 * @version $Revision$
+	 */
+	protected static class ScanResult {
+
+		/** the class names, not cleaned up yet */
+		protected ArrayList<String> m_Classnames = new ArrayList<>();
+
+		/** the jars listed in manifests */
+		protected ArrayList<String> m_ClassPath = new ArrayList<>();
+	}
+
 	/**
 	 * For filtering classes.
 	 * 
@@ -135,7 +135,8 @@ public class ClassDiscovery implements RevisionHandler {
 	}
 
 	/**
-	 * Checks whether the given class implements the given interface.
+	 * Checks whether the given class implements the given interface, directly
+	 * or through an interface extending it.
 	 * 
 	 * @param intf
 	 *            the interface to look for in the given class
@@ -155,7 +156,7 @@ public class ClassDiscovery implements RevisionHandler {
 			// check all the interfaces, this class implements
 			intfs = currentclass.getInterfaces();
 			for (Class<?> iterator : intfs) {
-				if (iterator.equals(intf)) {
+				if (intf.isAssignableFrom(iterator)) {
 					result = true;
 					break;
 				}
@@ -335,6 +336,8 @@ public class ClassDiscovery implements RevisionHandler {
 	/**
 	 * Checks the given package for classes that inherited from the given class,
 	 * in case it's a class, or implement this class, in case it's an interface.
+	 * Classes from indexed jars are checked with the superclass and interface
+	 * information of the ClassIndex, only the others are loaded.
 	 * 
 	 * @param cls
 	 *            the class/interface to look for
@@ -346,6 +349,8 @@ public class ClassDiscovery implements RevisionHandler {
 		Vector<String> result;
 		int i;
 		Class<?> clsNew;
+		ClassIndex index;
+		Boolean candidate;
 
 		// already cached?
 		result = getCache(cls, pkgname);
@@ -361,11 +366,21 @@ public class ClassDiscovery implements RevisionHandler {
 			}
 
 			// check classes
+			index = m_ClassCache.getIndex();
 			i = 0;
 			while (i < result.size()) {
+				candidate = (index == null) ? null : index.isCandidate(cls, result.get(i));
+				if (candidate != null) {
+					if (candidate) {
+						i++;
+					} else {
+						result.remove(i);
+					}
+					continue;
+				}
+
 				try {
-					// clsNew = Class.forName(result.get(i));
-					clsNew = null;
+					clsNew = Class.forName(result.get(i), false, ClassDiscovery.class.getClassLoader());
 
 					// no abstract classes
 					if (Modifier.isAbstract(clsNew.getModifiers())) {
@@ -382,9 +397,10 @@ public class ClassDiscovery implements RevisionHandler {
 					} else {
 						i++;
 					}
-				} catch (Exception e) {
+				} catch (Throwable e) {
 					System.out.println("Accessing class '" + result.get(i) + "' resulted in error:");
 					e.printStackTrace();
+					result.remove(i);
 				}
 			}
 
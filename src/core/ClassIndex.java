@@ -0,0 +1,741 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ClassIndex.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * A persistent index of the classes in the jars on the classpath, used by
+ * ClassCache and ClassDiscovery. For every jar it stores the class names, the
+ * jars listed in the "Class-Path" key of the manifest and, read from the
+ * class files themselves, the access flags, superclass and interfaces of each
+ * class. Entries are keyed by the path, size and modification time of the
+ * jar, so a jar is only scanned again after it has changed. The superclass
+ * and interface information allows ClassDiscovery to check candidates without
+ * loading them.
+ * <p/>
+ *
+ * The index is stored in a simple binary format; a file that cannot be read
+ * (missing, corrupt or from another version) results in an empty index. The
+ * index is thread-safe, so that ClassCache can scan several jars at once;
+ * jars are scanned outside the lock.
+ *
+ * @version $Revision$
+ * @see ClassCache
+ */
+public class ClassIndex implements RevisionHandler {
+
+	/** whether to output some debug information. */
+	public final static boolean VERBOSE = false;
+
+	/** the magic number at the start of an index file ("WCIX") */
+	public final static int MAGIC = 0x57434958;
+
+	/** the version of the file format */
+	public final static int VERSION = 1;
+
+	/** the access flag of interfaces in class files */
+	public final static int ACC_INTERFACE = 0x0200;
+
+	/** the access flag of abstract classes in class files */
+	public final static int ACC_ABSTRACT = 0x0400;
+
+	/**
+	 * The information about a single class, as found in its class file.
+	 */
+	public static class ClassInfo {
+
+		/** the access flags */
+		protected int m_Access;
+
+		/** the name of the superclass, null for java.lang.Object */
+		protected String m_Superclass;
+
+		/** the names of the directly implemented interfaces */
+		protected String[] m_Interfaces;
+
+		/**
+		 * Initializes the information.
+		 *
+		 * @param access
+		 *            the access flags
+		 * @param superclass
+		 *            the name of the superclass, null if none
+		 * @param interfaces
+		 *            the names of the directly implemented interfaces
+		 */
+		public ClassInfo(int access, String superclass, String[] interfaces) {
+			m_Access = access;
+			m_Superclass = superclass;
+			m_Interfaces = interfaces;
+		}
+
+		/**
+		 * Returns whether the class is abstract (interfaces are abstract as
+		 * well).
+		 *
+		 * @return true if abstract
+		 */
+		public boolean isAbstract() {
+			return (m_Access & ACC_ABSTRACT) != 0;
+		}
+
+		/**
+		 * Returns whether the class is an interface.
+		 *
+		 * @return true if an interface
+		 */
+		public boolean isInterface() {
+			return (m_Access & ACC_INTERFACE) != 0;
+		}
+
+		/**
+		 * Returns the name of the superclass.
+		 *
+		 * @return the name, null if none
+		 */
+		public String getSuperclass() {
+			return m_Superclass;
+		}
+
+		/**
+		 * Returns the names of the directly implemented interfaces.
+		 *
+		 * @return the names
+		 */
+		public String[] getInterfaces() {
+			return m_Interfaces;
+		}
+	}
+
+	/**
+	 * The indexed content of a single jar.
+	 */
+	public static class Entry {
+
+		/** the absolute path of the jar */
+		protected String m_Path;
+
+		/** the size of the jar */
+		protected long m_Length;
+
+		/** the modification time of the jar */
+		protected long m_LastModified;
+
+		/** the names of the classes */
+		protected String[] m_Classnames;
+
+		/** the information about the classes, null where not available */
+		protected ClassInfo[] m_Infos;
+
+		/** the parts of the "Class-Path" key of the manifest */
+		protected String[] m_ManifestClassPath;
+
+		/**
+		 * Returns the names of the classes in the jar.
+		 *
+		 * @return the class names
+		 */
+		public String[] getClassnames() {
+			return m_Classnames;
+		}
+
+		/**
+		 * Returns the jars listed in the "Class-Path" key of the manifest.
+		 *
+		 * @return the jars, empty if none
+		 */
+		public String[] getManifestClassPath() {
+			return m_ManifestClassPath;
+		}
+	}
+
+	/** the entries, by path */
+	protected LinkedHashMap<String, Entry> m_Entries = new LinkedHashMap<>();
+
+	/** the information about all indexed classes, built when needed */
+	protected HashMap<String, ClassInfo> m_Infos;
+
+	/** the paths of the jars whose classes getInfo() knows, null for all */
+	protected Set<String> m_ActivePaths;
+
+	/** whether the index changed since it was loaded */
+	protected boolean m_Modified;
+
+	/**
+	 * Loads the index from the given file. If the file cannot be read or is
+	 * corrupt, an empty index is returned.
+	 *
+	 * @param file
+	 *            the file to load
+	 * @return the index
+	 */
+	public static ClassIndex load(File file) {
+
+		ClassIndex result = new ClassIndex();
+		if (!file.exists()) {
+			return result;
+		}
+
+		// every count is bounded by the bytes left for the counted items
+		long size = file.length();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if ((in.readInt() != MAGIC) || (in.readInt() != VERSION)) {
+				return result;
+			}
+			int numEntries = checkCount(in.readInt(), size);
+			for (int i = 0; i < numEntries; i++) {
+				Entry entry = new Entry();
+				entry.m_Path = in.readUTF();
+				entry.m_Length = in.readLong();
+				entry.m_LastModified = in.readLong();
+				int numClasses = checkCount(in.readInt(), size);
+				entry.m_Classnames = new String[numClasses];
+				entry.m_Infos = new ClassInfo[numClasses];
+				for (int n = 0; n < numClasses; n++) {
+					entry.m_Classnames[n] = in.readUTF();
+					if (in.readBoolean()) {
+						int access = in.readInt();
+						String superclass = in.readUTF();
+						String[] interfaces = new String[in.readUnsignedShort()];
+						for (int j = 0; j < interfaces.length; j++) {
+							interfaces[j] = in.readUTF();
+						}
+						entry.m_Infos[n] = new ClassInfo(access, (superclass.length() == 0) ? null : superclass,
+								interfaces);
+					}
+				}
+				entry.m_ManifestClassPath = new String[checkCount(in.readInt(), size)];
+				for (int n = 0; n < entry.m_ManifestClassPath.length; n++) {
+					entry.m_ManifestClassPath[n] = in.readUTF();
+				}
+				result.m_Entries.put(entry.m_Path, entry);
+			}
+		} catch (IOException | RuntimeException e) {
+			if (VERBOSE) {
+				System.err.println("Failed to read class index " + file + ": " + e);
+			}
+			result = new ClassIndex();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Checks a count read from an index file.
+	 *
+	 * @param count
+	 *            the count
+	 * @param size
+	 *            the size of the file, each counted item takes at least two
+	 *            bytes
+	 * @return the count
+	 * @throws IOException
+	 *             if the count is negative or larger than the file allows
+	 */
+	protected static int checkCount(int count, long size) throws IOException {
+
+		if ((count < 0) || (count > size / 2)) {
+			throw new IOException("Invalid count " + count);
+		}
+		return count;
+	}
+
+	/**
+	 * Saves the index to the given file. The file is replaced in one step, so
+	 * that concurrently starting JVMs never see a partial index.
+	 *
+	 * @param file
+	 *            the file to save to
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public synchronized void save(File file) throws IOException {
+
+		File dir = file.getAbsoluteFile().getParentFile();
+		if ((dir != null) && !dir.exists() && !dir.mkdirs()) {
+			throw new IOException("Cannot create directory " + dir);
+		}
+		File tmp = File.createTempFile("classindex", ".tmp", dir);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(m_Entries.size());
+			for (Entry entry : m_Entries.values()) {
+				out.writeUTF(entry.m_Path);
+				out.writeLong(entry.m_Length);
+				out.writeLong(entry.m_LastModified);
+				out.writeInt(entry.m_Classnames.length);
+				for (int n = 0; n < entry.m_Classnames.length; n++) {
+					out.writeUTF(entry.m_Classnames[n]);
+					ClassInfo info = entry.m_Infos[n];
+					out.writeBoolean(info != null);
+					if (info != null) {
+						out.writeInt(info.m_Access);
+						out.writeUTF((info.m_Superclass == null) ? "" : info.m_Superclass);
+						out.writeShort(info.m_Interfaces.length);
+						for (String intf : info.m_Interfaces) {
+							out.writeUTF(intf);
+						}
+					}
+				}
+				out.writeInt(entry.m_ManifestClassPath.length);
+				for (String part : entry.m_ManifestClassPath) {
+					out.writeUTF(part);
+				}
+			}
+		}
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+				throw new IOException("Cannot replace " + file);
+			}
+		}
+		m_Modified = false;
+	}
+
+	/**
+	 * Returns whether the index changed since it was loaded or saved.
+	 *
+	 * @return true if modified
+	 */
+	public synchronized boolean isModified() {
+		return m_Modified;
+	}
+
+	/**
+	 * Returns the number of indexed jars.
+	 *
+	 * @return the number of entries
+	 */
+	public synchronized int size() {
+		return m_Entries.size();
+	}
+
+	/**
+	 * Returns the entry of the given jar, if the jar has not changed since it
+	 * was indexed.
+	 *
+	 * @param jar
+	 *            the jar
+	 * @return the entry, null if the jar is not indexed or has changed
+	 */
+	public synchronized Entry lookup(File jar) {
+
+		Entry entry = m_Entries.get(jar.getAbsolutePath());
+		if ((entry == null) || (entry.m_Length != jar.length()) || (entry.m_LastModified != jar.lastModified())) {
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the entry of the given jar, scanning the jar if it is not
+	 * indexed yet or has changed since.
+	 *
+	 * @param jar
+	 *            the jar
+	 * @return the entry
+	 * @throws IOException
+	 *             if the jar cannot be read
+	 */
+	public Entry get(File jar) throws IOException {
+
+		Entry entry = lookup(jar);
+		if (entry == null) {
+			entry = scanJar(jar);
+			synchronized (this) {
+				m_Entries.put(entry.m_Path, entry);
+				m_Infos = null;
+				m_Modified = true;
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Removes the entries of all jars that no longer exist. Jars that exist but
+	 * are not on the current classpath are kept, since the index file is
+	 * shared by all applications of the user.
+	 */
+	public synchronized void retainExisting() {
+
+		Iterator<String> iter = m_Entries.keySet().iterator();
+		while (iter.hasNext()) {
+			if (!new File(iter.next()).isFile()) {
+				iter.remove();
+				m_Infos = null;
+				m_Modified = true;
+			}
+		}
+	}
+
+	/**
+	 * Removes the entries of all jars that are not in the given set of paths.
+	 *
+	 * @param paths
+	 *            the absolute paths of the jars to keep
+	 */
+	public synchronized void retain(Set<String> paths) {
+
+		Iterator<String> iter = m_Entries.keySet().iterator();
+		while (iter.hasNext()) {
+			if (!paths.contains(iter.next())) {
+				iter.remove();
+				m_Infos = null;
+				m_Modified = true;
+			}
+		}
+	}
+
+	/**
+	 * Reads the classes and the manifest of a jar.
+	 *
+	 * @param jar
+	 *            the jar to scan
+	 * @return the entry
+	 * @throws IOException
+	 *             if the jar cannot be read
+	 */
+	protected static Entry scanJar(File jar) throws IOException {
+
+		if (VERBOSE) {
+			System.out.println("Indexing jar: " + jar);
+		}
+
+		Entry result = new Entry();
+		result.m_Path = jar.getAbsolutePath();
+		result.m_Length = jar.length();
+		result.m_LastModified = jar.lastModified();
+
+		List<String> classnames = new ArrayList<>();
+		List<ClassInfo> infos = new ArrayList<>();
+		List<String> classPath = new ArrayList<>();
+		try (JarFile file = new JarFile(jar)) {
+			Enumeration<JarEntry> enm = file.entries();
+			while (enm.hasMoreElements()) {
+				JarEntry entry = enm.nextElement();
+				if (!entry.getName().endsWith(".class")) {
+					continue;
+				}
+				classnames.add(ClassCache.cleanUp(entry.getName()));
+				ClassInfo info = null;
+				try (InputStream in = file.getInputStream(entry)) {
+					info = readClassInfo(in);
+				} catch (IOException e) {
+					// not a valid class file, the class name is still listed
+				}
+				infos.add(info);
+			}
+
+			Manifest manifest = file.getManifest();
+			String cp = (manifest == null) ? null : manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+			if (cp != null) {
+				for (String part : cp.split(" ")) {
+					if (part.trim().length() == 0) {
+						break;
+					}
+					classPath.add(part);
+				}
+			}
+		}
+
+		result.m_Classnames = classnames.toArray(new String[classnames.size()]);
+		result.m_Infos = infos.toArray(new ClassInfo[infos.size()]);
+		result.m_ManifestClassPath = classPath.toArray(new String[classPath.size()]);
+		return result;
+	}
+
+	/**
+	 * Reads the access flags, the superclass and the interfaces from the
+	 * start of a class file, without loading the class.
+	 *
+	 * @param stream
+	 *            the class file
+	 * @return the information
+	 * @throws IOException
+	 *             if the stream is not a valid class file
+	 */
+	public static ClassInfo readClassInfo(InputStream stream) throws IOException {
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+		if (in.readInt() != 0xCAFEBABE) {
+			throw new IOException("Not a class file");
+		}
+		in.readUnsignedShort(); // minor version
+		in.readUnsignedShort(); // major version
+
+		// the constant pool, only UTF-8 strings and class references are kept
+		int count = in.readUnsignedShort();
+		String[] utf8 = new String[count];
+		int[] classNames = new int[count];
+		for (int i = 1; i < count; i++) {
+			int tag = in.readUnsignedByte();
+			switch (tag) {
+			case 1: // Utf8
+				utf8[i] = in.readUTF();
+				break;
+			case 7: // Class
+				classNames[i] = in.readUnsignedShort();
+				break;
+			case 8: // String
+			case 16: // MethodType
+			case 19: // Module
+			case 20: // Package
+				in.skipBytes(2);
+				break;
+			case 15: // MethodHandle
+				in.skipBytes(3);
+				break;
+			case 3: // Integer
+			case 4: // Float
+			case 9: // Fieldref
+			case 10: // Methodref
+			case 11: // InterfaceMethodref
+			case 12: // NameAndType
+			case 17: // Dynamic
+			case 18: // InvokeDynamic
+				in.skipBytes(4);
+				break;
+			case 5: // Long
+			case 6: // Double
+				in.skipBytes(8);
+				i++;
+				break;
+			default:
+				throw new IOException("Unknown constant pool tag " + tag);
+			}
+		}
+
+		int access = in.readUnsignedShort();
+		in.readUnsignedShort(); // this class
+		int superIndex = in.readUnsignedShort();
+		String superclass = (superIndex == 0) ? null : className(utf8, classNames, superIndex);
+		String[] interfaces = new String[in.readUnsignedShort()];
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaces[i] = className(utf8, classNames, in.readUnsignedShort());
+		}
+
+		return new ClassInfo(access, superclass, interfaces);
+	}
+
+	/**
+	 * Resolves a class reference of the constant pool.
+	 *
+	 * @param utf8
+	 *            the UTF-8 strings of the constant pool
+	 * @param classNames
+	 *            the name indices of the class references
+	 * @param index
+	 *            the index of the class reference
+	 * @return the class name, with "." as separator
+	 * @throws IOException
+	 *             if the reference is invalid
+	 */
+	protected static String className(String[] utf8, int[] classNames, int index) throws IOException {
+
+		if ((index <= 0) || (index >= classNames.length) || (utf8[classNames[index]] == null)) {
+			throw new IOException("Invalid class reference " + index);
+		}
+		return utf8[classNames[index]].replace('/', '.');
+	}
+
+	/**
+	 * Restricts the classes known to getInfo() and isCandidate() to those of
+	 * the given jars, i.e., those on the current classpath. Entries of other
+	 * jars stay in the index.
+	 *
+	 * @param paths
+	 *            the absolute paths of the jars, null for all
+	 */
+	public synchronized void setActivePaths(Set<String> paths) {
+
+		m_ActivePaths = paths;
+		m_Infos = null;
+	}
+
+	/**
+	 * Returns the information about an indexed class.
+	 *
+	 * @param classname
+	 *            the name of the class
+	 * @return the information, null if not available
+	 */
+	public synchronized ClassInfo getInfo(String classname) {
+
+		if (m_Infos == null) {
+			HashMap<String, ClassInfo> infos = new HashMap<>();
+			for (Entry entry : m_Entries.values()) {
+				if ((m_ActivePaths != null) && !m_ActivePaths.contains(entry.m_Path)) {
+					continue;
+				}
+				for (int n = 0; n < entry.m_Classnames.length; n++) {
+					if ((entry.m_Infos[n] != null) && !infos.containsKey(entry.m_Classnames[n])) {
+						infos.put(entry.m_Classnames[n], entry.m_Infos[n]);
+					}
+				}
+			}
+			m_Infos = infos;
+		}
+		return m_Infos.get(classname);
+	}
+
+	/**
+	 * Checks with the indexed information whether a class is a candidate for
+	 * ClassDiscovery.find(Class, String): it must not be abstract and must be
+	 * derived from the given class or, if that is an interface, one of it or
+	 * its superclasses must implement the interface or an interface extending
+	 * it (the same checks as ClassDiscovery.isSubclass() and
+	 * ClassDiscovery.hasInterface()).
+	 *
+	 * @param type
+	 *            the class or interface to look for
+	 * @param classname
+	 *            the name of the class to check
+	 * @return whether the class is a candidate, null if the index does not
+	 *         contain enough information to decide
+	 */
+	public Boolean isCandidate(Class<?> type, String classname) {
+
+		ClassInfo info = getInfo(classname);
+		if (info == null) {
+			return null;
+		}
+		if (info.isAbstract()) {
+			return Boolean.FALSE;
+		}
+
+		// classes loaded from the classpath cannot be supertypes of JDK
+		// classes
+		boolean jdkType = (type.getClassLoader() == null);
+		String name = type.getName();
+		String current = classname;
+		while (current != null) {
+			if (!type.isInterface() && current.equals(name)) {
+				return Boolean.TRUE;
+			}
+			info = getInfo(current);
+			if (info == null) {
+				if (current.equals("java.lang.Object") || (!jdkType && isJdkClass(current))) {
+					return Boolean.FALSE;
+				}
+				return null;
+			}
+			if (type.isInterface()) {
+				for (String intf : info.m_Interfaces) {
+					Boolean extended = extendsInterface(intf, name, jdkType, new HashSet<String>());
+					if (!Boolean.FALSE.equals(extended)) {
+						return extended;
+					}
+				}
+			}
+			current = info.m_Superclass;
+		}
+
+		return Boolean.FALSE;
+	}
+
+	/**
+	 * Checks with the indexed information whether an interface is the given
+	 * interface or extends it, directly or through other interfaces.
+	 *
+	 * @param intf
+	 *            the name of the interface to check
+	 * @param name
+	 *            the name of the interface to look for
+	 * @param jdkType
+	 *            whether the interface to look for belongs to the JDK
+	 * @param visited
+	 *            the interfaces checked so far
+	 * @return whether the interface extends the other one, null if the index
+	 *         does not contain enough information to decide
+	 */
+	protected Boolean extendsInterface(String intf, String name, boolean jdkType, HashSet<String> visited) {
+
+		if (intf.equals(name)) {
+			return Boolean.TRUE;
+		}
+		if (!visited.add(intf)) {
+			return Boolean.FALSE;
+		}
+		ClassInfo info = getInfo(intf);
+		if (info == null) {
+			// interfaces of the JDK cannot extend interfaces from the classpath
+			return (!jdkType && isJdkClass(intf)) ? Boolean.FALSE : null;
+		}
+
+		Boolean result = Boolean.FALSE;
+		for (String parent : info.m_Interfaces) {
+			Boolean extended = extendsInterface(parent, name, jdkType, visited);
+			if (Boolean.TRUE.equals(extended)) {
+				return Boolean.TRUE;
+			}
+			if (extended == null) {
+				result = null;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns whether the class belongs to the JDK, judging by its name.
+	 *
+	 * @param classname
+	 *            the name of the class
+	 * @return true if a JDK class
+	 */
+	protected static boolean isJdkClass(String classname) {
+		return classname.startsWith("java.") || classname.startsWith("javax.") || classname.startsWith("jdk.")
+				|| classname.startsWith("sun.") || classname.startsWith("com.sun.");
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
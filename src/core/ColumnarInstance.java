@@ -0,0 +1,349 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    ColumnarInstance.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+/**
+ * A lightweight view onto one row of a {@link ColumnarInstances} dataset. The
+ * view does not hold any attribute values itself: reads and writes go straight
+ * to the primitive columns of the underlying dataset. Views are positional,
+ * ie. they refer to a row index, so after the dataset has been reordered (for
+ * example by sorting) a view shows whatever row is now at its position.
+ * <p>
+ *
+ * Unlike the other instance implementations, changing a value of a view
+ * changes the dataset directly. Use <code>copy()</code> to obtain a detached
+ * <code>DenseInstance</code>.
+ *
+ * @version $Revision$
+ */
+public class ColumnarInstance extends AbstractInstance {
+
+	/** for serialization */
+	private static final long serialVersionUID = -2379410284217652317L;
+
+	/** The dataset holding the columns. */
+	protected ColumnarInstances m_Store;
+
+	/** The row this view refers to. */
+	protected int m_Row;
+
+	/**
+	 * Creates a view onto the given row of the dataset.
+	 *
+	 * @param store
+	 *            the dataset holding the values
+	 * @param row
+	 *            the row index
+	 */
+	public ColumnarInstance(ColumnarInstances store, int row) {
+
+		m_Store = store;
+		m_Row = row;
+		m_Dataset = store;
+	}
+
+	/**
+	 * Returns the row of the underlying dataset this view refers to.
+	 *
+	 * @return the row index
+	 */
+	public int getRow() {
+
+		return m_Row;
+	}
+
+	/**
+	 * Produces a detached copy of this row. The copy is a DenseInstance with
+	 * access to the same dataset.
+	 *
+	 * @return the copy
+	 */
+	@Override
+	public/* @pure@ */Object copy() {
+
+		DenseInstance result = new DenseInstance(weight(), toDoubleArray());
+		result.setDataset(m_Dataset);
+		return result;
+	}
+
+	/**
+	 * Copies the instance but fills up its values based on the given array of
+	 * doubles. The copy is a DenseInstance with access to the same dataset.
+	 *
+	 * @param values
+	 *            the array with new values
+	 * @return the new instance
+	 */
+	@Override
+	public Instance copy(double[] values) {
+
+		DenseInstance result = new DenseInstance(weight(), values);
+		result.setDataset(m_Dataset);
+		return result;
+	}
+
+	/**
+	 * Returns the index of the attribute stored at the given position. Just
+	 * returns the given value.
+	 *
+	 * @param position
+	 *            the position
+	 * @return the index of the attribute stored at the given position
+	 */
+	@Override
+	public/* @pure@ */int index(int position) {
+
+		return position;
+	}
+
+	/**
+	 * Merges this instance with the given instance and returns the result.
+	 * Dataset is set to null. The returned instance is a DenseInstance.
+	 *
+	 * @param inst
+	 *            the instance to be merged with this one
+	 * @return the merged instances
+	 */
+	@Override
+	public Instance mergeInstance(Instance inst) {
+
+		int m = 0;
+		double[] newVals = new double[numAttributes() + inst.numAttributes()];
+		for (int j = 0; j < numAttributes(); j++, m++) {
+			newVals[m] = value(j);
+		}
+		for (int j = 0; j < inst.numAttributes(); j++, m++) {
+			newVals[m] = inst.value(j);
+		}
+		return new DenseInstance(1.0, newVals);
+	}
+
+	/**
+	 * Returns the number of attributes.
+	 *
+	 * @return the number of attributes as an integer
+	 */
+	@Override
+	public/* @pure@ */int numAttributes() {
+
+		return m_Store.numColumns();
+	}
+
+	/**
+	 * Returns the number of values present. Always the same as numAttributes().
+	 *
+	 * @return the number of values
+	 */
+	@Override
+	public/* @pure@ */int numValues() {
+
+		return m_Store.numColumns();
+	}
+
+	/**
+	 * Replaces all missing values in the row with the values contained in the
+	 * given array.
+	 *
+	 * @param array
+	 *            containing the means and modes
+	 * @throws IllegalArgumentException
+	 *             if numbers of attributes are unequal
+	 */
+	@Override
+	public void replaceMissingValues(double[] array) {
+
+		if ((array == null) || (array.length != numAttributes())) {
+			throw new IllegalArgumentException("Unequal number of attributes!");
+		}
+		for (int i = 0; i < array.length; i++) {
+			if (isMissing(i)) {
+				setValue(i, array[i]);
+			}
+		}
+	}
+
+	/**
+	 * Sets a specific value in the row to the given value (internal
+	 * floating-point format). The value is written to the underlying dataset.
+	 *
+	 * @param attIndex
+	 *            the attribute's index
+	 * @param value
+	 *            the new attribute value
+	 */
+	@Override
+	public void setValue(int attIndex, double value) {
+
+		m_Store.setCell(m_Row, attIndex, value);
+	}
+
+	/**
+	 * Sets a specific value in the row to the given value. Does exactly the
+	 * same thing as setValue().
+	 *
+	 * @param indexOfIndex
+	 *            the index of the attribute's index
+	 * @param value
+	 *            the new attribute value
+	 */
+	@Override
+	public void setValueSparse(int indexOfIndex, double value) {
+
+		m_Store.setCell(m_Row, indexOfIndex, value);
+	}
+
+	/**
+	 * Sets the weight of the row in the underlying dataset.
+	 *
+	 * @param weight
+	 *            the weight
+	 */
+	@Override
+	public void setWeight(double weight) {
+
+		m_Store.setRowWeight(m_Row, weight);
+	}
+
+	/**
+	 * Returns the row's weight.
+	 *
+	 * @return the weight as a double
+	 */
+	@Override
+	public/* @pure@ */double weight() {
+
+		return m_Store.rowWeight(m_Row);
+	}
+
+	/**
+	 * Returns the values of each attribute as an array of doubles.
+	 *
+	 * @return an array containing all the instance attribute values
+	 */
+	@Override
+	public double[] toDoubleArray() {
+
+		double[] newValues = new double[numAttributes()];
+		for (int i = 0; i < newValues.length; i++) {
+			newValues[i] = value(i);
+		}
+		return newValues;
+	}
+
+	/**
+	 * Returns the description of one instance (without weight appended).
+	 *
+	 * @return the instance's description as a string
+	 */
+	@Override
+	public String toStringNoWeight() {
+		return toStringNoWeight(AbstractInstance.s_numericAfterDecimalPoint);
+	}
+
+	/**
+	 * Returns the description of one instance (without weight appended).
+	 *
+	 * @param afterDecimalPoint
+	 *            maximum number of digits after the decimal point for numeric
+	 *            values
+	 *
+	 * @return the instance's description as a string
+	 */
+	@Override
+	public String toStringNoWeight(int afterDecimalPoint) {
+		StringBuffer text = new StringBuffer();
+
+		for (int i = 0; i < numAttributes(); i++) {
+			if (i > 0) {
+				text.append(",");
+			}
+			text.append(toString(i, afterDecimalPoint));
+		}
+
+		return text.toString();
+	}
+
+	/**
+	 * Returns the row's attribute value in internal format.
+	 *
+	 * @param attIndex
+	 *            the attribute's index
+	 * @return the specified value as a double
+	 */
+	@Override
+	public/* @pure@ */double value(int attIndex) {
+
+		return m_Store.cell(m_Row, attIndex);
+	}
+
+	/**
+	 * Returns the row's attribute value in internal format, given an index in
+	 * the sparse representation. Same as value(int).
+	 *
+	 * @param indexOfIndex
+	 *            the index of the attribute's index
+	 * @return the specified value as a double
+	 */
+	@Override
+	public/* @pure@ */double valueSparse(int indexOfIndex) {
+
+		return m_Store.cell(m_Row, indexOfIndex);
+	}
+
+	/**
+	 * Not supported, the attribute layout is owned by the dataset.
+	 *
+	 * @param position
+	 *            the attribute's position
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	protected void forceDeleteAttributeAt(int position) {
+
+		throw new UnsupportedOperationException("Attributes of a columnar row can only be changed via its dataset!");
+	}
+
+	/**
+	 * Not supported, the attribute layout is owned by the dataset.
+	 *
+	 * @param position
+	 *            the attribute's position
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	protected void forceInsertAttributeAt(int position) {
+
+		throw new UnsupportedOperationException("Attributes of a columnar row can only be changed via its dataset!");
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -0,0 +1,960 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    ColumnarInstances.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+
+/**
+ * A set of instances that stores its data column by column: one primitive
+ * array per attribute plus one array holding the instance weights. No
+ * instance objects are kept for the rows. <code>instance(int)</code> and
+ * <code>get(int)</code> hand out {@link ColumnarInstance} views that read and
+ * write the columns directly.
+ * <p>
+ *
+ * Typical usage:
+ * <p>
+ *
+ * <pre>
+ * Instances data = new ColumnarInstances(source.getDataSet());
+ * </pre>
+ * <p>
+ *
+ * Compared to the row-based storage, this saves one object and one array per
+ * row and turns column scans (means, variances, attribute statistics) into
+ * loops over a single array. Like in the row-based case, string and relational
+ * values are not transferred when instances are added.
+ *
+ * @version $Revision$
+ */
+public class ColumnarInstances extends Instances {
+
+	/** for serialization */
+	private static final long serialVersionUID = 6190475236547318412L;
+
+	/** The attribute values, one array per attribute. */
+	protected double[][] m_Columns;
+
+	/** The instance weights. */
+	protected double[] m_Weights;
+
+	/** The number of rows in use. */
+	protected int m_NumRows;
+
+	/**
+	 * Creates a columnar copy of the given dataset. Copies references to the
+	 * header information and the values of all instances.
+	 *
+	 * @param dataset
+	 *            the set to be copied
+	 */
+	public ColumnarInstances(/* @non_null@ */Instances dataset) {
+
+		this(dataset, dataset.numInstances());
+
+		for (int i = 0; i < dataset.numInstances(); i++) {
+			add(dataset.instance(i));
+		}
+	}
+
+	/**
+	 * Creates an empty set of instances. Copies references to the header
+	 * information from the given set of instances and reserves space for the
+	 * given number of rows.
+	 *
+	 * @param dataset
+	 *            the instances from which the header information is to be taken
+	 * @param capacity
+	 *            the capacity of the new dataset
+	 */
+	public ColumnarInstances(/* @non_null@ */Instances dataset, int capacity) {
+
+		super(dataset, 0);
+		allocate(capacity);
+	}
+
+	/**
+	 * Creates an empty set of instances. Uses the given attribute information.
+	 *
+	 * @param name
+	 *            the name of the relation
+	 * @param attInfo
+	 *            the attribute information
+	 * @param capacity
+	 *            the capacity of the set
+	 * @throws IllegalArgumentException
+	 *             if attribute names are not unique
+	 */
+	public ColumnarInstances(/* @non_null@ */String name, /* @non_null@ */ArrayList<Attribute> attInfo, int capacity) {
+
+		super(name, attInfo, 0);
+		allocate(capacity);
+	}
+
+	/**
+	 * Allocates empty columns for the given number of rows.
+	 *
+	 * @param capacity
+	 *            the number of rows to reserve
+	 */
+	protected void allocate(int capacity) {
+
+		if (capacity < 0) {
+			capacity = 0;
+		}
+		m_Columns = new double[numAttributes()][capacity];
+		m_Weights = new double[capacity];
+		m_NumRows = 0;
+	}
+
+	/**
+	 * Makes sure that the columns can hold at least the given number of rows.
+	 *
+	 * @param minCapacity
+	 *            the number of rows required
+	 */
+	protected void ensureCapacity(int minCapacity) {
+
+		if (minCapacity <= m_Weights.length) {
+			return;
+		}
+		int newCapacity = Math.max(minCapacity, m_Weights.length + (m_Weights.length >> 1) + 1);
+		for (int j = 0; j < m_Columns.length; j++) {
+			double[] column = new double[newCapacity];
+			System.arraycopy(m_Columns[j], 0, column, 0, m_NumRows);
+			m_Columns[j] = column;
+		}
+		double[] weights = new double[newCapacity];
+		System.arraycopy(m_Weights, 0, weights, 0, m_NumRows);
+		m_Weights = weights;
+	}
+
+	/**
+	 * Checks whether the given row index is valid.
+	 *
+	 * @param index
+	 *            the row index
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is out of range
+	 */
+	protected void checkRow(int index) {
+
+		if ((index < 0) || (index >= m_NumRows)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_NumRows);
+		}
+	}
+
+	/**
+	 * Copies the values and the weight of the given instance into a row.
+	 *
+	 * @param row
+	 *            the row to write to
+	 * @param instance
+	 *            the instance to copy
+	 */
+	protected void writeRow(int row, Instance instance) {
+
+		for (int j = 0; j < m_Columns.length; j++) {
+			m_Columns[j][row] = instance.value(j);
+		}
+		m_Weights[row] = instance.weight();
+	}
+
+	/**
+	 * Returns the number of columns, ie. attributes.
+	 *
+	 * @return the number of columns
+	 */
+	protected int numColumns() {
+
+		return m_Columns.length;
+	}
+
+	/**
+	 * Returns a single value.
+	 *
+	 * @param row
+	 *            the row index
+	 * @param attIndex
+	 *            the attribute index
+	 * @return the value in internal format
+	 */
+	protected double cell(int row, int attIndex) {
+
+		return m_Columns[attIndex][row];
+	}
+
+	/**
+	 * Sets a single value.
+	 *
+	 * @param row
+	 *            the row index
+	 * @param attIndex
+	 *            the attribute index
+	 * @param value
+	 *            the value in internal format
+	 */
+	protected void setCell(int row, int attIndex, double value) {
+
+		m_Columns[attIndex][row] = value;
+	}
+
+	/**
+	 * Returns the weight of a row.
+	 *
+	 * @param row
+	 *            the row index
+	 * @return the weight
+	 */
+	protected double rowWeight(int row) {
+
+		return m_Weights[row];
+	}
+
+	/**
+	 * Sets the weight of a row.
+	 *
+	 * @param row
+	 *            the row index
+	 * @param weight
+	 *            the new weight
+	 */
+	protected void setRowWeight(int row, double weight) {
+
+		m_Weights[row] = weight;
+	}
+
+	/**
+	 * Reorders the rows. Row i of the result is row order[i] of the current
+	 * data.
+	 *
+	 * @param order
+	 *            the new order, must contain m_NumRows row indices
+	 */
+	@Override
+	protected void permute(int[] order) {
+
+		for (int j = 0; j < m_Columns.length; j++) {
+			double[] column = m_Columns[j];
+			double[] newColumn = new double[column.length];
+			for (int i = 0; i < order.length; i++) {
+				newColumn[i] = column[order[i]];
+			}
+			m_Columns[j] = newColumn;
+		}
+		double[] newWeights = new double[m_Weights.length];
+		for (int i = 0; i < order.length; i++) {
+			newWeights[i] = m_Weights[order[i]];
+		}
+		m_Weights = newWeights;
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Adds one instance to the end of the set. The values and the weight of
+	 * the instance are copied into the columns.
+	 *
+	 * @param instance
+	 *            the instance to be added
+	 */
+	@Override
+	public boolean add(/* @non_null@ */Instance instance) {
+
+		ensureCapacity(m_NumRows + 1);
+		writeRow(m_NumRows++, instance);
+		invalidateSortIndices();
+
+		return true;
+	}
+
+	/**
+	 * Adds one instance at the given position in the list. The values and the
+	 * weight of the instance are copied into the columns.
+	 *
+	 * @param index
+	 *            position where instance is to be inserted
+	 * @param instance
+	 *            the instance to be added
+	 */
+	@Override
+	public void add(int index, /* @non_null@ */Instance instance) {
+
+		if ((index < 0) || (index > m_NumRows)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_NumRows);
+		}
+		ensureCapacity(m_NumRows + 1);
+		for (double[] column : m_Columns) {
+			System.arraycopy(column, index, column, index + 1, m_NumRows - index);
+		}
+		System.arraycopy(m_Weights, index, m_Weights, index + 1, m_NumRows - index);
+		m_NumRows++;
+		writeRow(index, instance);
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Compactifies the set of instances. Decreases the capacity of the columns
+	 * so that it matches the number of instances in the set.
+	 */
+	@Override
+	public void compactify() {
+
+		if (m_Weights.length == m_NumRows) {
+			return;
+		}
+		for (int j = 0; j < m_Columns.length; j++) {
+			double[] column = new double[m_NumRows];
+			System.arraycopy(m_Columns[j], 0, column, 0, m_NumRows);
+			m_Columns[j] = column;
+		}
+		double[] weights = new double[m_NumRows];
+		System.arraycopy(m_Weights, 0, weights, 0, m_NumRows);
+		m_Weights = weights;
+	}
+
+	/**
+	 * Removes all instances from the set.
+	 */
+	@Override
+	public void delete() {
+
+		allocate(0);
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Removes an instance at the given position from the set.
+	 *
+	 * @param index
+	 *            the instance's position (index starts with 0)
+	 */
+	@Override
+	public void delete(int index) {
+
+		remove(index);
+	}
+
+	/**
+	 * Removes all instances with missing values for a particular attribute from
+	 * the dataset.
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	public void deleteWithMissing(int attIndex) {
+
+		double[] values = m_Columns[attIndex];
+		int[] keep = new int[m_NumRows];
+		int numKept = 0;
+		for (int i = 0; i < m_NumRows; i++) {
+			if (!Utils.isMissingValue(values[i])) {
+				keep[numKept++] = i;
+			}
+		}
+		for (double[] column : m_Columns) {
+			for (int i = 0; i < numKept; i++) {
+				column[i] = column[keep[i]];
+			}
+		}
+		for (int i = 0; i < numKept; i++) {
+			m_Weights[i] = m_Weights[keep[i]];
+		}
+		m_NumRows = numKept;
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Returns an enumeration of all instances in the dataset.
+	 *
+	 * @return enumeration of all instances in the dataset
+	 */
+	@Override
+	public/* @non_null pure@ */Enumeration<Instance> enumerateInstances() {
+
+		return new WekaEnumeration<>(this);
+	}
+
+	/**
+	 * Returns a view onto the first instance in the set.
+	 *
+	 * @return the first instance in the set
+	 */
+	@Override
+	public/* @non_null pure@ */Instance firstInstance() {
+
+		return instance(0);
+	}
+
+	/**
+	 * Returns a view onto the instance at the given position.
+	 *
+	 * @param index
+	 *            the instance's index (index starts with 0)
+	 * @return the instance at the given position
+	 */
+	@Override
+	public/* @non_null pure@ */Instance instance(int index) {
+
+		checkRow(index);
+		return new ColumnarInstance(this, index);
+	}
+
+	/**
+	 * Returns a view onto the instance at the given position.
+	 *
+	 * @param index
+	 *            the instance's index (index starts with 0)
+	 * @return the instance at the given position
+	 */
+	@Override
+	public/* @non_null pure@ */Instance get(int index) {
+
+		return instance(index);
+	}
+
+	/**
+	 * Returns a view onto the last instance in the set.
+	 *
+	 * @return the last instance in the set
+	 */
+	@Override
+	public/* @non_null pure@ */Instance lastInstance() {
+
+		return instance(m_NumRows - 1);
+	}
+
+	/**
+	 * Returns the number of instances in the dataset.
+	 *
+	 * @return the number of instances in the dataset as an integer
+	 */
+	@Override
+	public/* @pure@ */int numInstances() {
+
+		return m_NumRows;
+	}
+
+	/**
+	 * Returns the number of instances in the dataset.
+	 *
+	 * @return the number of instances in the dataset as an integer
+	 */
+	@Override
+	public/* @pure@ */int size() {
+
+		return m_NumRows;
+	}
+
+	/**
+	 * Removes the instance at the given position.
+	 *
+	 * @param index
+	 *            the instance's index (index starts with 0)
+	 * @return a detached copy of the removed instance
+	 */
+	@Override
+	public Instance remove(int index) {
+
+		checkRow(index);
+		Instance old = (Instance) instance(index).copy();
+		int numMoved = m_NumRows - index - 1;
+		for (double[] column : m_Columns) {
+			System.arraycopy(column, index + 1, column, index, numMoved);
+		}
+		System.arraycopy(m_Weights, index + 1, m_Weights, index, numMoved);
+		m_NumRows--;
+		invalidateSortIndices();
+
+		return old;
+	}
+
+	/**
+	 * Replaces the instance at the given position. The values and the weight
+	 * of the instance are copied into the columns.
+	 *
+	 * @param index
+	 *            position where instance is to be inserted
+	 * @param instance
+	 *            the instance to be inserted
+	 * @return a detached copy of the instance previously at that position
+	 */
+	@Override
+	public Instance set(int index, /* @non_null@ */Instance instance) {
+
+		checkRow(index);
+		Instance old = (Instance) instance(index).copy();
+		writeRow(index, instance);
+		invalidateSortIndices();
+
+		return old;
+	}
+
+	/**
+	 * Sorts a nominal attribute (stable, linear-time sort).
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	protected void sortBasedOnNominalAttribute(int attIndex) {
+
+		double[] values = m_Columns[attIndex];
+		int[] counts = new int[attribute(attIndex).numValues()];
+		for (int i = 0; i < m_NumRows; i++) {
+			if (!Utils.isMissingValue(values[i])) {
+				counts[(int) values[i]]++;
+			}
+		}
+		int[] indices = new int[counts.length];
+		int start = 0;
+		for (int i = 0; i < counts.length; i++) {
+			indices[i] = start;
+			start += counts[i];
+		}
+		int[] order = new int[m_NumRows];
+		for (int i = 0; i < m_NumRows; i++) {
+			if (!Utils.isMissingValue(values[i])) {
+				order[indices[(int) values[i]]++] = i;
+			} else {
+				order[start++] = i;
+			}
+		}
+		permute(order);
+	}
+
+	/**
+	 * Sorts the instances based on an attribute. Instances with missing
+	 * values for the attribute are placed at the end of the dataset.
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	public void sort(int attIndex) {
+
+		if (!attribute(attIndex).isNominal()) {
+			double[] vals = attributeToDoubleArray(attIndex);
+			Utils.replaceMissingWithMAX_VALUE(vals);
+			permute(Utils.sortWithNoMissingValues(vals));
+		} else {
+			sortBasedOnNominalAttribute(attIndex);
+		}
+	}
+
+	/**
+	 * Sorts the instances based on an attribute, using a stable sort.
+	 * Instances with missing values for the attribute are placed at the end of
+	 * the dataset.
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	public void stableSort(int attIndex) {
+
+		if (!attribute(attIndex).isNominal()) {
+			permute(Utils.stableSort(attributeToDoubleArray(attIndex)));
+		} else {
+			sortBasedOnNominalAttribute(attIndex);
+		}
+	}
+
+	/**
+	 * Swaps two instances in the set.
+	 *
+	 * @param i
+	 *            the first instance's index (index starts with 0)
+	 * @param j
+	 *            the second instance's index (index starts with 0)
+	 */
+	@Override
+	public void swap(int i, int j) {
+
+		checkRow(i);
+		checkRow(j);
+		for (double[] column : m_Columns) {
+			double help = column[i];
+			column[i] = column[j];
+			column[j] = help;
+		}
+		double help = m_Weights[i];
+		m_Weights[i] = m_Weights[j];
+		m_Weights[j] = help;
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Removes the column of the attribute at the given position.
+	 *
+	 * @param position
+	 *            the attribute's position (position starts with 0)
+	 */
+	@Override
+	protected void deleteAttributeValuesAt(int position) {
+
+		double[][] columns = new double[m_Columns.length - 1][];
+		System.arraycopy(m_Columns, 0, columns, 0, position);
+		System.arraycopy(m_Columns, position + 1, columns, position, m_Columns.length - position - 1);
+		m_Columns = columns;
+	}
+
+	/**
+	 * Inserts a column of missing values at the given position.
+	 *
+	 * @param position
+	 *            the attribute's position (position starts with 0)
+	 */
+	@Override
+	protected void insertAttributeValuesAt(int position) {
+
+		double[][] columns = new double[m_Columns.length + 1][];
+		System.arraycopy(m_Columns, 0, columns, 0, position);
+		columns[position] = new double[m_Weights.length];
+		Arrays.fill(columns[position], Utils.missingValue());
+		System.arraycopy(m_Columns, position, columns, position + 1, m_Columns.length - position);
+		m_Columns = columns;
+	}
+
+	/**
+	 * Sets the column of the attribute at the given position to missing.
+	 *
+	 * @param position
+	 *            the attribute's position (position starts with 0)
+	 */
+	@Override
+	protected void setAttributeValuesMissing(int position) {
+
+		Arrays.fill(m_Columns[position], Utils.missingValue());
+	}
+
+	/**
+	 * Removes the columns of several attributes.
+	 *
+	 * @param positions
+	 *            the attributes' positions, ascending and without duplicates
+	 */
+	@Override
+	protected void deleteAttributeValuesAt(int[] positions) {
+
+		double[][] columns = new double[m_Columns.length - positions.length][];
+		int p = 0;
+		for (int j = 0; j < m_Columns.length; j++) {
+			if ((p < positions.length) && (positions[p] == j)) {
+				p++;
+			} else {
+				columns[j - p] = m_Columns[j];
+			}
+		}
+		m_Columns = columns;
+	}
+
+	/**
+	 * Inserts the columns of several consecutive attributes at the given
+	 * position. The rows are not touched.
+	 *
+	 * @param position
+	 *            the position of the first new attribute
+	 * @param values
+	 *            for each new attribute, its values or null for missing values
+	 */
+	@Override
+	protected void insertAttributeValuesAt(int position, double[][] values) {
+
+		double[][] columns = new double[m_Columns.length + values.length][];
+		System.arraycopy(m_Columns, 0, columns, 0, position);
+		for (int k = 0; k < values.length; k++) {
+			columns[position + k] = newColumn(values[k]);
+		}
+		System.arraycopy(m_Columns, position, columns, position + values.length, m_Columns.length - position);
+		m_Columns = columns;
+	}
+
+	/**
+	 * Replaces the columns of several attributes. The rows are not touched.
+	 *
+	 * @param positions
+	 *            the attributes' positions
+	 * @param values
+	 *            for each attribute, its values or null for missing values
+	 */
+	@Override
+	protected void setAttributeValues(int[] positions, double[][] values) {
+
+		for (int k = 0; k < positions.length; k++) {
+			m_Columns[positions[k]] = newColumn(values[k]);
+		}
+	}
+
+	/**
+	 * Creates a column with the current capacity.
+	 *
+	 * @param values
+	 *            the values of the rows in use, null for missing values
+	 * @return the column
+	 */
+	protected double[] newColumn(double[] values) {
+
+		double[] column = new double[m_Weights.length];
+		if (values == null) {
+			Arrays.fill(column, Utils.missingValue());
+		} else {
+			System.arraycopy(values, 0, column, 0, m_NumRows);
+		}
+		return column;
+	}
+
+	/**
+	 * Merges several columnar sets side by side by copying their columns, see
+	 * Instances.mergeInstances(Instances...). All rows get weight 1.
+	 *
+	 * @param name
+	 *            the name of the merged relation
+	 * @param atts
+	 *            the merged attributes
+	 * @param datasets
+	 *            the sets to merge, all ColumnarInstances of the same size
+	 * @return the merged set
+	 */
+	protected static ColumnarInstances mergeColumns(String name, ArrayList<Attribute> atts, Instances[] datasets) {
+
+		int numRows = datasets[0].numInstances();
+		ColumnarInstances merged = new ColumnarInstances(name, atts, 0);
+		int j = 0;
+		for (Instances dataset : datasets) {
+			for (double[] column : ((ColumnarInstances) dataset).m_Columns) {
+				merged.m_Columns[j++] = Arrays.copyOf(column, numRows);
+			}
+		}
+		merged.m_Weights = new double[numRows];
+		Arrays.fill(merged.m_Weights, 1.0);
+		merged.m_NumRows = numRows;
+		return merged;
+	}
+
+	/**
+	 * Computes the sum of all the instances' weights.
+	 *
+	 * @return the sum of all the instances' weights as a double
+	 */
+	@Override
+	public/* @pure@ */double sumOfWeights() {
+
+		double sum = 0;
+		for (int i = 0; i < m_NumRows; i++) {
+			sum += m_Weights[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Gets the value of all instances in this dataset for a particular
+	 * attribute.
+	 *
+	 * @param index
+	 *            the index of the attribute.
+	 * @return a copy of the column of the desired attribute
+	 */
+	@Override
+	public/* @pure@ */double[] attributeToDoubleArray(int index) {
+
+		double[] result = new double[m_NumRows];
+		System.arraycopy(m_Columns[index], 0, result, 0, m_NumRows);
+		return result;
+	}
+
+	/**
+	 * Returns the mean (mode) for a numeric (nominal) attribute as a
+	 * floating-point value. Returns 0 if the attribute is neither nominal nor
+	 * numeric. If all values are missing it returns zero.
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 * @return the mean or the mode
+	 */
+	@Override
+	public/* @pure@ */double meanOrMode(int attIndex) {
+
+		double[] values = m_Columns[attIndex];
+		if (attribute(attIndex).isNumeric()) {
+			double result = 0;
+			double found = 0;
+			for (int j = 0; j < m_NumRows; j++) {
+				if (!Utils.isMissingValue(values[j])) {
+					found += m_Weights[j];
+					result += m_Weights[j] * values[j];
+				}
+			}
+			if (found <= 0) {
+				return 0;
+			} else {
+				return result / found;
+			}
+		} else if (attribute(attIndex).isNominal()) {
+			int[] counts = new int[attribute(attIndex).numValues()];
+			for (int j = 0; j < m_NumRows; j++) {
+				if (!Utils.isMissingValue(values[j])) {
+					counts[(int) values[j]] += m_Weights[j];
+				}
+			}
+			return Utils.maxIndex(counts);
+		} else {
+			return 0;
+		}
+	}
+
+	/**
+	 * Computes the variance for a numeric attribute.
+	 *
+	 * @param attIndex
+	 *            the numeric attribute (index starts with 0)
+	 * @return the variance if the attribute is numeric
+	 * @throws IllegalArgumentException
+	 *             if the attribute is not numeric
+	 */
+	@Override
+	public/* @pure@ */double variance(int attIndex) {
+
+		if (!attribute(attIndex).isNumeric()) {
+			throw new IllegalArgumentException("Can't compute variance because attribute is " + "not numeric!");
+		}
+
+		double[] values = m_Columns[attIndex];
+		double mean = 0;
+		double var = Double.NaN;
+		double sumWeights = 0;
+		for (int i = 0; i < m_NumRows; i++) {
+			double value = values[i];
+			if (Utils.isMissingValue(value)) {
+				continue;
+			}
+			double weight = m_Weights[i];
+			if (Double.isNaN(var)) {
+				// treat the first value separately to keep the mean accurate
+				mean = value;
+				sumWeights = weight;
+				var = 0;
+				continue;
+			}
+			double delta = weight * (value - mean);
+			sumWeights += weight;
+			mean += delta / sumWeights;
+			var += delta * (value - mean);
+		}
+
+		if (sumWeights <= 1) {
+			return Double.NaN;
+		}
+
+		var /= sumWeights - 1;
+
+		// We don't like negative variance
+		if (var < 0) {
+			return 0;
+		} else {
+			return var;
+		}
+	}
+
+	/**
+	 * Calculates summary statistics on the values that appear in this set of
+	 * instances for a specified attribute. Works on the column directly,
+	 * without boxing the values.
+	 *
+	 * @param index
+	 *            the index of the attribute to summarize (index starts with 0)
+	 * @return an AttributeStats object with it's fields calculated.
+	 */
+	@Override
+	public AttributeStats attributeStats(int index) {
+
+		AttributeStats result = new AttributeStats();
+		result.totalCount = m_NumRows;
+		double[] values = m_Columns[index];
+
+		if (attribute(index).isNominal()) {
+			int numValues = attribute(index).numValues();
+			result.nominalCounts = new int[numValues];
+			result.nominalWeights = new double[numValues];
+			int[] counts = new int[numValues];
+			double[] weights = new double[numValues];
+			for (int i = 0; i < m_NumRows; i++) {
+				if (Utils.isMissingValue(values[i])) {
+					result.missingCount++;
+				} else {
+					counts[(int) values[i]]++;
+					weights[(int) values[i]] += m_Weights[i];
+				}
+			}
+			for (int v = 0; v < numValues; v++) {
+				if (counts[v] > 0) {
+					result.addDistinct(v, counts[v], weights[v]);
+				}
+			}
+			return result;
+		}
+
+		double[] present = new double[m_NumRows];
+		double[] presentWeights = new double[m_NumRows];
+		int numPresent = 0;
+		for (int i = 0; i < m_NumRows; i++) {
+			if (Utils.isMissingValue(values[i])) {
+				result.missingCount++;
+			} else {
+				present[numPresent] = values[i];
+				presentWeights[numPresent++] = m_Weights[i];
+			}
+		}
+		if (numPresent < m_NumRows) {
+			double[] help = new double[numPresent];
+			System.arraycopy(present, 0, help, 0, numPresent);
+			present = help;
+		}
+
+		int[] order = Utils.sortWithNoMissingValues(present);
+		int i = 0;
+		while (i < numPresent) {
+			double value = present[order[i]];
+			int count = 0;
+			double weight = 0;
+			while ((i < numPresent) && (present[order[i]] == value)) {
+				weight += presentWeights[order[i]];
+				count++;
+				i++;
+			}
+			result.addDistinct(value, count, weight);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
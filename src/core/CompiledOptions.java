@@ -0,0 +1,251 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    CompiledOptions.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A command line ("classname option1 option2 ...") parsed once, from which any
+ * number of configured objects can be created. The command line is tokenized
+ * when it is compiled and the class is looked up only once per class name, so
+ * newInstance() only has to call the constructor and setOptions() with a copy
+ * of the tokens. Options whose value is itself a command line (e.g., the base
+ * classifier of a meta classifier) are left to setOptions() of the class.
+ * Example use:
+ * <p>
+ *
+ * <code> <pre>
+ * CompiledOptions template = CompiledOptions.compile(commandLine);
+ * for (...) {
+ *   Classifier c = template.newInstance(Classifier.class);
+ *   ...
+ * }
+ * </pre></code>
+ * <p>
+ *
+ * Compiled options are immutable and can be shared between threads.
+ *
+ * @version $Revision$
+ * @see Utils#splitOptions(String)
+ */
+public class CompiledOptions implements Serializable, RevisionHandler {
+
+	/** for serialization. */
+	private static final long serialVersionUID = -3385512683707271449L;
+
+	/** the maximum number of command lines whose compiled form is cached. */
+	public final static int CACHE_SIZE = 1024;
+
+	/** the no-argument constructors looked up so far, by class name. */
+	protected static final Map<String, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+	/** the command lines compiled so far. */
+	protected static final Map<String, CompiledOptions> COMPILED = new ConcurrentHashMap<>();
+
+	/** the name of the class. */
+	protected final String m_ClassName;
+
+	/** the options, tokenized. */
+	protected final String[] m_Options;
+
+	/** the constructor of the class, looked up again after deserialization. */
+	protected transient Constructor<?> m_Constructor;
+
+	/**
+	 * Compiles a class name and options.
+	 *
+	 * @param className
+	 *            the fully qualified class name
+	 * @param options
+	 *            the options, not changed
+	 * @throws Exception
+	 *             if the class can't be found or has no public no-argument
+	 *             constructor
+	 */
+	public CompiledOptions(String className, String[] options) throws Exception {
+
+		m_ClassName = className;
+		m_Options = options.clone();
+		m_Constructor = constructorFor(className);
+	}
+
+	/**
+	 * Compiles a command line, or returns the compiled form of an equal
+	 * command line that has been compiled before.
+	 *
+	 * @param commandLine
+	 *            the class name followed by the options
+	 * @return the compiled command line
+	 * @throws Exception
+	 *             if the command line can't be parsed, is empty or the class
+	 *             can't be found
+	 */
+	public static CompiledOptions compile(String commandLine) throws Exception {
+
+		CompiledOptions result = COMPILED.get(commandLine);
+		if (result == null) {
+			String[] options = Utils.splitOptions(commandLine);
+			if (options.length == 0) {
+				throw new Exception("Invalid command line '" + commandLine + "'");
+			}
+			result = new CompiledOptions(options[0], Arrays.copyOfRange(options, 1, options.length));
+			if (COMPILED.size() >= CACHE_SIZE) {
+				COMPILED.clear();
+			}
+			COMPILED.put(commandLine, result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the public no-argument constructor of a class, looking up the
+	 * class only the first time. The class is not initialized until an object
+	 * is created. Failed lookups are not remembered, since a class may become
+	 * available later (e.g., from a plugin).
+	 *
+	 * @param className
+	 *            the fully qualified class name
+	 * @return the constructor
+	 * @throws Exception
+	 *             if the class or its constructor can't be found
+	 */
+	public static Constructor<?> constructorFor(String className) throws Exception {
+
+		Constructor<?> constructor = CONSTRUCTORS.get(className);
+		if (constructor == null) {
+			try {
+				constructor = Class.forName(className, false, CompiledOptions.class.getClassLoader())
+						.getConstructor();
+			} catch (ClassNotFoundException | LinkageError e) {
+				throw new Exception("Can't find class called: " + className);
+			} catch (NoSuchMethodException | SecurityException e) {
+				throw new Exception("No public no-argument constructor in class: " + className);
+			}
+			CONSTRUCTORS.put(className, constructor);
+		}
+
+		return constructor;
+	}
+
+	/**
+	 * Creates a new object of the class and sets its options, if it is an
+	 * OptionHandler.
+	 *
+	 * @return the configured object
+	 * @throws Exception
+	 *             if the object can't be created or doesn't accept the options
+	 */
+	public Object newInstance() throws Exception {
+
+		if (m_Constructor == null) {
+			m_Constructor = constructorFor(m_ClassName);
+		}
+		Object o = m_Constructor.newInstance();
+		if (o instanceof OptionHandler) {
+			String[] options = m_Options.clone();
+			((OptionHandler) o).setOptions(options);
+			Utils.checkForRemainingOptions(options);
+		}
+		return o;
+	}
+
+	/**
+	 * Creates a new object of the class and sets its options, if it is an
+	 * OptionHandler.
+	 *
+	 * @param classType
+	 *            the class that the object should be assignable to
+	 * @param <T>
+	 *            the type of the object
+	 * @return the configured object
+	 * @throws Exception
+	 *             if the class is not assignable to the desired class type,
+	 *             or the object can't be created or doesn't accept the options
+	 */
+	public <T> T newInstance(Class<T> classType) throws Exception {
+
+		if (m_Constructor == null) {
+			m_Constructor = constructorFor(m_ClassName);
+		}
+		if (!classType.isAssignableFrom(m_Constructor.getDeclaringClass())) {
+			throw new Exception(classType.getName() + " is not assignable from " + m_ClassName);
+		}
+		return classType.cast(newInstance());
+	}
+
+	/**
+	 * Returns the name of the class.
+	 *
+	 * @return the class name
+	 */
+	public String getClassName() {
+
+		return m_ClassName;
+	}
+
+	/**
+	 * Returns the options.
+	 *
+	 * @return a copy of the options
+	 */
+	public String[] getOptions() {
+
+		return m_Options.clone();
+	}
+
+	/**
+	 * Returns the number of options.
+	 *
+	 * @return the number of options
+	 */
+	public int numOptions() {
+
+		return m_Options.length;
+	}
+
+	/**
+	 * Returns the command line.
+	 *
+	 * @return the class name followed by the options
+	 */
+	@Override
+	public String toString() {
+
+		String options = Utils.joinOptions(m_Options);
+		return (options.length() == 0) ? m_ClassName : m_ClassName + " " + options;
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -0,0 +1,317 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    DataProfile.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.util.BitSet;
+
+/**
+ * The properties of a set of instances that Capabilities checks: the kinds of
+ * the attributes, the attributes with missing values and the number of
+ * instances with a class value. The instances are scanned once, when missing
+ * values are first asked for; afterwards questions like "the first binary
+ * attribute between index 3 and 10, not counting the class" or "is any value
+ * of these attributes missing" are answered with a few bit set lookups
+ * instead of a scan of the data.
+ * <p/>
+ *
+ * A profile does not follow changes of the data; Instances caches it and
+ * discards it when the data changes, see Instances.getDataProfile().
+ *
+ * @version $Revision$
+ * @see Capabilities#test(Instances, int, int)
+ * @see Capabilities#forInstances(Instances, boolean)
+ */
+public class DataProfile implements RevisionHandler {
+
+	/** numeric attributes. */
+	public final static int KIND_NUMERIC = 0;
+
+	/** date attributes. */
+	public final static int KIND_DATE = 1;
+
+	/** string attributes. */
+	public final static int KIND_STRING = 2;
+
+	/** relational attributes. */
+	public final static int KIND_RELATIONAL = 3;
+
+	/** nominal attributes without values. */
+	public final static int KIND_EMPTY_NOMINAL = 4;
+
+	/** nominal attributes with one value. */
+	public final static int KIND_UNARY = 5;
+
+	/** nominal attributes with two values. */
+	public final static int KIND_BINARY = 6;
+
+	/** nominal attributes with more than two values. */
+	public final static int KIND_NOMINAL = 7;
+
+	/** attributes of an unknown type. */
+	public final static int KIND_UNKNOWN = 8;
+
+	/** the number of kinds. */
+	public final static int NUM_KINDS = 9;
+
+	/** the number of attributes. */
+	protected int m_NumAttributes;
+
+	/** the number of instances. */
+	protected int m_NumInstances;
+
+	/** the index of the class attribute, -1 if none. */
+	protected int m_ClassIndex;
+
+	/** the number of instances whose class value is not missing. */
+	protected int m_NumClassValues;
+
+	/** for each kind, the indices of the attributes of that kind. */
+	protected BitSet[] m_Kinds;
+
+	/** the indices of the attributes with at least one missing value. */
+	protected BitSet m_Missing;
+
+	/** the instances, until they have been scanned for missing values. */
+	protected Instances m_Data;
+
+	/**
+	 * Computes the profile of a set of instances.
+	 *
+	 * @param data
+	 *            the instances
+	 */
+	public DataProfile(Instances data) {
+		m_NumAttributes = data.numAttributes();
+		m_NumInstances = data.numInstances();
+		m_ClassIndex = data.classIndex();
+
+		m_Kinds = new BitSet[NUM_KINDS];
+		for (int k = 0; k < NUM_KINDS; k++) {
+			m_Kinds[k] = new BitSet();
+		}
+		for (int i = 0; i < m_NumAttributes; i++) {
+			m_Kinds[kindOf(data.attribute(i))].set(i);
+		}
+
+		m_Data = data;
+	}
+
+	/**
+	 * Scans the instances for missing values, unless done already.
+	 */
+	protected synchronized void scan() {
+		if (m_Data == null) {
+			return;
+		}
+
+		boolean[] missing = new boolean[m_NumAttributes];
+		int classMissing = 0;
+		for (int i = 0; i < m_NumInstances; i++) {
+			Instance inst = m_Data.instance(i);
+			for (int m = 0; m < inst.numValues(); m++) {
+				if (Utils.isMissingValue(inst.valueSparse(m))) {
+					int index = inst.index(m);
+					missing[index] = true;
+					if (index == m_ClassIndex) {
+						classMissing++;
+					}
+				}
+			}
+		}
+		m_NumClassValues = (m_ClassIndex > -1) ? m_NumInstances - classMissing : 0;
+		BitSet bits = new BitSet(m_NumAttributes);
+		for (int i = 0; i < m_NumAttributes; i++) {
+			if (missing[i]) {
+				bits.set(i);
+			}
+		}
+		m_Missing = bits;
+		m_Data = null;
+	}
+
+	/**
+	 * Returns the kind of an attribute, one of the KIND_ constants. Nominal
+	 * attributes are told apart by their number of values, since
+	 * Capabilities treats these cases differently.
+	 *
+	 * @param att
+	 *            the attribute
+	 * @return the kind
+	 */
+	public static int kindOf(Attribute att) {
+		switch (att.type()) {
+		case Attribute.NUMERIC:
+			return KIND_NUMERIC;
+		case Attribute.DATE:
+			return KIND_DATE;
+		case Attribute.STRING:
+			return KIND_STRING;
+		case Attribute.RELATIONAL:
+			return KIND_RELATIONAL;
+		case Attribute.NOMINAL:
+			switch (att.numValues()) {
+			case 0:
+				return KIND_EMPTY_NOMINAL;
+			case 1:
+				return KIND_UNARY;
+			case 2:
+				return KIND_BINARY;
+			default:
+				return KIND_NOMINAL;
+			}
+		default:
+			return KIND_UNKNOWN;
+		}
+	}
+
+	/**
+	 * Returns the number of attributes.
+	 *
+	 * @return the number of attributes
+	 */
+	public/* @pure@ */int numAttributes() {
+		return m_NumAttributes;
+	}
+
+	/**
+	 * Returns the number of instances.
+	 *
+	 * @return the number of instances
+	 */
+	public/* @pure@ */int numInstances() {
+		return m_NumInstances;
+	}
+
+	/**
+	 * Returns the index of the class attribute.
+	 *
+	 * @return the class index, -1 if none
+	 */
+	public/* @pure@ */int classIndex() {
+		return m_ClassIndex;
+	}
+
+	/**
+	 * Returns the number of instances whose class value is not missing.
+	 *
+	 * @return the number of instances with a class value, 0 if there is no
+	 *         class
+	 */
+	public int numClassValues() {
+		scan();
+		return m_NumClassValues;
+	}
+
+	/**
+	 * Returns whether some class values are missing.
+	 *
+	 * @return true if there is a class and some of its values are missing
+	 */
+	public boolean hasMissingClassValues() {
+		return (m_ClassIndex > -1) && (numClassValues() < m_NumInstances);
+	}
+
+	/**
+	 * Returns whether this profile describes the given instances, as far as
+	 * their size, number of attributes and class index tell.
+	 *
+	 * @param data
+	 *            the instances
+	 * @return true if the profile matches
+	 */
+	public boolean matches(Instances data) {
+		return (m_NumInstances == data.numInstances()) && (m_NumAttributes == data.numAttributes())
+				&& (m_ClassIndex == data.classIndex());
+	}
+
+	/**
+	 * Returns the first attribute of a kind within a range of attributes,
+	 * not counting the class attribute.
+	 *
+	 * @param kind
+	 *            the kind, one of the KIND_ constants
+	 * @param fromIndex
+	 *            the first attribute of the range (incl.)
+	 * @param toIndex
+	 *            the last attribute of the range (incl.)
+	 * @return the index of the attribute, -1 if none
+	 */
+	public int firstOfKind(int kind, int fromIndex, int toIndex) {
+		return first(m_Kinds[kind], fromIndex, toIndex);
+	}
+
+	/**
+	 * Returns whether any attribute except the class is of the given kind.
+	 *
+	 * @param kind
+	 *            the kind, one of the KIND_ constants
+	 * @return true if there is such an attribute
+	 */
+	public boolean hasKind(int kind) {
+		return firstOfKind(kind, 0, m_NumAttributes - 1) > -1;
+	}
+
+	/**
+	 * Returns the first attribute with missing values within a range of
+	 * attributes, not counting the class attribute.
+	 *
+	 * @param fromIndex
+	 *            the first attribute of the range (incl.)
+	 * @param toIndex
+	 *            the last attribute of the range (incl.)
+	 * @return the index of the attribute, -1 if none
+	 */
+	public int firstMissing(int fromIndex, int toIndex) {
+		scan();
+		return first(m_Missing, fromIndex, toIndex);
+	}
+
+	/**
+	 * Returns the first index set in a bit set within a range, skipping the
+	 * class index.
+	 *
+	 * @param bits
+	 *            the bit set
+	 * @param fromIndex
+	 *            the start of the range (incl.)
+	 * @param toIndex
+	 *            the end of the range (incl.)
+	 * @return the index, -1 if none
+	 */
+	protected int first(BitSet bits, int fromIndex, int toIndex) {
+		int i = bits.nextSetBit(Math.max(fromIndex, 0));
+		if ((i > -1) && (i == m_ClassIndex)) {
+			i = bits.nextSetBit(i + 1);
+		}
+		return ((i > -1) && (i <= toIndex)) ? i : -1;
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -401,6 +401,79 @@ public class DenseInstance extends AbstractInstance {
 		m_AttValues = newValues;
 	}
 
+	/**
+	 * Deletes several attributes at once, copying the values only once.
+	 * 
+	 * @param positions
+	 *            the attributes' positions, ascending and without duplicates
+	 */
+	@Override
+	protected void forceDeleteAttributesAt(int[] positions) {
+
+		double[] newValues = new double[m_AttValues.length - positions.length];
+
+		int from = 0;
+		int to = 0;
+		for (int position : positions) {
+			System.arraycopy(m_AttValues, from, newValues, to, position - from);
+			to += position - from;
+			from = position + 1;
+		}
+		System.arraycopy(m_AttValues, from, newValues, to, m_AttValues.length - from);
+		m_AttValues = newValues;
+	}
+
+	/**
+	 * Inserts several consecutive attributes at the given position (0 to
+	 * numAttributes()) with the given values, copying the values only once.
+	 * 
+	 * @param position
+	 *            the position of the first new attribute
+	 * @param values
+	 *            the values of the new attributes, not kept by the instance
+	 */
+	@Override
+	protected void forceInsertAttributesAt(int position, double[] values) {
+
+		double[] newValues = new double[m_AttValues.length + values.length];
+
+		System.arraycopy(m_AttValues, 0, newValues, 0, position);
+		System.arraycopy(values, 0, newValues, position, values.length);
+		System.arraycopy(m_AttValues, position, newValues, position + values.length, m_AttValues.length - position);
+		m_AttValues = newValues;
+	}
+
+	/**
+	 * Sets several values at once (internal floating-point format). Unlike
+	 * calling setValue(int, double) for each value, this copies the vector of
+	 * attribute values only once. If an index occurs more than once, the last
+	 * value is used.
+	 * 
+	 * @param attIndices
+	 *            the attributes' indices, in any order
+	 * @param values
+	 *            the new attribute values
+	 * @throws IllegalArgumentException
+	 *             if the arrays differ in length or an index is out of range
+	 */
+	public void setValues(int[] attIndices, double[] values) {
+
+		if (attIndices.length != values.length) {
+			throw new IllegalArgumentException("Number of indices and values differ: " + attIndices.length + " != "
+					+ values.length);
+		}
+		for (int attIndex : attIndices) {
+			if ((attIndex < 0) || (attIndex >= m_AttValues.length)) {
+				throw new IllegalArgumentException("Attribute index out of range: " + attIndex);
+			}
+		}
+		double[] newValues = toDoubleArray();
+		for (int i = 0; i < attIndices.length; i++) {
+			newValues[attIndices[i]] = values[i];
+		}
+		m_AttValues = newValues;
+	}
+
 	/**
 	 * Clones the attribute vector of the instance and overwrites it with the
 	 * clone.
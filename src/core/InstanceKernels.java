@@ -0,0 +1,560 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    InstanceKernels.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.util.List;
+
+/**
+ * Numeric kernels over instances: dot products, squared Euclidean distances,
+ * norms and axpy (y += alpha * x). The values of DenseInstance and
+ * SparseInstance objects are read directly from their arrays: dense vectors
+ * are processed in unrolled loops with independent partial sums, sparse
+ * vectors by merging their sorted indices, so no value(int) calls and binary
+ * searches are needed. Other instances are converted with toDoubleArray().
+ * <p/>
+ *
+ * All attributes take part, including the class attribute; nominal values
+ * count as their index. Missing values are NaN and therefore make the result
+ * NaN. Because of the partial sums, results may differ from a plain loop in
+ * the last bits.
+ *
+ * @version $Revision$
+ */
+public final class InstanceKernels implements RevisionHandler {
+
+	/**
+	 * the fraction of the magnitude of its terms below which a squared
+	 * distance derived from the squared norm of the query is computed again
+	 * directly, since too many digits cancelled out.
+	 */
+	public final static double CANCELLATION_LIMIT = 0x1p-20;
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private InstanceKernels() {
+	}
+
+	/**
+	 * Returns the dot product of two instances.
+	 *
+	 * @param a
+	 *            the first instance
+	 * @param b
+	 *            the second instance
+	 * @return the dot product
+	 * @throws IllegalArgumentException
+	 *             if the numbers of attributes differ
+	 */
+	public static double dot(Instance a, Instance b) {
+		checkDimensions(a, b);
+		if (a instanceof SparseInstance) {
+			SparseInstance sa = (SparseInstance) a;
+			if (b instanceof SparseInstance) {
+				SparseInstance sb = (SparseInstance) b;
+				return dot(sa.m_Indices, sa.m_AttValues, sa.m_Indices.length, sb.m_Indices, sb.m_AttValues,
+						sb.m_Indices.length);
+			}
+			return dot(sa.m_Indices, sa.m_AttValues, sa.m_Indices.length, denseValues(b));
+		}
+		if (b instanceof SparseInstance) {
+			SparseInstance sb = (SparseInstance) b;
+			return dot(sb.m_Indices, sb.m_AttValues, sb.m_Indices.length, denseValues(a));
+		}
+		return dot(denseValues(a), denseValues(b), a.numAttributes());
+	}
+
+	/**
+	 * Returns the squared Euclidean distance between two instances.
+	 *
+	 * @param a
+	 *            the first instance
+	 * @param b
+	 *            the second instance
+	 * @return the squared distance
+	 * @throws IllegalArgumentException
+	 *             if the numbers of attributes differ
+	 */
+	public static double squaredDistance(Instance a, Instance b) {
+		checkDimensions(a, b);
+		if (a instanceof SparseInstance) {
+			SparseInstance sa = (SparseInstance) a;
+			if (b instanceof SparseInstance) {
+				SparseInstance sb = (SparseInstance) b;
+				return squaredDistance(sa.m_Indices, sa.m_AttValues, sa.m_Indices.length, sb.m_Indices,
+						sb.m_AttValues, sb.m_Indices.length);
+			}
+			return squaredDistance(sa.m_Indices, sa.m_AttValues, sa.m_Indices.length, denseValues(b),
+					b.numAttributes());
+		}
+		if (b instanceof SparseInstance) {
+			SparseInstance sb = (SparseInstance) b;
+			return squaredDistance(sb.m_Indices, sb.m_AttValues, sb.m_Indices.length, denseValues(a),
+					a.numAttributes());
+		}
+		return squaredDistance(denseValues(a), denseValues(b), a.numAttributes());
+	}
+
+	/**
+	 * Returns the squared Euclidean norm of an instance.
+	 *
+	 * @param a
+	 *            the instance
+	 * @return the squared norm
+	 */
+	public static double squaredNorm(Instance a) {
+		if (a instanceof SparseInstance) {
+			SparseInstance sa = (SparseInstance) a;
+			return sumOfSquares(sa.m_AttValues, 0, sa.m_Indices.length);
+		}
+		return sumOfSquares(denseValues(a), 0, a.numAttributes());
+	}
+
+	/**
+	 * Returns the Euclidean norm of an instance.
+	 *
+	 * @param a
+	 *            the instance
+	 * @return the norm
+	 */
+	public static double norm(Instance a) {
+		return Math.sqrt(squaredNorm(a));
+	}
+
+	/**
+	 * Adds a multiple of an instance to a vector: y += alpha * x.
+	 *
+	 * @param alpha
+	 *            the factor
+	 * @param x
+	 *            the instance
+	 * @param y
+	 *            the vector, with one element per attribute
+	 * @throws IllegalArgumentException
+	 *             if the vector has the wrong length
+	 */
+	public static void axpy(double alpha, Instance x, double[] y) {
+		if (y.length != x.numAttributes()) {
+			throw new IllegalArgumentException(
+					"Vector length differs from number of attributes: " + y.length + " != " + x.numAttributes());
+		}
+		if (x instanceof SparseInstance) {
+			SparseInstance sx = (SparseInstance) x;
+			axpy(alpha, sx.m_Indices, sx.m_AttValues, sx.m_Indices.length, y);
+		} else {
+			axpy(alpha, denseValues(x), y, y.length);
+		}
+	}
+
+	/**
+	 * Computes the dot products of a query with a block of instances. The
+	 * query is converted into a dense vector once, so each instance costs a
+	 * single pass over its stored values.
+	 *
+	 * @param query
+	 *            the query
+	 * @param block
+	 *            the instances
+	 * @param result
+	 *            the array for the dot products, at least as long as the block
+	 * @throws IllegalArgumentException
+	 *             if the numbers of attributes differ or the result array is
+	 *             too short
+	 */
+	public static void dot(Instance query, List<? extends Instance> block, double[] result) {
+		if (result.length < block.size()) {
+			throw new IllegalArgumentException("Result array too short: " + result.length + " < " + block.size());
+		}
+		int n = query.numAttributes();
+		double[] q = denseValues(query);
+		for (int i = 0; i < block.size(); i++) {
+			Instance inst = block.get(i);
+			checkDimensions(query, inst);
+			if (inst instanceof SparseInstance) {
+				SparseInstance s = (SparseInstance) inst;
+				result[i] = dot(s.m_Indices, s.m_AttValues, s.m_Indices.length, q);
+			} else {
+				result[i] = dot(q, denseValues(inst), n);
+			}
+		}
+	}
+
+	/**
+	 * Computes the squared Euclidean distances of a query to a block of
+	 * instances. The query is converted into a dense vector once; for sparse
+	 * instances the distance is derived from the squared norm of the query,
+	 * so each instance costs a single pass over its stored values. If that
+	 * loses too many digits to cancellation (see CANCELLATION_LIMIT), e.g.
+	 * when a large query value is matched closely, the distance is computed
+	 * again over all elements of the query.
+	 *
+	 * @param query
+	 *            the query
+	 * @param block
+	 *            the instances
+	 * @param result
+	 *            the array for the squared distances, at least as long as the
+	 *            block
+	 * @throws IllegalArgumentException
+	 *             if the numbers of attributes differ or the result array is
+	 *             too short
+	 */
+	public static void squaredDistances(Instance query, List<? extends Instance> block, double[] result) {
+		if (result.length < block.size()) {
+			throw new IllegalArgumentException("Result array too short: " + result.length + " < " + block.size());
+		}
+		int n = query.numAttributes();
+		double[] q = denseValues(query);
+		double queryNorm = sumOfSquares(q, 0, n);
+		for (int i = 0; i < block.size(); i++) {
+			Instance inst = block.get(i);
+			checkDimensions(query, inst);
+			if (inst instanceof SparseInstance) {
+				SparseInstance s = (SparseInstance) inst;
+				double sum = queryNorm;
+				double magnitude = queryNorm;
+				int[] indices = s.m_Indices;
+				double[] values = s.m_AttValues;
+				for (int k = 0; k < indices.length; k++) {
+					double qv = q[indices[k]];
+					double diff = values[k] - qv;
+					sum += diff * diff - qv * qv;
+					magnitude += diff * diff + qv * qv;
+				}
+				if (sum < magnitude * CANCELLATION_LIMIT) {
+					sum = squaredDistance(indices, values, indices.length, q, n);
+				}
+				result[i] = sum;
+			} else {
+				result[i] = squaredDistance(q, denseValues(inst), n);
+			}
+		}
+	}
+
+	/**
+	 * Returns the dot product of two dense vectors.
+	 *
+	 * @param a
+	 *            the first vector
+	 * @param b
+	 *            the second vector
+	 * @param length
+	 *            the number of elements to use
+	 * @return the dot product
+	 */
+	public static double dot(double[] a, double[] b, int length) {
+		double s0 = 0;
+		double s1 = 0;
+		double s2 = 0;
+		double s3 = 0;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			s0 += a[i] * b[i];
+			s1 += a[i + 1] * b[i + 1];
+			s2 += a[i + 2] * b[i + 2];
+			s3 += a[i + 3] * b[i + 3];
+		}
+		for (; i < length; i++) {
+			s0 += a[i] * b[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	/**
+	 * Returns the dot product of a sparse and a dense vector.
+	 *
+	 * @param indices
+	 *            the indices of the sparse vector, ascending
+	 * @param values
+	 *            the values of the sparse vector
+	 * @param count
+	 *            the number of values of the sparse vector
+	 * @param dense
+	 *            the dense vector
+	 * @return the dot product
+	 */
+	public static double dot(int[] indices, double[] values, int count, double[] dense) {
+		double s0 = 0;
+		double s1 = 0;
+		int k = 0;
+		for (; k + 1 < count; k += 2) {
+			s0 += values[k] * dense[indices[k]];
+			s1 += values[k + 1] * dense[indices[k + 1]];
+		}
+		if (k < count) {
+			s0 += values[k] * dense[indices[k]];
+		}
+		return s0 + s1;
+	}
+
+	/**
+	 * Returns the dot product of two sparse vectors.
+	 *
+	 * @param aIndices
+	 *            the indices of the first vector, ascending
+	 * @param aValues
+	 *            the values of the first vector
+	 * @param aCount
+	 *            the number of values of the first vector
+	 * @param bIndices
+	 *            the indices of the second vector, ascending
+	 * @param bValues
+	 *            the values of the second vector
+	 * @param bCount
+	 *            the number of values of the second vector
+	 * @return the dot product
+	 */
+	public static double dot(int[] aIndices, double[] aValues, int aCount, int[] bIndices, double[] bValues,
+			int bCount) {
+		double sum = 0;
+		int i = 0;
+		int j = 0;
+		while ((i < aCount) && (j < bCount)) {
+			int ai = aIndices[i];
+			int bj = bIndices[j];
+			if (ai == bj) {
+				sum += aValues[i++] * bValues[j++];
+			} else if (ai < bj) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the squared Euclidean distance between two dense vectors.
+	 *
+	 * @param a
+	 *            the first vector
+	 * @param b
+	 *            the second vector
+	 * @param length
+	 *            the number of elements to use
+	 * @return the squared distance
+	 */
+	public static double squaredDistance(double[] a, double[] b, int length) {
+		double s0 = 0;
+		double s1 = 0;
+		double s2 = 0;
+		double s3 = 0;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			double d0 = a[i] - b[i];
+			double d1 = a[i + 1] - b[i + 1];
+			double d2 = a[i + 2] - b[i + 2];
+			double d3 = a[i + 3] - b[i + 3];
+			s0 += d0 * d0;
+			s1 += d1 * d1;
+			s2 += d2 * d2;
+			s3 += d3 * d3;
+		}
+		for (; i < length; i++) {
+			double d = a[i] - b[i];
+			s0 += d * d;
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	/**
+	 * Returns the squared Euclidean distance between a sparse and a dense
+	 * vector. Every element of the dense vector is visited once.
+	 *
+	 * @param indices
+	 *            the indices of the sparse vector, ascending
+	 * @param values
+	 *            the values of the sparse vector
+	 * @param count
+	 *            the number of values of the sparse vector
+	 * @param dense
+	 *            the dense vector
+	 * @param length
+	 *            the number of elements of the dense vector
+	 * @return the squared distance
+	 */
+	public static double squaredDistance(int[] indices, double[] values, int count, double[] dense, int length) {
+		double sum = 0;
+		int next = 0;
+		for (int k = 0; k < count; k++) {
+			int index = indices[k];
+			sum += sumOfSquares(dense, next, index);
+			double d = values[k] - dense[index];
+			sum += d * d;
+			next = index + 1;
+		}
+		return sum + sumOfSquares(dense, next, length);
+	}
+
+	/**
+	 * Returns the squared Euclidean distance between two sparse vectors.
+	 *
+	 * @param aIndices
+	 *            the indices of the first vector, ascending
+	 * @param aValues
+	 *            the values of the first vector
+	 * @param aCount
+	 *            the number of values of the first vector
+	 * @param bIndices
+	 *            the indices of the second vector, ascending
+	 * @param bValues
+	 *            the values of the second vector
+	 * @param bCount
+	 *            the number of values of the second vector
+	 * @return the squared distance
+	 */
+	public static double squaredDistance(int[] aIndices, double[] aValues, int aCount, int[] bIndices,
+			double[] bValues, int bCount) {
+		double sum = 0;
+		int i = 0;
+		int j = 0;
+		while ((i < aCount) && (j < bCount)) {
+			int ai = aIndices[i];
+			int bj = bIndices[j];
+			double d;
+			if (ai == bj) {
+				d = aValues[i++] - bValues[j++];
+			} else if (ai < bj) {
+				d = aValues[i++];
+			} else {
+				d = bValues[j++];
+			}
+			sum += d * d;
+		}
+		for (; i < aCount; i++) {
+			sum += aValues[i] * aValues[i];
+		}
+		for (; j < bCount; j++) {
+			sum += bValues[j] * bValues[j];
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the sum of the squares of a range of a vector.
+	 *
+	 * @param values
+	 *            the vector
+	 * @param from
+	 *            the first element, inclusive
+	 * @param to
+	 *            the last element, exclusive
+	 * @return the sum of squares
+	 */
+	public static double sumOfSquares(double[] values, int from, int to) {
+		double s0 = 0;
+		double s1 = 0;
+		double s2 = 0;
+		double s3 = 0;
+		int i = from;
+		for (; i + 3 < to; i += 4) {
+			s0 += values[i] * values[i];
+			s1 += values[i + 1] * values[i + 1];
+			s2 += values[i + 2] * values[i + 2];
+			s3 += values[i + 3] * values[i + 3];
+		}
+		for (; i < to; i++) {
+			s0 += values[i] * values[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	/**
+	 * Adds a multiple of a dense vector to another one: y += alpha * x.
+	 *
+	 * @param alpha
+	 *            the factor
+	 * @param x
+	 *            the vector to add
+	 * @param y
+	 *            the vector to add to
+	 * @param length
+	 *            the number of elements to use
+	 */
+	public static void axpy(double alpha, double[] x, double[] y, int length) {
+		for (int i = 0; i < length; i++) {
+			y[i] += alpha * x[i];
+		}
+	}
+
+	/**
+	 * Adds a multiple of a sparse vector to a dense one: y += alpha * x.
+	 *
+	 * @param alpha
+	 *            the factor
+	 * @param indices
+	 *            the indices of the sparse vector
+	 * @param values
+	 *            the values of the sparse vector
+	 * @param count
+	 *            the number of values of the sparse vector
+	 * @param y
+	 *            the vector to add to
+	 */
+	public static void axpy(double alpha, int[] indices, double[] values, int count, double[] y) {
+		for (int k = 0; k < count; k++) {
+			y[indices[k]] += alpha * values[k];
+		}
+	}
+
+	/**
+	 * Returns the values of a non-sparse instance as an array, without copying
+	 * them for DenseInstance objects. The array must not be changed.
+	 *
+	 * @param inst
+	 *            the instance
+	 * @return the values
+	 */
+	protected static double[] denseValues(Instance inst) {
+		if ((inst instanceof DenseInstance) && (((DenseInstance) inst).m_AttValues != null)) {
+			return ((DenseInstance) inst).m_AttValues;
+		}
+		return inst.toDoubleArray();
+	}
+
+	/**
+	 * Checks that two instances have the same number of attributes.
+	 *
+	 * @param a
+	 *            the first instance
+	 * @param b
+	 *            the second instance
+	 * @throws IllegalArgumentException
+	 *             if the numbers of attributes differ
+	 */
+	protected static void checkDimensions(Instance a, Instance b) {
+		if (a.numAttributes() != b.numAttributes()) {
+			throw new IllegalArgumentException(
+					"Numbers of attributes differ: " + a.numAttributes() + " != " + b.numAttributes());
+		}
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -0,0 +1,509 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    InstanceStream.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import core.converters.ConverterUtils.DataSource;
+import core.converters.Loader;
+
+/**
+ * A single pass over a sequence of instances that are read one at a time,
+ * typically from a loader in incremental mode. Operations like filter(),
+ * project(), sample() and limit() return new streams that do their work
+ * lazily while instances are pulled through with nextInstance(), so memory
+ * stays proportional to a single instance rather than to the size of the
+ * file. Terminal operations like count(), attributeStats(), collect() and
+ * reservoirSample() consume the stream.
+ * <p/>
+ *
+ * Example:
+ *
+ * <pre>
+ * ArffLoader loader = new ArffLoader();
+ * loader.setFile(new File(&quot;huge.arff&quot;));
+ * AttributeStats[] stats = InstanceStream.of(loader)
+ * 		.filter(inst -&gt; !inst.classIsMissing())
+ * 		.project(0, 3, 7)
+ * 		.attributeStats();
+ * </pre>
+ *
+ * As with the loaders, string values are only guaranteed to be valid until
+ * the next instance is read, unless the loader retains them; the statistics
+ * of string attributes are only meaningful if it does. collect() and
+ * reservoirSample() copy string and relational values into their result.
+ *
+ * @version $Revision$
+ */
+public abstract class InstanceStream implements RevisionHandler {
+
+	/** the structure of the instances returned */
+	protected Instances m_Structure;
+
+	/**
+	 * Initializes the stream.
+	 *
+	 * @param structure
+	 *            the structure of the instances returned
+	 */
+	protected InstanceStream(Instances structure) {
+		m_Structure = structure;
+	}
+
+	/**
+	 * Returns the next instance, null once the stream is exhausted.
+	 *
+	 * @return the next instance or null
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	public abstract Instance nextInstance() throws IOException;
+
+	/**
+	 * Returns the structure of the instances returned by the stream. The
+	 * instances have this header as their dataset.
+	 *
+	 * @return the structure
+	 */
+	public Instances getStructure() {
+		return m_Structure;
+	}
+
+	/**
+	 * Streams the instances of a loader in incremental mode.
+	 *
+	 * @param loader
+	 *            the loader, with its source already set
+	 * @return the stream
+	 * @throws IOException
+	 *             if the structure cannot be read
+	 */
+	public static InstanceStream of(Loader loader) throws IOException {
+
+		Instances structure = loader.getStructure();
+		return new InstanceStream(structure) {
+
+			@Override
+			public Instance nextInstance() throws IOException {
+				return loader.getNextInstance(m_Structure);
+			}
+		};
+	}
+
+	/**
+	 * Streams the instances of a data source. The source only reads
+	 * incrementally if its loader supports it.
+	 *
+	 * @param source
+	 *            the data source
+	 * @return the stream
+	 * @throws Exception
+	 *             if the structure cannot be read
+	 */
+	public static InstanceStream of(DataSource source) throws Exception {
+
+		Instances structure = source.getStructure();
+		return new InstanceStream(structure) {
+
+			@Override
+			public Instance nextInstance() {
+				return source.hasMoreElements(m_Structure) ? source.nextElement(m_Structure) : null;
+			}
+		};
+	}
+
+	/**
+	 * Streams the instances of a dataset that is already in memory.
+	 *
+	 * @param data
+	 *            the dataset
+	 * @return the stream
+	 */
+	public static InstanceStream of(Instances data) {
+
+		Iterator<Instance> iterator = data.iterator();
+		return new InstanceStream(data) {
+
+			@Override
+			public Instance nextInstance() {
+				return iterator.hasNext() ? iterator.next() : null;
+			}
+		};
+	}
+
+	/**
+	 * Returns a stream of the instances that satisfy the given condition.
+	 *
+	 * @param condition
+	 *            the condition
+	 * @return the filtered stream
+	 */
+	public InstanceStream filter(Predicate<Instance> condition) {
+
+		InstanceStream source = this;
+		return new InstanceStream(source.getStructure()) {
+
+			@Override
+			public Instance nextInstance() throws IOException {
+				Instance inst;
+				while ((inst = source.nextInstance()) != null) {
+					if (condition.test(inst)) {
+						return inst;
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Returns a stream of the instances reduced to the given attributes, in
+	 * the given order. The class attribute is kept as class if it is among the
+	 * selected attributes. Sparse instances remain sparse.
+	 *
+	 * @param attIndices
+	 *            the indices of the attributes to keep
+	 * @return the projected stream
+	 * @throws IllegalArgumentException
+	 *             if an index is out of range or selected twice
+	 */
+	public InstanceStream project(int... attIndices) {
+
+		InstanceStream source = this;
+		Instances input = source.getStructure();
+		ArrayList<Attribute> atts = new ArrayList<>(attIndices.length);
+		int classIndex = -1;
+		for (int i = 0; i < attIndices.length; i++) {
+			if (attIndices[i] < 0 || attIndices[i] >= input.numAttributes()) {
+				throw new IllegalArgumentException("Attribute index out of range: " + attIndices[i]);
+			}
+			if (attIndices[i] == input.classIndex()) {
+				classIndex = i;
+			}
+			atts.add((Attribute) input.attribute(attIndices[i]).copy());
+		}
+		Instances output = new Instances(input.relationName(), atts, 0);
+		output.setClassIndex(classIndex);
+		int[] indices = attIndices.clone();
+
+		return new InstanceStream(output) {
+
+			@Override
+			public Instance nextInstance() throws IOException {
+				Instance inst = source.nextInstance();
+				if (inst == null) {
+					return null;
+				}
+				double[] values = new double[indices.length];
+				for (int i = 0; i < indices.length; i++) {
+					values[i] = inst.value(indices[i]);
+				}
+				Instance result = (inst instanceof SparseInstance) ? new SparseInstance(inst.weight(), values)
+						: new DenseInstance(inst.weight(), values);
+				result.setDataset(m_Structure);
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * Returns a stream that keeps each instance with the given probability
+	 * (Bernoulli sampling), so the size of the sample is not fixed. See
+	 * reservoirSample(int, long) for a sample of fixed size.
+	 *
+	 * @param probability
+	 *            the probability of keeping an instance, between 0 and 1
+	 * @param seed
+	 *            the seed for the random number generator
+	 * @return the sampled stream
+	 * @throws IllegalArgumentException
+	 *             if the probability is out of range
+	 */
+	public InstanceStream sample(double probability, long seed) {
+
+		if (probability < 0 || probability > 1) {
+			throw new IllegalArgumentException("Probability must be between 0 and 1, provided: " + probability);
+		}
+		Random random = new Random(seed);
+		return filter(inst -> random.nextDouble() < probability);
+	}
+
+	/**
+	 * Returns a stream of at most the given number of instances. The source is
+	 * not read beyond that.
+	 *
+	 * @param maxInstances
+	 *            the maximum number of instances
+	 * @return the limited stream
+	 */
+	public InstanceStream limit(long maxInstances) {
+
+		InstanceStream source = this;
+		return new InstanceStream(source.getStructure()) {
+
+			protected long m_Count;
+
+			@Override
+			public Instance nextInstance() throws IOException {
+				if (m_Count >= maxInstances) {
+					return null;
+				}
+				m_Count++;
+				return source.nextInstance();
+			}
+		};
+	}
+
+	/**
+	 * Returns a stream that hands each instance to the given action as it
+	 * passes through.
+	 *
+	 * @param action
+	 *            the action
+	 * @return the stream
+	 */
+	public InstanceStream peek(Consumer<Instance> action) {
+
+		InstanceStream source = this;
+		return new InstanceStream(source.getStructure()) {
+
+			@Override
+			public Instance nextInstance() throws IOException {
+				Instance inst = source.nextInstance();
+				if (inst != null) {
+					action.accept(inst);
+				}
+				return inst;
+			}
+		};
+	}
+
+	/**
+	 * Returns a stream that adds each instance to the given accumulators as it
+	 * passes through, so running statistics are available at any time.
+	 *
+	 * @param accumulators
+	 *            the accumulators, for attributes of this stream's structure
+	 * @return the stream
+	 */
+	public InstanceStream track(AttributeStatsAccumulator... accumulators) {
+
+		return peek(inst -> {
+			for (AttributeStatsAccumulator accumulator : accumulators) {
+				accumulator.add(inst);
+			}
+		});
+	}
+
+	/**
+	 * Hands all remaining instances to the given action.
+	 *
+	 * @param action
+	 *            the action
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	public void forEach(Consumer<Instance> action) throws IOException {
+
+		Instance inst;
+		while ((inst = nextInstance()) != null) {
+			action.accept(inst);
+		}
+	}
+
+	/**
+	 * Counts the remaining instances.
+	 *
+	 * @return the number of instances
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	public long count() throws IOException {
+
+		long result = 0;
+		while (nextInstance() != null) {
+			result++;
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the statistics of all attributes over the remaining instances.
+	 *
+	 * @return the statistics, one per attribute
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	public AttributeStats[] attributeStats() throws IOException {
+
+		AttributeStatsAccumulator[] accumulators = new AttributeStatsAccumulator[m_Structure.numAttributes()];
+		for (int i = 0; i < accumulators.length; i++) {
+			accumulators[i] = new AttributeStatsAccumulator(m_Structure.attribute(i));
+		}
+		track(accumulators).count();
+
+		AttributeStats[] result = new AttributeStats[accumulators.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = accumulators[i].getStats();
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the remaining instances into a dataset. Only sensible once the
+	 * stream has been reduced to a size that fits into memory.
+	 *
+	 * @return the dataset
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	public Instances collect() throws IOException {
+
+		Instances result = emptyCopy(m_Structure);
+		Instance inst;
+		while ((inst = nextInstance()) != null) {
+			result.add(transfer(inst, result));
+		}
+		return result;
+	}
+
+	/**
+	 * Draws a uniform sample of the given size from the remaining instances
+	 * without replacement (reservoir sampling). Only the sample is kept in
+	 * memory; its order is the order of the stream.
+	 *
+	 * @param size
+	 *            the size of the sample
+	 * @param seed
+	 *            the seed for the random number generator
+	 * @return the sample, smaller than requested if the stream is shorter
+	 * @throws IOException
+	 *             if reading fails
+	 * @throws IllegalArgumentException
+	 *             if the size is negative
+	 */
+	public Instances reservoirSample(int size, long seed) throws IOException {
+
+		if (size < 0) {
+			throw new IllegalArgumentException("Sample size must not be negative, provided: " + size);
+		}
+		Random random = new Random(seed);
+		Instances header = emptyCopy(m_Structure);
+		Instance[] reservoir = new Instance[size];
+		long[] positions = new long[size];
+		long seen = 0;
+		Instance inst;
+		while ((inst = nextInstance()) != null) {
+			long slot = (seen < size) ? seen : (long) (random.nextDouble() * (seen + 1));
+			if (slot < size) {
+				reservoir[(int) slot] = transfer(inst, header);
+				positions[(int) slot] = seen;
+			}
+			seen++;
+		}
+
+		int numSampled = (int) Math.min(size, seen);
+		Integer[] order = new Integer[numSampled];
+		for (int i = 0; i < numSampled; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(positions[a], positions[b]));
+		Instances result = new Instances(header, numSampled);
+		for (Integer i : order) {
+			result.add(reservoir[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a copy of the structure with fresh string and relational
+	 * attributes, so that values can be added to it independently of the
+	 * source.
+	 *
+	 * @param structure
+	 *            the structure to copy
+	 * @return the copy
+	 */
+	public static Instances emptyCopy(Instances structure) {
+
+		ArrayList<Attribute> atts = new ArrayList<>(structure.numAttributes());
+		for (int i = 0; i < structure.numAttributes(); i++) {
+			Attribute att = structure.attribute(i);
+			if (att.isString()) {
+				Attribute copy = new Attribute(att.name(), true, att.getMetadata());
+				copy.setWeight(att.weight());
+				att = copy;
+			} else if (att.isRelationValued()) {
+				Attribute copy = new Attribute(att.name(), new Instances(att.relation(), 0), att.getMetadata());
+				copy.setWeight(att.weight());
+				att = copy;
+			} else {
+				att = (Attribute) att.copy();
+			}
+			atts.add(att);
+		}
+		Instances result = new Instances(structure.relationName(), atts, 0);
+		result.setClassIndex(structure.classIndex());
+		return result;
+	}
+
+	/**
+	 * Copies an instance, adding its string and relational values to the
+	 * attributes of the given dataset.
+	 *
+	 * @param inst
+	 *            the instance
+	 * @param dataset
+	 *            the dataset the copy belongs to
+	 * @return the copy
+	 */
+	protected static Instance transfer(Instance inst, Instances dataset) {
+
+		Instance result = (Instance) inst.copy();
+		for (int i = 0; i < dataset.numAttributes(); i++) {
+			Attribute att = dataset.attribute(i);
+			if ((att.isString() || att.isRelationValued()) && !inst.isMissing(i)) {
+				double value = att.isString() ? att.addStringValue(inst.stringValue(i))
+						: att.addRelation(inst.relationalValue(i));
+				result.setValue(i, value);
+			}
+		}
+		result.setDataset(dataset);
+		return result;
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -27,11 +27,11 @@ import java.io.Reader;
 import java.io.Serializable;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Random;
 
 import core.converters.ArffLoader.ArffReader;
@@ -122,6 +122,28 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 	 */
 	protected int m_Lines = 0;
 
+	/**
+	 * The cached sort orders, one permutation of the instances per attribute
+	 * (null if not computed yet), or null if caching is disabled.
+	 * 
+	 * @see #sortIndex(int)
+	 */
+	protected transient int[][] m_SortIndices;
+
+	/** Marks an empty sort order cache, so that invalidating it is cheap. */
+	protected static final int[][] NO_SORT_INDICES = new int[0][];
+
+	/** Whether the data profile is cached. */
+	protected transient boolean m_CacheDataProfile;
+
+	/**
+	 * The cached data profile, null if not computed yet or caching is
+	 * disabled.
+	 * 
+	 * @see #getDataProfile()
+	 */
+	protected transient DataProfile m_DataProfile;
+
 	/**
 	 * Reads an ARFF file from a reader, and assigns a weight of one to each
 	 * instance. Lets the index of the class attribute be undefined (negative).
@@ -185,6 +207,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		this(dataset, dataset.numInstances());
 
 		dataset.copyInstances(0, this, dataset.numInstances());
+		dataset.inheritSortIndices(this, range(0, dataset.numInstances()));
 	}
 
 	/**
@@ -224,6 +247,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 			throw new IllegalArgumentException("Parameters first and/or toCopy out " + "of range");
 		}
 		source.copyInstances(first, this, toCopy);
+		source.inheritSortIndices(this, range(first, toCopy));
 	}
 
 	/**
@@ -339,6 +363,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 
 		newInstance.setDataset(this);
 		m_Instances.add(newInstance);
+		invalidateSortIndices();
 
 		return true;
 	}
@@ -363,6 +388,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 
 		newInstance.setDataset(this);
 		m_Instances.add(index, newInstance);
+		invalidateSortIndices();
 	}
 
 	/**
@@ -499,6 +525,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 	public void delete() {
 
 		m_Instances = new ArrayList<>();
+		invalidateSortIndices();
 	}
 
 	/**
@@ -511,6 +538,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 	public void delete(int index) {
 
 		m_Instances.remove(index);
+		invalidateSortIndices();
 	}
 
 	/**
@@ -555,6 +583,19 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		if (m_ClassIndex > position) {
 			m_ClassIndex--;
 		}
+		deleteAttributeValuesAt(position);
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Removes the values of the attribute at the given position from all
+	 * instances. Called after the header has been updated.
+	 * 
+	 * @param position
+	 *            the attribute's position (position starts with 0)
+	 */
+	protected void deleteAttributeValuesAt(int position) {
+
 		for (int i = 0; i < numInstances(); i++) {
 			instance(i).setDataset(null);
 			instance(i).deleteAttributeAt(position);
@@ -562,6 +603,69 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		}
 	}
 
+	/**
+	 * Deletes several attributes at once. Unlike calling deleteAttributeAt(int)
+	 * for each of them, the header and the values of each instance are only
+	 * rebuilt once.
+	 * 
+	 * @param positions
+	 *            the attributes' positions (positions start with 0), in any
+	 *            order
+	 * @throws IllegalArgumentException
+	 *             if a position is out of range or the class attribute is
+	 *             being deleted
+	 */
+	public void deleteAttributesAt(int... positions) {
+
+		int[] sorted = sortedPositions(positions, m_Attributes.size());
+		if (sorted.length == 0) {
+			return;
+		}
+		if (Arrays.binarySearch(sorted, m_ClassIndex) >= 0) {
+			throw new IllegalArgumentException("Can't delete class attribute");
+		}
+
+		ArrayList<Attribute> newList = new ArrayList<>(m_Attributes.size() - sorted.length);
+		int p = 0;
+		for (int i = 0; i < m_Attributes.size(); i++) {
+			if ((p < sorted.length) && (sorted[p] == i)) {
+				p++;
+			} else {
+				newList.add(m_Attributes.get(i));
+			}
+		}
+		setAttributeList(newList);
+
+		if (m_ClassIndex > -1) {
+			m_ClassIndex -= -Arrays.binarySearch(sorted, m_ClassIndex) - 1;
+		}
+		deleteAttributeValuesAt(sorted);
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Removes the values of several attributes from all instances, rebuilding
+	 * each instance only once. Called after the header has been updated.
+	 * 
+	 * @param positions
+	 *            the attributes' positions, ascending and without duplicates
+	 */
+	protected void deleteAttributeValuesAt(int[] positions) {
+
+		for (int i = 0; i < numInstances(); i++) {
+			Instance inst = instance(i);
+			if (inst instanceof AbstractInstance) {
+				((AbstractInstance) inst).forceDeleteAttributesAt(positions);
+			} else {
+				inst.setDataset(null);
+				for (int k = positions.length - 1; k >= 0; k--) {
+					inst.deleteAttributeAt(positions[k]);
+				}
+				inst.setDataset(this);
+			}
+		}
+	}
+
 	/**
 	 * Deletes all attributes of the given type in the dataset. A deep copy of
 	 * the attribute information is performed before an attribute is deleted.
@@ -614,6 +718,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 			}
 		}
 		m_Instances = newInstances;
+		invalidateSortIndices();
 	}
 
 	/**
@@ -777,13 +882,127 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		m_Attributes = newList;
 		m_NamesToAttributeIndices = newMap;
 
+		insertAttributeValuesAt(position);
+		if (m_ClassIndex >= position) {
+			m_ClassIndex++;
+		}
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Inserts a missing value at the given position into all instances. Called
+	 * after the header has been updated.
+	 * 
+	 * @param position
+	 *            the attribute's position (position starts with 0)
+	 */
+	protected void insertAttributeValuesAt(int position) {
+
 		for (int i = 0; i < numInstances(); i++) {
 			instance(i).setDataset(null);
 			instance(i).insertAttributeAt(position);
 			instance(i).setDataset(this);
 		}
+	}
+
+	/**
+	 * Inserts several attributes at the given position (0 to numAttributes())
+	 * and sets all their values to be missing. Unlike calling
+	 * insertAttributeAt(Attribute, int) for each of them, the header and the
+	 * values of each instance are only rebuilt once.
+	 * 
+	 * @param atts
+	 *            the attributes to be inserted
+	 * @param position
+	 *            the position of the first new attribute
+	 * @throws IllegalArgumentException
+	 *             if the position is out of range or the attribute names are
+	 *             not unique
+	 */
+	public void insertAttributesAt(/* @non_null@ */List<Attribute> atts, int position) {
+
+		insertAttributesAt(atts, position, null);
+	}
+
+	/**
+	 * Inserts several attributes at the given position (0 to numAttributes())
+	 * together with their values, given column by column. Shallow copies the
+	 * attributes before they are inserted. The header and the values of each
+	 * instance are only rebuilt once, so this is the way to add derived
+	 * attributes to large datasets: filling in new attributes with setValue()
+	 * afterwards copies the values of an instance for every single value.
+	 * 
+	 * @param atts
+	 *            the attributes to be inserted
+	 * @param position
+	 *            the position of the first new attribute
+	 * @param values
+	 *            for each new attribute, its values in internal format, one
+	 *            per instance, or null for missing values; null for all values
+	 *            missing
+	 * @throws IllegalArgumentException
+	 *             if the position is out of range, the attribute names are not
+	 *             unique or the number of values is wrong
+	 */
+	public void insertAttributesAt(/* @non_null@ */List<Attribute> atts, int position, double[][] values) {
+
+		if ((position < 0) || (position > m_Attributes.size())) {
+			throw new IllegalArgumentException("Index out of range");
+		}
+		values = checkColumns(values, atts.size());
+		if (atts.isEmpty()) {
+			return;
+		}
+
+		ArrayList<Attribute> newList = new ArrayList<>(m_Attributes.size() + atts.size());
+		newList.addAll(m_Attributes.subList(0, position));
+		for (int k = 0; k < atts.size(); k++) {
+			Attribute att = (Attribute) atts.get(k).copy();
+			att.setIndex(position + k);
+			newList.add(att);
+		}
+		newList.addAll(m_Attributes.subList(position, m_Attributes.size()));
+		setAttributeList(newList);
+
+		insertAttributeValuesAt(position, values);
 		if (m_ClassIndex >= position) {
-			m_ClassIndex++;
+			m_ClassIndex += atts.size();
+		}
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Inserts the values of several consecutive attributes into all instances,
+	 * rebuilding each instance only once. Called after the header has been
+	 * updated.
+	 * 
+	 * @param position
+	 *            the position of the first new attribute
+	 * @param values
+	 *            for each new attribute, its values or null for missing values
+	 */
+	protected void insertAttributeValuesAt(int position, double[][] values) {
+
+		double[] row = new double[values.length];
+		for (int i = 0; i < numInstances(); i++) {
+			for (int k = 0; k < values.length; k++) {
+				row[k] = (values[k] == null) ? Utils.missingValue() : values[k][i];
+			}
+			Instance inst = instance(i);
+			if (inst instanceof AbstractInstance) {
+				((AbstractInstance) inst).forceInsertAttributesAt(position, row);
+			} else {
+				inst.setDataset(null);
+				for (int k = 0; k < row.length; k++) {
+					inst.insertAttributeAt(position + k);
+				}
+				inst.setDataset(this);
+				for (int k = 0; k < row.length; k++) {
+					if (!Utils.isMissingValue(row[k])) {
+						inst.setValue(position + k, row[k]);
+					}
+				}
+			}
 		}
 	}
 
@@ -863,6 +1082,34 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		return Utils.kthSmallestValue(vals, k);
 	}
 
+	/**
+	 * Returns the kth-smallest attribute value of a numeric attribute, using a
+	 * radix selection that may run in parallel. Missing values are treated as
+	 * Double.MAX_VALUE and the order of the instances in the data is not
+	 * affected.
+	 * 
+	 * @param attIndex
+	 *            the attribute's index
+	 * @param k
+	 *            the value of k
+	 * @param numThreads
+	 *            the number of threads, 1 for sequential selection, 0 or less
+	 *            for the number of available processors
+	 * @return the kth-smallest value
+	 */
+	public double kthSmallestValue(int attIndex, int k, int numThreads) {
+
+		if (!attribute(attIndex).isNumeric()) {
+			throw new IllegalArgumentException("Instances: attribute must be numeric to compute kth-smallest value.");
+		}
+
+		if ((k < 1) || (k > numInstances())) {
+			throw new IllegalArgumentException("Instances: value for k for computing kth-smallest value too large.");
+		}
+
+		return Utils.parallelKthSmallestValue(attributeToDoubleArray(attIndex), k, numThreads);
+	}
+
 	/**
 	 * Returns the last instance in the set.
 	 * 
@@ -973,14 +1220,11 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 	// @ requires attIndex < numAttributes();
 	public/* @pure@ */int numDistinctValues(int attIndex) {
 
-		HashSet<Double> set = new HashSet<>(2 * numInstances());
+		AttributeStatsAccumulator accumulator = new AttributeStatsAccumulator(attribute(attIndex));
 		for (Instance current : this) {
-			double key = current.value(attIndex);
-			if (!Utils.isMissingValue(key)) {
-				set.add(key);
-			}
+			accumulator.add(current);
 		}
-		return set.size();
+		return accumulator.getDistinctCount();
 	}
 
 	/**
@@ -1115,6 +1359,19 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		m_Attributes = newList;
 		m_NamesToAttributeIndices = newMap;
 
+		setAttributeValuesMissing(position);
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Sets the values of the attribute at the given position to missing in all
+	 * instances.
+	 * 
+	 * @param position
+	 *            the attribute's position (position starts with 0)
+	 */
+	protected void setAttributeValuesMissing(int position) {
+
 		for (int i = 0; i < numInstances(); i++) {
 			instance(i).setDataset(null);
 			instance(i).setMissing(position);
@@ -1122,6 +1379,184 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		}
 	}
 
+	/**
+	 * Replaces several attributes at once and sets all their values to be
+	 * missing. Unlike calling replaceAttributeAt(Attribute, int) for each of
+	 * them, the values of each instance are only rebuilt once.
+	 * 
+	 * @param atts
+	 *            the new attributes
+	 * @param positions
+	 *            the positions of the attributes to replace, one per new
+	 *            attribute
+	 * @throws IllegalArgumentException
+	 *             if a position is out of range or occurs twice, or the
+	 *             attribute names are not unique
+	 */
+	public void replaceAttributesAt(/* @non_null@ */List<Attribute> atts, int[] positions) {
+
+		replaceAttributesAt(atts, positions, null);
+	}
+
+	/**
+	 * Replaces several attributes at once and sets their values, given column
+	 * by column. Shallow copies the new attributes before they are inserted.
+	 * The values of each instance are only rebuilt once.
+	 * 
+	 * @param atts
+	 *            the new attributes
+	 * @param positions
+	 *            the positions of the attributes to replace, one per new
+	 *            attribute
+	 * @param values
+	 *            for each new attribute, its values in internal format, one
+	 *            per instance, or null for missing values; null for all values
+	 *            missing
+	 * @throws IllegalArgumentException
+	 *             if a position is out of range or occurs twice, the attribute
+	 *             names are not unique or the number of values is wrong
+	 */
+	public void replaceAttributesAt(/* @non_null@ */List<Attribute> atts, int[] positions, double[][] values) {
+
+		if (atts.size() != positions.length) {
+			throw new IllegalArgumentException(
+					"Number of attributes and positions differ: " + atts.size() + " != " + positions.length);
+		}
+		if (sortedPositions(positions, m_Attributes.size()).length != positions.length) {
+			throw new IllegalArgumentException("Positions must not occur twice");
+		}
+		values = checkColumns(values, atts.size());
+		if (atts.isEmpty()) {
+			return;
+		}
+
+		ArrayList<Attribute> newList = new ArrayList<>(m_Attributes);
+		for (int k = 0; k < positions.length; k++) {
+			Attribute att = (Attribute) atts.get(k).copy();
+			att.setIndex(positions[k]);
+			newList.set(positions[k], att);
+		}
+		setAttributeList(newList);
+
+		setAttributeValues(positions, values);
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Sets the values of several attributes in all instances, rebuilding each
+	 * instance only once.
+	 * 
+	 * @param positions
+	 *            the attributes' positions
+	 * @param values
+	 *            for each attribute, its values or null for missing values
+	 */
+	protected void setAttributeValues(int[] positions, double[][] values) {
+
+		double[] row = new double[values.length];
+		for (int i = 0; i < numInstances(); i++) {
+			for (int k = 0; k < values.length; k++) {
+				row[k] = (values[k] == null) ? Utils.missingValue() : values[k][i];
+			}
+			Instance inst = instance(i);
+			if (inst instanceof DenseInstance) {
+				((DenseInstance) inst).setValues(positions, row);
+			} else if (inst instanceof SparseInstance) {
+				((SparseInstance) inst).setValues(positions, row);
+			} else {
+				for (int k = 0; k < row.length; k++) {
+					inst.setValue(positions[k], row[k]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Installs a new list of attributes, copying those whose index changes.
+	 * New attributes must already be copies with the right index.
+	 * 
+	 * @param atts
+	 *            the attributes
+	 * @throws IllegalArgumentException
+	 *             if the attribute names are not unique
+	 */
+	protected void setAttributeList(ArrayList<Attribute> atts) {
+
+		HashMap<String, Integer> newMap = new HashMap<>((int) (atts.size() / 0.75));
+		for (int i = 0; i < atts.size(); i++) {
+			Integer previous = newMap.put(atts.get(i).name(), i);
+			if (previous != null) {
+				throw new IllegalArgumentException("Attribute name '" + atts.get(i).name()
+						+ "' already in use at position #" + previous);
+			}
+		}
+		for (int i = 0; i < atts.size(); i++) {
+			if (atts.get(i).index() != i) {
+				Attribute newAtt = (Attribute) atts.get(i).copy();
+				newAtt.setIndex(i);
+				atts.set(i, newAtt);
+			}
+		}
+		m_Attributes = atts;
+		m_NamesToAttributeIndices = newMap;
+	}
+
+	/**
+	 * Sorts attribute positions and removes duplicates.
+	 * 
+	 * @param positions
+	 *            the positions
+	 * @param numAttributes
+	 *            the number of attributes
+	 * @return the distinct positions in ascending order
+	 * @throws IllegalArgumentException
+	 *             if a position is out of range
+	 */
+	protected static int[] sortedPositions(int[] positions, int numAttributes) {
+
+		int[] sorted = positions.clone();
+		Arrays.sort(sorted);
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if ((sorted[i] < 0) || (sorted[i] >= numAttributes)) {
+				throw new IllegalArgumentException("Index out of range");
+			}
+			if ((count == 0) || (sorted[count - 1] != sorted[i])) {
+				sorted[count++] = sorted[i];
+			}
+		}
+		return (count == sorted.length) ? sorted : Arrays.copyOf(sorted, count);
+	}
+
+	/**
+	 * Checks the columns of values passed to the bulk attribute methods.
+	 * 
+	 * @param values
+	 *            the columns, or null
+	 * @param numColumns
+	 *            the expected number of columns
+	 * @return the columns, with null replaced by an array of null columns
+	 * @throws IllegalArgumentException
+	 *             if the number of columns or values is wrong
+	 */
+	protected double[][] checkColumns(double[][] values, int numColumns) {
+
+		if (values == null) {
+			return new double[numColumns][];
+		}
+		if (values.length != numColumns) {
+			throw new IllegalArgumentException(
+					"Number of attributes and columns differ: " + numColumns + " != " + values.length);
+		}
+		for (int k = 0; k < values.length; k++) {
+			if ((values[k] != null) && (values[k].length != numInstances())) {
+				throw new IllegalArgumentException("Column " + k + " has " + values[k].length
+						+ " values, but there are " + numInstances() + " instances");
+			}
+		}
+		return values;
+	}
+
 	/**
 	 * Returns the relation's name.
 	 * 
@@ -1145,7 +1580,9 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 	@Override
 	public Instance remove(int index) {
 
-		return m_Instances.remove(index);
+		Instance removed = m_Instances.remove(index);
+		invalidateSortIndices();
+		return removed;
 	}
 
 	/**
@@ -1407,68 +1844,50 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 			throw new IllegalArgumentException("weights.length != numInstances.");
 		}
 
-		Instances newData = new Instances(this, numInstances());
 		if (numInstances() == 0) {
-			return newData;
-		}
-
-		// Walker's method, see pp. 232 of "Stochastic Simulation" by B.D.
-		// Ripley
-		double[] P = new double[weights.length];
-		System.arraycopy(weights, 0, P, 0, weights.length);
-		Utils.normalize(P);
-		double[] Q = new double[weights.length];
-		int[] A = new int[weights.length];
-		int[] W = new int[weights.length];
-		int M = weights.length;
-		int NN = -1;
-		int NP = M;
-		for (int I = 0; I < M; I++) {
-			if (P[I] < 0) {
-				throw new IllegalArgumentException("Weights have to be positive.");
-			}
-			Q[I] = M * P[I];
-			if (Q[I] < 1.0) {
-				W[++NN] = I;
-			} else {
-				W[--NP] = I;
-			}
-		}
-		if (NN > -1 && NP < M) {
-			for (int S = 0; S < M - 1; S++) {
-				int I = W[S];
-				int J = W[NP];
-				A[I] = J;
-				Q[J] += Q[I] - 1.0;
-				if (Q[J] < 1.0) {
-					NP++;
-				}
-				if (NP >= M) {
-					break;
-				}
-			}
-			// A[W[M]] = W[M];
+			return new Instances(this, 0);
 		}
+		return resampleWithWeights(random, new AliasSampler(weights), sampled, representUsingWeights);
+	}
+
+	/**
+	 * Creates a new dataset of the same size using random sampling with
+	 * replacement, drawing with the given sampler. The sampler can be reused
+	 * for any number of datasets drawn with the same weights, which saves
+	 * building its tables every time. Otherwise the same as
+	 * resampleWithWeights(Random, double[], boolean[], boolean).
+	 * 
+	 * @param random
+	 *            a random number generator
+	 * @param sampler
+	 *            the sampler, built from one weight per instance
+	 * @param sampled
+	 *            an array indicating what has been sampled, can be null
+	 * @param representUsingWeights
+	 *            if true, copies are represented using weights in resampled
+	 *            data
+	 * @return the new dataset
+	 * @throws IllegalArgumentException
+	 *             if the sampler was not built for this number of instances
+	 */
+	public Instances resampleWithWeights(Random random, AliasSampler sampler, boolean[] sampled,
+			boolean representUsingWeights) {
 
-		for (int I = 0; I < M; I++) {
-			Q[I] += I;
+		if (sampler.size() != numInstances()) {
+			throw new IllegalArgumentException("sampler.size() != numInstances.");
 		}
 
+		Instances newData = new Instances(this, numInstances());
+		int[] draws = sampler.draw(random, numInstances());
+		int[] rows = draws;
+
 		// Do we need to keep track of how many copies to use?
 		int[] counts = null;
 		if (representUsingWeights) {
-			counts = new int[M];
+			counts = new int[numInstances()];
 		}
 
-		for (int i = 0; i < numInstances(); i++) {
-			int ALRV;
-			double U = M * random.nextDouble();
-			int I = (int) U;
-			if (U < Q[I]) {
-				ALRV = I;
-			} else {
-				ALRV = A[I];
-			}
+		for (int ALRV : draws) {
 			if (representUsingWeights) {
 				counts[ALRV]++;
 			} else {
@@ -1485,17 +1904,78 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		// Add data based on counts if weights should represent numbers of
 		// copies.
 		if (representUsingWeights) {
+			rows = new int[counts.length];
+			int numRows = 0;
 			for (int i = 0; i < counts.length; i++) {
 				if (counts[i] > 0) {
 					newData.add(instance(i));
 					newData.instance(newData.numInstances() - 1).setWeight(counts[i]);
+					rows[numRows++] = i;
 				}
 			}
+			rows = Arrays.copyOf(rows, numRows);
 		}
+		inheritSortIndices(newData, rows);
 
 		return newData;
 	}
 
+	/**
+	 * Draws several bootstrap samples of this dataset at once, optionally in
+	 * parallel, and returns them as read-only views (see view(int[])), so no
+	 * instances are copied. Sample i only depends on the seed and i, see
+	 * AliasSampler. Unlike resampleWithWeights(), the weights of the instances
+	 * are not changed, an instance drawn several times simply appears several
+	 * times. Use AliasSampler.countSamples() directly to get the number of
+	 * copies of each instance instead.
+	 * 
+	 * @param sampler
+	 *            the sampler, built from one weight per instance
+	 * @param numSamples
+	 *            the number of samples
+	 * @param seed
+	 *            the seed from which the seeds of the samples are derived
+	 * @param numThreads
+	 *            the number of threads, 1 to draw sequentially, 0 or less for
+	 *            the number of available processors
+	 * @return the samples
+	 * @throws IllegalArgumentException
+	 *             if the sampler was not built for this number of instances
+	 */
+	public Instances[] bootstrapViews(AliasSampler sampler, int numSamples, long seed, int numThreads) {
+
+		if (sampler.size() != numInstances()) {
+			throw new IllegalArgumentException("sampler.size() != numInstances.");
+		}
+
+		int[][] draws = sampler.drawSamples(numSamples, seed, numThreads);
+		Instances[] samples = new Instances[numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			samples[i] = view(draws[i]);
+		}
+		return samples;
+	}
+
+	/**
+	 * Draws indices with replacement according to the given weight vector.
+	 * All weights have to be positive. Uses Walker's method, see pp. 232 of
+	 * "Stochastic Simulation" by B.D. Ripley (1987).
+	 * 
+	 * @param random
+	 *            a random number generator
+	 * @param weights
+	 *            the weight vector
+	 * @param numDraws
+	 *            the number of indices to draw
+	 * @return the drawn indices, in the order they were drawn
+	 * @throws IllegalArgumentException
+	 *             if the weights contain negative values
+	 */
+	protected static int[] drawWithWeights(Random random, double[] weights, int numDraws) {
+
+		return new AliasSampler(weights).draw(random, numDraws);
+	}
+
 	/**
 	 * Replaces the instance at the given position. Shallow copies instance
 	 * before it is added. Does not check if the instance is compatible with the
@@ -1517,6 +1997,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 
 		newInstance.setDataset(this);
 		m_Instances.set(index, newInstance);
+		invalidateSortIndices();
 
 		return oldInstance;
 	}
@@ -1595,6 +2076,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 				m_Instances.set(start++, inst);
 			}
 		}
+		invalidateSortIndices();
 	}
 
 	/**
@@ -1629,6 +2111,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 			for (int i = 0; i < vals.length; i++) {
 				m_Instances.set(i, backup[sortOrder[i]]);
 			}
+			invalidateSortIndices();
 		} else {
 			sortBasedOnNominalAttribute(attIndex);
 		}
@@ -1676,6 +2159,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 			for (int i = 0; i < vals.length; i++) {
 				m_Instances.set(i, backup[sortOrder[i]]);
 			}
+			invalidateSortIndices();
 		} else {
 			sortBasedOnNominalAttribute(attIndex);
 		}
@@ -1696,6 +2180,71 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		stableSort(att.index());
 	}
 
+	/**
+	 * Returns the order in which the instances would be after a stable sort
+	 * based on an attribute, without changing the order of the instances. For
+	 * numeric attributes, the order is ascending, with exact comparisons
+	 * (see Utils.parallelStableSort()). For nominal attributes, the order is
+	 * the attribute label ordering specified in the header. Instances with
+	 * missing values for the attribute are placed at the end.
+	 * 
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 * @param numThreads
+	 *            the number of threads, 1 for sequential sorting, 0 or less
+	 *            for the number of available processors
+	 * @return the indices of the instances in sorted order
+	 */
+	public/* @pure@ */int[] sortOrder(int attIndex, int numThreads) {
+
+		int n = numInstances();
+		if (attribute(attIndex).isNominal()) {
+			int[] counts = new int[attribute(attIndex).numValues() + 1];
+			int[] keys = new int[n];
+			for (int i = 0; i < n; i++) {
+				double val = instance(i).value(attIndex);
+				keys[i] = Utils.isMissingValue(val) ? counts.length - 1 : (int) val;
+				counts[keys[i]]++;
+			}
+			int start = 0;
+			for (int i = 0; i < counts.length; i++) {
+				int count = counts[i];
+				counts[i] = start;
+				start += count;
+			}
+			int[] order = new int[n];
+			for (int i = 0; i < n; i++) {
+				order[counts[keys[i]]++] = i;
+			}
+			return order;
+		}
+
+		double[] vals = new double[n];
+		for (int i = 0; i < n; i++) {
+			vals[i] = instance(i).value(attIndex);
+		}
+		return Utils.parallelStableSort(vals, numThreads);
+	}
+
+	/**
+	 * Sorts the instances based on an attribute, using a stable radix sort
+	 * that may run in parallel. For numeric attributes, instances are sorted
+	 * in ascending order, with exact comparisons. For nominal attributes,
+	 * instances are sorted based on the attribute label ordering specified in
+	 * the header. Instances with missing values for the attribute are placed at
+	 * the end of the dataset.
+	 * 
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 * @param numThreads
+	 *            the number of threads, 1 for sequential sorting, 0 or less
+	 *            for the number of available processors
+	 */
+	public void stableSort(int attIndex, int numThreads) {
+
+		permute(sortOrder(attIndex, numThreads));
+	}
+
 	/**
 	 * Stratifies a set of instances according to its class values if the class
 	 * attribute is nominal (so that afterwards a stratified cross-validation
@@ -1708,30 +2257,99 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 	 */
 	public void stratify(int numFolds) {
 
+		if (numFolds <= 1) {
+			throw new IllegalArgumentException("Number of folds must be greater than 1");
+		}
+		int[] order = stratifiedOrder(numFolds);
+		if (classAttribute().isNominal()) {
+			permute(order);
+		}
+	}
+
+	/**
+	 * Returns the order in which stratify(int) would put the instances,
+	 * without changing the order of the instances. Combined with view(int[]),
+	 * trainCVView() and testCVView(), this allows a stratified
+	 * cross-validation that neither reorders nor copies the dataset.
+	 * 
+	 * @param numFolds
+	 *            the number of folds in the cross-validation
+	 * @return the indices of the instances in stratified order, the current
+	 *         order if the class attribute is not nominal
+	 * @throws UnassignedClassException
+	 *             if the class is not set
+	 */
+	public int[] stratifiedOrder(int numFolds) {
+
 		if (numFolds <= 1) {
 			throw new IllegalArgumentException("Number of folds must be greater than 1");
 		}
 		if (m_ClassIndex < 0) {
 			throw new UnassignedClassException("Class index is negative (not set)!");
 		}
-		if (classAttribute().isNominal()) {
-
-			// sort by class
-			int index = 1;
-			while (index < numInstances()) {
-				Instance instance1 = instance(index - 1);
-				for (int j = index; j < numInstances(); j++) {
-					Instance instance2 = instance(j);
-					if ((instance1.classValue() == instance2.classValue())
-							|| (instance1.classIsMissing() && instance2.classIsMissing())) {
-						swap(index, j);
-						index++;
-					}
+		int n = numInstances();
+		int[] order = range(0, n);
+		if (!classAttribute().isNominal()) {
+			return order;
+		}
+
+		// sort by class
+		double[] classes = attributeToDoubleArray(m_ClassIndex);
+		int index = 1;
+		while (index < n) {
+			double class1 = classes[order[index - 1]];
+			for (int j = index; j < n; j++) {
+				double class2 = classes[order[j]];
+				if ((class1 == class2) || (Utils.isMissingValue(class1) && Utils.isMissingValue(class2))) {
+					int help = order[index];
+					order[index] = order[j];
+					order[j] = help;
+					index++;
 				}
-				index++;
 			}
-			stratStep(numFolds);
+			index++;
 		}
+
+		return stratifiedBatch(order, numFolds);
+	}
+
+	/**
+	 * Deals an order of instances sorted by class out to the folds: the
+	 * instances at positions 0, numFolds, 2 * numFolds, ... come first,
+	 * followed by those at 1, numFolds + 1, ... and so on.
+	 * 
+	 * @param order
+	 *            the indices of the instances, sorted by class
+	 * @param numFolds
+	 *            the number of folds in the cross-validation
+	 * @return the indices in stratified order
+	 */
+	protected static int[] stratifiedBatch(int[] order, int numFolds) {
+
+		int n = order.length;
+		int[] result = new int[n];
+		int p = 0;
+		for (int start = 0; p < n; start++) {
+			for (int j = start; j < n; j += numFolds) {
+				result[p++] = order[j];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Help function needed for stratification of set: deals the instances,
+	 * which must be sorted by class, out to the folds.
+	 * 
+	 * @param numFolds
+	 *            the number of folds for the stratification
+	 * @deprecated stratify(int) and stratifiedOrder(int) no longer call this
+	 *             method; use stratifiedOrder(int) instead
+	 */
+	@Deprecated
+	protected void stratStep(int numFolds) {
+
+		permute(stratifiedBatch(range(0, numInstances()), numFolds));
 	}
 
 	/**
@@ -1787,6 +2405,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		test = new Instances(this, numInstForFold);
 		first = numFold * (numInstances() / numFolds) + offset;
 		copyInstances(first, test, numInstForFold);
+		inheritSortIndices(test, range(first, numInstForFold));
 		return test;
 	}
 
@@ -1871,6 +2490,7 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		first = numFold * (numInstances() / numFolds) + offset;
 		copyInstances(0, train, first);
 		copyInstances(first + numInstForFold, train, numInstances() - first - numInstForFold);
+		inheritSortIndices(train, cvRows(numFolds, numFold, true));
 
 		return train;
 	}
@@ -2043,36 +2663,11 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 	// @ requires 0 <= index && index < numAttributes();
 	public AttributeStats attributeStats(int index) {
 
-		AttributeStats result = new AttributeStats();
-		if (attribute(index).isNominal()) {
-			result.nominalCounts = new int[attribute(index).numValues()];
-			result.nominalWeights = new double[attribute(index).numValues()];
-		}
-		result.totalCount = numInstances();
-
-		HashMap<Double, double[]> map = new HashMap<>(2 * result.totalCount);
+		AttributeStatsAccumulator accumulator = new AttributeStatsAccumulator(attribute(index));
 		for (Instance current : this) {
-			double key = current.value(index);
-			if (Utils.isMissingValue(key)) {
-				result.missingCount++;
-			} else {
-				double[] values = map.get(key);
-				if (values == null) {
-					values = new double[2];
-					values[0] = 1.0;
-					values[1] = current.weight();
-					map.put(key, values);
-				} else {
-					values[0]++;
-					values[1] += current.weight();
-				}
-			}
-		}
-
-		for (Entry<Double, double[]> entry : map.entrySet()) {
-			result.addDistinct(entry.getKey(), (int) entry.getValue()[0], entry.getValue()[1]);
+			accumulator.add(current);
 		}
-		return result;
+		return accumulator.getStats();
 	}
 
 	/**
@@ -2120,9 +2715,10 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		// Figure out how many digits we need for the index
 		int numDigits = (int) Math.log10((int) numAttributes()) + 1;
 
+		AttributeStatsAccumulator[] stats = AttributeStatsAccumulator.accumulate(this, 1);
 		for (int i = 0; i < numAttributes(); i++) {
 			Attribute a = attribute(i);
-			AttributeStats as = attributeStats(i);
+			AttributeStats as = stats[i].getStats();
 			result.append(Utils.padLeft(new Integer(i + 1).toString(), numDigits)).append(' ');
 			result.append(Utils.padRight(a.name(), 25)).append(' ');
 			long percent;
@@ -2227,27 +2823,119 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 	}
 
 	/**
-	 * Help function needed for stratification of set.
+	 * Returns the indices of the instances in the training or test set for one
+	 * fold of a cross-validation, see trainCV(int, int) and testCV(int, int).
 	 * 
 	 * @param numFolds
-	 *            the number of folds for the stratification
+	 *            the number of folds in the cross-validation. Must be greater
+	 *            than 1.
+	 * @param numFold
+	 *            0 for the first fold, 1 for the second, ...
+	 * @param training
+	 *            true for the training set, false for the test set
+	 * @return the indices in ascending order
+	 * @throws IllegalArgumentException
+	 *             if the number of folds is less than 2 or greater than the
+	 *             number of instances.
 	 */
-	protected void stratStep(int numFolds) {
+	protected int[] cvRows(int numFolds, int numFold, boolean training) {
 
-		ArrayList<Instance> newVec = new ArrayList<>(m_Instances.size());
-		int start = 0;
-		int j;
+		if (numFolds < 2) {
+			throw new IllegalArgumentException("Number of folds must be at least 2!");
+		}
+		if (numFolds > numInstances()) {
+			throw new IllegalArgumentException("Can't have more folds than instances!");
+		}
+		int numInstForFold = numInstances() / numFolds;
+		int offset;
+		if (numFold < numInstances() % numFolds) {
+			numInstForFold++;
+			offset = numFold;
+		} else {
+			offset = numInstances() % numFolds;
+		}
+		int first = numFold * (numInstances() / numFolds) + offset;
+		if (!training) {
+			return range(first, numInstForFold);
+		}
+		int[] rows = new int[numInstances() - numInstForFold];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = (i < first) ? i : i + numInstForFold;
+		}
+		return rows;
+	}
 
-		// create stratified batch
-		while (newVec.size() < numInstances()) {
-			j = start;
-			while (j < numInstances()) {
-				newVec.add(instance(j));
-				j += numFolds;
-			}
-			start++;
+	/**
+	 * Returns a read-only view of the instances at the given positions. The
+	 * view shares the header and the instance objects with this set, so no
+	 * instances are copied; see InstancesView. Cached sort orders are passed
+	 * on to the view.
+	 * 
+	 * @param rows
+	 *            the positions of the instances in this set, in the order they
+	 *            should appear in the view
+	 * @return the view
+	 */
+	public Instances view(int[] rows) {
+
+		InstancesView view = new InstancesView(this, rows);
+		inheritSortIndices(view, rows);
+		return view;
+	}
+
+	/**
+	 * Creates the training set for one fold of a cross-validation as a
+	 * read-only view of this dataset, see trainCV(int, int) and view(int[]).
+	 * 
+	 * @param numFolds
+	 *            the number of folds in the cross-validation. Must be greater
+	 *            than 1.
+	 * @param numFold
+	 *            0 for the first fold, 1 for the second, ...
+	 * @return the training set
+	 * @throws IllegalArgumentException
+	 *             if the number of folds is less than 2 or greater than the
+	 *             number of instances.
+	 */
+	public Instances trainCVView(int numFolds, int numFold) {
+
+		return view(cvRows(numFolds, numFold, true));
+	}
+
+	/**
+	 * Creates the test set for one fold of a cross-validation as a read-only
+	 * view of this dataset, see testCV(int, int) and view(int[]).
+	 * 
+	 * @param numFolds
+	 *            the number of folds in the cross-validation. Must be greater
+	 *            than 1.
+	 * @param numFold
+	 *            0 for the first fold, 1 for the second, ...
+	 * @return the test set
+	 * @throws IllegalArgumentException
+	 *             if the number of folds is less than 2 or greater than the
+	 *             number of instances.
+	 */
+	public Instances testCVView(int numFolds, int numFold) {
+
+		return view(cvRows(numFolds, numFold, false));
+	}
+
+	/**
+	 * Reorders the instances. Instance i of the result is instance order[i] of
+	 * the current data.
+	 * 
+	 * @param order
+	 *            the new order, must contain numInstances() positions
+	 */
+	protected void permute(int[] order) {
+
+		ArrayList<Instance> newInstances = new ArrayList<>(order.length);
+		for (int i : order) {
+			newInstances.add(m_Instances.get(i));
 		}
-		m_Instances = newVec;
+		m_Instances = newInstances;
+		invalidateSortIndices();
 	}
 
 	/**
@@ -2265,6 +2953,204 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 		Instance in = m_Instances.get(i);
 		m_Instances.set(i, m_Instances.get(j));
 		m_Instances.set(j, in);
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Enables or disables the caching of sort orders. When enabled, the order
+	 * returned by sortIndex(int) is computed once per attribute and kept until
+	 * the set of instances changes. Subsets created with trainCV(), testCV(),
+	 * resampleWithWeights() or Instances(Instances, int, int) inherit the
+	 * cached orders, filtered in linear time, instead of sorting again.
+	 * 
+	 * @param cache
+	 *            true to cache the sort orders
+	 */
+	public void setCacheSortIndices(boolean cache) {
+
+		if (!cache) {
+			m_SortIndices = null;
+		} else if (m_SortIndices == null) {
+			m_SortIndices = NO_SORT_INDICES;
+		}
+	}
+
+	/**
+	 * Returns whether sort orders are cached.
+	 * 
+	 * @return true if the sort orders are cached
+	 */
+	public/* @pure@ */boolean getCacheSortIndices() {
+
+		return m_SortIndices != null;
+	}
+
+	/**
+	 * Returns the indices of the instances in the stable sort order of an
+	 * attribute, see sortOrder(int, int), without changing the order of the
+	 * instances. If caching is enabled, the order is computed only once and the
+	 * returned array is shared, so it must not be modified. The cache notices
+	 * changes made through this class, but not changes to the values of the
+	 * instances themselves; call invalidateSortIndices() after such changes.
+	 * 
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 * @return the indices of the instances in sorted order
+	 */
+	public int[] sortIndex(int attIndex) {
+
+		if (m_SortIndices == null) {
+			return sortOrder(attIndex, 1);
+		}
+		if (m_SortIndices.length != numAttributes()) {
+			m_SortIndices = new int[numAttributes()][];
+		}
+		if (m_SortIndices[attIndex] == null) {
+			m_SortIndices[attIndex] = sortOrder(attIndex, 1);
+		}
+		return m_SortIndices[attIndex];
+	}
+
+	/**
+	 * Discards all cached sort orders, caching stays enabled if it was. Since
+	 * this is called whenever the set of instances changes, the cached data
+	 * profile is discarded as well.
+	 */
+	public void invalidateSortIndices() {
+
+		if (m_SortIndices != null) {
+			m_SortIndices = NO_SORT_INDICES;
+		}
+		m_DataProfile = null;
+	}
+
+	/**
+	 * Enables or disables the caching of the data profile. When enabled, the
+	 * profile returned by getDataProfile() is computed once and kept until the
+	 * set of instances, its attributes or its class index change, so that
+	 * repeated Capabilities tests of the same data do not scan it again.
+	 * 
+	 * @param cache
+	 *            true to cache the data profile
+	 */
+	public void setCacheDataProfile(boolean cache) {
+
+		m_CacheDataProfile = cache;
+		m_DataProfile = null;
+	}
+
+	/**
+	 * Returns whether the data profile is cached.
+	 * 
+	 * @return true if the data profile is cached
+	 */
+	public/* @pure@ */boolean getCacheDataProfile() {
+
+		return m_CacheDataProfile;
+	}
+
+	/**
+	 * Returns the profile of the data: the kinds of the attributes, the
+	 * attributes with missing values and the number of class values. If
+	 * caching is enabled, the profile is computed only once. The cache notices
+	 * changes made through this class, but not changes to the values of the
+	 * instances themselves; call invalidateDataProfile() after such changes.
+	 * 
+	 * @return the profile
+	 */
+	public DataProfile getDataProfile() {
+
+		DataProfile profile = m_DataProfile;
+		if ((profile == null) || !profile.matches(this)) {
+			profile = new DataProfile(this);
+			if (m_CacheDataProfile) {
+				m_DataProfile = profile;
+			}
+		}
+		return profile;
+	}
+
+	/**
+	 * Discards the cached data profile, caching stays enabled if it was.
+	 */
+	public void invalidateDataProfile() {
+
+		m_DataProfile = null;
+	}
+
+	/**
+	 * Passes the cached sort orders on to a set of instances derived from
+	 * this one. Each of the derived instances is a copy of one of the
+	 * instances in this set, so the orders only have to be filtered instead
+	 * of computed again. Copies of the same instance end up next to each
+	 * other, in the order they appear in the derived set. Does nothing if
+	 * caching is disabled.
+	 * 
+	 * @param dest
+	 *            the derived set of instances, with the same attributes
+	 * @param rows
+	 *            for each instance in dest, the index of the instance in this
+	 *            set that it is a copy of
+	 */
+	protected void inheritSortIndices(Instances dest, int[] rows) {
+
+		if (m_SortIndices == null) {
+			return;
+		}
+		if (m_SortIndices.length == 0) {
+			dest.m_SortIndices = NO_SORT_INDICES;
+			return;
+		}
+
+		// group the derived instances by the instance they are a copy of
+		int n = numInstances();
+		int[] start = new int[n + 1];
+		for (int row : rows) {
+			start[row + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			start[i + 1] += start[i];
+		}
+		int[] next = Arrays.copyOf(start, n);
+		int[] copies = new int[rows.length];
+		for (int j = 0; j < rows.length; j++) {
+			copies[next[rows[j]]++] = j;
+		}
+
+		int[][] inherited = new int[numAttributes()][];
+		for (int att = 0; att < m_SortIndices.length; att++) {
+			int[] order = m_SortIndices[att];
+			if (order == null) {
+				continue;
+			}
+			int[] newOrder = new int[rows.length];
+			int p = 0;
+			for (int i : order) {
+				for (int c = start[i]; c < start[i + 1]; c++) {
+					newOrder[p++] = copies[c];
+				}
+			}
+			inherited[att] = newOrder;
+		}
+		dest.m_SortIndices = inherited;
+	}
+
+	/**
+	 * Returns the consecutive indices from first to first + num - 1.
+	 * 
+	 * @param first
+	 *            the first index
+	 * @param num
+	 *            the number of indices
+	 * @return the indices
+	 */
+	protected static int[] range(int first, int num) {
+
+		int[] rows = new int[num];
+		for (int i = 0; i < num; i++) {
+			rows[i] = first + i;
+		}
+		return rows;
 	}
 
 	/**
@@ -2282,26 +3168,101 @@ public class Instances extends AbstractList<Instance> implements Serializable, R
 	 */
 	public static Instances mergeInstances(Instances first, Instances second) {
 
-		if (first.numInstances() != second.numInstances()) {
-			throw new IllegalArgumentException("Instance sets must be of the same size");
+		return mergeInstances(new Instances[] { first, second });
+	}
+
+	/**
+	 * Merges several sets of instances side by side, like
+	 * mergeInstances(Instances, Instances) applied from left to right. Each
+	 * merged instance is built in one go instead of via
+	 * Instance.mergeInstance() for every pair; if all sets are
+	 * ColumnarInstances, the result is a ColumnarInstances and only the
+	 * columns are copied.
+	 * 
+	 * @param datasets
+	 *            the sets of instances, at least one
+	 * @return the merged set, with instances of weight 1
+	 * @throws IllegalArgumentException
+	 *             if the sets are not of the same size or the attribute names
+	 *             are not unique
+	 */
+	public static Instances mergeInstances(Instances... datasets) {
+
+		if (datasets.length == 0) {
+			throw new IllegalArgumentException("No instance sets to merge");
+		}
+		int numInstances = datasets[0].numInstances();
+		int numAttributes = 0;
+		boolean columnar = true;
+		StringBuilder name = new StringBuilder(datasets[0].relationName());
+		for (int d = 0; d < datasets.length; d++) {
+			if (datasets[d].numInstances() != numInstances) {
+				throw new IllegalArgumentException("Instance sets must be of the same size");
+			}
+			if (d > 0) {
+				name.append('_').append(datasets[d].relationName());
+			}
+			numAttributes += datasets[d].numAttributes();
+			columnar &= datasets[d] instanceof ColumnarInstances;
 		}
 
 		// Create the vector of merged attributes
-		ArrayList<Attribute> newAttributes = new ArrayList<>(first.numAttributes() + second.numAttributes());
-		for (Attribute att : first.m_Attributes) {
+		ArrayList<Attribute> newAttributes = new ArrayList<>(numAttributes);
+		for (Attribute att : datasets[0].m_Attributes) {
 			newAttributes.add(att);
 		}
-		for (Attribute att : second.m_Attributes) {
-			newAttributes.add((Attribute) att.copy()); // Need to copy because
-														// indices will change.
+		for (int d = 1; d < datasets.length; d++) {
+			for (Attribute att : datasets[d].m_Attributes) {
+				newAttributes.add((Attribute) att.copy()); // Need to copy because
+															// indices will change.
+			}
+		}
+
+		if (columnar) {
+			return ColumnarInstances.mergeColumns(name.toString(), newAttributes, datasets);
 		}
 
 		// Create the set of Instances
-		Instances merged = new Instances(first.relationName() + '_' + second.relationName(), newAttributes,
-				first.numInstances());
-		// Merge each instance
-		for (int i = 0; i < first.numInstances(); i++) {
-			merged.add(first.instance(i).mergeInstance(second.instance(i)));
+		Instances merged = new Instances(name.toString(), newAttributes, numInstances);
+		// Merge each instance, the first set determines the type
+		for (int i = 0; i < numInstances; i++) {
+			Instance inst;
+			if (datasets[0].instance(i) instanceof SparseInstance) {
+				int numValues = 0;
+				for (Instances dataset : datasets) {
+					numValues += dataset.instance(i).numValues();
+				}
+				double[] values = new double[numValues];
+				int[] indices = new int[numValues];
+				int m = 0;
+				int offset = 0;
+				for (Instances dataset : datasets) {
+					Instance part = dataset.instance(i);
+					for (int j = 0; j < part.numValues(); j++, m++) {
+						values[m] = part.valueSparse(j);
+						indices[m] = offset + part.index(j);
+					}
+					offset += part.numAttributes();
+				}
+				inst = new SparseInstance(1.0, values, indices, numAttributes);
+			} else {
+				double[] values = new double[numAttributes];
+				int offset = 0;
+				for (Instances dataset : datasets) {
+					Instance part = dataset.instance(i);
+					if (part instanceof SparseInstance) {
+						for (int j = 0; j < part.numValues(); j++) {
+							values[offset + part.index(j)] = part.valueSparse(j);
+						}
+					} else {
+						System.arraycopy(InstanceKernels.denseValues(part), 0, values, offset, part.numAttributes());
+					}
+					offset += part.numAttributes();
+				}
+				inst = new DenseInstance(1.0, values);
+			}
+			inst.setDataset(merged);
+			merged.m_Instances.add(inst);
 		}
 		return merged;
 	}
@@ -0,0 +1,552 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    InstancesView.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * A read-only set of instances that consists of a subset of the rows of
+ * another set, in any order. Only an array of row numbers (4 bytes per row)
+ * is held; the header and the instance objects are shared with the source
+ * set, so creating a view copies no instances. A view of a view refers
+ * directly to the rows of the original set.
+ * <p>
+ *
+ * Views are created with Instances.view(int[]), Instances.trainCVView(int,
+ * int) and Instances.testCVView(int, int). Reordering operations
+ * (<code>sort</code>, <code>randomize</code>, <code>stratify</code>) and
+ * removing rows only change the row numbers of the view. Adding or replacing
+ * instances and changing attributes is not supported. The instances returned
+ * by a view belong to the source set and must not be modified, otherwise the
+ * source set changes as well; use <code>new Instances(view)</code> to obtain
+ * an independent copy.
+ * <p>
+ *
+ * A view refers to the rows of the source set by their numbers, so adding,
+ * removing or reordering rows of the source set invalidates the view; create
+ * a new view afterwards. The class index is taken from the source set when
+ * the view is created, later changes of the source's class index do not
+ * affect the view.
+ * <p>
+ *
+ * Typical usage for a stratified cross-validation:
+ * <p>
+ *
+ * <pre>
+ * Instances stratified = data.view(data.stratifiedOrder(numFolds));
+ * for (int i = 0; i &lt; numFolds; i++) {
+ *   Instances train = stratified.trainCVView(numFolds, i);
+ *   Instances test = stratified.testCVView(numFolds, i);
+ *   ...
+ * }
+ * </pre>
+ *
+ * @version $Revision$
+ */
+public class InstancesView extends Instances {
+
+	/** for serialization */
+	private static final long serialVersionUID = -2604316658226404376L;
+
+	/** the set of instances the rows belong to */
+	protected Instances m_Source;
+
+	/** the row numbers in the source set */
+	protected int[] m_Rows;
+
+	/** the number of rows of the view */
+	protected int m_NumRows;
+
+	/**
+	 * Creates a view of the given rows of a set of instances.
+	 *
+	 * @param source
+	 *            the set of instances
+	 * @param rows
+	 *            the positions of the instances in the source set, in the
+	 *            order they should appear in the view
+	 * @throws IndexOutOfBoundsException
+	 *             if a position is out of range
+	 */
+	public InstancesView(/* @non_null@ */Instances source, /* @non_null@ */int[] rows) {
+
+		super(source, 0);
+
+		int[] sourceRows = null;
+		if (source instanceof InstancesView) {
+			InstancesView view = (InstancesView) source;
+			sourceRows = view.m_Rows;
+			source = view.m_Source;
+		}
+		m_Source = source;
+		m_Rows = new int[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			if ((rows[i] < 0) || (rows[i] >= ((sourceRows == null) ? source.numInstances() : sourceRows.length))) {
+				throw new IndexOutOfBoundsException("Index: " + rows[i]);
+			}
+			m_Rows[i] = (sourceRows == null) ? rows[i] : sourceRows[rows[i]];
+		}
+		m_NumRows = rows.length;
+	}
+
+	/**
+	 * Returns the set of instances the rows of this view belong to.
+	 *
+	 * @return the source set
+	 */
+	public/* @pure@ */Instances getSource() {
+
+		return m_Source;
+	}
+
+	/**
+	 * Returns the position in the source set of the instance at the given
+	 * position.
+	 *
+	 * @param index
+	 *            the instance's index in this view (index starts with 0)
+	 * @return the index in the source set
+	 */
+	public/* @pure@ */int sourceIndex(int index) {
+
+		checkRow(index);
+		return m_Rows[index];
+	}
+
+	/**
+	 * Checks whether the given position is valid.
+	 *
+	 * @param index
+	 *            the position
+	 * @throws IndexOutOfBoundsException
+	 *             if the position is out of range
+	 */
+	protected void checkRow(int index) {
+
+		if ((index < 0) || (index >= m_NumRows)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_NumRows);
+		}
+	}
+
+	/**
+	 * Reorders the rows. Row i of the result is row order[i] of the current
+	 * view.
+	 *
+	 * @param order
+	 *            the new order, must contain m_NumRows positions
+	 */
+	@Override
+	protected void permute(int[] order) {
+
+		int[] rows = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			rows[i] = m_Rows[order[i]];
+		}
+		m_Rows = rows;
+		m_NumRows = rows.length;
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Not supported, views are read-only.
+	 *
+	 * @param instance
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public boolean add(/* @non_null@ */Instance instance) {
+
+		throw new UnsupportedOperationException("Instances views are read-only!");
+	}
+
+	/**
+	 * Not supported, views are read-only.
+	 *
+	 * @param index
+	 *            ignored
+	 * @param instance
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void add(int index, /* @non_null@ */Instance instance) {
+
+		throw new UnsupportedOperationException("Instances views are read-only!");
+	}
+
+	/**
+	 * Not supported, views are read-only.
+	 *
+	 * @param index
+	 *            ignored
+	 * @param instance
+	 *            ignored
+	 * @return nothing
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public Instance set(int index, /* @non_null@ */Instance instance) {
+
+		throw new UnsupportedOperationException("Instances views are read-only!");
+	}
+
+	/**
+	 * Not supported, the header is shared with the source set.
+	 *
+	 * @param att
+	 *            ignored
+	 * @param position
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void insertAttributeAt(/* @non_null@ */Attribute att, int position) {
+
+		throw new UnsupportedOperationException("Instances views are read-only!");
+	}
+
+	/**
+	 * Not supported, the header is shared with the source set.
+	 *
+	 * @param position
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void deleteAttributeAt(int position) {
+
+		throw new UnsupportedOperationException("Instances views are read-only!");
+	}
+
+	/**
+	 * Not supported, the header is shared with the source set.
+	 *
+	 * @param att
+	 *            ignored
+	 * @param position
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void replaceAttributeAt(/* @non_null@ */Attribute att, int position) {
+
+		throw new UnsupportedOperationException("Instances views are read-only!");
+	}
+
+	/**
+	 * Not supported, the header is shared with the source set.
+	 *
+	 * @param atts
+	 *            ignored
+	 * @param position
+	 *            ignored
+	 * @param values
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void insertAttributesAt(/* @non_null@ */List<Attribute> atts, int position, double[][] values) {
+
+		throw new UnsupportedOperationException("Instances views are read-only!");
+	}
+
+	/**
+	 * Not supported, the header is shared with the source set.
+	 *
+	 * @param positions
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void deleteAttributesAt(int... positions) {
+
+		throw new UnsupportedOperationException("Instances views are read-only!");
+	}
+
+	/**
+	 * Not supported, the header is shared with the source set.
+	 *
+	 * @param atts
+	 *            ignored
+	 * @param positions
+	 *            ignored
+	 * @param values
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void replaceAttributesAt(/* @non_null@ */List<Attribute> atts, int[] positions, double[][] values) {
+
+		throw new UnsupportedOperationException("Instances views are read-only!");
+	}
+
+	/**
+	 * Decreases the capacity of the row array so that it matches the number of
+	 * rows.
+	 */
+	@Override
+	public void compactify() {
+
+		if (m_Rows.length != m_NumRows) {
+			int[] rows = new int[m_NumRows];
+			System.arraycopy(m_Rows, 0, rows, 0, m_NumRows);
+			m_Rows = rows;
+		}
+	}
+
+	/**
+	 * Removes all instances from the view. The source set is not changed.
+	 */
+	@Override
+	public void delete() {
+
+		m_Rows = new int[0];
+		m_NumRows = 0;
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Removes an instance at the given position from the view. The source set
+	 * is not changed.
+	 *
+	 * @param index
+	 *            the instance's position (index starts with 0)
+	 */
+	@Override
+	public void delete(int index) {
+
+		remove(index);
+	}
+
+	/**
+	 * Removes the instance at the given position from the view. The source
+	 * set is not changed.
+	 *
+	 * @param index
+	 *            the instance's index (index starts with 0)
+	 * @return the removed instance
+	 */
+	@Override
+	public Instance remove(int index) {
+
+		Instance old = instance(index);
+		System.arraycopy(m_Rows, index + 1, m_Rows, index, m_NumRows - index - 1);
+		m_NumRows--;
+		invalidateSortIndices();
+
+		return old;
+	}
+
+	/**
+	 * Removes all instances with missing values for a particular attribute from
+	 * the view. The source set is not changed.
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	public void deleteWithMissing(int attIndex) {
+
+		int[] keep = new int[m_NumRows];
+		int numKept = 0;
+		for (int i = 0; i < m_NumRows; i++) {
+			if (!instance(i).isMissing(attIndex)) {
+				keep[numKept++] = i;
+			}
+		}
+		int[] order = new int[numKept];
+		System.arraycopy(keep, 0, order, 0, numKept);
+		permute(order);
+	}
+
+	/**
+	 * Returns an enumeration of all instances in the view.
+	 *
+	 * @return enumeration of all instances in the view
+	 */
+	@Override
+	public/* @non_null pure@ */Enumeration<Instance> enumerateInstances() {
+
+		return new WekaEnumeration<>(this);
+	}
+
+	/**
+	 * Returns the first instance in the view.
+	 *
+	 * @return the first instance in the view
+	 */
+	@Override
+	public/* @non_null pure@ */Instance firstInstance() {
+
+		return instance(0);
+	}
+
+	/**
+	 * Returns the instance at the given position.
+	 *
+	 * @param index
+	 *            the instance's index (index starts with 0)
+	 * @return the instance at the given position
+	 */
+	@Override
+	public/* @non_null pure@ */Instance instance(int index) {
+
+		checkRow(index);
+		return m_Source.instance(m_Rows[index]);
+	}
+
+	/**
+	 * Returns the instance at the given position.
+	 *
+	 * @param index
+	 *            the instance's index (index starts with 0)
+	 * @return the instance at the given position
+	 */
+	@Override
+	public/* @non_null pure@ */Instance get(int index) {
+
+		return instance(index);
+	}
+
+	/**
+	 * Returns the last instance in the view.
+	 *
+	 * @return the last instance in the view
+	 */
+	@Override
+	public/* @non_null pure@ */Instance lastInstance() {
+
+		return instance(m_NumRows - 1);
+	}
+
+	/**
+	 * Returns the number of instances in the view.
+	 *
+	 * @return the number of instances in the view as an integer
+	 */
+	@Override
+	public/* @pure@ */int numInstances() {
+
+		return m_NumRows;
+	}
+
+	/**
+	 * Returns the number of instances in the view.
+	 *
+	 * @return the number of instances in the view as an integer
+	 */
+	@Override
+	public/* @pure@ */int size() {
+
+		return m_NumRows;
+	}
+
+	/**
+	 * Swaps two instances in the view.
+	 *
+	 * @param i
+	 *            the first instance's index (index starts with 0)
+	 * @param j
+	 *            the second instance's index (index starts with 0)
+	 */
+	@Override
+	public void swap(int i, int j) {
+
+		checkRow(i);
+		checkRow(j);
+		int help = m_Rows[i];
+		m_Rows[i] = m_Rows[j];
+		m_Rows[j] = help;
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Sorts a nominal attribute (stable, linear-time sort). Only the row
+	 * numbers are reordered.
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	protected void sortBasedOnNominalAttribute(int attIndex) {
+
+		permute(sortOrder(attIndex, 1));
+	}
+
+	/**
+	 * Sorts the instances based on an attribute. Only the row numbers are
+	 * reordered. Instances with missing values for the attribute are placed at
+	 * the end of the view.
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	public void sort(int attIndex) {
+
+		if (!attribute(attIndex).isNominal()) {
+			double[] vals = attributeToDoubleArray(attIndex);
+			Utils.replaceMissingWithMAX_VALUE(vals);
+			permute(Utils.sortWithNoMissingValues(vals));
+		} else {
+			sortBasedOnNominalAttribute(attIndex);
+		}
+	}
+
+	/**
+	 * Sorts the instances based on an attribute, using a stable sort. Only the
+	 * row numbers are reordered.
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	public void stableSort(int attIndex) {
+
+		if (!attribute(attIndex).isNominal()) {
+			permute(Utils.stableSort(attributeToDoubleArray(attIndex)));
+		} else {
+			sortBasedOnNominalAttribute(attIndex);
+		}
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -0,0 +1,328 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    MappedInstance.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+/**
+ * A view onto one row of a {@link MappedInstances} dataset. Attribute values
+ * are decoded from the memory-mapped file on every access and are read-only.
+ * The weight can be changed; the new weight is kept by the dataset, the file
+ * is never written to.
+ *
+ * @version $Revision$
+ */
+public class MappedInstance extends AbstractInstance {
+
+	/** for serialization */
+	private static final long serialVersionUID = 4723146023918275560L;
+
+	/** The dataset holding the mapping. */
+	protected MappedInstances m_Store;
+
+	/** The position of the row in the dataset. */
+	protected int m_Position;
+
+	/**
+	 * Creates a view onto the row at the given position of the dataset.
+	 *
+	 * @param store
+	 *            the dataset
+	 * @param position
+	 *            the position of the row
+	 */
+	public MappedInstance(MappedInstances store, int position) {
+
+		m_Store = store;
+		m_Position = position;
+		m_Dataset = store;
+	}
+
+	/**
+	 * Produces a copy of this row on the heap. The copy is a DenseInstance with
+	 * access to the same dataset.
+	 *
+	 * @return the copy
+	 */
+	@Override
+	public/* @pure@ */Object copy() {
+
+		DenseInstance result = new DenseInstance(weight(), toDoubleArray());
+		result.setDataset(m_Dataset);
+		return result;
+	}
+
+	/**
+	 * Copies the instance but fills up its values based on the given array of
+	 * doubles. The copy is a DenseInstance with access to the same dataset.
+	 *
+	 * @param values
+	 *            the array with new values
+	 * @return the new instance
+	 */
+	@Override
+	public Instance copy(double[] values) {
+
+		DenseInstance result = new DenseInstance(weight(), values);
+		result.setDataset(m_Dataset);
+		return result;
+	}
+
+	/**
+	 * Returns the index of the attribute stored at the given position. Just
+	 * returns the given value.
+	 *
+	 * @param position
+	 *            the position
+	 * @return the index of the attribute stored at the given position
+	 */
+	@Override
+	public/* @pure@ */int index(int position) {
+
+		return position;
+	}
+
+	/**
+	 * Merges this instance with the given instance and returns the result.
+	 * Dataset is set to null. The returned instance is a DenseInstance.
+	 *
+	 * @param inst
+	 *            the instance to be merged with this one
+	 * @return the merged instances
+	 */
+	@Override
+	public Instance mergeInstance(Instance inst) {
+
+		int m = 0;
+		double[] newVals = new double[numAttributes() + inst.numAttributes()];
+		for (int j = 0; j < numAttributes(); j++, m++) {
+			newVals[m] = value(j);
+		}
+		for (int j = 0; j < inst.numAttributes(); j++, m++) {
+			newVals[m] = inst.value(j);
+		}
+		return new DenseInstance(1.0, newVals);
+	}
+
+	/**
+	 * Returns the number of attributes.
+	 *
+	 * @return the number of attributes as an integer
+	 */
+	@Override
+	public/* @pure@ */int numAttributes() {
+
+		return m_Store.numAttributes();
+	}
+
+	/**
+	 * Returns the number of values present. Always the same as numAttributes().
+	 *
+	 * @return the number of values
+	 */
+	@Override
+	public/* @pure@ */int numValues() {
+
+		return m_Store.numAttributes();
+	}
+
+	/**
+	 * Not supported, mapped values are read-only.
+	 *
+	 * @param array
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void replaceMissingValues(double[] array) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Not supported, mapped values are read-only.
+	 *
+	 * @param attIndex
+	 *            ignored
+	 * @param value
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void setValue(int attIndex, double value) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Not supported, mapped values are read-only.
+	 *
+	 * @param indexOfIndex
+	 *            ignored
+	 * @param value
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void setValueSparse(int indexOfIndex, double value) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Sets the weight of the row. The weight is stored on the heap by the
+	 * dataset.
+	 *
+	 * @param weight
+	 *            the weight
+	 */
+	@Override
+	public void setWeight(double weight) {
+
+		m_Store.setRowWeight(m_Position, weight);
+	}
+
+	/**
+	 * Returns the row's weight.
+	 *
+	 * @return the weight as a double
+	 */
+	@Override
+	public/* @pure@ */double weight() {
+
+		return m_Store.rowWeight(m_Position);
+	}
+
+	/**
+	 * Returns the values of each attribute as an array of doubles.
+	 *
+	 * @return an array containing all the instance attribute values
+	 */
+	@Override
+	public double[] toDoubleArray() {
+
+		double[] newValues = new double[numAttributes()];
+		for (int i = 0; i < newValues.length; i++) {
+			newValues[i] = value(i);
+		}
+		return newValues;
+	}
+
+	/**
+	 * Returns the description of one instance (without weight appended).
+	 *
+	 * @return the instance's description as a string
+	 */
+	@Override
+	public String toStringNoWeight() {
+		return toStringNoWeight(AbstractInstance.s_numericAfterDecimalPoint);
+	}
+
+	/**
+	 * Returns the description of one instance (without weight appended).
+	 *
+	 * @param afterDecimalPoint
+	 *            maximum number of digits after the decimal point for numeric
+	 *            values
+	 *
+	 * @return the instance's description as a string
+	 */
+	@Override
+	public String toStringNoWeight(int afterDecimalPoint) {
+		StringBuffer text = new StringBuffer();
+
+		for (int i = 0; i < numAttributes(); i++) {
+			if (i > 0) {
+				text.append(",");
+			}
+			text.append(toString(i, afterDecimalPoint));
+		}
+
+		return text.toString();
+	}
+
+	/**
+	 * Returns the row's attribute value in internal format.
+	 *
+	 * @param attIndex
+	 *            the attribute's index
+	 * @return the specified value as a double
+	 */
+	@Override
+	public/* @pure@ */double value(int attIndex) {
+
+		return m_Store.cell(m_Position, attIndex);
+	}
+
+	/**
+	 * Returns the row's attribute value in internal format, given an index in
+	 * the sparse representation. Same as value(int).
+	 *
+	 * @param indexOfIndex
+	 *            the index of the attribute's index
+	 * @return the specified value as a double
+	 */
+	@Override
+	public/* @pure@ */double valueSparse(int indexOfIndex) {
+
+		return m_Store.cell(m_Position, indexOfIndex);
+	}
+
+	/**
+	 * Not supported, mapped values are read-only.
+	 *
+	 * @param position
+	 *            the attribute's position
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	protected void forceDeleteAttributeAt(int position) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Not supported, mapped values are read-only.
+	 *
+	 * @param position
+	 *            the attribute's position
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	protected void forceInsertAttributeAt(int position) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -0,0 +1,1255 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    MappedInstances.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A read-only set of instances whose rows live in a memory-mapped file
+ * instead of the Java heap. The file uses a fixed-width row layout derived
+ * from the header: each row starts with the weight (8 bytes), followed by one
+ * cell per attribute. Numeric and date values take 8 bytes, nominal values 1,
+ * 2 or 4 bytes depending on the number of labels, and string and relational
+ * values 4 bytes. Missing nominal, string and relational values are stored as
+ * -1.
+ * <p>
+ *
+ * The data is mapped with <code>FileChannel.map</code>, so opening a file is
+ * almost instantaneous and the operating system decides which pages are
+ * resident. Only a permutation of row numbers (4 bytes per row) and, if
+ * weights are changed, a weight array (8 bytes per row) are kept on the heap.
+ * Reordering operations (<code>sort</code>, <code>stratify</code>,
+ * <code>randomize</code>) and subsets (<code>trainCV</code>,
+ * <code>testCV</code>, <code>resampleWithWeights</code>) only touch that
+ * permutation and share the mapping with the original dataset.
+ * <p>
+ *
+ * Typical usage:
+ * <p>
+ *
+ * <pre>
+ * MappedInstances.write(data, new File("data.bmi"));
+ * ...
+ * Instances mapped = new MappedInstances(new File("data.bmi"));
+ * </pre>
+ * <p>
+ *
+ * Large files can be written without holding all rows in memory, using a
+ * {@link MappedInstances.Writer}. Attribute values cannot be changed and
+ * instances cannot be added; attributes can neither be inserted nor deleted.
+ *
+ * @version $Revision$
+ */
+public class MappedInstances extends Instances {
+
+	/** for serialization */
+	private static final long serialVersionUID = -5512379437091735326L;
+
+	/** The filename extension that should be used for mapped instances files */
+	public final static String FILE_EXTENSION = ".bmi";
+
+	/** The magic number at the start of a file ("WMAP"). */
+	public final static int MAGIC = 0x574D4150;
+
+	/** The version of the file layout. */
+	public final static int VERSION = 1;
+
+	/** The offset of the row count in the file. */
+	protected final static int NUM_ROWS_OFFSET = 8;
+
+	/** The number of bytes used for the weight at the start of each row. */
+	protected final static int WEIGHT_WIDTH = 8;
+
+	/** The file holding the rows. */
+	protected File m_File;
+
+	/** The number of bytes per row. */
+	protected int m_RowWidth;
+
+	/** The offset of each attribute's cell within a row. */
+	protected int[] m_ColumnOffsets;
+
+	/** The width in bytes of each attribute's cell. */
+	protected int[] m_ColumnWidths;
+
+	/** The offset of the first row in the file. */
+	protected long m_DataStart;
+
+	/** The number of rows stored in the file. */
+	protected int m_NumFileRows;
+
+	/** The number of rows per mapped segment. */
+	protected int m_RowsPerSegment;
+
+	/** The mapped segments of the file. */
+	protected transient ByteBuffer[] m_Segments;
+
+	/** The file rows, in dataset order. Null means rows 0 to n-1. */
+	protected int[] m_Rows;
+
+	/** The number of rows in this dataset. */
+	protected int m_NumRows;
+
+	/** The instance weights, in dataset order. Null means weights from file. */
+	protected double[] m_Weights;
+
+	/**
+	 * Opens a file written by {@link #write(Instances, File)} or a
+	 * {@link MappedInstances.Writer}.
+	 *
+	 * @param file
+	 *            the file to map
+	 * @throws IOException
+	 *             if the file cannot be read or is not a mapped instances file
+	 */
+	public MappedInstances(File file) throws IOException {
+
+		super(readHeader(file), 0);
+		m_File = file;
+		map();
+		m_NumRows = m_NumFileRows;
+	}
+
+	/**
+	 * Creates a dataset that shares the mapping of the given dataset, but
+	 * contains the given rows.
+	 *
+	 * @param source
+	 *            the dataset whose mapping is shared
+	 * @param rows
+	 *            the file rows, in dataset order
+	 * @param weights
+	 *            the weights, in dataset order, may be null to use the weights
+	 *            from the file
+	 */
+	protected MappedInstances(MappedInstances source, int[] rows, double[] weights) {
+
+		super(source, 0);
+		m_File = source.m_File;
+		m_RowWidth = source.m_RowWidth;
+		m_ColumnOffsets = source.m_ColumnOffsets;
+		m_ColumnWidths = source.m_ColumnWidths;
+		m_DataStart = source.m_DataStart;
+		m_NumFileRows = source.m_NumFileRows;
+		m_RowsPerSegment = source.m_RowsPerSegment;
+		m_Segments = source.m_Segments;
+		m_Rows = rows;
+		m_NumRows = rows.length;
+		m_Weights = weights;
+	}
+
+	/**
+	 * Returns the number of bytes used to store a value of the given
+	 * attribute.
+	 *
+	 * @param att
+	 *            the attribute
+	 * @return the cell width in bytes
+	 */
+	public static int cellWidth(Attribute att) {
+
+		switch (att.type()) {
+		case Attribute.NUMERIC:
+		case Attribute.DATE:
+			return 8;
+		case Attribute.NOMINAL:
+			if (att.numValues() <= Byte.MAX_VALUE) {
+				return 1;
+			} else if (att.numValues() <= Short.MAX_VALUE) {
+				return 2;
+			}
+			return 4;
+		default:
+			return 4;
+		}
+	}
+
+	/**
+	 * Reads the header stored in the given file.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the header
+	 * @throws IOException
+	 *             if the file cannot be read or is not a mapped instances file
+	 */
+	public static Instances readHeader(File file) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			readPreamble(in, file);
+			in.readLong();
+			in.readInt();
+			byte[] header = new byte[in.readInt()];
+			in.readFully(header);
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(header))) {
+				return (Instances) ois.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Cannot read header of " + file + ": " + e);
+			}
+		}
+	}
+
+	/**
+	 * Reads and checks the magic number and the version.
+	 *
+	 * @param in
+	 *            the stream positioned at the start of the file
+	 * @param file
+	 *            the file, for error messages
+	 * @throws IOException
+	 *             if the file is not a mapped instances file
+	 */
+	protected static void readPreamble(DataInputStream in, File file) throws IOException {
+
+		if (in.readInt() != MAGIC) {
+			throw new IOException(file + " is not a mapped instances file!");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported mapped instances version " + version + " in " + file);
+		}
+	}
+
+	/**
+	 * Writes the given dataset to a file that can be opened as
+	 * MappedInstances.
+	 *
+	 * @param data
+	 *            the dataset to write
+	 * @param file
+	 *            the file to write to
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public static void write(Instances data, File file) throws IOException {
+
+		try (Writer writer = new Writer(data, file)) {
+			for (int i = 0; i < data.numInstances(); i++) {
+				writer.write(data.instance(i));
+			}
+		}
+	}
+
+	/**
+	 * Computes the row layout and maps the data section of the file.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be mapped
+	 */
+	protected void map() throws IOException {
+
+		m_ColumnOffsets = new int[numAttributes()];
+		m_ColumnWidths = new int[numAttributes()];
+		int offset = WEIGHT_WIDTH;
+		for (int i = 0; i < numAttributes(); i++) {
+			m_ColumnOffsets[i] = offset;
+			m_ColumnWidths[i] = cellWidth(attribute(i));
+			offset += m_ColumnWidths[i];
+		}
+
+		long numRows;
+		int headerLength;
+		try (DataInputStream in = new DataInputStream(new FileInputStream(m_File))) {
+			readPreamble(in, m_File);
+			numRows = in.readLong();
+			m_RowWidth = in.readInt();
+			headerLength = in.readInt();
+		}
+		if (m_RowWidth != offset) {
+			throw new IOException("Row width in " + m_File + " does not match its header!");
+		}
+		if (numRows > Integer.MAX_VALUE) {
+			throw new IOException("Too many rows in " + m_File + ": " + numRows);
+		}
+		m_NumFileRows = (int) numRows;
+		m_DataStart = dataStart(headerLength);
+		m_RowsPerSegment = Integer.MAX_VALUE / m_RowWidth;
+
+		int numSegments = (int) ((numRows + m_RowsPerSegment - 1) / m_RowsPerSegment);
+		m_Segments = new ByteBuffer[numSegments];
+		try (RandomAccessFile raf = new RandomAccessFile(m_File, "r")) {
+			FileChannel channel = raf.getChannel();
+			for (int i = 0; i < numSegments; i++) {
+				long first = (long) i * m_RowsPerSegment;
+				long rows = Math.min(m_RowsPerSegment, numRows - first);
+				m_Segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, m_DataStart + first * m_RowWidth,
+						rows * m_RowWidth);
+			}
+		}
+	}
+
+	/**
+	 * Returns the offset of the first row, given the length of the serialized
+	 * header. Rows start on an 8 byte boundary.
+	 *
+	 * @param headerLength
+	 *            the length of the serialized header
+	 * @return the offset of the first row
+	 */
+	protected static long dataStart(int headerLength) {
+
+		long start = 4 + 4 + 8 + 4 + 4 + headerLength;
+		return (start + 7) & ~7L;
+	}
+
+	/**
+	 * Returns the file row at the given position of this dataset.
+	 *
+	 * @param position
+	 *            the position in the dataset
+	 * @return the row in the file
+	 */
+	protected int fileRow(int position) {
+
+		return (m_Rows == null) ? position : m_Rows[position];
+	}
+
+	/**
+	 * Returns a single value.
+	 *
+	 * @param position
+	 *            the position of the row in the dataset
+	 * @param attIndex
+	 *            the attribute index
+	 * @return the value in internal format
+	 */
+	protected double cell(int position, int attIndex) {
+
+		int row = fileRow(position);
+		ByteBuffer segment = m_Segments[row / m_RowsPerSegment];
+		int offset = (row % m_RowsPerSegment) * m_RowWidth + m_ColumnOffsets[attIndex];
+		int value;
+		switch (m_ColumnWidths[attIndex]) {
+		case 8:
+			return segment.getDouble(offset);
+		case 1:
+			value = segment.get(offset);
+			break;
+		case 2:
+			value = segment.getShort(offset);
+			break;
+		default:
+			value = segment.getInt(offset);
+		}
+		return (value < 0) ? Utils.missingValue() : value;
+	}
+
+	/**
+	 * Returns the weight of a row.
+	 *
+	 * @param position
+	 *            the position of the row in the dataset
+	 * @return the weight
+	 */
+	protected double rowWeight(int position) {
+
+		if (m_Weights != null) {
+			return m_Weights[position];
+		}
+		int row = fileRow(position);
+		return m_Segments[row / m_RowsPerSegment].getDouble((row % m_RowsPerSegment) * m_RowWidth);
+	}
+
+	/**
+	 * Sets the weight of a row. Creates a heap copy of all weights the first
+	 * time it is called.
+	 *
+	 * @param position
+	 *            the position of the row in the dataset
+	 * @param weight
+	 *            the new weight
+	 */
+	protected void setRowWeight(int position, double weight) {
+
+		if (m_Weights == null) {
+			m_Weights = weights();
+		}
+		m_Weights[position] = weight;
+	}
+
+	/**
+	 * Returns the weights of all rows, in dataset order.
+	 *
+	 * @return a new array with the weights
+	 */
+	protected double[] weights() {
+
+		double[] result = new double[m_NumRows];
+		for (int i = 0; i < m_NumRows; i++) {
+			result[i] = rowWeight(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Makes sure that the row permutation is held explicitly.
+	 */
+	protected void materializeRows() {
+
+		if (m_Rows == null) {
+			m_Rows = new int[m_NumRows];
+			for (int i = 0; i < m_NumRows; i++) {
+				m_Rows[i] = i;
+			}
+		}
+	}
+
+	/**
+	 * Returns a dataset sharing this mapping that contains the rows at the
+	 * given positions.
+	 *
+	 * @param positions
+	 *            the positions in this dataset
+	 * @return the subset
+	 */
+	protected MappedInstances subset(int[] positions) {
+
+		int[] rows = new int[positions.length];
+		double[] weights = (m_Weights == null) ? null : new double[positions.length];
+		for (int i = 0; i < positions.length; i++) {
+			rows[i] = fileRow(positions[i]);
+			if (weights != null) {
+				weights[i] = m_Weights[positions[i]];
+			}
+		}
+		return new MappedInstances(this, rows, weights);
+	}
+
+	/**
+	 * Returns a dataset sharing this mapping that contains the given range of
+	 * rows.
+	 *
+	 * @param first
+	 *            the position of the first row
+	 * @param num
+	 *            the number of rows
+	 * @return the subset
+	 */
+	protected MappedInstances subset(int first, int num) {
+
+		int[] positions = new int[num];
+		for (int i = 0; i < num; i++) {
+			positions[i] = first + i;
+		}
+		return subset(positions);
+	}
+
+	/**
+	 * Reorders the rows. Row i of the result is row order[i] of the current
+	 * data.
+	 *
+	 * @param order
+	 *            the new order, must contain m_NumRows positions
+	 */
+	@Override
+	protected void permute(int[] order) {
+
+		int[] rows = new int[order.length];
+		double[] weights = (m_Weights == null) ? null : new double[order.length];
+		for (int i = 0; i < order.length; i++) {
+			rows[i] = fileRow(order[i]);
+			if (weights != null) {
+				weights[i] = m_Weights[order[i]];
+			}
+		}
+		m_Rows = rows;
+		m_Weights = weights;
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Checks whether the given position is valid.
+	 *
+	 * @param index
+	 *            the position
+	 * @throws IndexOutOfBoundsException
+	 *             if the position is out of range
+	 */
+	protected void checkRow(int index) {
+
+		if ((index < 0) || (index >= m_NumRows)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_NumRows);
+		}
+	}
+
+	/**
+	 * Not supported, mapped instances are read-only.
+	 *
+	 * @param instance
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public boolean add(/* @non_null@ */Instance instance) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Not supported, mapped instances are read-only.
+	 *
+	 * @param index
+	 *            ignored
+	 * @param instance
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void add(int index, /* @non_null@ */Instance instance) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Not supported, mapped instances are read-only.
+	 *
+	 * @param index
+	 *            ignored
+	 * @param instance
+	 *            ignored
+	 * @return nothing
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public Instance set(int index, /* @non_null@ */Instance instance) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Not supported, the layout of mapped instances is fixed.
+	 *
+	 * @param att
+	 *            ignored
+	 * @param position
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void insertAttributeAt(/* @non_null@ */Attribute att, int position) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Not supported, the layout of mapped instances is fixed.
+	 *
+	 * @param position
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void deleteAttributeAt(int position) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Not supported, the layout of mapped instances is fixed.
+	 *
+	 * @param att
+	 *            ignored
+	 * @param position
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void replaceAttributeAt(/* @non_null@ */Attribute att, int position) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Not supported, the layout of mapped instances is fixed.
+	 *
+	 * @param atts
+	 *            ignored
+	 * @param position
+	 *            ignored
+	 * @param values
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void insertAttributesAt(/* @non_null@ */List<Attribute> atts, int position, double[][] values) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Not supported, the layout of mapped instances is fixed.
+	 *
+	 * @param positions
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void deleteAttributesAt(int... positions) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Not supported, the layout of mapped instances is fixed.
+	 *
+	 * @param atts
+	 *            ignored
+	 * @param positions
+	 *            ignored
+	 * @param values
+	 *            ignored
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void replaceAttributesAt(/* @non_null@ */List<Attribute> atts, int[] positions, double[][] values) {
+
+		throw new UnsupportedOperationException("Memory-mapped instances are read-only!");
+	}
+
+	/**
+	 * Does nothing, the rows are not held on the heap.
+	 */
+	@Override
+	public void compactify() {
+	}
+
+	/**
+	 * Removes all instances from the set. The file is not changed.
+	 */
+	@Override
+	public void delete() {
+
+		m_Rows = new int[0];
+		m_Weights = null;
+		m_NumRows = 0;
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Removes an instance at the given position from the set. The file is not
+	 * changed.
+	 *
+	 * @param index
+	 *            the instance's position (index starts with 0)
+	 */
+	@Override
+	public void delete(int index) {
+
+		remove(index);
+	}
+
+	/**
+	 * Removes the instance at the given position. The file is not changed.
+	 *
+	 * @param index
+	 *            the instance's index (index starts with 0)
+	 * @return a heap copy of the removed instance
+	 */
+	@Override
+	public Instance remove(int index) {
+
+		checkRow(index);
+		Instance old = (Instance) instance(index).copy();
+		materializeRows();
+		int numMoved = m_NumRows - index - 1;
+		System.arraycopy(m_Rows, index + 1, m_Rows, index, numMoved);
+		if (m_Weights != null) {
+			System.arraycopy(m_Weights, index + 1, m_Weights, index, numMoved);
+		}
+		m_NumRows--;
+		invalidateSortIndices();
+
+		return old;
+	}
+
+	/**
+	 * Removes all instances with missing values for a particular attribute from
+	 * the dataset. The file is not changed.
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	public void deleteWithMissing(int attIndex) {
+
+		int[] keep = new int[m_NumRows];
+		int numKept = 0;
+		for (int i = 0; i < m_NumRows; i++) {
+			if (!Utils.isMissingValue(cell(i, attIndex))) {
+				keep[numKept++] = i;
+			}
+		}
+		int[] order = new int[numKept];
+		System.arraycopy(keep, 0, order, 0, numKept);
+		permute(order);
+		m_NumRows = numKept;
+	}
+
+	/**
+	 * Returns an enumeration of all instances in the dataset.
+	 *
+	 * @return enumeration of all instances in the dataset
+	 */
+	@Override
+	public/* @non_null pure@ */Enumeration<Instance> enumerateInstances() {
+
+		return new WekaEnumeration<>(this);
+	}
+
+	/**
+	 * Returns a view onto the first instance in the set.
+	 *
+	 * @return the first instance in the set
+	 */
+	@Override
+	public/* @non_null pure@ */Instance firstInstance() {
+
+		return instance(0);
+	}
+
+	/**
+	 * Returns a view onto the instance at the given position.
+	 *
+	 * @param index
+	 *            the instance's index (index starts with 0)
+	 * @return the instance at the given position
+	 */
+	@Override
+	public/* @non_null pure@ */Instance instance(int index) {
+
+		checkRow(index);
+		return new MappedInstance(this, index);
+	}
+
+	/**
+	 * Returns a view onto the instance at the given position.
+	 *
+	 * @param index
+	 *            the instance's index (index starts with 0)
+	 * @return the instance at the given position
+	 */
+	@Override
+	public/* @non_null pure@ */Instance get(int index) {
+
+		return instance(index);
+	}
+
+	/**
+	 * Returns a view onto the last instance in the set.
+	 *
+	 * @return the last instance in the set
+	 */
+	@Override
+	public/* @non_null pure@ */Instance lastInstance() {
+
+		return instance(m_NumRows - 1);
+	}
+
+	/**
+	 * Returns the number of instances in the dataset.
+	 *
+	 * @return the number of instances in the dataset as an integer
+	 */
+	@Override
+	public/* @pure@ */int numInstances() {
+
+		return m_NumRows;
+	}
+
+	/**
+	 * Returns the number of instances in the dataset.
+	 *
+	 * @return the number of instances in the dataset as an integer
+	 */
+	@Override
+	public/* @pure@ */int size() {
+
+		return m_NumRows;
+	}
+
+	/**
+	 * Swaps two instances in the set.
+	 *
+	 * @param i
+	 *            the first instance's index (index starts with 0)
+	 * @param j
+	 *            the second instance's index (index starts with 0)
+	 */
+	@Override
+	public void swap(int i, int j) {
+
+		checkRow(i);
+		checkRow(j);
+		materializeRows();
+		int help = m_Rows[i];
+		m_Rows[i] = m_Rows[j];
+		m_Rows[j] = help;
+		if (m_Weights != null) {
+			double weight = m_Weights[i];
+			m_Weights[i] = m_Weights[j];
+			m_Weights[j] = weight;
+		}
+		invalidateSortIndices();
+	}
+
+	/**
+	 * Sorts a nominal attribute (stable, linear-time sort).
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	protected void sortBasedOnNominalAttribute(int attIndex) {
+
+		int[] counts = new int[attribute(attIndex).numValues()];
+		for (int i = 0; i < m_NumRows; i++) {
+			double value = cell(i, attIndex);
+			if (!Utils.isMissingValue(value)) {
+				counts[(int) value]++;
+			}
+		}
+		int[] indices = new int[counts.length];
+		int start = 0;
+		for (int i = 0; i < counts.length; i++) {
+			indices[i] = start;
+			start += counts[i];
+		}
+		int[] order = new int[m_NumRows];
+		for (int i = 0; i < m_NumRows; i++) {
+			double value = cell(i, attIndex);
+			if (!Utils.isMissingValue(value)) {
+				order[indices[(int) value]++] = i;
+			} else {
+				order[start++] = i;
+			}
+		}
+		permute(order);
+	}
+
+	/**
+	 * Sorts the instances based on an attribute. Only the row permutation is
+	 * changed. Instances with missing values for the attribute are placed at
+	 * the end of the dataset.
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	public void sort(int attIndex) {
+
+		if (!attribute(attIndex).isNominal()) {
+			double[] vals = attributeToDoubleArray(attIndex);
+			Utils.replaceMissingWithMAX_VALUE(vals);
+			permute(Utils.sortWithNoMissingValues(vals));
+		} else {
+			sortBasedOnNominalAttribute(attIndex);
+		}
+	}
+
+	/**
+	 * Sorts the instances based on an attribute, using a stable sort. Only the
+	 * row permutation is changed.
+	 *
+	 * @param attIndex
+	 *            the attribute's index (index starts with 0)
+	 */
+	@Override
+	public void stableSort(int attIndex) {
+
+		if (!attribute(attIndex).isNominal()) {
+			permute(Utils.stableSort(attributeToDoubleArray(attIndex)));
+		} else {
+			sortBasedOnNominalAttribute(attIndex);
+		}
+	}
+
+	/**
+	 * Creates the test set for one fold of a cross-validation on the dataset.
+	 * The test set shares the mapping with this dataset.
+	 *
+	 * @param numFolds
+	 *            the number of folds in the cross-validation. Must be greater
+	 *            than 1.
+	 * @param numFold
+	 *            0 for the first fold, 1 for the second, ...
+	 * @return the test set
+	 * @throws IllegalArgumentException
+	 *             if the number of folds is less than 2 or greater than the
+	 *             number of instances.
+	 */
+	@Override
+	public Instances testCV(int numFolds, int numFold) {
+
+		if (numFolds < 2) {
+			throw new IllegalArgumentException("Number of folds must be at least 2!");
+		}
+		if (numFolds > numInstances()) {
+			throw new IllegalArgumentException("Can't have more folds than instances!");
+		}
+		int numInstForFold = numInstances() / numFolds;
+		int offset;
+		if (numFold < numInstances() % numFolds) {
+			numInstForFold++;
+			offset = numFold;
+		} else {
+			offset = numInstances() % numFolds;
+		}
+		int first = numFold * (numInstances() / numFolds) + offset;
+		return subset(first, numInstForFold);
+	}
+
+	/**
+	 * Creates the training set for one fold of a cross-validation on the
+	 * dataset. The training set shares the mapping with this dataset.
+	 *
+	 * @param numFolds
+	 *            the number of folds in the cross-validation. Must be greater
+	 *            than 1.
+	 * @param numFold
+	 *            0 for the first fold, 1 for the second, ...
+	 * @return the training set
+	 * @throws IllegalArgumentException
+	 *             if the number of folds is less than 2 or greater than the
+	 *             number of instances.
+	 */
+	@Override
+	public Instances trainCV(int numFolds, int numFold) {
+
+		if (numFolds < 2) {
+			throw new IllegalArgumentException("Number of folds must be at least 2!");
+		}
+		if (numFolds > numInstances()) {
+			throw new IllegalArgumentException("Can't have more folds than instances!");
+		}
+		int numInstForFold = numInstances() / numFolds;
+		int offset;
+		if (numFold < numInstances() % numFolds) {
+			numInstForFold++;
+			offset = numFold;
+		} else {
+			offset = numInstances() % numFolds;
+		}
+		int first = numFold * (numInstances() / numFolds) + offset;
+		int[] positions = new int[numInstances() - numInstForFold];
+		int n = 0;
+		for (int i = 0; i < first; i++) {
+			positions[n++] = i;
+		}
+		for (int i = first + numInstForFold; i < numInstances(); i++) {
+			positions[n++] = i;
+		}
+		return subset(positions);
+	}
+
+	/**
+	 * Creates a new dataset of the same size using random sampling with
+	 * replacement. The new dataset shares the mapping with this dataset.
+	 *
+	 * @param random
+	 *            a random number generator
+	 * @return the new dataset
+	 */
+	@Override
+	public Instances resample(Random random) {
+
+		int[] positions = new int[numInstances()];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = random.nextInt(numInstances());
+		}
+		return subset(positions);
+	}
+
+	/**
+	 * Creates a new dataset of the same size using random sampling with
+	 * replacement according to the given weight vector. The new dataset shares
+	 * the mapping with this dataset; only the row numbers and weights are held
+	 * on the heap.
+	 *
+	 * @param random
+	 *            a random number generator
+	 * @param weights
+	 *            the weight vector
+	 * @param sampled
+	 *            an array indicating what has been sampled, can be null
+	 * @param representUsingWeights
+	 *            if true, copies are represented using weights in resampled
+	 *            data
+	 * @return the new dataset
+	 * @throws IllegalArgumentException
+	 *             if the weights array is of the wrong length or contains
+	 *             negative weights.
+	 */
+	@Override
+	public Instances resampleWithWeights(Random random, double[] weights, boolean[] sampled,
+			boolean representUsingWeights) {
+
+		if (weights.length != numInstances()) {
+			throw new IllegalArgumentException("weights.length != numInstances.");
+		}
+		if (numInstances() == 0) {
+			return subset(new int[0]);
+		}
+
+		int[] draws = drawWithWeights(random, weights, numInstances());
+		if (sampled != null) {
+			for (int draw : draws) {
+				sampled[draw] = true;
+			}
+		}
+
+		int[] rows;
+		double[] newWeights;
+		if (representUsingWeights) {
+			int[] counts = new int[weights.length];
+			int numDistinct = 0;
+			for (int draw : draws) {
+				if (counts[draw]++ == 0) {
+					numDistinct++;
+				}
+			}
+			rows = new int[numDistinct];
+			newWeights = new double[numDistinct];
+			int n = 0;
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > 0) {
+					rows[n] = fileRow(i);
+					newWeights[n++] = counts[i];
+				}
+			}
+		} else {
+			rows = new int[draws.length];
+			newWeights = new double[draws.length];
+			for (int i = 0; i < draws.length; i++) {
+				rows[i] = fileRow(draws[i]);
+				newWeights[i] = 1;
+			}
+		}
+		return new MappedInstances(this, rows, newWeights);
+	}
+
+	/**
+	 * Computes the sum of all the instances' weights.
+	 *
+	 * @return the sum of all the instances' weights as a double
+	 */
+	@Override
+	public/* @pure@ */double sumOfWeights() {
+
+		double sum = 0;
+		for (int i = 0; i < m_NumRows; i++) {
+			sum += rowWeight(i);
+		}
+		return sum;
+	}
+
+	/**
+	 * Gets the value of all instances in this dataset for a particular
+	 * attribute.
+	 *
+	 * @param index
+	 *            the index of the attribute.
+	 * @return an array containing the value of the desired attribute for each
+	 *         instance in the dataset.
+	 */
+	@Override
+	public/* @pure@ */double[] attributeToDoubleArray(int index) {
+
+		double[] result = new double[m_NumRows];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = cell(i, index);
+		}
+		return result;
+	}
+
+	/**
+	 * Maps the file again after deserialization.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 * @throws IOException
+	 *             if reading or mapping fails
+	 * @throws ClassNotFoundException
+	 *             if a class cannot be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+
+		in.defaultReadObject();
+		map();
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+
+	/**
+	 * Writes instances to a file that can be opened as MappedInstances, one
+	 * row at a time. The header is fixed when the writer is created; string
+	 * and relational values are stored as indices into the header's
+	 * attributes, so all values must already be known at that point.
+	 */
+	public static class Writer implements Closeable, RevisionHandler {
+
+		/** the file to write to */
+		protected File m_File;
+
+		/** the stream to write to */
+		protected DataOutputStream m_Output;
+
+		/** the cell widths */
+		protected int[] m_Widths;
+
+		/** the number of rows written so far */
+		protected long m_NumRows;
+
+		/**
+		 * Creates a writer for the given header and writes the file preamble.
+		 *
+		 * @param header
+		 *            the dataset structure, instances are ignored
+		 * @param file
+		 *            the file to write to
+		 * @throws IOException
+		 *             if writing fails
+		 */
+		public Writer(Instances header, File file) throws IOException {
+
+			Instances structure = new Instances(header, 0);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+				oos.writeObject(structure);
+			}
+
+			m_File = file;
+			m_Widths = new int[structure.numAttributes()];
+			int rowWidth = WEIGHT_WIDTH;
+			for (int i = 0; i < m_Widths.length; i++) {
+				m_Widths[i] = cellWidth(structure.attribute(i));
+				rowWidth += m_Widths[i];
+			}
+
+			m_Output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+			m_Output.writeInt(MAGIC);
+			m_Output.writeInt(VERSION);
+			m_Output.writeLong(0);
+			m_Output.writeInt(rowWidth);
+			m_Output.writeInt(bytes.size());
+			bytes.writeTo(m_Output);
+			long start = dataStart(bytes.size());
+			for (long i = m_Output.size(); i < start; i++) {
+				m_Output.writeByte(0);
+			}
+		}
+
+		/**
+		 * Appends one instance.
+		 *
+		 * @param inst
+		 *            the instance to write
+		 * @throws IOException
+		 *             if writing fails
+		 */
+		public void write(Instance inst) throws IOException {
+
+			m_Output.writeDouble(inst.weight());
+			for (int i = 0; i < m_Widths.length; i++) {
+				double value = inst.value(i);
+				int index = Utils.isMissingValue(value) ? -1 : (int) value;
+				switch (m_Widths[i]) {
+				case 8:
+					m_Output.writeDouble(value);
+					break;
+				case 1:
+					m_Output.writeByte(index);
+					break;
+				case 2:
+					m_Output.writeShort(index);
+					break;
+				default:
+					m_Output.writeInt(index);
+				}
+			}
+			m_NumRows++;
+		}
+
+		/**
+		 * Flushes the rows and records their number in the file.
+		 *
+		 * @throws IOException
+		 *             if writing fails
+		 */
+		@Override
+		public void close() throws IOException {
+
+			if (m_Output == null) {
+				return;
+			}
+			m_Output.close();
+			m_Output = null;
+			try (RandomAccessFile raf = new RandomAccessFile(m_File, "rw")) {
+				raf.seek(NUM_ROWS_OFFSET);
+				raf.writeLong(m_NumRows);
+			}
+		}
+
+		/**
+		 * Returns the revision string.
+		 *
+		 * @return the revision
+		 */
+		@Override
+		public String getRevision() {
+			return RevisionUtils.extract("$Revision$");
+		}
+	}
+}
@@ -20,8 +20,8 @@
  */
 package core;
 
-import java.util.ArrayList;
-import java.util.Hashtable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.List;
 
 /**
@@ -30,15 +30,13 @@ import java.util.List;
 public class NominalAttributeInfo implements AttributeInfo {
 
 	/**
-	 * 
+	 * for serialization, the UID that Java computed for the class before the
+	 * values were kept in a StringDictionary.
 	 */
-	private final long serialVersionUID = 1L;
+	private static final long serialVersionUID = -8064284952946271467L;
 
-	/** The attribute's values. */
-	protected/* @ spec_public @ */ArrayList<Object> m_Values;
-
-	/** Mapping of values to indices. */
-	protected Hashtable<Object, Integer> m_Hashtable;
+	/** The attribute's values, with the mapping of values to indices. */
+	protected/* @ spec_public @ */StringDictionary m_Dictionary;
 
 	/**
 	 * Constructs the info based on argument.
@@ -46,27 +44,67 @@ public class NominalAttributeInfo implements AttributeInfo {
 	public NominalAttributeInfo(List<String> attributeValues, String attributeName) {
 
 		if (attributeValues == null) {
-			m_Values = new ArrayList<>();
-			m_Hashtable = new Hashtable<>();
+			m_Dictionary = new StringDictionary();
 		} else {
-			m_Values = new ArrayList<>(attributeValues.size());
-			m_Hashtable = new Hashtable<>(attributeValues.size());
+			m_Dictionary = new StringDictionary(attributeValues.size());
 			for (int i = 0; i < attributeValues.size(); i++) {
-				Object store = attributeValues.get(i);
-				if (((String) store).length() > Attribute.STRING_COMPRESS_THRESHOLD) {
-					try {
-						store = new SerializedObject(attributeValues.get(i), true);
-					} catch (Exception ex) {
-						System.err.println("Couldn't compress nominal attribute value -" + " storing uncompressed.");
-					}
-				}
-				if (m_Hashtable.containsKey(store)) {
+				String value = attributeValues.get(i);
+				if (m_Dictionary.contains(value)) {
 					throw new IllegalArgumentException("A nominal attribute (" + attributeName + ") cannot"
-							+ " have duplicate labels (" + store + ").");
+							+ " have duplicate labels (" + value + ").");
 				}
-				m_Values.add(store);
-				m_Hashtable.put(store, Integer.valueOf(i));
+				m_Dictionary.add(value);
+			}
+		}
+	}
+
+	/**
+	 * Restores the values from an ArrayList of the values, as written before
+	 * they were kept in a StringDictionary. Values longer than
+	 * Attribute.STRING_COMPRESS_THRESHOLD chars were stored as
+	 * SerializedObjects.
+	 *
+	 * @param values
+	 *            the values in the order of their indices
+	 * @throws IOException
+	 *             if a value can't be restored
+	 */
+	protected void restoreValues(List<Object> values) throws IOException {
+
+		m_Dictionary = new StringDictionary(values.size());
+		for (Object value : values) {
+			if (value instanceof SerializedObject) {
+				value = ((SerializedObject) value).getObject();
+			}
+			if (!(value instanceof String)) {
+				throw new IOException("Can't restore attribute value " + value);
+			}
+			m_Dictionary.add((String) value);
+		}
+	}
+
+	/**
+	 * Reads the info, also in the form written before the values were kept in
+	 * a StringDictionary (a list of the values plus a Hashtable mapping them
+	 * to their indices, which is rebuilt from the list).
+	 *
+	 * @param in
+	 *            the stream to read from
+	 * @throws IOException
+	 *             if reading fails
+	 * @throws ClassNotFoundException
+	 *             if a class of the stream can't be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+
+		ObjectInputStream.GetField fields = in.readFields();
+		m_Dictionary = (StringDictionary) fields.get("m_Dictionary", null);
+		if (m_Dictionary == null) {
+			List<Object> values = Utils.cast(fields.get("m_Values", null));
+			if (values == null) {
+				throw new IOException("No attribute values in stream");
 			}
+			restoreValues(values);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -26,20 +26,33 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class that manages a global map of plugins. Provides static methods for
  * registering and instantiating plugins. The package manager looks for, and
  * processes, a PluginManager.props file in the top-level of a package.
+ * <p/>
+ * 
+ * The registry is kept in an immutable snapshot. Updates are made to a copy of
+ * the snapshot that replaces it once the update is complete (copy-on-write),
+ * so lookups never block and always see a consistent registry; updates are
+ * serialized. The constructors of plugin classes are cached, so that
+ * instantiating a plugin does not look up the class and its constructor each
+ * time.
  * 
  * @author Mark Hall (mhall{[at]}pentaho{[dot]}com)
  * @version $Revision: 12312 $
@@ -47,36 +60,148 @@ import java.util.TreeMap;
 public class PluginManager {
 
 	/**
-	 * Global map of plugin classes that is keyed by plugin base class/interface
-	 * type. The inner Map then stores individual plugin instances of the
-	 * interface type, keyed by plugin name/short title with values the actual
-	 * fully qualified class name
-	 */
-	protected static Map<String, Map<String, String>> PLUGINS = new HashMap<>();
+	 * A snapshot of the registry. A snapshot that has been published is never
+	 * changed again; updates are made to a copy, which copies the inner maps
+	 * the first time they are changed.
+	 */
+	protected static class Registry {
+
+		/**
+		 * Map of plugin classes that is keyed by plugin base class/interface
+		 * type. The inner Map then stores individual plugin instances of the
+		 * interface type, keyed by plugin name/short title with values the
+		 * actual fully qualified class name
+		 */
+		protected Map<String, Map<String, String>> m_Plugins;
+
+		/**
+		 * Set of concrete fully qualified class names or abstract/interface
+		 * base types to "disable". Entries in this list wont ever be returned
+		 * by any of the getPlugin() methods. Registering an abstract/interface
+		 * base name will disable all concrete implementations of that type
+		 */
+		protected Set<String> m_Disabled;
+
+		/**
+		 * Map of plugin resources (loadable from the classpath). Outer map is
+		 * keyed by group ID, i.e. an ID of a logical group of resources (e.g.
+		 * knowledge flow template files). The inner map then stores individual
+		 * resource paths keyed by their short description.
+		 */
+		protected Map<String, Map<String, String>> m_Resources;
+
+		/**
+		 * Lookup map to locate a package owner for resources. Keyed by group
+		 * ID:resource description. Used to see if a package owns a resource,
+		 * in which case the package classloader should be used to load the
+		 * resource rather than the application classloader
+		 */
+		protected Map<String, String> m_ResourceOwnerPackage;
+
+		/** the inner maps copied by an update so far */
+		protected Map<Map<String, String>, Boolean> m_Copied;
+
+		/**
+		 * Creates an empty registry.
+		 */
+		public Registry() {
+			m_Plugins = new HashMap<>();
+			m_Disabled = new HashSet<>();
+			m_Resources = new HashMap<>();
+			m_ResourceOwnerPackage = new HashMap<>();
+		}
+
+		/**
+		 * Creates a copy of a registry that can be updated.
+		 * 
+		 * @param other
+		 *            the registry to copy
+		 */
+		public Registry(Registry other) {
+			m_Plugins = new HashMap<>(other.m_Plugins);
+			m_Disabled = new HashSet<>(other.m_Disabled);
+			m_Resources = new HashMap<>(other.m_Resources);
+			m_ResourceOwnerPackage = new HashMap<>(other.m_ResourceOwnerPackage);
+			m_Copied = new IdentityHashMap<>();
+		}
+
+		/**
+		 * Returns an inner map for updating, copying it if this update has not
+		 * done so yet.
+		 * 
+		 * @param outer
+		 *            the outer map
+		 * @param key
+		 *            the key of the inner map
+		 * @param create
+		 *            whether to create the inner map if it does not exist
+		 * @param sorted
+		 *            whether a created inner map is sorted by key rather than
+		 *            by order of insertion
+		 * @return the inner map, null if it does not exist and is not created
+		 */
+		protected Map<String, String> edit(Map<String, Map<String, String>> outer, String key, boolean create,
+				boolean sorted) {
+
+			Map<String, String> inner = outer.get(key);
+			if (inner == null) {
+				if (!create) {
+					return null;
+				}
+				inner = sorted ? new TreeMap<String, String>() : new LinkedHashMap<String, String>();
+			} else if (m_Copied.containsKey(inner)) {
+				return inner;
+			} else if (inner instanceof SortedMap) {
+				inner = new TreeMap<>((SortedMap<String, String>) inner);
+			} else {
+				inner = new LinkedHashMap<>(inner);
+			}
+			m_Copied.put(inner, Boolean.TRUE);
+			outer.put(key, inner);
+			return inner;
+		}
+	}
+
+	/** the current snapshot of the registry */
+	protected static volatile Registry REGISTRY = new Registry();
+
+	/** the update in progress, only accessed while holding the lock */
+	protected static Registry UPDATE;
+
+	/** the nesting depth of the update in progress */
+	protected static int UPDATE_DEPTH;
 
 	/**
-	 * Set of concrete fully qualified class names or abstract/interface base
-	 * types to "disable". Entries in this list wont ever be returned by any of
-	 * the getPlugin() methods. Registering an abstract/interface base name will
-	 * disable all concrete implementations of that type
+	 * Cache of the no-argument constructors of plugin classes, keyed by fully
+	 * qualified class name
 	 */
-	protected static Set<String> DISABLED = new HashSet<>();
+	protected static Map<String, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<>();
 
 	/**
-	 * Global map of plugin resources (loadable from the classpath). Outer map
-	 * is keyed by group ID, i.e. an ID of a logical group of resources (e.g.
-	 * knowledge flow template files). The inner map then stores individual
-	 * resource paths keyed by their short description.
+	 * Starts an update of the registry, or joins the update in progress.
+	 * Changes become visible once the outermost update ends. Must be called
+	 * while holding the lock.
+	 * 
+	 * @return the registry to change
 	 */
-	protected static Map<String, Map<String, String>> RESOURCES = new HashMap<>();
+	protected static Registry beginUpdate() {
+		if (UPDATE_DEPTH++ == 0) {
+			UPDATE = new Registry(REGISTRY);
+		}
+		return UPDATE;
+	}
 
 	/**
-	 * Global lookup map to locate a package owner for resources. Keyed by group
-	 * ID:resource description. Used to see if a package owns a resource, in
-	 * which case the package classloader should be used to load the resource
-	 * rather than the application classloader
+	 * Ends an update, publishing the changes if it is the outermost one. Must
+	 * be called while holding the lock.
 	 */
-	protected static Map<String, String> RESOURCE_OWNER_PACKAGE = new HashMap<>();
+	protected static void endUpdate() {
+		if (--UPDATE_DEPTH == 0) {
+			UPDATE.m_Copied = null;
+			REGISTRY = UPDATE;
+			UPDATE = null;
+		}
+	}
 
 	/**
 	 * Add the supplied list of fully qualified class names to the disabled list
@@ -85,8 +210,13 @@ public class PluginManager {
 	 *            a list of class names to add
 	 */
 	public static synchronized void addToDisabledList(List<String> classnames) {
-		for (String s : classnames) {
-			addToDisabledList(s);
+		beginUpdate();
+		try {
+			for (String s : classnames) {
+				addToDisabledList(s);
+			}
+		} finally {
+			endUpdate();
 		}
 	}
 
@@ -98,7 +228,8 @@ public class PluginManager {
 	 *            the fully qualified name of a class to add
 	 */
 	public static synchronized void addToDisabledList(String classname) {
-		DISABLED.add(classname);
+		beginUpdate().m_Disabled.add(classname);
+		endUpdate();
 	}
 
 	/**
@@ -109,8 +240,13 @@ public class PluginManager {
 	 *            a list of class names to remove
 	 */
 	public static synchronized void removeFromDisabledList(List<String> classnames) {
-		for (String s : classnames) {
-			removeFromDisabledList(s);
+		beginUpdate();
+		try {
+			for (String s : classnames) {
+				removeFromDisabledList(s);
+			}
+		} finally {
+			endUpdate();
 		}
 	}
 
@@ -122,7 +258,8 @@ public class PluginManager {
 	 *            the fully qualified name of a class to remove
 	 */
 	public static synchronized void removeFromDisabledList(String classname) {
-		DISABLED.remove(classname);
+		beginUpdate().m_Disabled.remove(classname);
+		endUpdate();
 	}
 
 	/**
@@ -134,7 +271,7 @@ public class PluginManager {
 	 * @return true if the supplied class name is in the disabled list
 	 */
 	public static boolean isInDisabledList(String classname) {
-		return DISABLED.contains(classname);
+		return REGISTRY.m_Disabled.contains(classname);
 	}
 
 	/**
@@ -329,6 +466,31 @@ public class PluginManager {
 			boolean maintainInsertionOrder) throws Exception {
 		java.util.Enumeration<?> keys = props.propertyNames();
 
+		beginUpdate();
+		try {
+			addFromProperties(packageName, props, keys, maintainInsertionOrder);
+		} finally {
+			endUpdate();
+		}
+	}
+
+	/**
+	 * Adds the given key value pairs of a properties object, as part of an
+	 * update in progress.
+	 *
+	 * @param packageName
+	 *            the name of the Weka package that owns this properties object.
+	 *            Can be null if not owned by a Weka package
+	 * @param props
+	 *            a Properties object
+	 * @param keys
+	 *            the keys to add
+	 * @param maintainInsertionOrder
+	 *            true if the order of insertion of implementations is to be
+	 *            preserved (rather than sorted order)
+	 */
+	protected static void addFromProperties(String packageName, Properties props, java.util.Enumeration<?> keys,
+			boolean maintainInsertionOrder) {
 		while (keys.hasMoreElements()) {
 			String baseType = (String) keys.nextElement();
 			String implementations = props.getProperty(baseType);
@@ -384,8 +546,28 @@ public class PluginManager {
 	 */
 	protected static synchronized void addPluginResourcesFromProperty(String packageName, String resourceList) {
 
+		beginUpdate();
+		try {
+			addPluginResourcesFromProperty(packageName, resourceList.split(","), resourceList);
+		} finally {
+			endUpdate();
+		}
+	}
+
+	/**
+	 * Adds the given resources, as part of an update in progress.
+	 *
+	 * @param packageName
+	 *            the Weka package that owns these resources. Can be null if not
+	 *            owned by a Weka package
+	 * @param resources
+	 *            the resources to add
+	 * @param resourceList
+	 *            the list the resources come from
+	 */
+	protected static void addPluginResourcesFromProperty(String packageName, String[] resources, String resourceList) {
+
 		// Format: [groupID|description|path],[...],...
-		String[] resources = resourceList.split(",");
 		for (String r : resources) {
 			r = r.trim();
 			if (!r.startsWith("[") || !r.endsWith("]")) {
@@ -441,15 +623,14 @@ public class PluginManager {
 	 */
 	public static synchronized void addPluginResource(String packageName, String resourceGroupID,
 			String resourceDescription, String resourcePath) {
-		Map<String, String> groupMap = RESOURCES.get(resourceGroupID);
-		if (groupMap == null) {
-			groupMap = new LinkedHashMap<>();
-			RESOURCES.put(resourceGroupID, groupMap);
-		}
-
-		groupMap.put(resourceDescription, resourcePath);
-		if (packageName != null && packageName.length() > 0) {
-			RESOURCE_OWNER_PACKAGE.put(resourceGroupID + ":" + resourceDescription, packageName);
+		Registry update = beginUpdate();
+		try {
+			update.edit(update.m_Resources, resourceGroupID, true, false).put(resourceDescription, resourcePath);
+			if (packageName != null && packageName.length() > 0) {
+				update.m_ResourceOwnerPackage.put(resourceGroupID + ":" + resourceDescription, packageName);
+			}
+		} finally {
+			endUpdate();
 		}
 	}
 
@@ -468,7 +649,8 @@ public class PluginManager {
 	 */
 	public static InputStream getPluginResourceAsStream(String resourceGroupID, String resourceDescription)
 			throws IOException {
-		Map<String, String> groupMap = RESOURCES.get(resourceGroupID);
+		Registry registry = REGISTRY;
+		Map<String, String> groupMap = registry.m_Resources.get(resourceGroupID);
 		if (groupMap == null) {
 			throw new IOException("Unknown resource group ID: " + resourceGroupID);
 		}
@@ -479,7 +661,7 @@ public class PluginManager {
 		}
 
 		// owned by a package?
-		String ownerPackage = RESOURCE_OWNER_PACKAGE.get(resourceGroupID + ":" + resourceDescription);
+		String ownerPackage = registry.m_ResourceOwnerPackage.get(resourceGroupID + ":" + resourceDescription);
 
 		if (ownerPackage == null) {
 			return PluginManager.class.getClassLoader().getResourceAsStream(resourcePath);
@@ -496,7 +678,7 @@ public class PluginManager {
 	 * @return the number of resources registered under the supplied group ID
 	 */
 	public static int numResourcesForWithGroupID(String resourceGroupID) {
-		Map<String, String> groupMap = RESOURCES.get(resourceGroupID);
+		Map<String, String> groupMap = REGISTRY.m_Resources.get(resourceGroupID);
 		return groupMap == null ? 0 : groupMap.size();
 	}
 
@@ -506,11 +688,13 @@ public class PluginManager {
 	 *
 	 * @param resourceGroupID
 	 *            the group ID of the resources to get
-	 * @return a map of resources registered under the supplied group ID, or
-	 *         null if the resourceGroupID is not known to the plugin manager
+	 * @return an unmodifiable map of resources registered under the supplied
+	 *         group ID, or null if the resourceGroupID is not known to the
+	 *         plugin manager
 	 */
 	public static Map<String, String> getResourcesWithGroupID(String resourceGroupID) {
-		return RESOURCES.get(resourceGroupID);
+		Map<String, String> groupMap = REGISTRY.m_Resources.get(resourceGroupID);
+		return groupMap == null ? null : Collections.unmodifiableMap(groupMap);
 	}
 
 	/**
@@ -522,16 +706,15 @@ public class PluginManager {
 	 * @return a set of names of plugins
 	 */
 	public static Set<String> getPluginNamesOfType(String interfaceName) {
-		if (PLUGINS.get(interfaceName) != null) {
-			Set<String> match = PLUGINS.get(interfaceName).keySet();
+		Registry registry = REGISTRY;
+		Map<String, String> pluginsOfInterfaceType = registry.m_Plugins.get(interfaceName);
+		if (pluginsOfInterfaceType != null) {
 			Set<String> result = new LinkedHashSet<>();
-			for (String s : match) {
-				String impl = PLUGINS.get(interfaceName).get(s);
-				if (!DISABLED.contains(impl)) {
-					result.add(s);
+			for (Map.Entry<String, String> entry : pluginsOfInterfaceType.entrySet()) {
+				if (!registry.m_Disabled.contains(entry.getValue())) {
+					result.add(entry.getKey());
 				}
 			}
-			// return PLUGINS.get(interfaceName).keySet();
 			return result;
 		}
 
@@ -550,7 +733,7 @@ public class PluginManager {
 	 *            the fully qualified class name of the actual concrete
 	 *            implementation
 	 */
-	public static void addPlugin(String interfaceName, String name, String concreteType) {
+	public static synchronized void addPlugin(String interfaceName, String name, String concreteType) {
 		addPlugin(interfaceName, name, concreteType, false);
 	}
 
@@ -569,16 +752,14 @@ public class PluginManager {
 	 *            true if the order of insertion of implementations is to be
 	 *            preserved (rather than sorted order)
 	 */
-	public static void addPlugin(String interfaceName, String name, String concreteType,
+	public static synchronized void addPlugin(String interfaceName, String name, String concreteType,
 			boolean maintainInsertionOrder) {
 
-		if (PLUGINS.get(interfaceName) == null) {
-			Map<String, String> pluginsOfInterfaceType = maintainInsertionOrder ? new LinkedHashMap<String, String>()
-					: new TreeMap<String, String>();
-			pluginsOfInterfaceType.put(name, concreteType);
-			PLUGINS.put(interfaceName, pluginsOfInterfaceType);
-		} else {
-			PLUGINS.get(interfaceName).put(name, concreteType);
+		Registry update = beginUpdate();
+		try {
+			update.edit(update.m_Plugins, interfaceName, true, !maintainInsertionOrder).put(name, concreteType);
+		} finally {
+			endUpdate();
 		}
 	}
 
@@ -591,9 +772,14 @@ public class PluginManager {
 	 * @param names
 	 *            a list of named plugins to remove
 	 */
-	public static void removePlugins(String interfaceName, List<String> names) {
-		for (String name : names) {
-			removePlugin(interfaceName, name);
+	public static synchronized void removePlugins(String interfaceName, List<String> names) {
+		beginUpdate();
+		try {
+			for (String name : names) {
+				removePlugin(interfaceName, name);
+			}
+		} finally {
+			endUpdate();
 		}
 	}
 
@@ -606,9 +792,15 @@ public class PluginManager {
 	 * @param name
 	 *            the name/short description of the plugin
 	 */
-	public static void removePlugin(String interfaceName, String name) {
-		if (PLUGINS.get(interfaceName) != null) {
-			PLUGINS.get(interfaceName).remove(name);
+	public static synchronized void removePlugin(String interfaceName, String name) {
+		Registry update = beginUpdate();
+		try {
+			Map<String, String> pluginsOfInterfaceType = update.edit(update.m_Plugins, interfaceName, false, false);
+			if (pluginsOfInterfaceType != null) {
+				pluginsOfInterfaceType.remove(name);
+			}
+		} finally {
+			endUpdate();
 		}
 	}
 
@@ -622,8 +814,8 @@ public class PluginManager {
 	 * @return true if the named plugin exists
 	 */
 	public static boolean pluginRegistered(String interfaceType, String name) {
-		Map<String, String> pluginsOfInterfaceType = PLUGINS.get(interfaceType);
-		return pluginsOfInterfaceType.get(name) != null;
+		Map<String, String> pluginsOfInterfaceType = REGISTRY.m_Plugins.get(interfaceType);
+		return pluginsOfInterfaceType != null && pluginsOfInterfaceType.get(name) != null;
 	}
 
 	/**
@@ -638,21 +830,42 @@ public class PluginManager {
 	 *             if the plugin can't be found or instantiated
 	 */
 	public static Object getPluginInstance(String interfaceType, String name) throws Exception {
-		if (PLUGINS.get(interfaceType) == null || PLUGINS.get(interfaceType).size() == 0) {
+		Registry registry = REGISTRY;
+		Map<String, String> pluginsOfInterfaceType = registry.m_Plugins.get(interfaceType);
+		if (pluginsOfInterfaceType == null || pluginsOfInterfaceType.size() == 0) {
 			throw new Exception("No plugins of interface type: " + interfaceType + " available!!");
 		}
 
-		Map<String, String> pluginsOfInterfaceType = PLUGINS.get(interfaceType);
-		if (pluginsOfInterfaceType.get(name) == null) {
+		String concreteImpl = pluginsOfInterfaceType.get(name);
+		if (concreteImpl == null) {
 			throw new Exception("Can't find named plugin '" + name + "' of type '" + interfaceType + "'!");
 		}
 
-		String concreteImpl = pluginsOfInterfaceType.get(name);
 		Object plugin = null;
-		if (!DISABLED.contains(concreteImpl)) {
-			plugin = null;
+		if (!registry.m_Disabled.contains(concreteImpl)) {
+			plugin = getPluginConstructor(concreteImpl).newInstance();
 		}
 
 		return plugin;
 	}
+
+	/**
+	 * Returns the no-argument constructor of a plugin class, looking up the
+	 * class only the first time.
+	 * 
+	 * @param classname
+	 *            the fully qualified name of the class
+	 * @return the constructor
+	 * @throws Exception
+	 *             if the class or its constructor can't be found
+	 */
+	protected static Constructor<?> getPluginConstructor(String classname) throws Exception {
+		Constructor<?> constructor = CONSTRUCTORS.get(classname);
+		if (constructor == null) {
+			constructor = Class.forName(classname, true, PluginManager.class.getClassLoader()).getConstructor();
+			CONSTRUCTORS.put(classname, constructor);
+		}
+
+		return constructor;
+	}
 }
@@ -20,19 +20,32 @@
  */
 package core;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
 /**
  * Stores information for relational attributes.
  */
 public class RelationalAttributeInfo extends NominalAttributeInfo {
 
 	/**
-	 * 
+	 * for serialization, the UID that Java computed for the class before the
+	 * values moved here from NominalAttributeInfo.
 	 */
-	private static long serialVersionUID = 1L;
+	private static final long serialVersionUID = -6594261436601923141L;
 	
 	/** The header information for a relation-valued attribute. */
 	protected Instances m_Header;
 
+	/** The attribute's values. */
+	protected/* @ spec_public @ */ArrayList<Object> m_Values = new ArrayList<>();
+
+	/** Mapping of values to indices. */
+	protected Hashtable<Object, Integer> m_Hashtable = new Hashtable<>();
+
 	/**
 	 * Constructs the information object based on the given parameter.
 	 */
@@ -41,4 +54,41 @@ public class RelationalAttributeInfo extends NominalAttributeInfo {
 		super(null, null);
 		m_Header = header;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Restores the values from the list written by NominalAttributeInfo
+	 * before they moved here.
+	 *
+	 * @param values
+	 *            the values in the order of their indices
+	 */
+	@Override
+	protected void restoreValues(List<Object> values) {
+
+		m_Dictionary = new StringDictionary();
+		m_Values = new ArrayList<>(values);
+		m_Hashtable = new Hashtable<>(values.size());
+		for (int i = 0; i < values.size(); i++) {
+			m_Hashtable.put(values.get(i), Integer.valueOf(i));
+		}
+	}
+
+	/**
+	 * Reads the info. In the form written before the values moved here, they
+	 * have been restored by NominalAttributeInfo already.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 * @throws IOException
+	 *             if reading fails
+	 * @throws ClassNotFoundException
+	 *             if a class of the stream can't be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+
+		ObjectInputStream.GetField fields = in.readFields();
+		m_Header = (Instances) fields.get("m_Header", null);
+		m_Values = Utils.cast(fields.get("m_Values", m_Values));
+		m_Hashtable = Utils.cast(fields.get("m_Hashtable", m_Hashtable));
+	}
+}
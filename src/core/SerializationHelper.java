@@ -22,23 +22,39 @@ package core;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
-import java.util.LinkedHashSet;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * A helper class for determining serialVersionUIDs and checking whether classes
  * contain one and/or need one. One can also serialize and deserialize objects
- * to and from files or streams.
+ * to and from files or streams, and store several named objects in a container
+ * from which each can be read on its own (see ContainerWriter and
+ * ContainerReader).
  * 
  * @author fracpete (fracpete at waikato dot ac dot nz)
  * @version $Revision$
@@ -48,6 +64,12 @@ public class SerializationHelper implements RevisionHandler {
 	/** the field name of serialVersionUID. */
 	public final static String SERIAL_VERSION_UID = "serialVersionUID";
 
+	/** the magic number of containers. */
+	public final static int CONTAINER_MAGIC = 0x57534F43;
+
+	/** the version of the container format. */
+	public final static int CONTAINER_VERSION = 1;
+
 	/**
 	 * checks whether a class is serializable.
 	 * 
@@ -329,7 +351,7 @@ public class SerializationHelper implements RevisionHandler {
 			stream = new BufferedInputStream(stream);
 		}
 
-		return null;
+		return new ObjectInputStream(stream);
 	}
 
 	/**
@@ -373,6 +395,542 @@ public class SerializationHelper implements RevisionHandler {
 		return result.toArray(new Object[result.size()]);
 	}
 
+	/**
+	 * Writes a container of named objects to a stream. Each object is
+	 * serialized into an entry of its own (optionally compressed), and a table
+	 * of contents with the name, offset and length of every entry is appended
+	 * when the writer is closed, so that ContainerReader can read a single
+	 * entry without touching the others. The objects are written as they are
+	 * added, they are not buffered. If adding an object fails, the writer
+	 * accepts no further entries and close() leaves out the table of
+	 * contents, so that the incomplete container can't be opened.
+	 * <p/>
+	 *
+	 * Layout: MAGIC and VERSION (ints), the entries, the table of contents
+	 * (number of entries, then name, offset, length and compression flag per
+	 * entry) and finally the offset of the table of contents (long) followed
+	 * by MAGIC again.
+	 *
+	 * @see ContainerReader
+	 */
+	public static class ContainerWriter implements Closeable {
+
+		/** the stream to write to */
+		protected DataOutputStream m_Stream;
+
+		/** counts the bytes written so far */
+		protected CountingOutputStream m_Counter;
+
+		/** whether entries are compressed */
+		protected boolean m_Compress;
+
+		/** the entries written so far */
+		protected LinkedHashMap<String, ContainerEntry> m_Entries = new LinkedHashMap<>();
+
+		/** whether adding an entry failed */
+		protected boolean m_Failed;
+
+		/**
+		 * Creates a writer for the given file.
+		 *
+		 * @param filename
+		 *            the file to write to
+		 * @param compress
+		 *            whether to compress the entries
+		 * @throws IOException
+		 *             if the file cannot be created
+		 */
+		public ContainerWriter(String filename, boolean compress) throws IOException {
+			this(new FileOutputStream(filename), compress);
+		}
+
+		/**
+		 * Creates a writer for the given stream.
+		 *
+		 * @param stream
+		 *            the stream to write to, is closed by close()
+		 * @param compress
+		 *            whether to compress the entries
+		 * @throws IOException
+		 *             if writing the header fails
+		 */
+		public ContainerWriter(OutputStream stream, boolean compress) throws IOException {
+			if (!(stream instanceof BufferedOutputStream)) {
+				stream = new BufferedOutputStream(stream, 1 << 16);
+			}
+			m_Counter = new CountingOutputStream(stream);
+			m_Stream = new DataOutputStream(m_Counter);
+			m_Compress = compress;
+			m_Stream.writeInt(CONTAINER_MAGIC);
+			m_Stream.writeInt(CONTAINER_VERSION);
+		}
+
+		/**
+		 * Serializes an object into a new entry.
+		 *
+		 * @param name
+		 *            the name of the entry, must be unique
+		 * @param o
+		 *            the object to serialize
+		 * @throws IOException
+		 *             if serialization fails, or failed for an earlier entry
+		 * @throws IllegalArgumentException
+		 *             if there is an entry with this name already or the name
+		 *             is too long
+		 */
+		public void add(String name, Object o) throws IOException {
+			if (m_Stream == null) {
+				throw new IOException("Container is closed!");
+			}
+			if (m_Failed) {
+				throw new IOException("Container is incomplete, adding an earlier entry failed!");
+			}
+			if (m_Entries.containsKey(name)) {
+				throw new IllegalArgumentException("Duplicate entry: " + name);
+			}
+			if ((name.length() > 0xFFFF) || (StringDictionary.encodedLength(name) > 0xFFFF)) {
+				throw new IllegalArgumentException("Entry name longer than 65535 bytes: " + name.substring(0, 32)
+						+ "...");
+			}
+
+			long offset = m_Counter.getCount();
+			OutputStream out = new NonClosingOutputStream(m_Stream);
+			Deflater deflater = null;
+			try {
+				if (m_Compress) {
+					deflater = new Deflater(Deflater.BEST_SPEED);
+					out = new DeflaterOutputStream(out, deflater, 8192);
+				}
+				ObjectOutputStream oos = new ObjectOutputStream(out);
+				oos.writeObject(o);
+				oos.close();
+			} catch (IOException | RuntimeException | Error e) {
+				m_Failed = true;
+				throw e;
+			} finally {
+				if (deflater != null) {
+					deflater.end();
+				}
+			}
+			m_Entries.put(name, new ContainerEntry(name, offset, m_Counter.getCount() - offset, m_Compress));
+		}
+
+		/**
+		 * Writes the table of contents, unless adding an entry failed, and
+		 * closes the stream.
+		 *
+		 * @throws IOException
+		 *             if writing fails
+		 */
+		@Override
+		public void close() throws IOException {
+			if (m_Stream == null) {
+				return;
+			}
+
+			try {
+				if (m_Failed) {
+					return;
+				}
+				long offset = m_Counter.getCount();
+				m_Stream.writeInt(m_Entries.size());
+				for (ContainerEntry entry : m_Entries.values()) {
+					m_Stream.writeUTF(entry.m_Name);
+					m_Stream.writeLong(entry.m_Offset);
+					m_Stream.writeLong(entry.m_Length);
+					m_Stream.writeBoolean(entry.m_Compressed);
+				}
+				m_Stream.writeLong(offset);
+				m_Stream.writeInt(CONTAINER_MAGIC);
+			} finally {
+				m_Stream.close();
+				m_Stream = null;
+			}
+		}
+	}
+
+	/**
+	 * Reads single entries from a container written by ContainerWriter. Only
+	 * the table of contents is read when opening the container; an entry is
+	 * read and deserialized when it is asked for, so the time to read it does
+	 * not depend on the size of the other entries. Entries can optionally be
+	 * memory-mapped instead of read. A reader can be used by several threads
+	 * at once.
+	 *
+	 * @see ContainerWriter
+	 */
+	public static class ContainerReader implements Closeable {
+
+		/** the file */
+		protected RandomAccessFile m_File;
+
+		/** the channel of the file */
+		protected FileChannel m_Channel;
+
+		/** whether entries are memory-mapped */
+		protected boolean m_MemoryMap;
+
+		/** the entries, in the order they were written */
+		protected LinkedHashMap<String, ContainerEntry> m_Entries = new LinkedHashMap<>();
+
+		/**
+		 * Opens a container, reading its table of contents.
+		 *
+		 * @param filename
+		 *            the container file
+		 * @throws IOException
+		 *             if the file cannot be read or is not a container
+		 */
+		public ContainerReader(String filename) throws IOException {
+			this(filename, false);
+		}
+
+		/**
+		 * Opens a container, reading its table of contents.
+		 *
+		 * @param filename
+		 *            the container file
+		 * @param memoryMap
+		 *            whether to memory-map the entries rather than read them
+		 * @throws IOException
+		 *             if the file cannot be read or is not a container
+		 */
+		public ContainerReader(String filename, boolean memoryMap) throws IOException {
+			m_File = new RandomAccessFile(filename, "r");
+			m_Channel = m_File.getChannel();
+			m_MemoryMap = memoryMap;
+			try {
+				readTableOfContents();
+			} catch (IOException e) {
+				close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Reads the table of contents.
+		 *
+		 * @throws IOException
+		 *             if the file is not a container
+		 */
+		protected void readTableOfContents() throws IOException {
+			long size = m_Channel.size();
+			if (size < 20) {
+				throw new IOException("Not a serialized object container!");
+			}
+			DataInputStream header = new DataInputStream(new ByteBufferInputStream(read(0, 8)));
+			if (header.readInt() != CONTAINER_MAGIC) {
+				throw new IOException("Not a serialized object container!");
+			}
+			if (header.readInt() != CONTAINER_VERSION) {
+				throw new IOException("Unsupported container version!");
+			}
+			DataInputStream trailer = new DataInputStream(new ByteBufferInputStream(read(size - 12, 12)));
+			long offset = trailer.readLong();
+			if ((trailer.readInt() != CONTAINER_MAGIC) || (offset < 8) || (offset > size - 12)) {
+				throw new IOException("Container is incomplete or corrupt!");
+			}
+			DataInputStream toc = new DataInputStream(new ByteBufferInputStream(read(offset, size - 12 - offset)));
+			int count = toc.readInt();
+			for (int i = 0; i < count; i++) {
+				ContainerEntry entry = new ContainerEntry(toc.readUTF(), toc.readLong(), toc.readLong(),
+						toc.readBoolean());
+				m_Entries.put(entry.m_Name, entry);
+			}
+		}
+
+		/**
+		 * Reads a region of the file.
+		 *
+		 * @param offset
+		 *            the offset of the region
+		 * @param length
+		 *            the length of the region
+		 * @return the bytes of the region
+		 * @throws IOException
+		 *             if reading fails
+		 */
+		protected ByteBuffer read(long offset, long length) throws IOException {
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("Entry too large: " + length + " bytes");
+			}
+			if (m_MemoryMap) {
+				return m_Channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+			}
+
+			ByteBuffer result = ByteBuffer.allocate((int) length);
+			while (result.hasRemaining()) {
+				if (m_Channel.read(result, offset + result.position()) < 0) {
+					throw new EOFException("Unexpected end of container!");
+				}
+			}
+			result.flip();
+			return result;
+		}
+
+		/**
+		 * Returns the names of the entries, in the order they were written.
+		 *
+		 * @return the names
+		 */
+		public Set<String> names() {
+			return Collections.unmodifiableSet(m_Entries.keySet());
+		}
+
+		/**
+		 * Returns whether the container has an entry with the given name.
+		 *
+		 * @param name
+		 *            the name of the entry
+		 * @return true if the entry exists
+		 */
+		public boolean contains(String name) {
+			return m_Entries.containsKey(name);
+		}
+
+		/**
+		 * Deserializes the object stored in an entry.
+		 *
+		 * @param name
+		 *            the name of the entry
+		 * @return the deserialized object
+		 * @throws Exception
+		 *             if the entry does not exist or deserialization fails
+		 */
+		public Object read(String name) throws Exception {
+			ContainerEntry entry = m_Entries.get(name);
+			if (entry == null) {
+				throw new IOException("Unknown entry: " + name);
+			}
+
+			InputStream stream = new ByteBufferInputStream(read(entry.m_Offset, entry.m_Length));
+			Inflater inflater = null;
+			try {
+				if (entry.m_Compressed) {
+					inflater = new Inflater();
+					stream = new InflaterInputStream(stream, inflater, 8192);
+				}
+				try (ObjectInputStream ois = new ObjectInputStream(stream)) {
+					return ois.readObject();
+				}
+			} finally {
+				if (inflater != null) {
+					inflater.end();
+				}
+			}
+		}
+
+		/**
+		 * Deserializes the objects stored in all entries.
+		 *
+		 * @return the objects, keyed by the names of their entries
+		 * @throws Exception
+		 *             if deserialization fails
+		 */
+		public Map<String, Object> readAll() throws Exception {
+			LinkedHashMap<String, Object> result = new LinkedHashMap<>();
+			for (String name : m_Entries.keySet()) {
+				result.put(name, read(name));
+			}
+			return result;
+		}
+
+		/**
+		 * Closes the file.
+		 *
+		 * @throws IOException
+		 *             if closing fails
+		 */
+		@Override
+		public void close() throws IOException {
+			m_File.close();
+		}
+	}
+
+	/**
+	 * An entry in the table of contents of a container.
+	 */
+	protected static class ContainerEntry {
+
+		/** the name of the entry */
+		protected String m_Name;
+
+		/** the offset of the entry in the container */
+		protected long m_Offset;
+
+		/** the length of the entry in bytes */
+		protected long m_Length;
+
+		/** whether the entry is compressed */
+		protected boolean m_Compressed;
+
+		/**
+		 * Creates an entry.
+		 *
+		 * @param name
+		 *            the name of the entry
+		 * @param offset
+		 *            the offset of the entry
+		 * @param length
+		 *            the length of the entry in bytes
+		 * @param compressed
+		 *            whether the entry is compressed
+		 */
+		public ContainerEntry(String name, long offset, long length, boolean compressed) {
+			m_Name = name;
+			m_Offset = offset;
+			m_Length = length;
+			m_Compressed = compressed;
+		}
+	}
+
+	/**
+	 * Counts the bytes written to a stream.
+	 */
+	protected static class CountingOutputStream extends FilterOutputStream {
+
+		/** the number of bytes written */
+		protected long m_Count;
+
+		/**
+		 * Creates a counting stream.
+		 *
+		 * @param out
+		 *            the stream to write to
+		 */
+		public CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			m_Count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			m_Count += len;
+		}
+
+		/**
+		 * Returns the number of bytes written so far.
+		 *
+		 * @return the number of bytes
+		 */
+		public long getCount() {
+			return m_Count;
+		}
+	}
+
+	/**
+	 * Passes everything on to another stream, except for close(), which only
+	 * flushes it.
+	 */
+	protected static class NonClosingOutputStream extends FilterOutputStream {
+
+		/**
+		 * Creates the stream.
+		 *
+		 * @param out
+		 *            the stream to write to
+		 */
+		public NonClosingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.flush();
+		}
+	}
+
+	/**
+	 * Reads the remaining bytes of a buffer.
+	 */
+	protected static class ByteBufferInputStream extends InputStream {
+
+		/** the buffer to read from */
+		protected ByteBuffer m_Buffer;
+
+		/**
+		 * Creates a stream over the remaining bytes of the buffer.
+		 *
+		 * @param buffer
+		 *            the buffer
+		 */
+		public ByteBufferInputStream(ByteBuffer buffer) {
+			m_Buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return m_Buffer.hasRemaining() ? (m_Buffer.get() & 0xff) : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!m_Buffer.hasRemaining()) {
+				return -1;
+			}
+			len = Math.min(len, m_Buffer.remaining());
+			m_Buffer.get(b, off, len);
+			return len;
+		}
+
+		@Override
+		public int available() {
+			return m_Buffer.remaining();
+		}
+	}
+
+	/**
+	 * Writes the given objects to a container file, see ContainerWriter.
+	 *
+	 * @param filename
+	 *            the file to write to
+	 * @param objects
+	 *            the objects to serialize, keyed by entry name
+	 * @param compress
+	 *            whether to compress the entries
+	 * @throws Exception
+	 *             if serialization fails
+	 */
+	public static void writeContainer(String filename, Map<String, ?> objects, boolean compress) throws Exception {
+		try (ContainerWriter writer = new ContainerWriter(filename, compress)) {
+			for (Map.Entry<String, ?> entry : objects.entrySet()) {
+				writer.add(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Reads a single object from a container file, without deserializing the
+	 * other objects, see ContainerReader.
+	 *
+	 * @param filename
+	 *            the container file
+	 * @param name
+	 *            the name of the entry to read
+	 * @return the deserialized object
+	 * @throws Exception
+	 *             if the entry does not exist or deserialization fails
+	 */
+	public static Object readFromContainer(String filename, String name) throws Exception {
+		try (ContainerReader reader = new ContainerReader(filename)) {
+			return reader.read(name);
+		}
+	}
+
 	/**
 	 * Returns the revision string.
 	 * 
@@ -21,26 +21,37 @@
 
 package core;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.io.ObjectStreamClass;
 import java.io.OutputStream;
 import java.io.Serializable;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.lang.reflect.Array;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Class for storing an object in serialized form in memory. It can be used to
  * make deep copies of objects, and also allows compression to conserve memory.
  * <p>
  *
+ * Objects are serialized into a buffer that is kept per thread and reused, so
+ * that storing many objects does not allocate a growing buffer each time.
+ * Besides GZIP, a faster compression (deflate at its fastest level, with a
+ * compressor kept per thread) can be chosen. For copying objects, makeCopy()
+ * avoids serialization where possible: immutable values are returned as is,
+ * arrays of primitives are cloned, and objects implementing Copyable copy
+ * themselves; everything else is serialized into the thread's buffer and read
+ * back from it directly.
+ * <p>
+ *
  * @author Richard Kirkby (rbk1@cs.waikato.ac.nz)
  * @version $Revision$
  */
@@ -58,6 +69,62 @@ public class SerializedObject implements Serializable, RevisionHandler {
 	/** Whether it is a Jython object or not */
 	private boolean mIsJython;
 
+	/** Whether the fast compression is used rather than GZIP. */
+	private boolean mIsFastCompressed;
+
+	/** no compression. */
+	public static final int COMPRESSION_NONE = 0;
+
+	/** GZIP compression. */
+	public static final int COMPRESSION_GZIP = 1;
+
+	/** fast compression, deflate at its fastest level. */
+	public static final int COMPRESSION_FAST = 2;
+
+	/** buffers larger than this (in bytes) are not kept for reuse. */
+	public static final int MAX_POOLED_BUFFER = 1 << 24;
+
+	/** the buffer of each thread, null while in use. */
+	protected static final ThreadLocal<Buffer> BUFFER = new ThreadLocal<>();
+
+	/** the compressor of each thread, null while in use. */
+	protected static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<>();
+
+	/** the decompressor of each thread, null while in use. */
+	protected static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<>();
+
+	/**
+	 * A byte array output stream whose contents can be read without copying
+	 * them.
+	 */
+	protected static class Buffer extends ByteArrayOutputStream {
+
+		/**
+		 * Creates an empty buffer.
+		 */
+		public Buffer() {
+			super(8192);
+		}
+
+		/**
+		 * Returns an input stream over the contents of the buffer.
+		 *
+		 * @return the input stream
+		 */
+		public InputStream toInputStream() {
+			return new ByteArrayInputStream(buf, 0, count);
+		}
+
+		/**
+		 * Returns the capacity of the buffer.
+		 *
+		 * @return the capacity in bytes
+		 */
+		public int capacity() {
+			return buf.length;
+		}
+	}
+
 	/**
 	 * Creates a new serialized object (without compression).
 	 *
@@ -83,20 +150,206 @@ public class SerializedObject implements Serializable, RevisionHandler {
 	 */
 	public SerializedObject(Object toStore, boolean compress) throws Exception {
 
-		ByteArrayOutputStream ostream = new ByteArrayOutputStream();
-		OutputStream os = ostream;
-		ObjectOutputStream p;
-		if (!compress) {
-			p = new ObjectOutputStream(new BufferedOutputStream(os));
+		this(toStore, compress ? COMPRESSION_GZIP : COMPRESSION_NONE);
+	}
+
+	/**
+	 * Creates a new serialized object.
+	 *
+	 * @param toStore
+	 *            the object to store
+	 * @param compression
+	 *            the compression to use, COMPRESSION_NONE, COMPRESSION_GZIP or
+	 *            COMPRESSION_FAST
+	 * @exception Exception
+	 *                if the object couldn't be serialized
+	 */
+	public SerializedObject(Object toStore, int compression) throws Exception {
+
+		if ((compression < COMPRESSION_NONE) || (compression > COMPRESSION_FAST)) {
+			throw new IllegalArgumentException("Unknown compression: " + compression);
+		}
+
+		Buffer buffer = borrowBuffer();
+		Deflater deflater = null;
+		try {
+			OutputStream os = buffer;
+			if (compression == COMPRESSION_GZIP) {
+				os = new GZIPOutputStream(os, 8192);
+			} else if (compression == COMPRESSION_FAST) {
+				deflater = borrowDeflater();
+				os = new DeflaterOutputStream(os, deflater, 8192);
+			}
+			ObjectOutputStream p = new ObjectOutputStream(os);
+			p.writeObject(toStore);
+			p.close();
+			mStoredObjectArray = buffer.toByteArray();
+		} finally {
+			returnDeflater(deflater);
+			returnBuffer(buffer);
+		}
+
+		mIsCompressed = (compression != COMPRESSION_NONE);
+		mIsFastCompressed = (compression == COMPRESSION_FAST);
+	}
+
+	/**
+	 * Makes a deep copy of an object. Immutable values (null, strings, boxed
+	 * primitives and enums) are returned as is, arrays of primitives are
+	 * cloned and objects implementing Copyable are copied with their copy()
+	 * method (so an instance's copy, for example, still refers to the same
+	 * dataset). Anything else is serialized and deserialized, using the
+	 * buffer of the current thread.
+	 *
+	 * @param source
+	 *            the object to copy
+	 * @return the copy
+	 * @exception Exception
+	 *                if the object couldn't be serialized or deserialized
+	 */
+	public static Object makeCopy(Object source) throws Exception {
+
+		if ((source == null) || isImmutable(source.getClass())) {
+			return source;
+		}
+		if (source instanceof Copyable) {
+			return ((Copyable) source).copy();
+		}
+		if (source.getClass().isArray() && source.getClass().getComponentType().isPrimitive()) {
+			int length = Array.getLength(source);
+			Object result = Array.newInstance(source.getClass().getComponentType(), length);
+			System.arraycopy(source, 0, result, 0, length);
+			return result;
+		}
+
+		Buffer buffer = borrowBuffer();
+		try {
+			ObjectOutputStream oos = new ObjectOutputStream(buffer);
+			oos.writeObject(source);
+			oos.close();
+			try (ObjectInputStream ois = new ObjectInputStream(buffer.toInputStream())) {
+				return ois.readObject();
+			}
+		} finally {
+			returnBuffer(buffer);
+		}
+	}
+
+	/**
+	 * Returns whether objects of the given class are immutable, i.e., can be
+	 * shared instead of copied.
+	 *
+	 * @param cls
+	 *            the class to check
+	 * @return true if immutable
+	 */
+	protected static boolean isImmutable(Class<?> cls) {
+
+		return (cls == String.class) || (cls == Double.class) || (cls == Integer.class) || (cls == Long.class)
+				|| (cls == Boolean.class) || (cls == Float.class) || (cls == Short.class) || (cls == Byte.class)
+				|| (cls == Character.class) || cls.isEnum()
+				|| ((cls.getSuperclass() != null) && cls.getSuperclass().isEnum());
+	}
+
+	/**
+	 * Takes the buffer of the current thread, or creates a new one if it is in
+	 * use already (e.g., by a nested serialization).
+	 *
+	 * @return the empty buffer
+	 */
+	protected static Buffer borrowBuffer() {
+
+		Buffer result = BUFFER.get();
+		if (result == null) {
+			return new Buffer();
+		}
+		BUFFER.set(null);
+		result.reset();
+		return result;
+	}
+
+	/**
+	 * Gives a buffer back to the current thread, unless it has grown too large.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 */
+	protected static void returnBuffer(Buffer buffer) {
+
+		if (buffer.capacity() <= MAX_POOLED_BUFFER) {
+			buffer.reset();
+			BUFFER.set(buffer);
+		}
+	}
+
+	/**
+	 * Takes the compressor of the current thread, or creates a new one if it
+	 * is in use already.
+	 *
+	 * @return the compressor
+	 */
+	protected static Deflater borrowDeflater() {
+
+		Deflater result = DEFLATER.get();
+		if (result == null) {
+			return new Deflater(Deflater.BEST_SPEED);
+		}
+		DEFLATER.set(null);
+		return result;
+	}
+
+	/**
+	 * Gives a compressor back to the current thread.
+	 *
+	 * @param deflater
+	 *            the compressor, may be null
+	 */
+	protected static void returnDeflater(Deflater deflater) {
+
+		if (deflater == null) {
+			return;
+		}
+		if (DEFLATER.get() == null) {
+			deflater.reset();
+			DEFLATER.set(deflater);
 		} else {
-			p = new ObjectOutputStream(new BufferedOutputStream(new GZIPOutputStream(os)));
+			deflater.end();
 		}
-		p.writeObject(toStore);
-		p.flush();
-		p.close(); // used to be ostream.close() !
-		mStoredObjectArray = ostream.toByteArray();
+	}
 
-		mIsCompressed = compress;
+	/**
+	 * Takes the decompressor of the current thread, or creates a new one if it
+	 * is in use already.
+	 *
+	 * @return the decompressor
+	 */
+	protected static Inflater borrowInflater() {
+
+		Inflater result = INFLATER.get();
+		if (result == null) {
+			return new Inflater();
+		}
+		INFLATER.set(null);
+		return result;
+	}
+
+	/**
+	 * Gives a decompressor back to the current thread.
+	 *
+	 * @param inflater
+	 *            the decompressor, may be null
+	 */
+	protected static void returnInflater(Inflater inflater) {
+
+		if (inflater == null) {
+			return;
+		}
+		if (INFLATER.get() == null) {
+			inflater.reset();
+			INFLATER.set(inflater);
+		} else {
+			inflater.end();
+		}
 	}
 
 	/*
@@ -147,20 +400,23 @@ public class SerializedObject implements Serializable, RevisionHandler {
 	 * @return the restored object
 	 */
 	public Object getObject() {
+		Inflater inflater = null;
 		try {
-			ByteArrayInputStream istream = new ByteArrayInputStream(mStoredObjectArray);
-			ObjectInputStream p;
-			Object toReturn = null;
-			if (mIsJython) {
-			} else {
-				
-				toReturn = null;
+			InputStream istream = new ByteArrayInputStream(mStoredObjectArray);
+			if (mIsFastCompressed) {
+				inflater = borrowInflater();
+				istream = new InflaterInputStream(istream, inflater, 8192);
+			} else if (mIsCompressed) {
+				istream = new GZIPInputStream(istream, 8192);
+			}
+			try (ObjectInputStream p = new ObjectInputStream(istream)) {
+				return p.readObject();
 			}
-			istream.close();
-			return toReturn;
 		} catch (Exception e) {
 			e.printStackTrace();
 			return null;
+		} finally {
+			returnInflater(inflater);
 		}
 	}
 
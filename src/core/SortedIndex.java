@@ -0,0 +1,193 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    SortedIndex.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.io.Serializable;
+
+/**
+ * A sorted view of a set of instances that never reorders the instances
+ * themselves. For each attribute the stable sort order computed by
+ * Instances.sortOrder(int, int) is kept as an array of indices, computed the
+ * first time it is asked for and reused afterwards, so that several
+ * attributes can be traversed in sorted order without copying or sorting the
+ * data again. Instances with missing values for an attribute come last in its
+ * order.
+ * <p/>
+ *
+ * If the instances cache their sort orders (see
+ * Instances.setCacheSortIndices(boolean)), the cached orders are shared. The
+ * view is only valid as long as the instances are not changed; call clear()
+ * after changing them. It is not safe for concurrent use.
+ *
+ * @version $Revision$
+ */
+public class SortedIndex implements Serializable, RevisionHandler {
+
+	/** for serialization */
+	private static final long serialVersionUID = 3178062534980611945L;
+
+	/** the instances that are indexed */
+	protected Instances m_Data;
+
+	/** the number of threads used for sorting */
+	protected int m_NumThreads;
+
+	/** the sort order per attribute, null if not computed yet */
+	protected int[][] m_Orders;
+
+	/** the number of non-missing values per attribute, once its order is known */
+	protected int[] m_NumNonMissing;
+
+	/**
+	 * Creates a sorted view of the given instances that sorts sequentially.
+	 *
+	 * @param data
+	 *            the instances to index
+	 */
+	public SortedIndex(Instances data) {
+		this(data, 1);
+	}
+
+	/**
+	 * Creates a sorted view of the given instances.
+	 *
+	 * @param data
+	 *            the instances to index
+	 * @param numThreads
+	 *            the number of threads used for sorting, 0 or less for the
+	 *            number of available processors
+	 */
+	public SortedIndex(Instances data, int numThreads) {
+
+		m_Data = data;
+		m_NumThreads = numThreads;
+		clear();
+	}
+
+	/**
+	 * Forgets all sort orders computed so far.
+	 */
+	public void clear() {
+
+		m_Orders = new int[m_Data.numAttributes()][];
+		m_NumNonMissing = new int[m_Data.numAttributes()];
+	}
+
+	/**
+	 * Returns the instances that are indexed.
+	 *
+	 * @return the instances
+	 */
+	public/* @pure@ */Instances getData() {
+		return m_Data;
+	}
+
+	/**
+	 * Returns whether the sort order of an attribute has been computed.
+	 *
+	 * @param attIndex
+	 *            the attribute's index
+	 * @return true if the order is cached
+	 */
+	public/* @pure@ */boolean isSorted(int attIndex) {
+		return m_Orders[attIndex] != null;
+	}
+
+	/**
+	 * Returns the indices of the instances in the stable sort order of an
+	 * attribute, computing the order if necessary. The returned array is
+	 * shared and must not be modified.
+	 *
+	 * @param attIndex
+	 *            the attribute's index
+	 * @return the indices of the instances in sorted order
+	 */
+	public int[] order(int attIndex) {
+
+		int[] order = m_Orders[attIndex];
+		if (order == null) {
+			if (m_Data.getCacheSortIndices()) {
+				order = m_Data.sortIndex(attIndex);
+			} else {
+				order = m_Data.sortOrder(attIndex, m_NumThreads);
+			}
+			int numNonMissing = order.length;
+			while (numNonMissing > 0 && m_Data.instance(order[numNonMissing - 1]).isMissing(attIndex)) {
+				numNonMissing--;
+			}
+			m_Orders[attIndex] = order;
+			m_NumNonMissing[attIndex] = numNonMissing;
+		}
+		return order;
+	}
+
+	/**
+	 * Returns the number of instances with a non-missing value for an
+	 * attribute, these are the first ones in its sort order.
+	 *
+	 * @param attIndex
+	 *            the attribute's index
+	 * @return the number of non-missing values
+	 */
+	public int numNonMissing(int attIndex) {
+
+		order(attIndex);
+		return m_NumNonMissing[attIndex];
+	}
+
+	/**
+	 * Returns the instance at the given rank in the sort order of an
+	 * attribute.
+	 *
+	 * @param attIndex
+	 *            the attribute's index
+	 * @param rank
+	 *            the position in the sort order, starting with 0
+	 * @return the instance
+	 */
+	public Instance instance(int attIndex, int rank) {
+		return m_Data.instance(order(attIndex)[rank]);
+	}
+
+	/**
+	 * Returns the value of an attribute at the given rank in its sort order.
+	 *
+	 * @param attIndex
+	 *            the attribute's index
+	 * @param rank
+	 *            the position in the sort order, starting with 0
+	 * @return the value
+	 */
+	public double value(int attIndex, int rank) {
+		return instance(attIndex, rank).value(attIndex);
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
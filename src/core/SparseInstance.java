@@ -22,6 +22,8 @@
 package core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Enumeration;
 
 /**
@@ -447,6 +449,118 @@ public class SparseInstance extends AbstractInstance {
 		}
 	}
 
+	/**
+	 * Sets several values at once (internal floating-point format). Unlike
+	 * calling setValue(int, double) for each value, this copies the vectors of
+	 * attribute values and indices only once. If an index occurs more than
+	 * once, the last value is used; values of 0 remove the attribute from the
+	 * sparse vector.
+	 * 
+	 * @param attIndices
+	 *            the attributes' indices, in any order
+	 * @param values
+	 *            the new attribute values
+	 * @throws IllegalArgumentException
+	 *             if the arrays differ in length or an index is out of range
+	 */
+	public void setValues(int[] attIndices, double[] values) {
+
+		if (attIndices.length != values.length) {
+			throw new IllegalArgumentException("Number of indices and values differ: " + attIndices.length + " != "
+					+ values.length);
+		}
+		int[] newIndices = attIndices.clone();
+		double[] newValues = values.clone();
+		for (int newIndex : newIndices) {
+			if ((newIndex < 0) || (newIndex >= m_NumAttributes)) {
+				throw new IllegalArgumentException("Attribute index out of range: " + newIndex);
+			}
+		}
+		int count = sortByIndex(newIndices, newValues, null, newIndices.length);
+
+		// merge with the current values, the new ones take precedence
+		int[] tempIndices = new int[m_Indices.length + count];
+		double[] tempValues = new double[m_Indices.length + count];
+		int vals = 0;
+		int i = 0;
+		int j = 0;
+		while ((i < m_Indices.length) || (j < count)) {
+			if ((j == count) || ((i < m_Indices.length) && (m_Indices[i] < newIndices[j]))) {
+				tempIndices[vals] = m_Indices[i];
+				tempValues[vals] = m_AttValues[i];
+				vals++;
+				i++;
+			} else {
+				if ((i < m_Indices.length) && (m_Indices[i] == newIndices[j])) {
+					i++;
+				}
+				if (newValues[j] != 0) {
+					tempIndices[vals] = newIndices[j];
+					tempValues[vals] = newValues[j];
+					vals++;
+				}
+				j++;
+			}
+		}
+		m_Indices = (vals == tempIndices.length) ? tempIndices : Arrays.copyOf(tempIndices, vals);
+		m_AttValues = (vals == tempValues.length) ? tempValues : Arrays.copyOf(tempValues, vals);
+	}
+
+	/**
+	 * Sorts index/value pairs by index and combines pairs with the same index,
+	 * keeping the order of pairs with the same index: a pair to be accumulated
+	 * adds its value, any other pair replaces the value. Pairs whose combined
+	 * value is 0 are kept.
+	 * 
+	 * @param indices
+	 *            the indices, sorted in place
+	 * @param values
+	 *            the values, sorted in place
+	 * @param accumulate
+	 *            which pairs are to be accumulated, null if none
+	 * @param count
+	 *            the number of pairs
+	 * @return the number of pairs after combining
+	 */
+	protected static int sortByIndex(int[] indices, double[] values, BitSet accumulate, int count) {
+
+		boolean sorted = true;
+		for (int i = 1; (i < count) && sorted; i++) {
+			sorted = indices[i - 1] < indices[i];
+		}
+		if (sorted) {
+			return count;
+		}
+
+		// sort positions by index, stable since the position breaks ties
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = ((long) indices[i] << 32) | i;
+		}
+		Arrays.sort(keys);
+		int[] oldIndices = Arrays.copyOf(indices, count);
+		double[] oldValues = Arrays.copyOf(values, count);
+
+		int vals = 0;
+		for (int k = 0; k < count; k++) {
+			int position = (int) keys[k];
+			int index = oldIndices[position];
+			double value = oldValues[position];
+			if ((vals > 0) && (indices[vals - 1] == index)) {
+				if ((accumulate != null) && accumulate.get(position)) {
+					values[vals - 1] += value;
+				} else {
+					values[vals - 1] = value;
+				}
+			} else {
+				indices[vals] = index;
+				values[vals] = value;
+				vals++;
+			}
+		}
+		return vals;
+	}
+
 	/**
 	 * Returns the values of each attribute as an array of doubles.
 	 * 
@@ -652,6 +766,286 @@ public class SparseInstance extends AbstractInstance {
 		}
 	}
 
+	/**
+	 * Deletes several attributes at once, copying the vectors of values and
+	 * indices only once.
+	 * 
+	 * @param positions
+	 *            the attributes' positions, ascending and without duplicates
+	 */
+	@Override
+	protected void forceDeleteAttributesAt(int[] positions) {
+
+		int[] tempIndices = new int[m_Indices.length];
+		double[] tempValues = new double[m_AttValues.length];
+		int vals = 0;
+		int p = 0;
+		for (int i = 0; i < m_Indices.length; i++) {
+			int index = m_Indices[i];
+			while ((p < positions.length) && (positions[p] < index)) {
+				p++;
+			}
+			if ((p < positions.length) && (positions[p] == index)) {
+				continue;
+			}
+			tempIndices[vals] = index - p;
+			tempValues[vals] = m_AttValues[i];
+			vals++;
+		}
+		m_Indices = (vals == tempIndices.length) ? tempIndices : Arrays.copyOf(tempIndices, vals);
+		m_AttValues = (vals == tempValues.length) ? tempValues : Arrays.copyOf(tempValues, vals);
+		m_NumAttributes -= positions.length;
+	}
+
+	/**
+	 * Inserts several consecutive attributes at the given position (0 to
+	 * numAttributes()) with the given values, copying the vectors of values
+	 * and indices only once. Values of 0 are not stored.
+	 * 
+	 * @param position
+	 *            the position of the first new attribute
+	 * @param values
+	 *            the values of the new attributes, not kept by the instance
+	 */
+	@Override
+	protected void forceInsertAttributesAt(int position, double[] values) {
+
+		int nonZero = 0;
+		for (double value : values) {
+			if (value != 0) {
+				nonZero++;
+			}
+		}
+		int index = locateIndex(position - 1) + 1;
+		int[] tempIndices = new int[m_Indices.length + nonZero];
+		double[] tempValues = new double[m_AttValues.length + nonZero];
+		System.arraycopy(m_Indices, 0, tempIndices, 0, index);
+		System.arraycopy(m_AttValues, 0, tempValues, 0, index);
+		int vals = index;
+		for (int k = 0; k < values.length; k++) {
+			if (values[k] != 0) {
+				tempIndices[vals] = position + k;
+				tempValues[vals] = values[k];
+				vals++;
+			}
+		}
+		for (int i = index; i < m_Indices.length; i++, vals++) {
+			tempIndices[vals] = m_Indices[i] + values.length;
+			tempValues[vals] = m_AttValues[i];
+		}
+		m_Indices = tempIndices;
+		m_AttValues = tempValues;
+		m_NumAttributes += values.length;
+	}
+
+	/**
+	 * Collects the values of a sparse instance in any order and creates the
+	 * instance in one go, instead of copying the vectors of the instance for
+	 * every value as setValue(int, double) does. Values can be set (the last
+	 * one counts) or accumulated (e.g., term frequencies); zeros are dropped
+	 * when the instance is built. A builder can be reused after build().
+	 * <p/>
+	 * 
+	 * Example:
+	 * 
+	 * <pre>
+	 * SparseInstance.Builder builder = new SparseInstance.Builder(data.numAttributes());
+	 * for (String token : tokens) {
+	 * 	builder.add(data.attribute(token).index(), 1);
+	 * }
+	 * data.add(builder.build());
+	 * </pre>
+	 */
+	public static class Builder implements RevisionHandler {
+
+		/** the number of attributes. */
+		protected int m_NumAttributes;
+
+		/** the indices collected so far. */
+		protected int[] m_Indices;
+
+		/** the values collected so far. */
+		protected double[] m_Values;
+
+		/** the pairs that are to be accumulated rather than set. */
+		protected BitSet m_Accumulate = new BitSet();
+
+		/** the number of pairs collected so far. */
+		protected int m_Count;
+
+		/** the weight of the instance. */
+		protected double m_Weight = 1.0;
+
+		/**
+		 * Creates a builder for instances with the given number of
+		 * attributes.
+		 * 
+		 * @param numAttributes
+		 *            the number of attributes
+		 */
+		public Builder(int numAttributes) {
+			this(numAttributes, 16);
+		}
+
+		/**
+		 * Creates a builder for instances with the given number of
+		 * attributes.
+		 * 
+		 * @param numAttributes
+		 *            the number of attributes
+		 * @param capacity
+		 *            the expected number of values
+		 */
+		public Builder(int numAttributes, int capacity) {
+			if (numAttributes < 0) {
+				throw new IllegalArgumentException("Number of attributes must not be negative: " + numAttributes);
+			}
+			m_NumAttributes = numAttributes;
+			m_Indices = new int[Math.max(capacity, 1)];
+			m_Values = new double[Math.max(capacity, 1)];
+		}
+
+		/**
+		 * Sets the value of an attribute, replacing any value set or
+		 * accumulated before.
+		 * 
+		 * @param attIndex
+		 *            the attribute's index
+		 * @param value
+		 *            the value
+		 * @return the builder
+		 */
+		public Builder set(int attIndex, double value) {
+			append(attIndex, value);
+			return this;
+		}
+
+		/**
+		 * Adds to the value of an attribute.
+		 * 
+		 * @param attIndex
+		 *            the attribute's index
+		 * @param value
+		 *            the amount to add
+		 * @return the builder
+		 */
+		public Builder add(int attIndex, double value) {
+			m_Accumulate.set(m_Count);
+			append(attIndex, value);
+			return this;
+		}
+
+		/**
+		 * Sets the values of several attributes, like calling set(int,
+		 * double) for each of them.
+		 * 
+		 * @param attIndices
+		 *            the attributes' indices
+		 * @param values
+		 *            the values
+		 * @return the builder
+		 */
+		public Builder setValues(int[] attIndices, double[] values) {
+			if (attIndices.length != values.length) {
+				throw new IllegalArgumentException("Number of indices and values differ: " + attIndices.length
+						+ " != " + values.length);
+			}
+			for (int i = 0; i < attIndices.length; i++) {
+				append(attIndices[i], values[i]);
+			}
+			return this;
+		}
+
+		/**
+		 * Sets the weight of the instance.
+		 * 
+		 * @param weight
+		 *            the weight
+		 * @return the builder
+		 */
+		public Builder weight(double weight) {
+			m_Weight = weight;
+			return this;
+		}
+
+		/**
+		 * Returns the number of values collected so far, counting attributes
+		 * that were given more than one value repeatedly.
+		 * 
+		 * @return the number of values
+		 */
+		public int size() {
+			return m_Count;
+		}
+
+		/**
+		 * Appends an index/value pair.
+		 * 
+		 * @param attIndex
+		 *            the attribute's index
+		 * @param value
+		 *            the value
+		 */
+		protected void append(int attIndex, double value) {
+			if ((attIndex < 0) || (attIndex >= m_NumAttributes)) {
+				throw new IllegalArgumentException("Attribute index out of range: " + attIndex);
+			}
+			if (m_Count == m_Indices.length) {
+				int length = (int) Math.min(Integer.MAX_VALUE - 8, 2L * m_Indices.length);
+				m_Indices = Arrays.copyOf(m_Indices, length);
+				m_Values = Arrays.copyOf(m_Values, length);
+			}
+			m_Indices[m_Count] = attIndex;
+			m_Values[m_Count] = value;
+			m_Count++;
+		}
+
+		/**
+		 * Creates the instance from the values collected so far and resets
+		 * the builder. The instance has no dataset.
+		 * 
+		 * @return the instance
+		 */
+		public SparseInstance build() {
+			int count = sortByIndex(m_Indices, m_Values, m_Accumulate, m_Count);
+			int vals = 0;
+			for (int i = 0; i < count; i++) {
+				if (m_Values[i] != 0) {
+					vals++;
+				}
+			}
+
+			SparseInstance result = new SparseInstance();
+			result.m_Indices = new int[vals];
+			result.m_AttValues = new double[vals];
+			vals = 0;
+			for (int i = 0; i < count; i++) {
+				if (m_Values[i] != 0) {
+					result.m_Indices[vals] = m_Indices[i];
+					result.m_AttValues[vals] = m_Values[i];
+					vals++;
+				}
+			}
+			result.m_NumAttributes = m_NumAttributes;
+			result.m_Weight = m_Weight;
+
+			m_Count = 0;
+			m_Accumulate.clear();
+			m_Weight = 1.0;
+			return result;
+		}
+
+		/**
+		 * Returns the revision string.
+		 * 
+		 * @return the revision
+		 */
+		@Override
+		public String getRevision() {
+			return RevisionUtils.extract("$Revision$");
+		}
+	}
+
 	/**
 	 * Main method for testing this class.
 	 */
@@ -0,0 +1,868 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    StringDictionary.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compact list of distinct strings with a map from the strings to their
+ * indices, used for the values of nominal and string attributes. Instead of a
+ * String object, a boxed index and a hash table entry per value, the values are
+ * stored one after the other in a single byte array (encoded like
+ * DataOutput.writeUTF() does, one to three bytes per char, preceded by their
+ * length) and found through an open-addressing hash table of longs that holds
+ * the hash code and the index of each value. Values longer than
+ * Attribute.STRING_COMPRESS_THRESHOLD chars are stored deflated if that makes
+ * them smaller.
+ * <p/>
+ *
+ * The dictionary is not synchronized: any number of threads may look up values
+ * at the same time, as long as no thread modifies it.
+ *
+ * @version $Revision$
+ */
+public class StringDictionary implements Serializable, RevisionHandler {
+
+	/** for serialization. */
+	private static final long serialVersionUID = 3315262498542390412L;
+
+	/** the maximum fill of the hash table. */
+	protected static final double MAX_LOAD = 0.75;
+
+	/** the number of values. */
+	protected transient int m_Size;
+
+	/**
+	 * the values, each preceded by a varint of its length times 2, plus 1 if
+	 * deflated.
+	 */
+	protected transient byte[] m_Bytes;
+
+	/** the number of bytes used in m_Bytes, including garbage. */
+	protected transient int m_Used;
+
+	/** the number of bytes in m_Bytes no longer used by any value. */
+	protected transient int m_Garbage;
+
+	/** the start of each value (of its length) in m_Bytes. */
+	protected transient int[] m_Starts;
+
+	/**
+	 * the hash table: the hash code of the value (see String.hashCode()) in the
+	 * upper and its index + 1 in the lower 32 bits, 0 for empty slots.
+	 */
+	protected transient long[] m_Table;
+
+	/**
+	 * Creates an empty dictionary.
+	 */
+	public StringDictionary() {
+		this(0);
+	}
+
+	/**
+	 * Creates an empty dictionary with room for the given number of values.
+	 *
+	 * @param capacity
+	 *            the expected number of values
+	 */
+	public StringDictionary(int capacity) {
+		init(capacity, 16 * Math.max(capacity, 4));
+	}
+
+	/**
+	 * Sets up empty storage.
+	 *
+	 * @param capacity
+	 *            the number of values
+	 * @param bytes
+	 *            the number of bytes
+	 */
+	protected void init(int capacity, int bytes) {
+		capacity = Math.max(capacity, 4);
+		m_Size = 0;
+		m_Used = 0;
+		m_Garbage = 0;
+		m_Bytes = new byte[Math.max(bytes, 16)];
+		m_Starts = new int[capacity];
+		m_Table = new long[tableSize(capacity)];
+	}
+
+	/**
+	 * Returns the number of values.
+	 *
+	 * @return the number of values
+	 */
+	public/* @ pure @ */int size() {
+		return m_Size;
+	}
+
+	/**
+	 * Returns a value.
+	 *
+	 * @param index
+	 *            the index of the value
+	 * @return the value
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is out of range
+	 */
+	public/* @ pure @ */String get(int index) {
+		checkIndex(index);
+		long location = locate(index);
+		int start = (int) (location >>> 32);
+		int header = (int) location;
+		if ((header & 1) != 0) {
+			return decode(inflate(m_Bytes, start, header >>> 1));
+		}
+		return decode(m_Bytes, start, header >>> 1);
+	}
+
+	/**
+	 * Returns the index of a value.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the index, -1 if the dictionary does not contain the value
+	 */
+	public/* @ pure @ */int indexOf(String value) {
+		long[] table = m_Table;
+		int hash = value.hashCode();
+		int mask = table.length - 1;
+		for (int slot = slot(hash, mask);; slot = (slot + 1) & mask) {
+			long entry = table[slot];
+			if (entry == 0) {
+				return -1;
+			}
+			if (((int) (entry >>> 32) == hash) && matches((int) entry - 1, value)) {
+				return (int) entry - 1;
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the dictionary contains a value.
+	 *
+	 * @param value
+	 *            the value
+	 * @return true if the value is contained
+	 */
+	public/* @ pure @ */boolean contains(String value) {
+		return indexOf(value) >= 0;
+	}
+
+	/**
+	 * Adds a value, unless the dictionary contains it already.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the index of the value
+	 */
+	public int add(String value) {
+		int index = indexOf(value);
+		if (index < 0) {
+			index = m_Size;
+			ensureCapacity(m_Size + 1);
+			m_Starts[index] = store(value);
+			m_Size++;
+			insert(value.hashCode(), index);
+		}
+		return index;
+	}
+
+	/**
+	 * Adds a value of another dictionary, unless this dictionary contains it
+	 * already. The value is copied without decoding it.
+	 *
+	 * @param src
+	 *            the other dictionary
+	 * @param srcIndex
+	 *            the index of the value in the other dictionary
+	 * @return the index of the value in this dictionary
+	 */
+	public int add(StringDictionary src, int srcIndex) {
+		src.checkIndex(srcIndex);
+		int hash = src.hash(srcIndex);
+		int mask = m_Table.length - 1;
+		for (int slot = slot(hash, mask);; slot = (slot + 1) & mask) {
+			long entry = m_Table[slot];
+			if (entry == 0) {
+				break;
+			}
+			if (((int) (entry >>> 32) == hash) && sameBytes((int) entry - 1, src, srcIndex)) {
+				return (int) entry - 1;
+			}
+		}
+
+		int index = m_Size;
+		ensureCapacity(m_Size + 1);
+		int srcStart = src.m_Starts[srcIndex];
+		int length = src.entryLength(srcIndex);
+		int start = allocate(length);
+		System.arraycopy(src.m_Bytes, srcStart, m_Bytes, start, length);
+		m_Starts[index] = start;
+		m_Size++;
+		insert(hash, index);
+		return index;
+	}
+
+	/**
+	 * Replaces a value. If the new value is contained already under another
+	 * index, indexOf() may return either index.
+	 *
+	 * @param index
+	 *            the index of the value
+	 * @param value
+	 *            the new value
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is out of range
+	 */
+	public void set(int index, String value) {
+		checkIndex(index);
+		unlink(hash(index), index);
+		m_Garbage += entryLength(index);
+		m_Starts[index] = store(value);
+		insert(value.hashCode(), index);
+		compactIfWasteful();
+	}
+
+	/**
+	 * Removes a value; the indices of the following values decrease by one.
+	 *
+	 * @param index
+	 *            the index of the value
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is out of range
+	 */
+	public void remove(int index) {
+		checkIndex(index);
+		m_Garbage += entryLength(index);
+		System.arraycopy(m_Starts, index + 1, m_Starts, index, m_Size - index - 1);
+		m_Size--;
+
+		long[] old = m_Table;
+		m_Table = new long[old.length];
+		for (long entry : old) {
+			int position = (int) entry;
+			if ((entry != 0) && (position != index + 1)) {
+				insert((int) (entry >>> 32), (position > index + 1) ? position - 2 : position - 1);
+			}
+		}
+		compactIfWasteful();
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		init(0, 0);
+	}
+
+	/**
+	 * Returns a copy of the dictionary, trimmed to its current size.
+	 *
+	 * @return the copy
+	 */
+	public StringDictionary copy() {
+		StringDictionary copy = new StringDictionary();
+		copy.m_Size = m_Size;
+		copy.m_Bytes = Arrays.copyOf(m_Bytes, Math.max(m_Used, 16));
+		copy.m_Used = m_Used;
+		copy.m_Garbage = m_Garbage;
+		copy.m_Starts = Arrays.copyOf(m_Starts, Math.max(m_Size, 4));
+		copy.m_Table = m_Table.clone();
+		return copy;
+	}
+
+	/**
+	 * Returns whether a value of this dictionary equals a value of another one.
+	 *
+	 * @param index
+	 *            the index of the value in this dictionary
+	 * @param other
+	 *            the other dictionary
+	 * @param otherIndex
+	 *            the index of the value in the other dictionary
+	 * @return true if the values are equal
+	 */
+	public/* @ pure @ */boolean valueEquals(int index, StringDictionary other, int otherIndex) {
+		checkIndex(index);
+		other.checkIndex(otherIndex);
+		return sameBytes(index, other, otherIndex);
+	}
+
+	/**
+	 * Checks an index.
+	 *
+	 * @param index
+	 *            the index
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is out of range
+	 */
+	protected void checkIndex(int index) {
+		if ((index < 0) || (index >= m_Size)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_Size);
+		}
+	}
+
+	/**
+	 * Returns the number of hash table slots for a number of values.
+	 *
+	 * @param capacity
+	 *            the number of values
+	 * @return the number of slots, a power of 2
+	 */
+	protected static int tableSize(int capacity) {
+		int size = 8;
+		while (size * MAX_LOAD < capacity + 1) {
+			if (size == 1 << 30) {
+				throw new IllegalStateException("Dictionary too large");
+			}
+			size <<= 1;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the first slot to probe for a hash code.
+	 *
+	 * @param hash
+	 *            the hash code
+	 * @param mask
+	 *            the number of slots - 1
+	 * @return the slot
+	 */
+	protected static int slot(int hash, int mask) {
+		int h = hash * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * Makes room for the given number of values.
+	 *
+	 * @param capacity
+	 *            the number of values
+	 */
+	protected void ensureCapacity(int capacity) {
+		if (capacity > m_Starts.length) {
+			m_Starts = Arrays.copyOf(m_Starts,
+					(int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, 3L * m_Starts.length / 2)));
+		}
+		if (capacity > m_Table.length * MAX_LOAD) {
+			long[] old = m_Table;
+			m_Table = new long[tableSize(capacity)];
+			for (long entry : old) {
+				if (entry != 0) {
+					insert((int) (entry >>> 32), (int) entry - 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Enters a value into the hash table.
+	 *
+	 * @param hash
+	 *            the hash code of the value
+	 * @param index
+	 *            the index of the value
+	 */
+	protected void insert(int hash, int index) {
+		int mask = m_Table.length - 1;
+		int slot = slot(hash, mask);
+		while (m_Table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		m_Table[slot] = ((long) hash << 32) | (index + 1);
+	}
+
+	/**
+	 * Removes a value from the hash table, moving later entries of its probe
+	 * sequence back so that lookups still find them.
+	 *
+	 * @param hash
+	 *            the hash code of the value
+	 * @param index
+	 *            the index of the value
+	 */
+	protected void unlink(int hash, int index) {
+		int mask = m_Table.length - 1;
+		int slot = slot(hash, mask);
+		while ((int) m_Table[slot] != index + 1) {
+			slot = (slot + 1) & mask;
+		}
+
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			long entry = m_Table[next];
+			if (entry == 0) {
+				break;
+			}
+			int home = slot((int) (entry >>> 32), mask);
+			// move the entry back unless its home lies cyclically in (slot,
+			// next]
+			if ((slot <= next) ? ((home <= slot) || (home > next)) : ((home <= slot) && (home > next))) {
+				m_Table[slot] = entry;
+				slot = next;
+			}
+		}
+		m_Table[slot] = 0;
+	}
+
+	/**
+	 * Returns where the bytes of a value start and its header (length times 2,
+	 * plus 1 if deflated).
+	 *
+	 * @param index
+	 *            the index of the value
+	 * @return the start in the upper and the header in the lower 32 bits
+	 */
+	protected long locate(int index) {
+		byte[] bytes = m_Bytes;
+		int pos = m_Starts[index];
+		int header = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = bytes[pos++];
+			header |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return ((long) pos << 32) | (header & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the number of bytes a value occupies, including its header.
+	 *
+	 * @param index
+	 *            the index of the value
+	 * @return the number of bytes
+	 */
+	protected int entryLength(int index) {
+		long location = locate(index);
+		return (int) (location >>> 32) - m_Starts[index] + ((int) location >>> 1);
+	}
+
+	/**
+	 * Returns the hash code of a value, without creating a String.
+	 *
+	 * @param index
+	 *            the index of the value
+	 * @return the hash code (see String.hashCode())
+	 */
+	protected int hash(int index) {
+		long location = locate(index);
+		int start = (int) (location >>> 32);
+		int header = (int) location;
+		if ((header & 1) != 0) {
+			return get(index).hashCode();
+		}
+
+		byte[] bytes = m_Bytes;
+		int end = start + (header >>> 1);
+		int hash = 0;
+		for (int pos = start; pos < end;) {
+			int b = bytes[pos++] & 0xFF;
+			if (b < 0x80) {
+				hash = 31 * hash + b;
+			} else if (b < 0xE0) {
+				hash = 31 * hash + (((b & 0x1F) << 6) | (bytes[pos++] & 0x3F));
+			} else {
+				hash = 31 * hash + (((b & 0x0F) << 12) | ((bytes[pos++] & 0x3F) << 6) | (bytes[pos++] & 0x3F));
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Encodes a value at the end of the byte array.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the start of the value
+	 */
+	protected int store(String value) {
+		byte[] encoded = null;
+		int length = encodedLength(value);
+		int header = length << 1;
+		if (value.length() > Attribute.STRING_COMPRESS_THRESHOLD) {
+			encoded = new byte[length];
+			encode(value, encoded, 0);
+			byte[] compressed = deflate(encoded);
+			if (compressed.length < length) {
+				encoded = compressed;
+				length = compressed.length;
+				header = (length << 1) | 1;
+			}
+		}
+
+		int headerLength = 1;
+		for (int rest = header >>> 7; rest != 0; rest >>>= 7) {
+			headerLength++;
+		}
+		int start = allocate(headerLength + length);
+		int pos = start;
+		for (int rest = header; rest >= 0x80; rest >>>= 7) {
+			m_Bytes[pos++] = (byte) ((rest & 0x7F) | 0x80);
+		}
+		m_Bytes[pos++] = (byte) (header >>> (7 * (headerLength - 1)));
+		if (encoded != null) {
+			System.arraycopy(encoded, 0, m_Bytes, pos, length);
+		} else {
+			encode(value, m_Bytes, pos);
+		}
+		return start;
+	}
+
+	/**
+	 * Reserves bytes at the end of the byte array.
+	 *
+	 * @param length
+	 *            the number of bytes
+	 * @return the start of the reserved bytes
+	 */
+	protected int allocate(int length) {
+		long needed = (long) m_Used + length;
+		if (needed > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Dictionary too large");
+		}
+		if (needed > m_Bytes.length) {
+			m_Bytes = Arrays.copyOf(m_Bytes,
+					(int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 3L * m_Bytes.length / 2)));
+		}
+		int start = m_Used;
+		m_Used += length;
+		return start;
+	}
+
+	/**
+	 * Copies the values into a new byte array if more than half of the bytes
+	 * are garbage.
+	 */
+	protected void compactIfWasteful() {
+		if ((m_Garbage < 1024) || (m_Garbage < m_Used / 2)) {
+			return;
+		}
+		byte[] bytes = new byte[Math.max(m_Used - m_Garbage, 16)];
+		int used = 0;
+		for (int i = 0; i < m_Size; i++) {
+			int length = entryLength(i);
+			System.arraycopy(m_Bytes, m_Starts[i], bytes, used, length);
+			m_Starts[i] = used;
+			used += length;
+		}
+		m_Bytes = bytes;
+		m_Used = used;
+		m_Garbage = 0;
+	}
+
+	/**
+	 * Returns whether a value equals a string.
+	 *
+	 * @param index
+	 *            the index of the value
+	 * @param value
+	 *            the string
+	 * @return true if equal
+	 */
+	protected boolean matches(int index, String value) {
+		long location = locate(index);
+		int header = (int) location;
+		if ((header & 1) != 0) {
+			return get(index).equals(value);
+		}
+
+		byte[] bytes = m_Bytes;
+		int pos = (int) (location >>> 32);
+		int end = pos + (header >>> 1);
+		int length = value.length();
+		if (length == end - pos) {
+			// one byte per char, so all chars are ASCII
+			for (int i = 0; i < length; i++) {
+				if (bytes[pos + i] != value.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if ((length > end - pos) || (3L * length < end - pos)) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if ((c >= 0x0001) && (c <= 0x007F)) {
+				if ((pos >= end) || (bytes[pos++] != c)) {
+					return false;
+				}
+			} else if (c <= 0x07FF) {
+				if ((pos + 2 > end) || (bytes[pos++] != (byte) (0xC0 | (c >> 6)))
+						|| (bytes[pos++] != (byte) (0x80 | (c & 0x3F)))) {
+					return false;
+				}
+			} else {
+				if ((pos + 3 > end) || (bytes[pos++] != (byte) (0xE0 | (c >> 12)))
+						|| (bytes[pos++] != (byte) (0x80 | ((c >> 6) & 0x3F)))
+						|| (bytes[pos++] != (byte) (0x80 | (c & 0x3F)))) {
+					return false;
+				}
+			}
+		}
+		return pos == end;
+	}
+
+	/**
+	 * Returns whether the stored bytes of two values are the same, which is
+	 * the case if and only if the values are equal.
+	 *
+	 * @param index
+	 *            the index of the value in this dictionary
+	 * @param other
+	 *            the other dictionary
+	 * @param otherIndex
+	 *            the index of the value in the other dictionary
+	 * @return true if the bytes are the same
+	 */
+	protected boolean sameBytes(int index, StringDictionary other, int otherIndex) {
+		int start = m_Starts[index];
+		int otherStart = other.m_Starts[otherIndex];
+		return Arrays.equals(m_Bytes, start, start + entryLength(index), other.m_Bytes, otherStart,
+				otherStart + other.entryLength(otherIndex));
+	}
+
+	/**
+	 * Returns the number of bytes needed to encode a string.
+	 *
+	 * @param value
+	 *            the string
+	 * @return the number of bytes
+	 */
+	protected static int encodedLength(String value) {
+		long length = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			length += ((c >= 0x0001) && (c <= 0x007F)) ? 1 : (c <= 0x07FF) ? 2 : 3;
+		}
+		if (length > (1 << 30) - 8) {
+			throw new IllegalStateException("Value too long");
+		}
+		return (int) length;
+	}
+
+	/**
+	 * Encodes a string like DataOutput.writeUTF(), without the length.
+	 *
+	 * @param value
+	 *            the string
+	 * @param bytes
+	 *            the array to write to
+	 * @param pos
+	 *            the position to start at
+	 */
+	protected static void encode(String value, byte[] bytes, int pos) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if ((c >= 0x0001) && (c <= 0x007F)) {
+				bytes[pos++] = (byte) c;
+			} else if (c <= 0x07FF) {
+				bytes[pos++] = (byte) (0xC0 | (c >> 6));
+				bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+			} else {
+				bytes[pos++] = (byte) (0xE0 | (c >> 12));
+				bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	/**
+	 * Decodes a string encoded by encode().
+	 *
+	 * @param bytes
+	 *            the array to read from
+	 * @param start
+	 *            the start of the string
+	 * @param length
+	 *            the number of bytes
+	 * @return the string
+	 */
+	protected static String decode(byte[] bytes, int start, int length) {
+		int end = start + length;
+		int pos = start;
+		while ((pos < end) && (bytes[pos] >= 0)) {
+			pos++;
+		}
+		if (pos == end) {
+			return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+		}
+
+		char[] chars = new char[length];
+		int count = 0;
+		for (pos = start; pos < end;) {
+			int b = bytes[pos++] & 0xFF;
+			if (b < 0x80) {
+				chars[count++] = (char) b;
+			} else if (b < 0xE0) {
+				chars[count++] = (char) (((b & 0x1F) << 6) | (bytes[pos++] & 0x3F));
+			} else {
+				chars[count++] = (char) (((b & 0x0F) << 12) | ((bytes[pos++] & 0x3F) << 6) | (bytes[pos++] & 0x3F));
+			}
+		}
+		return new String(chars, 0, count);
+	}
+
+	/**
+	 * Decodes a string encoded by encode().
+	 *
+	 * @param bytes
+	 *            the encoded string
+	 * @return the string
+	 */
+	protected static String decode(byte[] bytes) {
+		return decode(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Deflates bytes.
+	 *
+	 * @param bytes
+	 *            the bytes
+	 * @return the deflated bytes
+	 */
+	protected static byte[] deflate(byte[] bytes) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(bytes);
+			deflater.finish();
+			ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 16);
+			byte[] buffer = new byte[Math.max(bytes.length / 2, 256)];
+			while (!deflater.finished()) {
+				out.write(buffer, 0, deflater.deflate(buffer));
+			}
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Inflates a deflated value.
+	 *
+	 * @param bytes
+	 *            the array to read from
+	 * @param start
+	 *            the start of the deflated value
+	 * @param length
+	 *            the number of bytes
+	 * @return the encoded value
+	 */
+	protected static byte[] inflate(byte[] bytes, int start, int length) {
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(bytes, start, length);
+			ByteArrayOutputStream out = new ByteArrayOutputStream(4 * length);
+			byte[] buffer = new byte[Math.max(4 * length, 256)];
+			while (!inflater.finished()) {
+				int n = inflater.inflate(buffer);
+				if ((n == 0) && inflater.needsInput()) {
+					throw new IllegalStateException("Corrupt deflated value");
+				}
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		} catch (DataFormatException e) {
+			throw new IllegalStateException("Corrupt deflated value", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Writes the values without garbage and without the hash table.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(m_Size);
+		out.writeInt(m_Used - m_Garbage);
+		for (int i = 0; i < m_Size; i++) {
+			out.write(m_Bytes, m_Starts[i], entryLength(i));
+		}
+	}
+
+	/**
+	 * Reads the values and rebuilds the hash table.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 * @throws IOException
+	 *             if reading fails
+	 * @throws ClassNotFoundException
+	 *             if a class cannot be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int size = in.readInt();
+		int used = in.readInt();
+		if ((size < 0) || (used < 0)) {
+			throw new IOException("Corrupt dictionary");
+		}
+		init(size, used);
+		in.readFully(m_Bytes, 0, used);
+		m_Used = used;
+		try {
+			for (int i = 0, pos = 0; i < size; i++) {
+				m_Starts[i] = pos;
+				m_Size = i + 1;
+				pos += entryLength(i);
+				if (pos > used) {
+					throw new IOException("Corrupt dictionary");
+				}
+				insert(hash(i), i);
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Corrupt dictionary", e);
+		}
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -39,11 +39,16 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Class implementing some simple utility methods.
@@ -67,6 +72,43 @@ public final class Utils implements RevisionHandler {
 	 */
 	public static double SMALL = 1e-6;
 
+	/** The number of bits per digit of the radix sort and selection. */
+	private static final int RADIX_BITS = 8;
+
+	/** The number of buckets per digit of the radix sort and selection. */
+	private static final int RADIX = 1 << RADIX_BITS;
+
+	/** The mask selecting one digit of the radix sort and selection. */
+	private static final int RADIX_MASK = RADIX - 1;
+
+	/** The minimum number of elements per chunk of a parallel sort. */
+	private static final int PARALLEL_CHUNK_SIZE = 1 << 15;
+
+	/** The pool for parallel sorting and selection, created when needed. */
+	private static ForkJoinPool s_ParallelPool;
+
+	/** The maximum number of option strings whose split is cached. */
+	private static final int SPLIT_OPTIONS_CACHE_SIZE = 1024;
+
+	/**
+	 * The results of splitOptions(String), so that option strings that are
+	 * parsed over and over (e.g., the options of nested schemes when many
+	 * configured objects are created) are only tokenized once.
+	 */
+	private static final Map<String, String[]> SPLIT_OPTIONS_CACHE = new ConcurrentHashMap<>();
+
+	/** The powers of ten up to 10^18, for formatting doubles. */
+	private static final long[] POWERS_OF_TEN = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+			100000000L, 1000000000L, 10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+			1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L };
+
+	/**
+	 * The bound on scaled values below which doubles are formatted without
+	 * DecimalFormat (2^51, so that the distance between adjacent doubles is
+	 * less than half the last decimal place printed).
+	 */
+	private static final double FAST_FORMAT_LIMIT = 0x1p51;
+
 	/** Decimal format */
 	private static final ThreadLocal<DecimalFormat> DF = new ThreadLocal<DecimalFormat>() {
 
@@ -410,6 +452,58 @@ public final class Utils implements RevisionHandler {
 		return DF.get().format(value);
 	}
 
+	/**
+	 * Appends a double rounded to the given number of decimal places, the same
+	 * way as doubleToString(double, int), but without creating intermediate
+	 * strings in the common case: if the value is exactly the closest double
+	 * to a decimal with at most that many decimal places, that decimal is
+	 * written directly (this is also what DecimalFormat prints, as no
+	 * rounding is involved). Other values are passed on to
+	 * doubleToString(double, int).
+	 * 
+	 * @param text
+	 *            the buffer to append to
+	 * @param value
+	 *            the double value
+	 * @param afterDecimalPoint
+	 *            the (maximum) number of digits permitted after the decimal
+	 *            point
+	 * @return the buffer
+	 */
+	public static StringBuilder appendDoubleToString(StringBuilder text, double value, int afterDecimalPoint) {
+
+		if ((afterDecimalPoint >= 0) && (afterDecimalPoint < POWERS_OF_TEN.length)) {
+			long power = POWERS_OF_TEN[afterDecimalPoint];
+			double scale = power;
+			if (Math.abs(value) * scale < FAST_FORMAT_LIMIT) {
+				long scaled = Math.round(value * scale);
+				if (scaled / scale == value) {
+					if (Double.doubleToRawLongBits(value) < 0) {
+						text.append('-');
+						scaled = -scaled;
+					}
+					text.append(scaled / power);
+					long fraction = scaled % power;
+					if (fraction != 0) {
+						int digits = afterDecimalPoint;
+						while (fraction % 10 == 0) {
+							fraction /= 10;
+							digits--;
+						}
+						text.append('.');
+						for (int i = digits - 1; (i > 0) && (fraction < POWERS_OF_TEN[i]); i--) {
+							text.append('0');
+						}
+						text.append(fraction);
+					}
+					return text;
+				}
+			}
+		}
+
+		return text.append(doubleToString(value, afterDecimalPoint));
+	}
+
 	/**
 	 * Rounds a double and converts it into a formatted decimal-justified
 	 * String. Trailing 0's are replaced with spaces.
@@ -616,7 +710,7 @@ public final class Utils implements RevisionHandler {
 	 */
 	public static boolean getFlag(char flag, String[] options) throws Exception {
 
-		return getFlag("" + flag, options);
+		return consumeFlag(getOptionPos(flag, options), options);
 	}
 
 	/**
@@ -634,7 +728,19 @@ public final class Utils implements RevisionHandler {
 	 */
 	public static boolean getFlag(String flag, String[] options) throws Exception {
 
-		int pos = getOptionPos(flag, options);
+		return consumeFlag(getOptionPos(flag, options), options);
+	}
+
+	/**
+	 * Replaces a flag found by getOptionPos() with the empty string.
+	 * 
+	 * @param pos
+	 *            the position of the flag, -1 if not found
+	 * @param options
+	 *            the array of strings containing all the options.
+	 * @return true if the flag was found
+	 */
+	private static boolean consumeFlag(int pos, String[] options) {
 
 		if (pos > -1) {
 			options[pos] = "";
@@ -658,7 +764,7 @@ public final class Utils implements RevisionHandler {
 	 */
 	public static/* @non_null@ */String getOption(char flag, String[] options) throws Exception {
 
-		return getOption("" + flag, options);
+		return consumeOption(getOptionPos(flag, options), flag, options);
 	}
 
 	/**
@@ -676,25 +782,35 @@ public final class Utils implements RevisionHandler {
 	 */
 	public static/* @non_null@ */String getOption(String flag, String[] options) throws Exception {
 
-		String newString;
-		int i = getOptionPos(flag, options);
+		return consumeOption(getOptionPos(flag, options), flag, options);
+	}
 
-		if (i > -1) {
-			if (options[i] == ("-" + flag)) {
-				if (i + 1 == options.length) {
-					throw new Exception("No value given for -" + flag + " option.");
-				}
-				options[i] = "";
-				newString = options[i + 1];
-				options[i + 1] = "";
-				return newString;
-			}
-			if (options[i].charAt(1) == '-') {
-				return "";
-			}
-		}
+	/**
+	 * Replaces an option found by getOptionPos() and its value with empty
+	 * strings.
+	 * 
+	 * @param pos
+	 *            the position of the option, -1 if not found
+	 * @param flag
+	 *            the flag, for the error message
+	 * @param options
+	 *            the array of strings containing all the options.
+	 * @return the value of the option or an empty string
+	 * @exception Exception
+	 *                if the option has no value
+	 */
+	private static String consumeOption(int pos, Object flag, String[] options) throws Exception {
 
-		return "";
+		if (pos == -1) {
+			return "";
+		}
+		if (pos + 1 == options.length) {
+			throw new Exception("No value given for -" + flag + " option.");
+		}
+		String newString = options[pos + 1];
+		options[pos] = "";
+		options[pos + 1] = "";
+		return newString;
 	}
 
 	/**
@@ -708,7 +824,25 @@ public final class Utils implements RevisionHandler {
 	 * @return the position if found, or -1 otherwise
 	 */
 	public static int getOptionPos(char flag, String[] options) {
-		return getOptionPos("" + flag, options);
+		if (options == null) {
+			return -1;
+		}
+
+		for (int i = 0; i < options.length; i++) {
+			String option = options[i];
+			if (isFlag(option)) {
+				// found?
+				if ((option.length() == 2) && (option.charAt(1) == flag)) {
+					return i;
+				}
+				// did we reach "--"?
+				if ((option.length() > 1) && (option.charAt(1) == '-')) {
+					return -1;
+				}
+			}
+		}
+
+		return -1;
 	}
 
 	/**
@@ -727,19 +861,15 @@ public final class Utils implements RevisionHandler {
 		}
 
 		for (int i = 0; i < options.length; i++) {
-			if ((options[i].length() > 0) && (options[i].charAt(0) == '-')) {
-				// Check if it is a negative number
-				try {
-					Double.valueOf(options[i]);
-				} catch (NumberFormatException e) {
-					// found?
-					if (options[i] == ("-" + flag)) {
-						return i;
-					}
-					// did we reach "--"?
-					if (options[i].charAt(1) == '-') {
-						return -1;
-					}
+			String option = options[i];
+			if (isFlag(option)) {
+				// found?
+				if ((option.length() == flag.length() + 1) && option.startsWith(flag, 1)) {
+					return i;
+				}
+				// did we reach "--"?
+				if ((option.length() > 1) && (option.charAt(1) == '-')) {
+					return -1;
 				}
 			}
 		}
@@ -747,6 +877,35 @@ public final class Utils implements RevisionHandler {
 		return -1;
 	}
 
+	/**
+	 * Checks whether an element of an options array is a flag, i.e., starts
+	 * with "-" and is not a negative number. Only elements that start like a
+	 * number are parsed, so that no exception is thrown for the common case.
+	 * 
+	 * @param option
+	 *            the element of the options array
+	 * @return true if it is a flag
+	 */
+	private static boolean isFlag(String option) {
+
+		if ((option.length() == 0) || (option.charAt(0) != '-')) {
+			return false;
+		}
+		if (option.length() == 1) {
+			return true;
+		}
+		char c = option.charAt(1);
+		if (((c >= '0') && (c <= '9')) || (c == '.')) {
+			try {
+				Double.valueOf(option);
+				return false;
+			} catch (NumberFormatException e) {
+				return true;
+			}
+		}
+		return !option.equals("-Infinity") && !option.equals("-NaN");
+	}
+
 	/**
 	 * Quotes a string if it contains special characters.
 	 * 
@@ -1015,7 +1174,8 @@ public final class Utils implements RevisionHandler {
 
 	/**
 	 * Split up a string containing options into an array of strings, one for
-	 * each option.
+	 * each option. The results are cached, so splitting the same string again
+	 * only copies the array.
 	 * 
 	 * @param quotedOptionString
 	 *            the string containing the options
@@ -1026,69 +1186,75 @@ public final class Utils implements RevisionHandler {
 	 */
 	public static String[] splitOptions(String quotedOptionString) throws Exception {
 
-		Vector<String> optionsVec = new Vector<>();
+		String[] cached = SPLIT_OPTIONS_CACHE.get(quotedOptionString);
+		if (cached != null) {
+			return cached.clone();
+		}
+
+		ArrayList<String> optionsList = new ArrayList<>();
 		String str = quotedOptionString;
+		int length = str.length();
+		int pos = 0;
 		int i;
 
 		while (true) {
 
 			// trimLeft
-			i = 0;
-			while ((i < str.length()) && (Character.isWhitespace(str.charAt(i)))) {
-				i++;
+			while ((pos < length) && (Character.isWhitespace(str.charAt(pos)))) {
+				pos++;
 			}
-			str = str.substring(i);
 
 			// stop when str is empty
-			if (str.length() == 0) {
+			if (pos == length) {
 				break;
 			}
 
 			// if str start with a double quote
-			if (str.charAt(0) == '"') {
+			if (str.charAt(pos) == '"') {
 
 				// find the first not anti-slached double quote
-				i = 1;
-				while (i < str.length()) {
-					if (str.charAt(i) == str.charAt(0)) {
+				i = pos + 1;
+				while (i < length) {
+					if (str.charAt(i) == '"') {
 						break;
 					}
 					if (str.charAt(i) == '\\') {
 						i += 1;
-						if (i >= str.length()) {
+						if (i >= length) {
 							throw new Exception("String should not finish with \\");
 						}
 					}
 					i += 1;
 				}
-				if (i >= str.length()) {
+				if (i >= length) {
 					throw new Exception("Quote parse error.");
 				}
 
-				// add the founded string to the option vector (without quotes)
-				String optStr = str.substring(1, i);
-				optStr = unbackQuoteChars(optStr);
-				optionsVec.addElement(optStr);
-				str = str.substring(i + 1);
+				// add the founded string to the option list (without quotes)
+				String optStr = str.substring(pos + 1, i);
+				if (optStr.indexOf('\\') > -1) {
+					optStr = unbackQuoteChars(optStr);
+				}
+				optionsList.add(optStr);
+				pos = i + 1;
 			} else {
 				// find first whiteSpace
-				i = 0;
-				while ((i < str.length()) && (!Character.isWhitespace(str.charAt(i)))) {
+				i = pos;
+				while ((i < length) && (!Character.isWhitespace(str.charAt(i)))) {
 					i++;
 				}
 
-				// add the founded string to the option vector
-				String optStr = str.substring(0, i);
-				optionsVec.addElement(optStr);
-				str = str.substring(i);
+				// add the founded string to the option list
+				optionsList.add(str.substring(pos, i));
+				pos = i;
 			}
 		}
 
-		// convert optionsVec to an array of String
-		String[] options = new String[optionsVec.size()];
-		for (i = 0; i < optionsVec.size(); i++) {
-			options[i] = optionsVec.elementAt(i);
+		String[] options = optionsList.toArray(new String[optionsList.size()]);
+		if (SPLIT_OPTIONS_CACHE.size() >= SPLIT_OPTIONS_CACHE_SIZE) {
+			SPLIT_OPTIONS_CACHE.clear();
 		}
+		SPLIT_OPTIONS_CACHE.put(quotedOptionString, options.clone());
 		return options;
 	}
 
@@ -1102,7 +1268,7 @@ public final class Utils implements RevisionHandler {
 	 */
 	public static String joinOptions(String[] optionArray) {
 
-		String optionString = "";
+		StringBuilder optionString = new StringBuilder();
 		for (String element : optionArray) {
 			if ("" == element) {
 				continue;
@@ -1116,13 +1282,13 @@ public final class Utils implements RevisionHandler {
 				}
 			}
 			if (escape) {
-				optionString += '"' + backQuoteChars(element) + '"';
+				optionString.append('"').append(backQuoteChars(element)).append('"');
 			} else {
-				optionString += element;
+				optionString.append(element);
 			}
-			optionString += " ";
+			optionString.append(' ');
 		}
-		return optionString.trim();
+		return optionString.toString().trim();
 	}
 
 	/**
@@ -1794,6 +1960,252 @@ public final class Utils implements RevisionHandler {
 		}
 	}
 
+	/**
+	 * Sorts a given array of doubles in ascending order and returns an array of
+	 * integers with the positions of the elements of the original array in the
+	 * sorted array. The sort is stable and uses exact comparisons, -0.0 and
+	 * 0.0 are equal. Occurrences of Double.NaN are placed after all other
+	 * values, including Double.POSITIVE_INFINITY, so missing values end up at
+	 * the end. The keys are
+	 * sorted with a least-significant-digit radix sort that skips digits
+	 * shared by all keys; large arrays are processed in parallel chunks.
+	 * 
+	 * @param array
+	 *            this array is not changed by the method!
+	 * @param numThreads
+	 *            the number of threads, 1 for sequential sorting, 0 or less
+	 *            for the number of available processors
+	 * @return an array of integers with the positions in the sorted array.
+	 */
+	public static/* @pure@ */int[] parallelStableSort(/* @non_null@ */double[] array, int numThreads) {
+
+		int n = array.length;
+		long[] keys = new long[n];
+		int[] index = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = sortableBits(array[i]);
+			index[i] = i;
+		}
+		if (n < 2) {
+			return index;
+		}
+
+		int numChunks = numChunks(n, numThreads);
+		ForkJoinPool pool = (numChunks > 1) ? parallelPool() : null;
+		long[] keysHelp = new long[n];
+		int[] indexHelp = new int[n];
+		int[][] counts = new int[numChunks][RADIX];
+		for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+			long[] src = keys;
+			int digit = shift;
+			runChunks(pool, numChunks, n, (c, first, last) -> {
+				int[] count = counts[c];
+				Arrays.fill(count, 0);
+				for (int i = first; i < last; i++) {
+					count[(int) (src[i] >>> digit) & RADIX_MASK]++;
+				}
+			});
+
+			// compute where each chunk puts each digit, skip the digit if
+			// all keys share it
+			int offset = 0;
+			boolean shared = false;
+			for (int b = 0; b < RADIX && !shared; b++) {
+				int start = offset;
+				for (int c = 0; c < numChunks; c++) {
+					int count = counts[c][b];
+					counts[c][b] = offset;
+					offset += count;
+				}
+				shared = (offset - start == n);
+			}
+			if (shared) {
+				continue;
+			}
+
+			long[] srcKeys = keys;
+			int[] srcIndex = index;
+			long[] dstKeys = keysHelp;
+			int[] dstIndex = indexHelp;
+			runChunks(pool, numChunks, n, (c, first, last) -> {
+				int[] position = counts[c];
+				for (int i = first; i < last; i++) {
+					int p = position[(int) (srcKeys[i] >>> digit) & RADIX_MASK]++;
+					dstKeys[p] = srcKeys[i];
+					dstIndex[p] = srcIndex[i];
+				}
+			});
+			keysHelp = keys;
+			indexHelp = index;
+			keys = dstKeys;
+			index = dstIndex;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the kth-smallest value in the array. Occurrences of Double.NaN
+	 * are larger than all other values, including Double.POSITIVE_INFINITY,
+	 * and returned as Double.NaN; -0.0 is returned as 0.0. The value is
+	 * found by selecting one radix digit at a time, starting with the most
+	 * significant one, on an ever smaller set of candidates; large arrays are
+	 * processed in parallel chunks. The array is not changed.
+	 * 
+	 * @param array
+	 *            the array of double
+	 * @param k
+	 *            the value of k, from 1 to the length of the array
+	 * @param numThreads
+	 *            the number of threads, 1 for sequential selection, 0 or less
+	 *            for the number of available processors
+	 * @return the kth-smallest value
+	 * @throws IllegalArgumentException
+	 *             if k is out of range
+	 */
+	public static double parallelKthSmallestValue(double[] array, int k, int numThreads) {
+
+		if (k < 1 || k > array.length) {
+			throw new IllegalArgumentException("k must be between 1 and " + array.length + ", provided: " + k);
+		}
+
+		int n = array.length;
+		int numChunks = numChunks(n, numThreads);
+		ForkJoinPool pool = (numChunks > 1) ? parallelPool() : null;
+		long[] candidates = new long[n];
+		runChunks(pool, numChunks, n, (c, first, last) -> {
+			for (int i = first; i < last; i++) {
+				candidates[i] = sortableBits(array[i]);
+			}
+		});
+
+		long[] keys = candidates;
+		int rank = k - 1;
+		int[][] counts = new int[numChunks][RADIX];
+		for (int shift = 64 - RADIX_BITS; shift >= 0; shift -= RADIX_BITS) {
+			long[] src = keys;
+			int digit = shift;
+			int size = src.length;
+			int chunks = numChunks(size, numChunks);
+			runChunks(pool, chunks, size, (c, first, last) -> {
+				int[] count = counts[c];
+				Arrays.fill(count, 0);
+				for (int i = first; i < last; i++) {
+					count[(int) (src[i] >>> digit) & RADIX_MASK]++;
+				}
+			});
+
+			// find the digit of the kth-smallest key
+			int bucket = 0;
+			int total;
+			while (true) {
+				total = 0;
+				for (int c = 0; c < chunks; c++) {
+					total += counts[c][bucket];
+				}
+				if (rank < total) {
+					break;
+				}
+				rank -= total;
+				bucket++;
+			}
+			if (total == size) {
+				continue;
+			}
+
+			// keep only the candidates with that digit
+			int[] offsets = new int[chunks];
+			for (int c = 1; c < chunks; c++) {
+				offsets[c] = offsets[c - 1] + counts[c - 1][bucket];
+			}
+			long[] dst = new long[total];
+			int selected = bucket;
+			runChunks(pool, chunks, size, (c, first, last) -> {
+				int p = offsets[c];
+				for (int i = first; i < last; i++) {
+					if (((int) (src[i] >>> digit) & RADIX_MASK) == selected) {
+						dst[p++] = src[i];
+					}
+				}
+			});
+			keys = dst;
+		}
+		return fromSortableBits(keys[0]);
+	}
+
+	/**
+	 * Returns the pool for parallel sorting and selection, with as many
+	 * threads as there are processors. Its threads are daemons and end when
+	 * idle.
+	 */
+	private static synchronized ForkJoinPool parallelPool() {
+
+		if (s_ParallelPool == null) {
+			s_ParallelPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		}
+		return s_ParallelPool;
+	}
+
+	/**
+	 * Maps a double to a long whose unsigned order is the order of the
+	 * doubles. NaN is mapped to the largest key, above positive infinity, and
+	 * -0.0 like 0.0.
+	 */
+	private static long sortableBits(double value) {
+
+		if (Double.isNaN(value)) {
+			return -1L;
+		}
+		long bits = Double.doubleToRawLongBits(value + 0.0);
+		return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+	}
+
+	/**
+	 * Inverse of sortableBits().
+	 */
+	private static double fromSortableBits(long key) {
+
+		long bits = (key < 0) ? key ^ Long.MIN_VALUE : ~key;
+		return Double.longBitsToDouble(bits);
+	}
+
+	/**
+	 * Returns the number of chunks to split an array of the given length into.
+	 */
+	private static int numChunks(int length, int numThreads) {
+
+		if (numThreads <= 0) {
+			numThreads = Runtime.getRuntime().availableProcessors();
+		}
+		return Math.max(1, Math.min(numThreads, length / PARALLEL_CHUNK_SIZE));
+	}
+
+	/** A piece of work on a range of an array. */
+	private interface ChunkTask {
+		void run(int chunk, int first, int last);
+	}
+
+	/**
+	 * Runs the task on consecutive, equally sized chunks of the range from 0
+	 * to length, in the pool if there is one.
+	 */
+	private static void runChunks(ForkJoinPool pool, int numChunks, int length, ChunkTask task) {
+
+		if (pool == null || numChunks == 1) {
+			task.run(0, 0, length);
+			return;
+		}
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(numChunks);
+		for (int c = 0; c < numChunks; c++) {
+			int chunk = c;
+			int first = (int) ((long) length * c / numChunks);
+			int last = (int) ((long) length * (c + 1) / numChunks);
+			tasks.add(pool.submit(() -> task.run(chunk, first, last)));
+		}
+		for (ForkJoinTask<?> t : tasks) {
+			t.join();
+		}
+	}
+
 	/**
 	 * Computes the variance for an array of doubles.
 	 * 
@@ -60,6 +60,9 @@ public abstract class AbstractFileLoader extends AbstractLoader implements FileS
 	/** use relative file paths */
 	protected boolean m_useRelativePath = false;
 
+	/** decompress compressed files with ParallelGZIPInputStream */
+	protected boolean m_parallelDecompression = false;
+
 	/** Environment variables */
 	protected transient Environment m_env;
 
@@ -160,7 +163,11 @@ public abstract class AbstractFileLoader extends AbstractLoader implements FileS
 		// set the source only if the file exists
 		if (file.exists() && file.isFile()) {
 			if (file.getName().endsWith(getFileExtension() + FILE_EXTENSION_COMPRESSED)) {
-				setSource(new GZIPInputStream(new FileInputStream(file)));
+				if (m_parallelDecompression) {
+					setSource(new ParallelGZIPInputStream(new FileInputStream(file)));
+				} else {
+					setSource(new GZIPInputStream(new FileInputStream(file)));
+				}
 			} else {
 				setSource(new FileInputStream(file));
 			}
@@ -228,6 +235,40 @@ public abstract class AbstractFileLoader extends AbstractLoader implements FileS
 		return m_useRelativePath;
 	}
 
+	/**
+	 * Returns the tip text for this property
+	 * 
+	 * @return a description of this property as a String
+	 */
+	public String parallelDecompressionTipText() {
+		return "Decompress compressed files on several threads; only for reading "
+				+ "files completely, since a partially read file keeps its threads running";
+	}
+
+	/**
+	 * Set whether to decompress compressed files with a
+	 * ParallelGZIPInputStream. Its threads start with the first read and stop
+	 * once the file has been read completely; the loader doesn't close a file
+	 * that has been read only partially (e.g., just its structure), which
+	 * would keep them running. Off by default.
+	 * 
+	 * @param value
+	 *            true if compressed files are to be decompressed in parallel
+	 */
+	public void setParallelDecompression(boolean value) {
+		m_parallelDecompression = value;
+	}
+
+	/**
+	 * Gets whether compressed files are decompressed with a
+	 * ParallelGZIPInputStream.
+	 * 
+	 * @return true if compressed files are decompressed in parallel
+	 */
+	public boolean getParallelDecompression() {
+		return m_parallelDecompression;
+	}
+
 	/**
 	 * generates a string suitable for output on the command line displaying all
 	 * available options (currently only a simple usage).
@@ -0,0 +1,284 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    ArffInstanceFormatter.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core.converters;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import core.Attribute;
+import core.ColumnarInstance;
+import core.DenseInstance;
+import core.Instance;
+import core.Instances;
+import core.MappedInstance;
+import core.RevisionHandler;
+import core.RevisionUtils;
+import core.SparseInstance;
+import core.Utils;
+
+/**
+ * Formats instances as lines of the data section of an ARFF file, producing
+ * exactly the same text as Instance.toStringMaxDecimalDigits(int). The text is
+ * built in a buffer that is reused for every instance, numbers are formatted
+ * with Utils.appendDoubleToString() and the quoted labels of nominal
+ * attributes are computed once per dataset. Instances of other classes than
+ * DenseInstance, SparseInstance, MappedInstance and ColumnarInstance are
+ * formatted with toStringMaxDecimalDigits(int).
+ * <p/>
+ *
+ * A formatter is not safe for concurrent use.
+ *
+ * @version $Revision$
+ * @see ArffSaver
+ */
+public class ArffInstanceFormatter implements RevisionHandler {
+
+	/** the maximum number of decimal places for numeric values */
+	protected int m_MaxDecimalPlaces;
+
+	/** the line separator */
+	protected String m_LineSeparator = System.lineSeparator();
+
+	/** the buffer the text is built in */
+	protected StringBuilder m_Text = new StringBuilder(256);
+
+	/** the buffer for writing the text */
+	protected char[] m_Chars = new char[256];
+
+	/** the dataset the cached labels belong to */
+	protected Instances m_Dataset;
+
+	/** the quoted labels per attribute, null if not nominal or not cached yet */
+	protected String[][] m_Labels;
+
+	/** the attributes the cached labels belong to */
+	protected Attribute[] m_LabelAttributes;
+
+	/**
+	 * Creates a formatter.
+	 *
+	 * @param maxDecimalPlaces
+	 *            the maximum number of decimal places for numeric values
+	 */
+	public ArffInstanceFormatter(int maxDecimalPlaces) {
+		m_MaxDecimalPlaces = maxDecimalPlaces;
+	}
+
+	/**
+	 * Formats an instance. The returned buffer is reused by the next call.
+	 *
+	 * @param inst
+	 *            the instance
+	 * @return the buffer containing the text
+	 */
+	public StringBuilder format(Instance inst) {
+		m_Text.setLength(0);
+		if ((inst instanceof DenseInstance) || (inst instanceof MappedInstance)
+				|| (inst instanceof ColumnarInstance)) {
+			appendDense(inst);
+		} else if (inst instanceof SparseInstance) {
+			appendSparse(inst);
+		} else {
+			m_Text.append(inst.toStringMaxDecimalDigits(m_MaxDecimalPlaces));
+			return m_Text;
+		}
+
+		if (inst.weight() != 1.0) {
+			m_Text.append(",{");
+			Utils.appendDoubleToString(m_Text, inst.weight(), m_MaxDecimalPlaces);
+			m_Text.append('}');
+		}
+		return m_Text;
+	}
+
+	/**
+	 * Writes an instance followed by a line separator.
+	 *
+	 * @param writer
+	 *            the writer to write to
+	 * @param inst
+	 *            the instance
+	 * @return the number of characters written
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public int write(Writer writer, Instance inst) throws IOException {
+		StringBuilder text = format(inst);
+		text.append(m_LineSeparator);
+		int length = text.length();
+		if (m_Chars.length < length) {
+			m_Chars = new char[Math.max(length, 2 * m_Chars.length)];
+		}
+		text.getChars(0, length, m_Chars, 0);
+		writer.write(m_Chars, 0, length);
+		return length;
+	}
+
+	/**
+	 * Returns the quoted label of a nominal value.
+	 *
+	 * @param dataset
+	 *            the dataset of the instance
+	 * @param att
+	 *            the nominal attribute
+	 * @param index
+	 *            the index of the value
+	 * @return the quoted label
+	 */
+	protected String label(Instances dataset, Attribute att, int index) {
+		if (dataset != m_Dataset) {
+			m_Dataset = dataset;
+			m_Labels = new String[dataset.numAttributes()][];
+			m_LabelAttributes = new Attribute[dataset.numAttributes()];
+		}
+		String[] labels = m_Labels[att.index()];
+		if ((m_LabelAttributes[att.index()] != att) || (labels.length != att.numValues())) {
+			labels = new String[att.numValues()];
+			for (int i = 0; i < labels.length; i++) {
+				labels[i] = Utils.quote(att.value(i));
+			}
+			m_Labels[att.index()] = labels;
+			m_LabelAttributes[att.index()] = att;
+		}
+		return labels[index];
+	}
+
+	/**
+	 * Appends a non-missing value, like Instance.toString(int, int).
+	 *
+	 * @param inst
+	 *            the instance
+	 * @param dataset
+	 *            the dataset of the instance, may be null
+	 * @param attIndex
+	 *            the index of the attribute
+	 * @param value
+	 *            the value
+	 */
+	protected void appendValue(Instance inst, Instances dataset, int attIndex, double value) {
+		if (dataset == null) {
+			Utils.appendDoubleToString(m_Text, value, m_MaxDecimalPlaces);
+			return;
+		}
+
+		Attribute att = dataset.attribute(attIndex);
+		switch (att.type()) {
+		case Attribute.NOMINAL:
+			m_Text.append(label(dataset, att, (int) value));
+			break;
+		case Attribute.STRING:
+		case Attribute.DATE:
+		case Attribute.RELATIONAL:
+			m_Text.append(Utils.quote(inst.stringValue(attIndex)));
+			break;
+		case Attribute.NUMERIC:
+			Utils.appendDoubleToString(m_Text, value, m_MaxDecimalPlaces);
+			break;
+		default:
+			throw new IllegalStateException("Unknown attribute type");
+		}
+	}
+
+	/**
+	 * Appends the values of a dense instance, like
+	 * DenseInstance.toStringNoWeight(int).
+	 *
+	 * @param inst
+	 *            the instance
+	 */
+	protected void appendDense(Instance inst) {
+		Instances dataset = inst.dataset();
+		int numAttributes = inst.numAttributes();
+		for (int i = 0; i < numAttributes; i++) {
+			if (i > 0) {
+				m_Text.append(',');
+			}
+			double value = inst.value(i);
+			if (Utils.isMissingValue(value)) {
+				m_Text.append('?');
+			} else {
+				appendValue(inst, dataset, i, value);
+			}
+		}
+	}
+
+	/**
+	 * Appends the values of a sparse instance, like
+	 * SparseInstance.toStringNoWeight(int): string and relational values are
+	 * always written, other values only if they are not 0.
+	 *
+	 * @param inst
+	 *            the instance
+	 */
+	protected void appendSparse(Instance inst) {
+		Instances dataset = inst.dataset();
+		int numValues = inst.numValues();
+		int sparseIndex = 0;
+		boolean first = true;
+
+		m_Text.append('{');
+		for (int i = 0; i < inst.numAttributes(); i++) {
+			double value = 0;
+			if ((sparseIndex < numValues) && (inst.index(sparseIndex) == i)) {
+				value = inst.valueSparse(sparseIndex++);
+				if (Utils.isMissingValue(value)) {
+					if (!first) {
+						m_Text.append(',');
+					}
+					m_Text.append(i).append(" ?");
+					first = false;
+					continue;
+				}
+			}
+
+			boolean always = (dataset != null)
+					&& (dataset.attribute(i).isString() || dataset.attribute(i).isRelationValued());
+			if (always || (value != 0)) {
+				if (!first) {
+					m_Text.append(',');
+				}
+				m_Text.append(i).append(' ');
+				if (always) {
+					m_Text.append(Utils.quote(inst.stringValue(i)));
+				} else if ((dataset != null) && dataset.attribute(i).isDate()) {
+					m_Text.append(Utils.quote(dataset.attribute(i).formatDate(value)));
+				} else if ((dataset != null) && dataset.attribute(i).isNominal()) {
+					m_Text.append(label(dataset, dataset.attribute(i), (int) value));
+				} else {
+					Utils.appendDoubleToString(m_Text, value, m_MaxDecimalPlaces);
+				}
+				first = false;
+			}
+		}
+		m_Text.append('}');
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -79,6 +79,12 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 	 */
 	protected boolean m_retainStringVals;
 
+	/** Whether the data is read with the hand-written scanner */
+	protected boolean m_fastScanning;
+
+	/** The number of threads used for parsing the data in batch mode */
+	protected int m_numThreads = 1;
+
 	/**
 	 * Returns a string describing this Loader
 	 * 
@@ -123,6 +129,71 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 		return m_retainStringVals;
 	}
 
+	/**
+	 * Tool tip text for this property
+	 * 
+	 * @return the tool tip for this property
+	 */
+	public String fastScanningTipText() {
+		return "If true then the data section is read with a hand-written "
+				+ "scanner that parses numbers and nominal values without creating "
+				+ "intermediate strings. The resulting instances are the same.";
+	}
+
+	/**
+	 * Set whether to read the data section with the hand-written scanner
+	 * instead of the StreamTokenizer.
+	 * 
+	 * @param fast
+	 *            true if the scanner is to be used
+	 */
+	public void setFastScanning(boolean fast) {
+		m_fastScanning = fast;
+	}
+
+	/**
+	 * Get whether the data section is read with the hand-written scanner
+	 * instead of the StreamTokenizer.
+	 * 
+	 * @return true if the scanner is used
+	 */
+	public boolean getFastScanning() {
+		return m_fastScanning;
+	}
+
+	/**
+	 * Tool tip text for this property
+	 * 
+	 * @return the tool tip for this property
+	 */
+	public String numThreadsTipText() {
+		return "The number of threads used for parsing the data section when "
+				+ "reading in batch mode (1 = sequential, 0 or less = number of "
+				+ "available processors). The order of the instances is the same.";
+	}
+
+	/**
+	 * Set the number of threads used for parsing the data section in batch
+	 * mode.
+	 * 
+	 * @param numThreads
+	 *            the number of threads, 1 for sequential parsing, 0 or less
+	 *            for the number of available processors
+	 */
+	public void setNumThreads(int numThreads) {
+		m_numThreads = numThreads;
+	}
+
+	/**
+	 * Get the number of threads used for parsing the data section in batch
+	 * mode.
+	 * 
+	 * @return the number of threads
+	 */
+	public int getNumThreads() {
+		return m_numThreads;
+	}
+
 	/**
 	 * Get the file extension used for arff files
 	 * 
@@ -278,6 +349,7 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 			try {
 				m_ArffReader = new ArffReader(m_sourceReader, 1, (getRetrieval() == BATCH));
 				m_ArffReader.setRetainStringValues(getRetainStringVals());
+				m_ArffReader.setFastScanning(getFastScanning());
 				m_structure = m_ArffReader.getStructure();
 			} catch (Exception ex) {
 				throw new IOException("Unable to determine structure as arff (Reason: " + ex.toString() + ").");
@@ -314,9 +386,13 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 
 			// Read all instances
 			insts = new Instances(m_structure, 0);
-			Instance inst;
-			while ((inst = m_ArffReader.readInstance(m_structure)) != null) {
-				insts.add(inst);
+			if (getNumThreads() != 1) {
+				new ParallelArffReader(m_ArffReader, getNumThreads()).readData(insts);
+			} else {
+				Instance inst;
+				while ((inst = m_ArffReader.readInstance(m_structure)) != null) {
+					insts.add(inst);
+				}
 			}
 
 			// Instances readIn = new Instances(m_structure);
@@ -429,6 +505,18 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 		/** the tokenizer for reading the stream */
 		protected StreamTokenizer m_Tokenizer;
 
+		/**
+		 * the reader the tokenizer works on, also used for scanning the data
+		 * if fast scanning is enabled
+		 */
+		protected ArffScanner m_Scanner;
+
+		/** whether the data is read with the scanner instead of the tokenizer */
+		protected boolean m_fastScanning = false;
+
+		/** whether the first instance has been read */
+		protected boolean m_dataStarted = false;
+
 		/** Buffer of values for sparse instance */
 		protected double[] m_ValueBuffer;
 
@@ -475,7 +563,8 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 		public ArffReader(Reader reader) throws IOException {
 			m_retainStringValues = true;
 			m_batchMode = true;
-			m_Tokenizer = new StreamTokenizer(reader);
+			m_Scanner = new ArffScanner(reader);
+			m_Tokenizer = new StreamTokenizer(m_Scanner);
 			initTokenizer();
 
 			readHeader(1000);
@@ -521,7 +610,8 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 				throw new IllegalArgumentException("Capacity has to be positive!");
 			}
 
-			m_Tokenizer = new StreamTokenizer(reader);
+			m_Scanner = new ArffScanner(reader);
+			m_Tokenizer = new StreamTokenizer(m_Scanner);
 			initTokenizer();
 
 			readHeader(capacity);
@@ -641,7 +731,8 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 			}
 
 			m_Lines = lines;
-			m_Tokenizer = new StreamTokenizer(reader);
+			m_Scanner = new ArffScanner(reader);
+			m_Tokenizer = new StreamTokenizer(m_Scanner);
 			initTokenizer();
 
 			m_Data = new Instances(template, capacity);
@@ -686,7 +777,7 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 		 *             containing the error message
 		 */
 		protected void errorMessage(String msg) throws IOException {
-			String str = msg + ", read " + m_Tokenizer.toString();
+			String str = msg + ", read " + (m_Scanner.isScanning() ? m_Scanner.toString() : m_Tokenizer.toString());
 			if (m_Lines > 0) {
 				int line = Integer.parseInt(str.replaceAll(".* line ", ""));
 				str = str.replaceAll(" line .*", " line " + (m_Lines + line - 1));
@@ -700,7 +791,7 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 		 * @return the current line number
 		 */
 		public int getLineNo() {
-			return m_Lines + m_Tokenizer.lineno();
+			return m_Lines + (m_Scanner.isScanning() ? m_Scanner.lineno() : m_Tokenizer.lineno());
 		}
 
 		/**
@@ -716,7 +807,7 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 
 			if ((m_Tokenizer.ttype == '\'') || (m_Tokenizer.ttype == '"')) {
 				m_Tokenizer.ttype = StreamTokenizer.TT_WORD;
-			} else if ((m_Tokenizer.ttype == StreamTokenizer.TT_WORD) && ("?" == m_Tokenizer.sval)) {
+			} else if ((m_Tokenizer.ttype == StreamTokenizer.TT_WORD) && "?".equals(m_Tokenizer.sval)) {
 				m_Tokenizer.ttype = '?';
 			}
 		}
@@ -798,7 +889,7 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 				errorMessage("premature end of file");
 			} else if ((m_Tokenizer.ttype == '\'') || (m_Tokenizer.ttype == '"')) {
 				m_Tokenizer.ttype = StreamTokenizer.TT_WORD;
-			} else if ((m_Tokenizer.ttype == StreamTokenizer.TT_WORD) && ("?" == m_Tokenizer.sval)) {
+			} else if ((m_Tokenizer.ttype == StreamTokenizer.TT_WORD) && "?".equals(m_Tokenizer.sval)) {
 				m_Tokenizer.ttype = '?';
 			}
 		}
@@ -840,6 +931,17 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 			m_Tokenizer.ordinaryChar('{');
 			m_Tokenizer.ordinaryChar('}');
 			m_Tokenizer.eolIsSignificant(true);
+
+			char[] quotes;
+			if (m_enclosures != null && m_enclosures.size() > 0) {
+				quotes = new char[m_enclosures.size()];
+				for (int i = 0; i < quotes.length; i++) {
+					quotes[i] = m_enclosures.get(i).charAt(0);
+				}
+			} else {
+				quotes = new char[] { '"', '\'' };
+			}
+			m_Scanner.setSyntax((m_fieldSeparator != null) ? m_fieldSeparator.charAt(0) : ',', quotes);
 		}
 
 		/**
@@ -894,6 +996,16 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 				errorMessage("no header information available");
 			}
 
+			m_dataStarted = true;
+			if (m_fastScanning) {
+				if (!m_Scanner.isScanning()) {
+					// the tokenizer has read ahead one character after the
+					// last token of the header
+					m_Scanner.startScanning(true, m_Tokenizer.lineno());
+				}
+				return scanInstance(flag);
+			}
+
 			// Check if end of file reached.
 			getFirstToken();
 			if (m_Tokenizer.ttype == StreamTokenizer.TT_EOF) {
@@ -1135,6 +1247,322 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 			return inst;
 		}
 
+		/**
+		 * Gets next token from the scanner, skipping empty lines.
+		 *
+		 * @throws IOException
+		 *             if reading the next token fails
+		 * @see #getFirstToken()
+		 */
+		protected void scanFirstToken() throws IOException {
+			while (m_Scanner.nextToken() == StreamTokenizer.TT_EOL) {
+			}
+
+			if ((m_Scanner.getType() == '\'') || (m_Scanner.getType() == '"')) {
+				m_Scanner.setType(StreamTokenizer.TT_WORD);
+			} else if (m_Scanner.isMissingValue()) {
+				m_Scanner.setType('?');
+			}
+		}
+
+		/**
+		 * Gets index from the scanner, checking for a premature and of line.
+		 *
+		 * @throws IOException
+		 *             if it finds a premature end of line
+		 * @see #getIndex()
+		 */
+		protected void scanIndex() throws IOException {
+			if (m_Scanner.nextToken() == StreamTokenizer.TT_EOL) {
+				errorMessage("premature end of line");
+			}
+			if (m_Scanner.getType() == StreamTokenizer.TT_EOF) {
+				errorMessage("premature end of file");
+			}
+		}
+
+		/**
+		 * Gets token from the scanner and checks if its end of line.
+		 *
+		 * @param endOfFileOk
+		 *            whether EOF is OK
+		 * @throws IOException
+		 *             if it doesn't find an end of line
+		 * @see #getLastToken(boolean)
+		 */
+		protected void scanLastToken(boolean endOfFileOk) throws IOException {
+			if ((m_Scanner.nextToken() != StreamTokenizer.TT_EOL)
+					&& ((m_Scanner.getType() != StreamTokenizer.TT_EOF) || !endOfFileOk)) {
+				errorMessage("end of line expected");
+			}
+		}
+
+		/**
+		 * Gets next token from the scanner, checking for a premature and of
+		 * line.
+		 *
+		 * @throws IOException
+		 *             if it finds a premature end of line
+		 * @see #getNextToken()
+		 */
+		protected void scanNextToken() throws IOException {
+			if (m_Scanner.nextToken() == StreamTokenizer.TT_EOL) {
+				errorMessage("premature end of line");
+			}
+			if (m_Scanner.getType() == StreamTokenizer.TT_EOF) {
+				errorMessage("premature end of file");
+			} else if ((m_Scanner.getType() == '\'') || (m_Scanner.getType() == '"')) {
+				m_Scanner.setType(StreamTokenizer.TT_WORD);
+			} else if (m_Scanner.isMissingValue()) {
+				m_Scanner.setType('?');
+			}
+		}
+
+		/**
+		 * Gets the value of an instance's weight (if one exists) from the
+		 * scanner.
+		 *
+		 * @return the value of the instance's weight, or NaN if no weight has
+		 *         been supplied in the file
+		 * @see #getInstanceWeight()
+		 */
+		protected double scanInstanceWeight() throws IOException {
+			double weight = Double.NaN;
+			m_Scanner.nextToken();
+			if (m_Scanner.getType() == StreamTokenizer.TT_EOL || m_Scanner.getType() == StreamTokenizer.TT_EOF) {
+				return weight;
+			}
+			// see if we can read an instance weight
+			if (m_Scanner.getType() == '{') {
+				m_Scanner.nextToken();
+				String weightS = m_Scanner.stringValue();
+				// try to parse weight as a double
+				try {
+					weight = Double.parseDouble(weightS);
+				} catch (NumberFormatException e) {
+					// quietly ignore
+					return weight;
+				}
+				// see if we have the closing brace
+				m_Scanner.nextToken();
+				if (m_Scanner.getType() != '}') {
+					errorMessage("Problem reading instance weight");
+				}
+			}
+			return weight;
+		}
+
+		/**
+		 * Reads a single instance using the scanner and returns it. Produces
+		 * the same instances as <code>getInstance(Instances, boolean)</code>.
+		 *
+		 * @param flag
+		 *            if method should test for carriage return after each
+		 *            instance
+		 * @return null if end of file has been reached
+		 * @throws IOException
+		 *             if the information is not read successfully
+		 */
+		protected Instance scanInstance(boolean flag) throws IOException {
+			// Check if end of file reached.
+			scanFirstToken();
+			if (m_Scanner.getType() == StreamTokenizer.TT_EOF) {
+				return null;
+			}
+
+			// Parse instance
+			if (m_Scanner.getType() == '{') {
+				return scanInstanceSparse(flag);
+			} else {
+				return scanInstanceFull(flag);
+			}
+		}
+
+		/**
+		 * Reads the value of the current token using the scanner. String,
+		 * date and relational values are handled like in
+		 * <code>getInstanceFull(boolean)</code>.
+		 *
+		 * @param attIndex
+		 *            the index of the attribute
+		 * @param sparse
+		 *            whether the value belongs to a sparse instance
+		 * @return the value in internal format
+		 * @throws IOException
+		 *             if the value is not valid
+		 */
+		protected double scanValue(int attIndex, boolean sparse) throws IOException {
+			// Check if value is missing.
+			if (m_Scanner.getType() == '?') {
+				return Utils.missingValue();
+			}
+
+			// Check if token is valid.
+			if (m_Scanner.getType() != StreamTokenizer.TT_WORD) {
+				errorMessage("not a valid value");
+			}
+			Attribute att = m_Data.attribute(attIndex);
+			switch (att.type()) {
+			case Attribute.NOMINAL:
+				// Check if value appears in header.
+				int index = m_Scanner.indexOfValue(att);
+				if (index == -1) {
+					errorMessage("nominal value not declared in header");
+				}
+				return index;
+			case Attribute.NUMERIC:
+				// Check if value is really a number.
+				try {
+					return m_Scanner.numberValue();
+				} catch (NumberFormatException e) {
+					errorMessage("number expected");
+				}
+				break;
+			case Attribute.STRING:
+				if (m_batchMode || m_retainStringValues) {
+					return att.addStringValue(m_Scanner.stringValue());
+				}
+				if (sparse) {
+					att.addStringValue(m_Scanner.stringValue());
+				} else {
+					att.setStringValue(m_Scanner.stringValue());
+				}
+				return 0;
+			case Attribute.DATE:
+				try {
+					return att.parseDate(m_Scanner.stringValue());
+				} catch (ParseException e) {
+					errorMessage("unparseable date: " + m_Scanner.stringValue());
+				}
+				break;
+			case Attribute.RELATIONAL:
+				try {
+					ArffReader arff = new ArffReader(new StringReader(m_Scanner.stringValue()), att.relation(), 0);
+					Instances data = arff.getData();
+					return att.addRelation(data);
+				} catch (Exception e) {
+					throw new IOException(e.toString() + " of line " + getLineNo());
+				}
+			default:
+				errorMessage("unknown attribute type in column " + attIndex);
+			}
+			return 0;
+		}
+
+		/**
+		 * Reads a single sparse instance using the scanner and returns it.
+		 *
+		 * @param flag
+		 *            if method should test for carriage return after each
+		 *            instance
+		 * @return the instance
+		 * @throws IOException
+		 *             if the information is not read successfully
+		 * @see #getInstanceSparse(boolean)
+		 */
+		protected Instance scanInstanceSparse(boolean flag) throws IOException {
+			int numValues = 0;
+			int maxIndex = -1;
+
+			// if reading incrementally, and we have string values, make sure
+			// that all string attributes are initialized
+			if (!m_batchMode && !m_retainStringValues && m_stringAttIndices != null) {
+				for (Integer iterator : m_stringAttIndices) {
+					m_Data.attribute(iterator).setStringValue(null);
+				}
+			}
+
+			// Get values
+			do {
+				// Get index
+				scanIndex();
+				if (m_Scanner.getType() == '}') {
+					break;
+				}
+
+				// Is index valid?
+				try {
+					m_IndicesBuffer[numValues] = m_Scanner.intValue();
+				} catch (NumberFormatException e) {
+					errorMessage("index number expected");
+				}
+				if (m_IndicesBuffer[numValues] <= maxIndex) {
+					errorMessage("indices have to be ordered");
+				}
+				if ((m_IndicesBuffer[numValues] < 0) || (m_IndicesBuffer[numValues] >= m_Data.numAttributes())) {
+					errorMessage("index out of bounds");
+				}
+				maxIndex = m_IndicesBuffer[numValues];
+
+				// Get value;
+				scanNextToken();
+				m_ValueBuffer[numValues] = scanValue(m_IndicesBuffer[numValues], true);
+				numValues++;
+			} while (true);
+
+			double weight = 1.0;
+			if (flag) {
+				// check for an instance weight
+				weight = scanInstanceWeight();
+				if (!Double.isNaN(weight)) {
+					scanLastToken(true);
+				} else {
+					weight = 1.0;
+				}
+			}
+
+			// Add instance to dataset
+			double[] tempValues = new double[numValues];
+			int[] tempIndices = new int[numValues];
+			System.arraycopy(m_ValueBuffer, 0, tempValues, 0, numValues);
+			System.arraycopy(m_IndicesBuffer, 0, tempIndices, 0, numValues);
+			Instance inst = new SparseInstance(weight, tempValues, tempIndices, m_Data.numAttributes());
+			inst.setDataset(m_Data);
+
+			return inst;
+		}
+
+		/**
+		 * Reads a single dense instance using the scanner and returns it.
+		 *
+		 * @param flag
+		 *            if method should test for carriage return after each
+		 *            instance
+		 * @return the instance
+		 * @throws IOException
+		 *             if the information is not read successfully
+		 * @see #getInstanceFull(boolean)
+		 */
+		protected Instance scanInstanceFull(boolean flag) throws IOException {
+			double[] instance = new double[m_Data.numAttributes()];
+
+			// Get values for all attributes.
+			for (int i = 0; i < m_Data.numAttributes(); i++) {
+				// Get next token
+				if (i > 0) {
+					scanNextToken();
+				}
+				instance[i] = scanValue(i, false);
+			}
+
+			double weight = 1.0;
+			if (flag) {
+				// check for an instance weight
+				weight = scanInstanceWeight();
+				if (!Double.isNaN(weight)) {
+					scanLastToken(true);
+				} else {
+					weight = 1.0;
+				}
+			}
+
+			// Add instance to dataset
+			Instance inst = new DenseInstance(weight, instance);
+			inst.setDataset(m_Data);
+
+			return inst;
+		}
+
 		/**
 		 * Reads and stores header of an ARFF file.
 		 * 
@@ -1355,6 +1783,54 @@ public class ArffLoader extends AbstractFileLoader implements BatchConverter, In
 			return m_retainStringValues;
 		}
 
+		/**
+		 * Set whether the data is read with the hand-written
+		 * {@link ArffScanner} instead of the StreamTokenizer. The scanner
+		 * produces the same instances, but avoids creating a String for every
+		 * numeric and nominal value. Has to be set before the first instance
+		 * is read.
+		 *
+		 * @param fast
+		 *            true if the scanner is to be used
+		 * @throws IllegalStateException
+		 *             if instances have already been read in the other mode
+		 */
+		public void setFastScanning(boolean fast) {
+			if ((fast != m_fastScanning) && m_dataStarted) {
+				throw new IllegalStateException("Scanning mode can only be changed before reading the first instance!");
+			}
+			m_fastScanning = fast;
+		}
+
+		/**
+		 * Get whether the data is read with the hand-written scanner instead of
+		 * the StreamTokenizer.
+		 *
+		 * @return true if the scanner is used
+		 */
+		public boolean getFastScanning() {
+			return m_fastScanning;
+		}
+
+		/**
+		 * Returns a reader over the remaining, not yet parsed part of the data
+		 * section, starting right after the <code>@data</code> keyword.
+		 * <code>getLineNo()</code> returns the line the reader starts on. No
+		 * instances can be read via this ArffReader afterwards.
+		 *
+		 * @return the reader for the data section
+		 * @throws IllegalStateException
+		 *             if instances have already been read
+		 */
+		public Reader getDataReader() {
+			if (m_dataStarted) {
+				throw new IllegalStateException("Instances have already been read from the data section!");
+			}
+			m_Scanner.startScanning(true, m_Tokenizer.lineno());
+			m_dataStarted = true;
+			return m_Scanner;
+		}
+
 		/**
 		 * Returns the revision string.
 		 * 
@@ -21,14 +21,13 @@
 
 package core.converters;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Vector;
-import java.util.zip.GZIPOutputStream;
 
 import core.AbstractInstance;
 import core.Capabilities;
@@ -85,6 +84,15 @@ public class ArffSaver extends AbstractFileSaver implements BatchConverter, Incr
 	/** Max number of decimal places for numeric values */
 	protected int m_MaxDecimalPlaces = AbstractInstance.s_numericAfterDecimalPoint;
 
+	/** the number of characters after which the output is flushed */
+	public final static int FLUSH_THRESHOLD = 1 << 16;
+
+	/** formats the instances, created when writing starts */
+	protected transient ArffInstanceFormatter m_Formatter;
+
+	/** the number of characters written since the last flush */
+	protected transient int m_UnflushedChars;
+
 	/** Constructor */
 	public ArffSaver() {
 
@@ -302,7 +310,7 @@ public class ArffSaver extends AbstractFileSaver implements BatchConverter, Incr
 	@Override
 	public void setDestination(OutputStream output) throws IOException {
 		if (getCompressOutput()) {
-			super.setDestination(new GZIPOutputStream(output));
+			super.setDestination(new ParallelGZIPOutputStream(output));
 		} else {
 			super.setDestination(output);
 		}
@@ -355,14 +363,11 @@ public class ArffSaver extends AbstractFileSaver implements BatchConverter, Incr
 
 		int writeMode = getWriteMode();
 		Instances structure = getInstances();
-		PrintWriter outW = null;
+		BufferedWriter outW = getWriter();
 
 		if (getRetrieval() == BATCH || getRetrieval() == NONE) {
 			throw new IOException("Batch and incremental saving cannot be mixed.");
 		}
-		if (getWriter() != null) {
-			outW = new PrintWriter(getWriter());
-		}
 
 		if (writeMode == WAIT) {
 			if (structure == null) {
@@ -388,10 +393,12 @@ public class ArffSaver extends AbstractFileSaver implements BatchConverter, Incr
 			if (retrieveFile() == null && outW == null) {
 				System.out.println(header.toString());
 			} else {
-				outW.print(header.toString());
-				outW.print("\n");
+				outW.write(header.toString());
+				outW.write("\n");
 				outW.flush();
 			}
+			m_Formatter = new ArffInstanceFormatter(m_MaxDecimalPlaces);
+			m_UnflushedChars = 0;
 			writeMode = getWriteMode();
 		}
 		if (writeMode == WRITE) {
@@ -404,11 +411,13 @@ public class ArffSaver extends AbstractFileSaver implements BatchConverter, Incr
 				if (retrieveFile() == null && outW == null) {
 					System.out.println(inst.toStringMaxDecimalDigits(m_MaxDecimalPlaces));
 				} else {
-					outW.println(inst.toStringMaxDecimalDigits(m_MaxDecimalPlaces));
-					m_incrementalCounter++;
-					// flush every 100 instances
-					if (m_incrementalCounter > 100) {
-						m_incrementalCounter = 0;
+					if (m_Formatter == null) {
+						m_Formatter = new ArffInstanceFormatter(m_MaxDecimalPlaces);
+					}
+					m_UnflushedChars += m_Formatter.write(outW, inst);
+					// flush every FLUSH_THRESHOLD characters
+					if (m_UnflushedChars > FLUSH_THRESHOLD) {
+						m_UnflushedChars = 0;
 						outW.flush();
 					}
 				}
@@ -418,7 +427,8 @@ public class ArffSaver extends AbstractFileSaver implements BatchConverter, Incr
 					outW.flush();
 					outW.close();
 				}
-				m_incrementalCounter = 0;
+				m_UnflushedChars = 0;
+				m_Formatter = null;
 				resetStructure();
 				outW = null;
 				resetWriter();
@@ -452,19 +462,22 @@ public class ArffSaver extends AbstractFileSaver implements BatchConverter, Incr
 			return;
 		}
 
-		PrintWriter outW = new PrintWriter(getWriter());
+		BufferedWriter outW = getWriter();
 		Instances data = getInstances();
 
 		// header
 		Instances header = new Instances(data, 0);
-		outW.print(header.toString());
+		outW.write(header.toString());
 
 		// data
+		ArffInstanceFormatter formatter = new ArffInstanceFormatter(m_MaxDecimalPlaces);
+		int unflushed = 0;
 		for (int i = 0; i < data.numInstances(); i++) {
-			if (i % 1000 == 0) {
+			unflushed += formatter.write(outW, data.instance(i));
+			if (unflushed > FLUSH_THRESHOLD) {
+				unflushed = 0;
 				outW.flush();
 			}
-			outW.println(data.instance(i).toStringMaxDecimalDigits(m_MaxDecimalPlaces));
 		}
 		outW.flush();
 		outW.close();
@@ -0,0 +1,821 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    ArffScanner.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core.converters;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StreamTokenizer;
+
+import core.Attribute;
+import core.RevisionHandler;
+import core.RevisionUtils;
+
+/**
+ * A hand-written scanner for the data section of ARFF files. It splits the
+ * input into the same tokens as the <code>StreamTokenizer</code> set up by
+ * <code>ArffLoader.ArffReader</code> (same whitespace, separator, quoting,
+ * escape, comment and line counting rules), but works on a char buffer and
+ * keeps the current token in a reusable char array. Numbers are parsed and
+ * nominal values are looked up straight from that array, so no String is
+ * created for numeric and nominal cells.
+ * <p/>
+ *
+ * The scanner is a Reader itself. Until <code>startScanning(boolean, int)</code> is
+ * called it passes single characters through from the underlying reader
+ * without reading ahead, so the header can be read with a
+ * <code>StreamTokenizer</code> on top of it. On switching over, the character
+ * the tokenizer has read ahead is handed back to the scanner.
+ *
+ * @version $Revision$
+ */
+public class ArffScanner extends Reader implements RevisionHandler {
+
+	/** the size of the character buffer */
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	/** the token type before the first token has been read */
+	public static final int TT_NOTHING = -4;
+
+	/** character type: whitespace */
+	protected static final byte CT_WHITESPACE = 1;
+
+	/** character type: part of a word */
+	protected static final byte CT_WORD = 2;
+
+	/** character type: starts a comment */
+	protected static final byte CT_COMMENT = 3;
+
+	/** character type: a quote character */
+	protected static final byte CT_QUOTE = 4;
+
+	/** character type: an ordinary character, returned as its own token */
+	protected static final byte CT_ORDINARY = 5;
+
+	/** the largest mantissa that is still exactly representable as a double */
+	protected static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	/** the powers of ten that are exactly representable as doubles */
+	protected static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/** the underlying reader */
+	protected Reader m_Source;
+
+	/** whether the scanner reads ahead into its buffer */
+	protected boolean m_Scanning = false;
+
+	/** the last character passed through before scanning started */
+	protected int m_LastChar = -1;
+
+	/** the character buffer */
+	protected char[] m_Buffer;
+
+	/** the position of the next character in the buffer */
+	protected int m_Pos;
+
+	/** the number of valid characters in the buffer */
+	protected int m_Limit;
+
+	/** the character types for the first 256 characters */
+	protected byte[] m_CharTypes = new byte[256];
+
+	/** the type of the current token, using the StreamTokenizer constants */
+	protected int m_Type = TT_NOTHING;
+
+	/** the characters of the current token */
+	protected char[] m_Token = new char[64];
+
+	/** the number of characters in the current token */
+	protected int m_TokenLength;
+
+	/** the current line number */
+	protected int m_LineNo = 1;
+
+	/** whether a line feed following a carriage return has to be skipped */
+	protected boolean m_SkipLF = false;
+
+	/** the lookup tables for nominal values, indexed by attribute index */
+	protected NominalIndex[] m_NominalIndices = new NominalIndex[0];
+
+	/**
+	 * Hash table from the labels of a nominal attribute to their indices that
+	 * can be queried with a range of a char array.
+	 */
+	protected static class NominalIndex {
+
+		/** the attribute the table was built for */
+		protected Attribute m_Attribute;
+
+		/** the number of labels at the time the table was built */
+		protected int m_NumValues;
+
+		/** the labels */
+		protected char[][] m_Labels;
+
+		/** the hash slots, holding label index + 1 (0 for empty slots) */
+		protected int[] m_Slots;
+
+		/**
+		 * Builds the table for the given nominal attribute.
+		 *
+		 * @param att
+		 *            the attribute
+		 */
+		protected NominalIndex(Attribute att) {
+			m_Attribute = att;
+			m_NumValues = att.numValues();
+			m_Labels = new char[m_NumValues][];
+
+			int size = 4;
+			while (size < m_NumValues * 2) {
+				size <<= 1;
+			}
+			m_Slots = new int[size];
+			for (int i = 0; i < m_NumValues; i++) {
+				String label = att.value(i);
+				m_Labels[i] = label.toCharArray();
+				int slot = label.hashCode() & (size - 1);
+				while (m_Slots[slot] != 0) {
+					slot = (slot + 1) & (size - 1);
+				}
+				m_Slots[slot] = i + 1;
+			}
+		}
+
+		/**
+		 * Returns whether the table is still valid for the given attribute.
+		 *
+		 * @param att
+		 *            the attribute
+		 * @return true if the table was built for the attribute as it is now
+		 */
+		protected boolean isValidFor(Attribute att) {
+			return (m_Attribute == att) && (m_NumValues == att.numValues());
+		}
+
+		/**
+		 * Looks up the label stored in the given char array range.
+		 *
+		 * @param chars
+		 *            the characters
+		 * @param length
+		 *            the number of characters to use
+		 * @return the index of the label, -1 if not found
+		 */
+		protected int indexOf(char[] chars, int length) {
+			int hash = 0;
+			for (int i = 0; i < length; i++) {
+				hash = 31 * hash + chars[i];
+			}
+			int mask = m_Slots.length - 1;
+			int slot = hash & mask;
+			while (m_Slots[slot] != 0) {
+				char[] label = m_Labels[m_Slots[slot] - 1];
+				if (label.length == length) {
+					int i = 0;
+					while ((i < length) && (label[i] == chars[i])) {
+						i++;
+					}
+					if (i == length) {
+						return m_Slots[slot] - 1;
+					}
+				}
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Initializes the scanner with the given reader and the default ARFF
+	 * syntax.
+	 *
+	 * @param source
+	 *            the reader to read from
+	 */
+	public ArffScanner(Reader source) {
+		super(source);
+		m_Source = source;
+		setSyntax(',', new char[] { '"', '\'' });
+	}
+
+	/**
+	 * Sets the field separator and the quote characters. Mirrors
+	 * <code>ArffReader.initTokenizer()</code>: later settings take precedence,
+	 * ie. '{' and '}' are always ordinary characters and quotes win over the
+	 * comment character and the separator.
+	 *
+	 * @param separator
+	 *            the field separator
+	 * @param quotes
+	 *            the quote characters
+	 */
+	public void setSyntax(char separator, char[] quotes) {
+		for (int i = 0; i < m_CharTypes.length; i++) {
+			m_CharTypes[i] = (i <= ' ') ? CT_WHITESPACE : CT_WORD;
+		}
+		setCharType(separator, CT_WHITESPACE);
+		setCharType('%', CT_COMMENT);
+		for (char quote : quotes) {
+			setCharType(quote, CT_QUOTE);
+		}
+		setCharType('{', CT_ORDINARY);
+		setCharType('}', CT_ORDINARY);
+	}
+
+	/**
+	 * Sets the type of a character, ignoring characters outside the table
+	 * (like StreamTokenizer does).
+	 *
+	 * @param c
+	 *            the character
+	 * @param type
+	 *            the type
+	 */
+	protected void setCharType(char c, byte type) {
+		if (c < m_CharTypes.length) {
+			m_CharTypes[c] = type;
+		}
+	}
+
+	/**
+	 * Returns the type of the given character.
+	 *
+	 * @param c
+	 *            the character, -1 for end of file
+	 * @return the type
+	 */
+	protected int charType(int c) {
+		if (c < 0) {
+			return CT_WHITESPACE;
+		}
+		return (c < m_CharTypes.length) ? m_CharTypes[c] : CT_WORD;
+	}
+
+	/**
+	 * Reads a single character. Before scanning started, the character is
+	 * taken directly from the underlying reader.
+	 *
+	 * @return the character, -1 at end of file
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	@Override
+	public int read() throws IOException {
+		if (!m_Scanning) {
+			m_LastChar = m_Source.read();
+			return m_LastChar;
+		}
+		if ((m_Pos >= m_Limit) && !fill()) {
+			return -1;
+		}
+		return m_Buffer[m_Pos++];
+	}
+
+	/**
+	 * Reads characters into a portion of an array.
+	 *
+	 * @param cbuf
+	 *            the destination buffer
+	 * @param off
+	 *            the offset at which to start storing characters
+	 * @param len
+	 *            the maximum number of characters to read
+	 * @return the number of characters read, or -1 at end of file
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (!m_Scanning) {
+			int n = m_Source.read(cbuf, off, len);
+			if (n > 0) {
+				m_LastChar = cbuf[off + n - 1];
+			} else if (n < 0) {
+				m_LastChar = -1;
+			}
+			return n;
+		}
+		if ((m_Pos >= m_Limit) && !fill()) {
+			return -1;
+		}
+		int n = Math.min(len, m_Limit - m_Pos);
+		System.arraycopy(m_Buffer, m_Pos, cbuf, off, n);
+		m_Pos += n;
+		return n;
+	}
+
+	/**
+	 * Closes the underlying reader.
+	 *
+	 * @throws IOException
+	 *             if closing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		m_Source.close();
+	}
+
+	/**
+	 * Refills the buffer from the underlying reader.
+	 *
+	 * @return false if the end of file has been reached
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	protected boolean fill() throws IOException {
+		int n;
+		do {
+			n = m_Source.read(m_Buffer, 0, m_Buffer.length);
+		} while (n == 0);
+		if (n < 0) {
+			m_Pos = 0;
+			m_Limit = 0;
+			return false;
+		}
+		m_Pos = 0;
+		m_Limit = n;
+		return true;
+	}
+
+	/**
+	 * Switches from passing characters through to scanning tokens.
+	 *
+	 * @param pending
+	 *            whether the last character passed through has not been
+	 *            consumed yet (ie. it is the tokenizer's look-ahead) and has to
+	 *            be scanned again
+	 * @param lineNo
+	 *            the current line number
+	 */
+	public void startScanning(boolean pending, int lineNo) {
+		if (m_Scanning) {
+			return;
+		}
+		m_Buffer = new char[BUFFER_SIZE];
+		m_Pos = 0;
+		m_Limit = 0;
+		if (pending && (m_LastChar >= 0)) {
+			m_Buffer[m_Limit++] = (char) m_LastChar;
+		}
+		m_LineNo = lineNo;
+		m_Scanning = true;
+	}
+
+	/**
+	 * Returns whether the scanner has been switched to scanning tokens.
+	 *
+	 * @return true if scanning
+	 */
+	public boolean isScanning() {
+		return m_Scanning;
+	}
+
+	/**
+	 * Appends a character to the current token.
+	 *
+	 * @param c
+	 *            the character
+	 */
+	protected void append(int c) {
+		if (m_TokenLength == m_Token.length) {
+			char[] token = new char[m_Token.length * 2];
+			System.arraycopy(m_Token, 0, token, 0, m_TokenLength);
+			m_Token = token;
+		}
+		m_Token[m_TokenLength++] = (char) c;
+	}
+
+	/**
+	 * Reads the next token, with the same rules as the StreamTokenizer used by
+	 * the ArffReader.
+	 *
+	 * @return the type of the token: StreamTokenizer.TT_EOF,
+	 *         StreamTokenizer.TT_EOL, StreamTokenizer.TT_WORD, or the
+	 *         character for quoted strings and ordinary characters
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	public int nextToken() throws IOException {
+		m_TokenLength = 0;
+
+		int c = read();
+		if (m_SkipLF) {
+			m_SkipLF = false;
+			if (c == '\n') {
+				c = read();
+			}
+		}
+
+		while (true) {
+			if (c < 0) {
+				return m_Type = StreamTokenizer.TT_EOF;
+			}
+			int ctype = charType(c);
+
+			if (ctype == CT_WHITESPACE) {
+				if (c == '\r') {
+					m_LineNo++;
+					m_SkipLF = true;
+					return m_Type = StreamTokenizer.TT_EOL;
+				}
+				if (c == '\n') {
+					m_LineNo++;
+					return m_Type = StreamTokenizer.TT_EOL;
+				}
+				c = read();
+				continue;
+			}
+
+			if (ctype == CT_COMMENT) {
+				do {
+					c = read();
+				} while ((c >= 0) && (c != '\n') && (c != '\r'));
+				continue;
+			}
+
+			if (ctype == CT_WORD) {
+				scanWord(c);
+				return m_Type = StreamTokenizer.TT_WORD;
+			}
+
+			if (ctype == CT_QUOTE) {
+				scanQuoted(c);
+				return m_Type = c;
+			}
+
+			return m_Type = c;
+		}
+	}
+
+	/**
+	 * Scans the rest of a word, working directly on the buffer.
+	 *
+	 * @param first
+	 *            the first character of the word
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	protected void scanWord(int first) throws IOException {
+		append(first);
+		while (true) {
+			if ((m_Pos >= m_Limit) && !fill()) {
+				return;
+			}
+			int start = m_Pos;
+			int end = m_Pos;
+			while ((end < m_Limit) && (charType(m_Buffer[end]) == CT_WORD)) {
+				end++;
+			}
+			int len = end - start;
+			if (m_TokenLength + len > m_Token.length) {
+				char[] token = new char[Math.max(m_Token.length * 2, m_TokenLength + len)];
+				System.arraycopy(m_Token, 0, token, 0, m_TokenLength);
+				m_Token = token;
+			}
+			System.arraycopy(m_Buffer, start, m_Token, m_TokenLength, len);
+			m_TokenLength += len;
+			m_Pos = end;
+			if (end < m_Limit) {
+				// the delimiter stays in the buffer
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Scans a quoted string, including the same escape sequences as
+	 * StreamTokenizer. An unterminated string ends at the end of the line.
+	 *
+	 * @param quote
+	 *            the quote character
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	protected void scanQuoted(int quote) throws IOException {
+		int c;
+		int d = read();
+		while ((d >= 0) && (d != quote) && (d != '\n') && (d != '\r')) {
+			if (d == '\\') {
+				c = read();
+				int first = c;
+				if ((c >= '0') && (c <= '7')) {
+					c = c - '0';
+					int c2 = read();
+					if (('0' <= c2) && (c2 <= '7')) {
+						c = (c << 3) + (c2 - '0');
+						c2 = read();
+						if (('0' <= c2) && (c2 <= '7') && (first <= '3')) {
+							c = (c << 3) + (c2 - '0');
+							d = read();
+						} else {
+							d = c2;
+						}
+					} else {
+						d = c2;
+					}
+				} else {
+					switch (c) {
+					case 'a':
+						c = 0x7;
+						break;
+					case 'b':
+						c = '\b';
+						break;
+					case 'f':
+						c = 0xC;
+						break;
+					case 'n':
+						c = '\n';
+						break;
+					case 'r':
+						c = '\r';
+						break;
+					case 't':
+						c = '\t';
+						break;
+					case 'v':
+						c = 0xB;
+						break;
+					}
+					d = read();
+				}
+			} else {
+				c = d;
+				d = read();
+			}
+			append(c);
+		}
+		// a line break (or any other look-ahead) is scanned again
+		if ((d != quote) && (d >= 0)) {
+			m_Pos--;
+		}
+	}
+
+	/**
+	 * Returns the type of the current token.
+	 *
+	 * @return the type
+	 */
+	public int getType() {
+		return m_Type;
+	}
+
+	/**
+	 * Sets the type of the current token, eg. to turn a quoted string into a
+	 * word.
+	 *
+	 * @param type
+	 *            the new type
+	 */
+	public void setType(int type) {
+		m_Type = type;
+	}
+
+	/**
+	 * Returns whether the current token is an unquoted "?".
+	 *
+	 * @return true if the token is a missing value
+	 */
+	public boolean isMissingValue() {
+		return (m_Type == StreamTokenizer.TT_WORD) && (m_TokenLength == 1) && (m_Token[0] == '?');
+	}
+
+	/**
+	 * Returns the current token as a string, like StreamTokenizer.sval.
+	 *
+	 * @return the token, null if the token is not a word or a quoted string
+	 */
+	public String stringValue() {
+		if ((m_Type == StreamTokenizer.TT_WORD) || (m_Type == '?')
+				|| ((m_Type >= 0) && (charType(m_Type) == CT_QUOTE))) {
+			return new String(m_Token, 0, m_TokenLength);
+		}
+		return null;
+	}
+
+	/**
+	 * Parses the current token as a double. Plain decimal numbers with up to
+	 * 15 significant digits and small exponents are converted directly (and
+	 * exactly, since both the mantissa and the power of ten are exact
+	 * doubles); everything else goes through Double.parseDouble.
+	 *
+	 * @return the number
+	 * @throws NumberFormatException
+	 *             if the token is not a number
+	 */
+	public double numberValue() {
+		char[] t = m_Token;
+		int n = m_TokenLength;
+		int i = 0;
+
+		boolean negative = false;
+		if ((n > 0) && ((t[0] == '-') || (t[0] == '+'))) {
+			negative = (t[0] == '-');
+			i++;
+		}
+
+		long mantissa = 0;
+		int start = i;
+		while ((i < n) && (t[i] >= '0') && (t[i] <= '9')) {
+			mantissa = mantissa * 10 + (t[i] - '0');
+			if (mantissa > MAX_EXACT_MANTISSA) {
+				return slowNumberValue();
+			}
+			i++;
+		}
+		int digits = i - start;
+
+		int exponent = 0;
+		if ((i < n) && (t[i] == '.')) {
+			i++;
+			start = i;
+			while ((i < n) && (t[i] >= '0') && (t[i] <= '9')) {
+				mantissa = mantissa * 10 + (t[i] - '0');
+				if (mantissa > MAX_EXACT_MANTISSA) {
+					return slowNumberValue();
+				}
+				i++;
+			}
+			digits += i - start;
+			exponent = start - i;
+		}
+		if (digits == 0) {
+			return slowNumberValue();
+		}
+
+		if ((i < n) && ((t[i] == 'e') || (t[i] == 'E'))) {
+			i++;
+			boolean negativeExponent = false;
+			if ((i < n) && ((t[i] == '-') || (t[i] == '+'))) {
+				negativeExponent = (t[i] == '-');
+				i++;
+			}
+			start = i;
+			int e = 0;
+			while ((i < n) && (t[i] >= '0') && (t[i] <= '9') && (i - start < 4)) {
+				e = e * 10 + (t[i] - '0');
+				i++;
+			}
+			if (i == start) {
+				return slowNumberValue();
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+		if (i != n) {
+			return slowNumberValue();
+		}
+
+		double value = mantissa;
+		if ((exponent != 0) && (mantissa != 0)) {
+			if ((exponent > 0) && (exponent < POWERS_OF_TEN.length)) {
+				value *= POWERS_OF_TEN[exponent];
+			} else if ((exponent < 0) && (-exponent < POWERS_OF_TEN.length)) {
+				value /= POWERS_OF_TEN[-exponent];
+			} else {
+				return slowNumberValue();
+			}
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses the current token with Double.parseDouble.
+	 *
+	 * @return the number
+	 * @throws NumberFormatException
+	 *             if the token is not a number
+	 */
+	protected double slowNumberValue() {
+		return Double.parseDouble(new String(m_Token, 0, m_TokenLength));
+	}
+
+	/**
+	 * Parses the current token as an int, accepting the same input as
+	 * Integer.parseInt.
+	 *
+	 * @return the number
+	 * @throws NumberFormatException
+	 *             if the token is not an int
+	 */
+	public int intValue() {
+		int n = m_TokenLength;
+		int i = 0;
+		boolean negative = false;
+		if ((n > 0) && ((m_Token[0] == '-') || (m_Token[0] == '+'))) {
+			negative = (m_Token[0] == '-');
+			i++;
+		}
+		// up to 9 digits can't overflow
+		if ((n == i) || (n - i > 9)) {
+			return Integer.parseInt(new String(m_Token, 0, m_TokenLength));
+		}
+		int value = 0;
+		for (; i < n; i++) {
+			char c = m_Token[i];
+			if ((c < '0') || (c > '9')) {
+				return Integer.parseInt(new String(m_Token, 0, m_TokenLength));
+			}
+			value = value * 10 + (c - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Returns the index of the current token among the labels of the given
+	 * nominal attribute. Same result as
+	 * <code>att.indexOfValue(stringValue())</code>.
+	 *
+	 * @param att
+	 *            the nominal attribute
+	 * @return the index of the label, -1 if it isn't declared
+	 */
+	public int indexOfValue(Attribute att) {
+		int index = att.index();
+		if ((index < 0) || !att.isNominal()) {
+			return att.indexOfValue(stringValue());
+		}
+		if (index >= m_NominalIndices.length) {
+			NominalIndex[] indices = new NominalIndex[index + 1];
+			System.arraycopy(m_NominalIndices, 0, indices, 0, m_NominalIndices.length);
+			m_NominalIndices = indices;
+		}
+		NominalIndex table = m_NominalIndices[index];
+		if ((table == null) || !table.isValidFor(att)) {
+			table = new NominalIndex(att);
+			m_NominalIndices[index] = table;
+		}
+		return table.indexOf(m_Token, m_TokenLength);
+	}
+
+	/**
+	 * Returns the current line number.
+	 *
+	 * @return the line number
+	 */
+	public int lineno() {
+		return m_LineNo;
+	}
+
+	/**
+	 * Returns a description of the current token in the same format as
+	 * StreamTokenizer.toString().
+	 *
+	 * @return the description
+	 */
+	@Override
+	public String toString() {
+		String ret;
+		switch (m_Type) {
+		case StreamTokenizer.TT_EOF:
+			ret = "EOF";
+			break;
+		case StreamTokenizer.TT_EOL:
+			ret = "EOL";
+			break;
+		case StreamTokenizer.TT_WORD:
+			ret = stringValue();
+			break;
+		case TT_NOTHING:
+			ret = "NOTHING";
+			break;
+		default:
+			if ((m_Type < 256) && (charType(m_Type) == CT_QUOTE)) {
+				ret = stringValue();
+			} else {
+				ret = "'" + (char) m_Type + "'";
+			}
+			break;
+		}
+		return "Token[" + ret + "], line " + m_LineNo;
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -0,0 +1,358 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    AsyncDataSink.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core.converters;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import core.AbstractInstance;
+import core.Instance;
+import core.Instances;
+import core.RevisionHandler;
+import core.RevisionUtils;
+
+/**
+ * Writes instances in ARFF format in the background, so that producing the
+ * instances overlaps with compressing and writing them. The instances handed to
+ * write(Instance) are formatted right away (see ArffInstanceFormatter), since
+ * their string, relational and nominal values are looked up in attributes that
+ * the producer may change afterwards (e.g., an incremental loader keeps only
+ * the current string value). The text is collected in batches and passed
+ * through a bounded queue to a writer thread that compresses (optionally) and
+ * writes it. When the queue is full, the producer blocks, so a slow disk slows
+ * down the producer instead of filling up memory. The output is the same as
+ * the one of ArffSaver in batch mode.
+ * <p/>
+ *
+ * close() writes the remaining instances, waits for the writer thread to
+ * finish and closes the stream; an error of the writer thread is reported by
+ * the next call of write(Instance) or by close(). A sink is meant to be fed by
+ * one thread. A sink that is never closed leaves its (daemon) writer thread
+ * waiting for more data forever.
+ *
+ * @version $Revision$
+ * @see ConverterUtils.DataSink
+ */
+public class AsyncDataSink implements Closeable, RevisionHandler {
+
+	/** the default number of instances per batch. */
+	public final static int BATCH_SIZE = 1024;
+
+	/** the default number of batches the queue can hold. */
+	public final static int QUEUE_CAPACITY = 16;
+
+	/** the milliseconds close() waits for an interrupted writer thread. */
+	public final static long CLOSE_TIMEOUT = 10000;
+
+	/** marks the end of the bytes. */
+	protected final static byte[] END_OF_BYTES = new byte[0];
+
+	/** the stream to write to. */
+	protected OutputStream m_Stream;
+
+	/** the number of decimal places for numeric values. */
+	protected int m_MaxDecimalPlaces;
+
+	/** the number of instances per batch. */
+	protected int m_BatchSize;
+
+	/** the formatter for the instances. */
+	protected ArffInstanceFormatter m_InstanceFormatter;
+
+	/** the text of the batch being filled. */
+	protected StringBuilder m_Batch = new StringBuilder();
+
+	/** the number of instances in the current batch. */
+	protected int m_BatchCount;
+
+	/** the formatted batches to write. */
+	protected BlockingQueue<byte[]> m_Bytes;
+
+	/** the writer thread. */
+	protected Thread m_Writer;
+
+	/** the first error of the writer thread, null if none. */
+	protected volatile Throwable m_Failure;
+
+	/** whether the sink has been closed. */
+	protected boolean m_Closed;
+
+	/**
+	 * Opens a sink for the given file, compressing the output if the name ends
+	 * with ".gz", and writes the header.
+	 *
+	 * @param filename
+	 *            the file to write to
+	 * @param structure
+	 *            the structure of the data
+	 * @throws IOException
+	 *             if the file cannot be created
+	 */
+	public AsyncDataSink(String filename, Instances structure) throws IOException {
+		this(new FileOutputStream(filename), structure, filename.endsWith(".gz"),
+				AbstractInstance.s_numericAfterDecimalPoint, BATCH_SIZE, QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Opens a sink for the given stream and writes the header.
+	 *
+	 * @param stream
+	 *            the stream to write to, is closed by close()
+	 * @param structure
+	 *            the structure of the data
+	 * @param compress
+	 *            whether to compress the output with GZIP (see
+	 *            ParallelGZIPOutputStream)
+	 * @param maxDecimalPlaces
+	 *            the maximum number of decimal places for numeric values
+	 * @param batchSize
+	 *            the number of instances per batch
+	 * @param queueCapacity
+	 *            the number of batches the queue can hold
+	 * @throws IOException
+	 *             if setting up compression fails
+	 */
+	public AsyncDataSink(OutputStream stream, Instances structure, boolean compress, int maxDecimalPlaces,
+			int batchSize, int queueCapacity) throws IOException {
+		if ((batchSize < 1) || (queueCapacity < 1)) {
+			throw new IllegalArgumentException("Batch size and queue capacity must be at least 1!");
+		}
+
+		if (!(stream instanceof BufferedOutputStream)) {
+			stream = new BufferedOutputStream(stream, 1 << 16);
+		}
+		if (compress) {
+			stream = new ParallelGZIPOutputStream(stream);
+		}
+		m_Stream = stream;
+		m_MaxDecimalPlaces = maxDecimalPlaces;
+		m_BatchSize = batchSize;
+		m_InstanceFormatter = new ArffInstanceFormatter(maxDecimalPlaces);
+		m_Bytes = new ArrayBlockingQueue<>(queueCapacity);
+
+		byte[] header = new Instances(structure, 0).toString().getBytes(Charset.defaultCharset());
+		m_Bytes.add(header);
+
+		m_Writer = new Thread(this::writeBatches, "AsyncDataSink-write");
+		m_Writer.setDaemon(true);
+		m_Writer.start();
+	}
+
+	/**
+	 * Formats an instance and hands it over for writing. Blocks if the queue is
+	 * full.
+	 *
+	 * @param inst
+	 *            the instance to write
+	 * @throws IOException
+	 *             if the sink is closed or formatting or writing failed
+	 */
+	public void write(Instance inst) throws IOException {
+		if (m_Closed) {
+			throw new IOException("Sink is closed!");
+		}
+		checkFailure();
+
+		m_Batch.append(m_InstanceFormatter.format(inst)).append(System.lineSeparator());
+		if (++m_BatchCount == m_BatchSize) {
+			flushBatch();
+		}
+	}
+
+	/**
+	 * Hands over the text of the current batch to the writer thread.
+	 *
+	 * @throws IOException
+	 *             if interrupted
+	 */
+	protected void flushBatch() throws IOException {
+		put(m_Bytes, m_Batch.toString().getBytes(Charset.defaultCharset()));
+		m_Batch.setLength(0);
+		m_BatchCount = 0;
+	}
+
+	/**
+	 * Hands over all instances of a dataset for writing.
+	 *
+	 * @param data
+	 *            the instances to write
+	 * @throws IOException
+	 *             if the sink is closed or formatting or writing failed
+	 */
+	public void write(Instances data) throws IOException {
+		for (int i = 0; i < data.numInstances(); i++) {
+			write(data.instance(i));
+		}
+	}
+
+	/**
+	 * Writes the remaining instances, waits for the writer thread and closes
+	 * the stream.
+	 *
+	 * @throws IOException
+	 *             if formatting, writing or closing failed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (m_Closed) {
+			return;
+		}
+		m_Closed = true;
+
+		try {
+			if (m_BatchCount > 0) {
+				flushBatch();
+			}
+			put(m_Bytes, END_OF_BYTES);
+			m_Writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing sink", e);
+		} finally {
+			m_Batch = null;
+			stopWriter();
+			if (m_Writer.isAlive()) {
+				fail(new IOException("Writer thread did not stop, stream left open"));
+			} else {
+				try {
+					m_Stream.close();
+				} catch (IOException e) {
+					fail(e);
+				}
+			}
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Interrupts the writer thread if it is still running and waits at most
+	 * CLOSE_TIMEOUT milliseconds for it to stop, so that the stream is not
+	 * closed while the thread is still writing to it. The interrupted status
+	 * of the calling thread is kept.
+	 */
+	protected void stopWriter() {
+		if (!m_Writer.isAlive()) {
+			return;
+		}
+		m_Writer.interrupt();
+		boolean interrupted = Thread.interrupted();
+		try {
+			m_Writer.join(CLOSE_TIMEOUT);
+		} catch (InterruptedException e) {
+			interrupted = true;
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Puts an item in a queue, waiting for space if necessary.
+	 *
+	 * @param queue
+	 *            the queue
+	 * @param item
+	 *            the item
+	 * @param <T>
+	 *            the type of the items
+	 * @throws IOException
+	 *             if interrupted
+	 */
+	protected <T> void put(BlockingQueue<T> queue, T item) throws IOException {
+		try {
+			queue.put(item);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing to sink", e);
+		}
+	}
+
+	/**
+	 * Records the first error of the writer thread.
+	 *
+	 * @param t
+	 *            the error
+	 */
+	protected synchronized void fail(Throwable t) {
+		if (m_Failure == null) {
+			m_Failure = t;
+		}
+	}
+
+	/**
+	 * Throws the first error of the writer thread, if any.
+	 *
+	 * @throws IOException
+	 *             wrapping the error
+	 */
+	protected void checkFailure() throws IOException {
+		Throwable failure = m_Failure;
+		if (failure != null) {
+			throw new IOException("Writing to sink failed: " + failure.getMessage(), failure);
+		}
+	}
+
+	/**
+	 * The writer thread: writes the formatted batches to the stream. After an
+	 * error it only consumes the batches, so that the producer never blocks
+	 * forever.
+	 */
+	protected void writeBatches() {
+		try {
+			while (true) {
+				byte[] bytes = m_Bytes.take();
+				if (bytes == END_OF_BYTES) {
+					break;
+				}
+				if (m_Failure != null) {
+					continue;
+				}
+				try {
+					m_Stream.write(bytes);
+				} catch (IOException | RuntimeException | Error e) {
+					fail(e);
+				}
+			}
+			if (m_Failure == null) {
+				m_Stream.flush();
+			}
+		} catch (IOException | InterruptedException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -0,0 +1,763 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    BinaryInstancesChunk.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import core.Attribute;
+import core.DenseInstance;
+import core.Instance;
+import core.Instances;
+import core.RevisionHandler;
+import core.RevisionUtils;
+import core.SparseInstance;
+import core.Utils;
+
+/**
+ * A block of rows of the binary instances format, held column by column. The
+ * saver collects instances into a chunk and writes it once it is full, the
+ * loader reads one chunk at a time and turns its rows back into instances.
+ * <p/>
+ *
+ * A chunk is stored as the number of rows and the number of bytes that follow,
+ * the statistics of all attribute columns, the weight column, the column that
+ * flags sparse rows and finally one column per attribute. Numeric and date
+ * columns are stored as raw doubles, nominal columns as label indices of 1, 2
+ * or 4 bytes. String and relational columns start with a dictionary of the
+ * distinct values of the chunk and store indices into that dictionary. Any
+ * column is run-length encoded instead whenever this is smaller, which is the
+ * case for mostly zero sparse columns, mostly missing columns and the weights
+ * of unweighted data.
+ *
+ * @version $Revision$
+ * @see BinaryInstancesLoader
+ * @see BinaryInstancesSaver
+ */
+public class BinaryInstancesChunk implements RevisionHandler {
+
+	/** values stored as doubles */
+	public static final byte ENCODING_RAW = 0;
+
+	/** values stored as indices of 1, 2 or 4 bytes */
+	public static final byte ENCODING_DICTIONARY = 1;
+
+	/** values stored as runs of equal values */
+	public static final byte ENCODING_RLE = 2;
+
+	/** the number of rows the columns have room for initially */
+	public static final int INITIAL_ROWS = 64;
+
+	/**
+	 * Summary of one attribute column of a chunk. Minimum, maximum and sum are
+	 * taken over the non-missing values in internal format, so they are only
+	 * meaningful for numeric and date attributes.
+	 */
+	public static class ColumnStatistics implements Serializable {
+
+		/** for serialization */
+		private static final long serialVersionUID = -3128842307624913544L;
+
+		/** the encoding used for the column */
+		protected byte m_Encoding;
+
+		/** the number of missing values */
+		protected int m_MissingCount;
+
+		/** the smallest non-missing value */
+		protected double m_Min = Double.NaN;
+
+		/** the largest non-missing value */
+		protected double m_Max = Double.NaN;
+
+		/** the sum of the non-missing values */
+		protected double m_Sum;
+
+		/**
+		 * Returns the encoding used for the column.
+		 *
+		 * @return one of the ENCODING_* constants
+		 */
+		public byte getEncoding() {
+			return m_Encoding;
+		}
+
+		/**
+		 * Returns the number of missing values in the column.
+		 *
+		 * @return the number of missing values
+		 */
+		public int getMissingCount() {
+			return m_MissingCount;
+		}
+
+		/**
+		 * Returns the smallest non-missing value.
+		 *
+		 * @return the minimum, NaN if all values are missing
+		 */
+		public double getMin() {
+			return m_Min;
+		}
+
+		/**
+		 * Returns the largest non-missing value.
+		 *
+		 * @return the maximum, NaN if all values are missing
+		 */
+		public double getMax() {
+			return m_Max;
+		}
+
+		/**
+		 * Returns the sum of the non-missing values.
+		 *
+		 * @return the sum
+		 */
+		public double getSum() {
+			return m_Sum;
+		}
+
+		/**
+		 * Returns a short description of the statistics.
+		 *
+		 * @return the description
+		 */
+		@Override
+		public String toString() {
+			return "encoding=" + m_Encoding + ", missing=" + m_MissingCount + ", min=" + m_Min + ", max=" + m_Max
+					+ ", sum=" + m_Sum;
+		}
+	}
+
+	/** the header the rows belong to */
+	protected Instances m_Header;
+
+	/** the maximum number of rows */
+	protected int m_Capacity;
+
+	/** the number of rows in the chunk */
+	protected int m_NumRows;
+
+	/** the weights of the rows */
+	protected double[] m_Weights;
+
+	/** 1 for sparse rows, 0 for dense ones */
+	protected double[] m_Sparse;
+
+	/**
+	 * the columns, string and relational columns hold indices into the
+	 * dictionaries
+	 */
+	protected double[][] m_Columns;
+
+	/** the distinct values of string and relational columns, null otherwise */
+	protected List<Object>[] m_Dictionaries;
+
+	/** for looking up string values while filling the chunk */
+	protected HashMap<String, Integer>[] m_StringIndices;
+
+	/** for looking up relational values while filling the chunk */
+	protected IdentityHashMap<Instances, Integer>[] m_RelationIndices;
+
+	/** the statistics of the attribute columns */
+	protected ColumnStatistics[] m_Statistics;
+
+	/**
+	 * Creates an empty chunk that can hold the given number of rows. The
+	 * columns start small and grow as rows are added.
+	 *
+	 * @param header
+	 *            the structure of the rows
+	 * @param capacity
+	 *            the maximum number of rows
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public BinaryInstancesChunk(Instances header, int capacity) {
+
+		int numAtts = header.numAttributes();
+		int rows = Math.min(capacity, INITIAL_ROWS);
+		m_Header = header;
+		m_Capacity = capacity;
+		m_Weights = new double[rows];
+		m_Sparse = new double[rows];
+		m_Columns = new double[numAtts][rows];
+		m_Dictionaries = new List[numAtts];
+		m_StringIndices = new HashMap[numAtts];
+		m_RelationIndices = new IdentityHashMap[numAtts];
+		for (int i = 0; i < numAtts; i++) {
+			if (header.attribute(i).isString()) {
+				m_Dictionaries[i] = new ArrayList<>();
+				m_StringIndices[i] = new HashMap<>();
+			} else if (header.attribute(i).isRelationValued()) {
+				m_Dictionaries[i] = new ArrayList<>();
+				m_RelationIndices[i] = new IdentityHashMap<>();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of rows in the chunk.
+	 *
+	 * @return the number of rows
+	 */
+	public int numRows() {
+		return m_NumRows;
+	}
+
+	/**
+	 * Returns the number of rows the chunk can hold.
+	 *
+	 * @return the capacity
+	 */
+	public int capacity() {
+		return m_Capacity;
+	}
+
+	/**
+	 * Makes room for the given number of rows in the columns, keeping the
+	 * rows added so far.
+	 *
+	 * @param rows
+	 *            the number of rows
+	 */
+	protected void ensureRows(int rows) {
+
+		if (rows <= m_Weights.length) {
+			return;
+		}
+		m_Weights = Arrays.copyOf(m_Weights, rows);
+		m_Sparse = Arrays.copyOf(m_Sparse, rows);
+		for (int i = 0; i < m_Columns.length; i++) {
+			m_Columns[i] = Arrays.copyOf(m_Columns[i], rows);
+		}
+	}
+
+	/**
+	 * Returns the statistics of the attribute columns. Only available after
+	 * the chunk has been written or read.
+	 *
+	 * @return the statistics, one per attribute
+	 */
+	public ColumnStatistics[] getStatistics() {
+		return m_Statistics;
+	}
+
+	/**
+	 * Removes all rows from the chunk.
+	 */
+	public void clear() {
+
+		m_NumRows = 0;
+		m_Statistics = null;
+		for (int i = 0; i < m_Dictionaries.length; i++) {
+			if (m_Dictionaries[i] != null) {
+				m_Dictionaries[i].clear();
+			}
+			if (m_StringIndices[i] != null) {
+				m_StringIndices[i].clear();
+			}
+			if (m_RelationIndices[i] != null) {
+				m_RelationIndices[i].clear();
+			}
+		}
+	}
+
+	/**
+	 * Appends an instance to the chunk. String and relational values are
+	 * looked up in the instance's dataset right away, so the dataset may drop
+	 * them once this method returns.
+	 *
+	 * @param inst
+	 *            the instance to add
+	 * @throws IllegalStateException
+	 *             if the chunk is full
+	 */
+	public void add(Instance inst) {
+
+		if (m_NumRows == capacity()) {
+			throw new IllegalStateException("Chunk is full!");
+		}
+		int row = m_NumRows++;
+		if (row == m_Weights.length) {
+			ensureRows((int) Math.min(m_Capacity, Math.max(2L * row, INITIAL_ROWS)));
+		}
+		m_Weights[row] = inst.weight();
+		m_Sparse[row] = (inst instanceof SparseInstance) ? 1 : 0;
+		for (int i = 0; i < m_Columns.length; i++) {
+			m_Columns[i][row] = 0;
+		}
+		for (int j = 0; j < inst.numValues(); j++) {
+			m_Columns[inst.index(j)][row] = inst.valueSparse(j);
+		}
+		for (int i = 0; i < m_Columns.length; i++) {
+			if (m_Dictionaries[i] != null && !Utils.isMissingValue(m_Columns[i][row])) {
+				m_Columns[i][row] = (m_StringIndices[i] != null) ? stringIndex(i, inst.stringValue(i))
+						: relationIndex(i, inst.relationalValue(i));
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the string in the dictionary of the column, adding
+	 * it if necessary.
+	 *
+	 * @param column
+	 *            the column
+	 * @param value
+	 *            the string
+	 * @return the index
+	 */
+	protected int stringIndex(int column, String value) {
+
+		Integer index = m_StringIndices[column].get(value);
+		if (index == null) {
+			index = m_Dictionaries[column].size();
+			m_Dictionaries[column].add(value);
+			m_StringIndices[column].put(value, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the index of the relation in the dictionary of the column, adding
+	 * it if necessary.
+	 *
+	 * @param column
+	 *            the column
+	 * @param value
+	 *            the relation
+	 * @return the index
+	 */
+	protected int relationIndex(int column, Instances value) {
+
+		Integer index = m_RelationIndices[column].get(value);
+		if (index == null) {
+			index = m_Dictionaries[column].size();
+			m_Dictionaries[column].add(value);
+			m_RelationIndices[column].put(value, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Turns a row of the chunk into an instance. String and relational values
+	 * are added to the attributes of the given dataset.
+	 *
+	 * @param row
+	 *            the row
+	 * @param dataset
+	 *            the dataset to add the values to and to set for the instance
+	 * @param retainStrings
+	 *            if false, string attributes only keep the value of this row
+	 * @return the instance
+	 */
+	public Instance instance(int row, Instances dataset, boolean retainStrings) {
+
+		double[] values = new double[m_Columns.length];
+		for (int i = 0; i < values.length; i++) {
+			double value = m_Columns[i][row];
+			if (m_Dictionaries[i] != null && !Utils.isMissingValue(value)) {
+				Attribute att = dataset.attribute(i);
+				Object entry = m_Dictionaries[i].get((int) value);
+				if (att.isRelationValued()) {
+					value = att.addRelation((Instances) entry);
+				} else if (retainStrings) {
+					value = att.addStringValue((String) entry);
+				} else {
+					att.setStringValue((String) entry);
+					value = 0;
+				}
+			}
+			values[i] = value;
+		}
+
+		Instance result;
+		if (m_Sparse[row] != 0) {
+			result = new SparseInstance(m_Weights[row], values);
+		} else {
+			result = new DenseInstance(m_Weights[row], values);
+		}
+		result.setDataset(dataset);
+		return result;
+	}
+
+	/**
+	 * Writes the chunk to the stream. Computes the statistics of the
+	 * columns on the way.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void write(DataOutputStream out) throws IOException {
+
+		int numAtts = m_Columns.length;
+		byte[][] dictionaries = new byte[numAtts][];
+		ByteBuffer[] columns = new ByteBuffer[numAtts];
+		m_Statistics = new ColumnStatistics[numAtts];
+		int length = numAtts * (4 + 3 * 8);
+		for (int i = 0; i < numAtts; i++) {
+			m_Statistics[i] = statistics(m_Columns[i]);
+			if (m_Dictionaries[i] != null) {
+				dictionaries[i] = encodeDictionary(m_Dictionaries[i], m_Header.attribute(i).isRelationValued());
+				length += dictionaries[i].length;
+			}
+			int size = m_Dictionaries[i] != null ? m_Dictionaries[i].size() : m_Header.attribute(i).numValues();
+			columns[i] = encodeColumn(m_Columns[i], m_Header.attribute(i).isNumeric() ? -1 : size);
+			m_Statistics[i].m_Encoding = columns[i].get(0);
+			length += columns[i].limit();
+		}
+		ByteBuffer weights = encodeColumn(m_Weights, -1);
+		ByteBuffer sparse = encodeColumn(m_Sparse, 2);
+		length += weights.limit() + sparse.limit();
+
+		out.writeInt(m_NumRows);
+		out.writeInt(length);
+		for (ColumnStatistics stats : m_Statistics) {
+			out.writeInt(stats.m_MissingCount);
+			out.writeDouble(stats.m_Min);
+			out.writeDouble(stats.m_Max);
+			out.writeDouble(stats.m_Sum);
+		}
+		out.write(weights.array(), 0, weights.limit());
+		out.write(sparse.array(), 0, sparse.limit());
+		for (int i = 0; i < numAtts; i++) {
+			if (dictionaries[i] != null) {
+				out.write(dictionaries[i]);
+			}
+			out.write(columns[i].array(), 0, columns[i].limit());
+		}
+	}
+
+	/**
+	 * Reads the next chunk from the stream into this chunk, growing it if
+	 * necessary.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 * @return false if the end of the data was reached
+	 * @throws IOException
+	 *             if reading fails or the chunk is corrupt
+	 */
+	public boolean read(DataInputStream in) throws IOException {
+
+		clear();
+		int numRows = in.readInt();
+		if (numRows == 0) {
+			return false;
+		}
+		if (numRows < 0) {
+			throw new IOException("Corrupt chunk: " + numRows + " rows!");
+		}
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+		if (numRows > m_Weights.length) {
+			m_Weights = new double[numRows];
+			m_Sparse = new double[numRows];
+			m_Columns = new double[m_Columns.length][numRows];
+		}
+		m_Capacity = Math.max(m_Capacity, numRows);
+		m_NumRows = numRows;
+		try {
+			m_Statistics = new ColumnStatistics[m_Columns.length];
+			for (int i = 0; i < m_Statistics.length; i++) {
+				m_Statistics[i] = new ColumnStatistics();
+				m_Statistics[i].m_MissingCount = buffer.getInt();
+				m_Statistics[i].m_Min = buffer.getDouble();
+				m_Statistics[i].m_Max = buffer.getDouble();
+				m_Statistics[i].m_Sum = buffer.getDouble();
+			}
+			decodeColumn(buffer, m_Weights, numRows);
+			decodeColumn(buffer, m_Sparse, numRows);
+			for (int i = 0; i < m_Columns.length; i++) {
+				if (m_Dictionaries[i] != null) {
+					decodeDictionary(buffer, m_Dictionaries[i], m_Header.attribute(i).isRelationValued());
+				}
+				m_Statistics[i].m_Encoding = decodeColumn(buffer, m_Columns[i], numRows);
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt chunk: " + e);
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the statistics of the first numRows() values of a column.
+	 *
+	 * @param column
+	 *            the column
+	 * @return the statistics, without encoding
+	 */
+	protected ColumnStatistics statistics(double[] column) {
+
+		ColumnStatistics result = new ColumnStatistics();
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int r = 0; r < m_NumRows; r++) {
+			double value = column[r];
+			if (Utils.isMissingValue(value)) {
+				result.m_MissingCount++;
+				continue;
+			}
+			if (value < min) {
+				min = value;
+			}
+			if (value > max) {
+				max = value;
+			}
+			result.m_Sum += value;
+		}
+		if (result.m_MissingCount < m_NumRows) {
+			result.m_Min = min;
+			result.m_Max = max;
+		}
+		return result;
+	}
+
+	/**
+	 * Encodes the first numRows() values of a column, picking whichever of the
+	 * available encodings is smallest. The first byte of the result is the
+	 * encoding.
+	 *
+	 * @param column
+	 *            the column
+	 * @param numCodes
+	 *            the number of distinct indices the column holds, -1 for
+	 *            columns of arbitrary doubles
+	 * @return the encoded column, positioned at 0 with the limit at its end
+	 */
+	protected ByteBuffer encodeColumn(double[] column, int numCodes) {
+
+		int runs = 0;
+		for (int r = 0; r < m_NumRows; r++) {
+			if (r == 0 || !sameValue(column[r], column[r - 1])) {
+				runs++;
+			}
+		}
+		int width = (numCodes < 0) ? 8 : (numCodes <= Byte.MAX_VALUE) ? 1 : (numCodes <= Short.MAX_VALUE) ? 2 : 4;
+		long plainSize = 1 + (numCodes < 0 ? 0 : 1) + (long) m_NumRows * width;
+		long rleSize = 1 + 4 + (long) runs * (4 + 8);
+
+		ByteBuffer result;
+		if (rleSize < plainSize) {
+			result = ByteBuffer.allocate((int) rleSize);
+			result.put(ENCODING_RLE);
+			result.putInt(runs);
+			int start = 0;
+			for (int r = 1; r <= m_NumRows; r++) {
+				if (r == m_NumRows || !sameValue(column[r], column[start])) {
+					result.putInt(r - start);
+					result.putDouble(column[start]);
+					start = r;
+				}
+			}
+		} else if (numCodes < 0) {
+			result = ByteBuffer.allocate((int) plainSize);
+			result.put(ENCODING_RAW);
+			for (int r = 0; r < m_NumRows; r++) {
+				result.putDouble(column[r]);
+			}
+		} else {
+			result = ByteBuffer.allocate((int) plainSize);
+			result.put(ENCODING_DICTIONARY);
+			result.put((byte) width);
+			for (int r = 0; r < m_NumRows; r++) {
+				int code = Utils.isMissingValue(column[r]) ? -1 : (int) column[r];
+				if (width == 1) {
+					result.put((byte) code);
+				} else if (width == 2) {
+					result.putShort((short) code);
+				} else {
+					result.putInt(code);
+				}
+			}
+		}
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * Decodes a column written by encodeColumn.
+	 *
+	 * @param buffer
+	 *            the buffer positioned at the column
+	 * @param column
+	 *            the array to decode into
+	 * @param numRows
+	 *            the number of rows
+	 * @return the encoding of the column
+	 * @throws IOException
+	 *             if the encoding is unknown or the runs do not add up
+	 */
+	protected static byte decodeColumn(ByteBuffer buffer, double[] column, int numRows) throws IOException {
+
+		byte encoding = buffer.get();
+		switch (encoding) {
+		case ENCODING_RAW:
+			buffer.asDoubleBuffer().get(column, 0, numRows);
+			buffer.position(buffer.position() + numRows * 8);
+			break;
+		case ENCODING_DICTIONARY:
+			int width = buffer.get();
+			for (int r = 0; r < numRows; r++) {
+				int code = (width == 1) ? buffer.get() : (width == 2) ? buffer.getShort() : buffer.getInt();
+				column[r] = (code < 0) ? Utils.missingValue() : code;
+			}
+			break;
+		case ENCODING_RLE:
+			int runs = buffer.getInt();
+			int row = 0;
+			for (int i = 0; i < runs; i++) {
+				int length = buffer.getInt();
+				double value = buffer.getDouble();
+				if (length <= 0 || row + length > numRows) {
+					throw new IOException("Corrupt chunk: run of " + length + " rows at row " + row + "!");
+				}
+				Arrays.fill(column, row, row + length, value);
+				row += length;
+			}
+			if (row != numRows) {
+				throw new IOException("Corrupt chunk: runs cover " + row + " of " + numRows + " rows!");
+			}
+			break;
+		default:
+			throw new IOException("Corrupt chunk: unknown encoding " + encoding + "!");
+		}
+		return encoding;
+	}
+
+	/**
+	 * Encodes the dictionary of a string or relational column. Strings are
+	 * stored as UTF-8, relations are serialized.
+	 *
+	 * @param dictionary
+	 *            the distinct values
+	 * @param relational
+	 *            whether the values are relations
+	 * @return the encoded dictionary
+	 * @throws IOException
+	 *             if serializing fails
+	 */
+	protected static byte[] encodeDictionary(List<Object> dictionary, boolean relational) throws IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		if (relational) {
+			ByteArrayOutputStream objects = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(objects)) {
+				oos.writeInt(dictionary.size());
+				for (Object value : dictionary) {
+					oos.writeObject(value);
+				}
+			}
+			out.writeInt(objects.size());
+			objects.writeTo(out);
+		} else {
+			out.writeInt(dictionary.size());
+			for (Object value : dictionary) {
+				byte[] utf = ((String) value).getBytes(StandardCharsets.UTF_8);
+				out.writeInt(utf.length);
+				out.write(utf);
+			}
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes a dictionary written by encodeDictionary.
+	 *
+	 * @param buffer
+	 *            the buffer positioned at the dictionary
+	 * @param dictionary
+	 *            the list to add the values to
+	 * @param relational
+	 *            whether the values are relations
+	 * @throws IOException
+	 *             if deserializing fails
+	 */
+	protected static void decodeDictionary(ByteBuffer buffer, List<Object> dictionary, boolean relational)
+			throws IOException {
+
+		if (relational) {
+			int length = buffer.getInt();
+			try (ObjectInputStream ois = new ObjectInputStream(
+					new ByteArrayInputStream(buffer.array(), buffer.position(), length))) {
+				int size = ois.readInt();
+				for (int i = 0; i < size; i++) {
+					dictionary.add(ois.readObject());
+				}
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Corrupt chunk: " + e);
+			}
+			buffer.position(buffer.position() + length);
+		} else {
+			int size = buffer.getInt();
+			for (int i = 0; i < size; i++) {
+				int length = buffer.getInt();
+				dictionary.add(new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8));
+				buffer.position(buffer.position() + length);
+			}
+		}
+	}
+
+	/**
+	 * Whether two values belong to the same run. All missing values are the
+	 * same.
+	 *
+	 * @param a
+	 *            the first value
+	 * @param b
+	 *            the second value
+	 * @return true if the values are the same
+	 */
+	protected static boolean sameValue(double a, double b) {
+		return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -0,0 +1,347 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    BinaryInstancesLoader.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core.converters;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import core.Instance;
+import core.Instances;
+import core.RevisionUtils;
+
+/**
+ * Reads a source that is in the binary instances format written by
+ * {@link BinaryInstancesSaver}. The file starts with a magic number, the
+ * format version and the serialized header, followed by chunks of rows stored
+ * column by column (see {@link BinaryInstancesChunk}) and a chunk of zero rows
+ * marking the end. Reading needs no parsing of numbers or labels, and the data
+ * can be read in batch mode as well as incrementally, one chunk at a time.
+ *
+ * @version $Revision$
+ * @see Loader
+ */
+public class BinaryInstancesLoader extends AbstractFileLoader implements BatchConverter, IncrementalConverter {
+
+	/** for serialization */
+	private static final long serialVersionUID = -6093437155842771328L;
+
+	/** the file extension */
+	public static String FILE_EXTENSION = ".bci";
+
+	/** the magic number at the start of a file ("WBCI") */
+	public static final int MAGIC = 0x57424349;
+
+	/** the version of the format */
+	public static final int VERSION = 1;
+
+	/** The stream for the source file. */
+	protected transient DataInputStream m_sourceStream = null;
+
+	/** The chunk currently read in incremental mode. */
+	protected transient BinaryInstancesChunk m_Chunk = null;
+
+	/** The next row of the current chunk. */
+	protected int m_ChunkRow;
+
+	/** The statistics of the chunks read so far. */
+	protected transient List<BinaryInstancesChunk.ColumnStatistics[]> m_ChunkStatistics = new ArrayList<>();
+
+	/**
+	 * Whether the values of string attributes should be retained in memory when
+	 * reading incrementally
+	 */
+	protected boolean m_retainStringVals;
+
+	/**
+	 * Returns a string describing this Loader
+	 *
+	 * @return a description of the Loader suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String globalInfo() {
+		return "Reads a source that is in the binary, column-chunked instances format. ";
+	}
+
+	/**
+	 * Tool tip text for this property
+	 *
+	 * @return the tool tip for this property
+	 */
+	public String retainStringValsTipText() {
+		return "If true then the values of string attributes are "
+				+ "retained in memory when reading incrementally. Leave this "
+				+ "set to false when using incremental classifiers in the " + "Knowledge Flow.";
+	}
+
+	/**
+	 * Set whether to retain the values of string attributes in memory (in the
+	 * header) when reading incrementally.
+	 *
+	 * @param retain
+	 *            true if string values are to be retained in memory when
+	 *            reading incrementally
+	 */
+	public void setRetainStringVals(boolean retain) {
+		m_retainStringVals = retain;
+	}
+
+	/**
+	 * Get whether to retain the values of string attributes in memory (in the
+	 * header) when reading incrementally.
+	 *
+	 * @return true if string values are to be retained in memory when reading
+	 *         incrementally
+	 */
+	public boolean getRetainStringVals() {
+		return m_retainStringVals;
+	}
+
+	/**
+	 * Get the file extension used for binary instances files
+	 *
+	 * @return the file extension
+	 */
+	@Override
+	public String getFileExtension() {
+		return FILE_EXTENSION;
+	}
+
+	/**
+	 * Gets all the file extensions used for this type of file
+	 *
+	 * @return the file extensions
+	 */
+	@Override
+	public String[] getFileExtensions() {
+		return new String[] { FILE_EXTENSION };
+	}
+
+	/**
+	 * Returns a description of the file type.
+	 *
+	 * @return a short file description
+	 */
+	@Override
+	public String getFileDescription() {
+		return "Binary instances files";
+	}
+
+	/**
+	 * Resets the Loader ready to read a new data set or the same data set
+	 * again.
+	 *
+	 * @throws IOException
+	 *             if something goes wrong
+	 */
+	@Override
+	public void reset() throws IOException {
+
+		m_structure = null;
+		m_Chunk = null;
+		m_ChunkStatistics = new ArrayList<>();
+		setRetrieval(NONE);
+
+		if (m_File != null && !(new File(m_File).isDirectory())) {
+			setFile(new File(m_File));
+		}
+	}
+
+	/**
+	 * Resets the Loader object and sets the source of the data set to be the
+	 * supplied InputStream.
+	 *
+	 * @param in
+	 *            the source InputStream.
+	 * @throws IOException
+	 *             always thrown.
+	 */
+	@Override
+	public void setSource(InputStream in) throws IOException {
+
+		m_File = (new File(System.getProperty("user.dir"))).getAbsolutePath();
+		m_Chunk = null;
+		m_ChunkStatistics = new ArrayList<>();
+		m_sourceStream = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+	}
+
+	/**
+	 * Determines and returns (if possible) the structure (internally the
+	 * header) of the data set as an empty set of instances.
+	 *
+	 * @return the structure of the data set as an empty set of Instances
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	@Override
+	public Instances getStructure() throws IOException {
+
+		if (m_structure == null) {
+			if (m_sourceStream == null) {
+				throw new IOException("No source has been specified");
+			}
+
+			if (m_sourceStream.readInt() != MAGIC) {
+				throw new IOException("Not a binary instances file!");
+			}
+			int version = m_sourceStream.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported binary instances version " + version + "!");
+			}
+			byte[] header = new byte[m_sourceStream.readInt()];
+			m_sourceStream.readFully(header);
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(header))) {
+				m_structure = (Instances) ois.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Unable to determine structure as binary instances (Reason: " + e + ").");
+			}
+		}
+
+		return new Instances(m_structure, 0);
+	}
+
+	/**
+	 * Return the full data set. If the structure hasn't yet been determined by
+	 * a call to getStructure then method should do so before processing the
+	 * rest of the data set.
+	 *
+	 * @return the full data set
+	 * @throws IOException
+	 *             if there is no source or reading fails
+	 */
+	@Override
+	public Instances getDataSet() throws IOException {
+
+		Instances insts = null;
+		try {
+			if (m_sourceStream == null) {
+				throw new IOException("No source has been specified");
+			}
+			if (getRetrieval() == INCREMENTAL) {
+				throw new IOException("Cannot mix getting Instances in both incremental and batch modes");
+			}
+			setRetrieval(BATCH);
+			if (m_structure == null) {
+				getStructure();
+			}
+
+			insts = new Instances(m_structure, 0);
+			BinaryInstancesChunk chunk = new BinaryInstancesChunk(m_structure, 0);
+			while (chunk.read(m_sourceStream)) {
+				m_ChunkStatistics.add(chunk.getStatistics());
+				for (int i = 0; i < chunk.numRows(); i++) {
+					insts.add(chunk.instance(i, insts, true));
+				}
+			}
+		} finally {
+			if (m_sourceStream != null) {
+				// close the stream
+				m_sourceStream.close();
+				m_sourceStream = null;
+			}
+		}
+
+		return insts;
+	}
+
+	/**
+	 * Read the data set incrementally---get the next instance in the data set
+	 * or returns null if there are no more instances to get. If the structure
+	 * hasn't yet been determined by a call to getStructure then method should
+	 * do so before returning the next instance in the data set.
+	 *
+	 * @param structure
+	 *            the dataset header information, will get updated in case of
+	 *            string or relational attributes
+	 * @return the next instance in the data set as an Instance object or null
+	 *         if there are no more instances to be read
+	 * @throws IOException
+	 *             if there is an error during reading
+	 */
+	@Override
+	public Instance getNextInstance(Instances structure) throws IOException {
+
+		if (getRetrieval() == BATCH) {
+			throw new IOException("Cannot mix getting Instances in both incremental and batch modes");
+		}
+		setRetrieval(INCREMENTAL);
+
+		if (m_sourceStream == null) {
+			return null;
+		}
+		if (m_structure == null) {
+			getStructure();
+		}
+		if (m_Chunk == null) {
+			m_Chunk = new BinaryInstancesChunk(m_structure, 0);
+		}
+		if (m_ChunkRow >= m_Chunk.numRows()) {
+			m_ChunkRow = 0;
+			if (!m_Chunk.read(m_sourceStream)) {
+				// close the stream
+				m_sourceStream.close();
+				m_sourceStream = null;
+				m_Chunk = null;
+				return null;
+			}
+			m_ChunkStatistics.add(m_Chunk.getStatistics());
+		}
+
+		return m_Chunk.instance(m_ChunkRow++, structure, m_retainStringVals);
+	}
+
+	/**
+	 * Returns the statistics of the chunks read so far, one array with an
+	 * entry per attribute for each chunk.
+	 *
+	 * @return the statistics
+	 */
+	public List<BinaryInstancesChunk.ColumnStatistics[]> getChunkStatistics() {
+		return m_ChunkStatistics;
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+
+	/**
+	 * Main method.
+	 *
+	 * @param args
+	 *            should contain the name of an input file.
+	 */
+	public static void main(String[] args) {
+		runFileLoader(new BinaryInstancesLoader(), args);
+	}
+}
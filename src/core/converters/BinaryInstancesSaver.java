@@ -0,0 +1,461 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    BinaryInstancesSaver.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core.converters;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
+
+import core.Capabilities;
+import core.Capabilities.Capability;
+import core.Instance;
+import core.InstanceStream;
+import core.Instances;
+import core.Option;
+import core.RevisionUtils;
+import core.Utils;
+
+/**
+ * Writes to a destination in the binary instances format read by
+ * {@link BinaryInstancesLoader}. Rows are collected into chunks that are
+ * stored column by column, see {@link BinaryInstancesChunk} for the
+ * encodings.
+ * <p/>
+ *
+ * <!-- options-start --> Valid options are:
+ * <p/>
+ *
+ * <pre>
+ * -i &lt;the input file&gt;
+ *  The input file
+ * </pre>
+ *
+ * <pre>
+ * -o &lt;the output file&gt;
+ *  The output file
+ * </pre>
+ *
+ * <pre>
+ * -chunk-size &lt;num&gt;
+ *  The number of rows per chunk
+ *  (default: 65536)
+ * </pre>
+ *
+ * <!-- options-end -->
+ *
+ * @version $Revision$
+ * @see Saver
+ */
+public class BinaryInstancesSaver extends AbstractFileSaver implements BatchConverter, IncrementalConverter {
+
+	/** for serialization */
+	private static final long serialVersionUID = 5237806124465293019L;
+
+	/** the default number of rows per chunk */
+	public static final int DEFAULT_CHUNK_SIZE = 65536;
+
+	/** the number of rows per chunk */
+	protected int m_ChunkSize = DEFAULT_CHUNK_SIZE;
+
+	/** the stream to write to */
+	protected transient DataOutputStream m_Output;
+
+	/** the rows not yet written */
+	protected transient BinaryInstancesChunk m_Chunk;
+
+	/** Constructor */
+	public BinaryInstancesSaver() {
+
+		resetOptions();
+	}
+
+	/**
+	 * Returns an enumeration describing the available options.
+	 *
+	 * @return an enumeration of all the available options.
+	 */
+	@Override
+	public Enumeration<Option> listOptions() {
+		Vector<Option> result = new Vector<>();
+
+		result.addElement(new Option("\tThe number of rows per chunk\n" + "\t(default: " + DEFAULT_CHUNK_SIZE + ")",
+				"chunk-size", 1, "-chunk-size <num>"));
+
+		result.addAll(Collections.list(super.listOptions()));
+
+		return result.elements();
+	}
+
+	/**
+	 * returns the options of the current setup
+	 *
+	 * @return the current options
+	 */
+	@Override
+	public String[] getOptions() {
+
+		Vector<String> result = new Vector<>();
+
+		result.add("-chunk-size");
+		result.add("" + getChunkSize());
+
+		Collections.addAll(result, super.getOptions());
+
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * Parses the options for this object.
+	 * <p/>
+	 *
+	 * <!-- options-start --> Valid options are:
+	 * <p/>
+	 *
+	 * <pre>
+	 * -i &lt;the input file&gt;
+	 *  The input file
+	 * </pre>
+	 *
+	 * <pre>
+	 * -o &lt;the output file&gt;
+	 *  The output file
+	 * </pre>
+	 *
+	 * <pre>
+	 * -chunk-size &lt;num&gt;
+	 *  The number of rows per chunk
+	 *  (default: 65536)
+	 * </pre>
+	 *
+	 * <!-- options-end -->
+	 *
+	 * @param options
+	 *            the options to use
+	 * @throws Exception
+	 *             if setting of options fails
+	 */
+	@Override
+	public void setOptions(String[] options) throws Exception {
+
+		String tmpStr = Utils.getOption("chunk-size", options);
+		if (tmpStr.length() > 0) {
+			setChunkSize(Integer.parseInt(tmpStr));
+		} else {
+			setChunkSize(DEFAULT_CHUNK_SIZE);
+		}
+
+		super.setOptions(options);
+
+		Utils.checkForRemainingOptions(options);
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 *
+	 * @return tip text for this property suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String chunkSizeTipText() {
+		return "The number of rows stored together in one chunk; larger chunks "
+				+ "compress runs better, smaller ones need less memory.";
+	}
+
+	/**
+	 * Sets the number of rows per chunk.
+	 *
+	 * @param value
+	 *            the number of rows, at least 1
+	 * @throws IllegalArgumentException
+	 *             if the value is less than 1
+	 */
+	public void setChunkSize(int value) {
+
+		if (value < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1, provided: " + value);
+		}
+		m_ChunkSize = value;
+	}
+
+	/**
+	 * Gets the number of rows per chunk.
+	 *
+	 * @return the number of rows
+	 */
+	public int getChunkSize() {
+		return m_ChunkSize;
+	}
+
+	/**
+	 * Returns a string describing this Saver
+	 *
+	 * @return a description of the Saver suitable for displaying in the
+	 *         explorer/experimenter gui
+	 */
+	public String globalInfo() {
+		return "Writes to a destination in the binary, column-chunked instances "
+				+ "format, which is much faster to read back than arff.";
+	}
+
+	/**
+	 * Returns a description of the file type.
+	 *
+	 * @return a short file description
+	 */
+	@Override
+	public String getFileDescription() {
+		return "Binary instances files";
+	}
+
+	/**
+	 * Gets all the file extensions used for this type of file
+	 *
+	 * @return the file extensions
+	 */
+	@Override
+	public String[] getFileExtensions() {
+		return new String[] { BinaryInstancesLoader.FILE_EXTENSION };
+	}
+
+	/**
+	 * Sets the destination output stream.
+	 *
+	 * @param output
+	 *            the output stream.
+	 * @throws IOException
+	 *             throws an IOException if destination cannot be set
+	 */
+	@Override
+	public void setDestination(OutputStream output) throws IOException {
+
+		m_Output = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+	}
+
+	/**
+	 * Resets the Saver
+	 */
+	@Override
+	public void resetOptions() {
+
+		super.resetOptions();
+		setFileExtension(BinaryInstancesLoader.FILE_EXTENSION);
+	}
+
+	/**
+	 * Returns the Capabilities of this saver.
+	 *
+	 * @return the capabilities of this object
+	 * @see Capabilities
+	 */
+	@Override
+	public Capabilities getCapabilities() {
+		Capabilities result = super.getCapabilities();
+
+		// attributes
+		result.enableAllAttributes();
+		result.enable(Capability.MISSING_VALUES);
+
+		// class
+		result.enableAllClasses();
+		result.enable(Capability.MISSING_CLASS_VALUES);
+		result.enable(Capability.NO_CLASS);
+
+		return result;
+	}
+
+	/**
+	 * Writes the magic number, the version and the header. String and
+	 * relational values are not part of the header, they are stored with the
+	 * chunks.
+	 *
+	 * @param structure
+	 *            the structure of the data
+	 * @param numRows
+	 *            the number of rows that will be written, -1 if not known
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	protected void writeHeader(Instances structure, int numRows) throws IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+			oos.writeObject(InstanceStream.emptyCopy(structure));
+		}
+		m_Output.writeInt(BinaryInstancesLoader.MAGIC);
+		m_Output.writeInt(BinaryInstancesLoader.VERSION);
+		m_Output.writeInt(bytes.size());
+		bytes.writeTo(m_Output);
+		m_Chunk = new BinaryInstancesChunk(structure, (numRows < 0) ? m_ChunkSize
+				: Math.max(1, Math.min(m_ChunkSize, numRows)));
+	}
+
+	/**
+	 * Adds an instance to the current chunk, writing the chunk once it is
+	 * full.
+	 *
+	 * @param inst
+	 *            the instance
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	protected void writeInstance(Instance inst) throws IOException {
+
+		m_Chunk.add(inst);
+		if (m_Chunk.numRows() == m_Chunk.capacity()) {
+			m_Chunk.write(m_Output);
+			m_Chunk.clear();
+		}
+	}
+
+	/**
+	 * Writes the remaining rows and the end marker and closes the stream.
+	 *
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	protected void closeOutput() throws IOException {
+
+		if (m_Chunk.numRows() > 0) {
+			m_Chunk.write(m_Output);
+		}
+		m_Output.writeInt(0);
+		m_Output.close();
+		m_Output = null;
+		m_Chunk = null;
+	}
+
+	/**
+	 * Saves an instances incrementally. Structure has to be set by using the
+	 * setStructure() method or setInstances() method.
+	 *
+	 * @param inst
+	 *            the instance to save
+	 * @throws IOException
+	 *             throws IOEXception if an instance cannot be saved
+	 *             incrementally.
+	 */
+	@Override
+	public void writeIncremental(Instance inst) throws IOException {
+
+		int writeMode = getWriteMode();
+		Instances structure = getInstances();
+
+		if (getRetrieval() == BATCH || getRetrieval() == NONE) {
+			throw new IOException("Batch and incremental saving cannot be mixed.");
+		}
+
+		if (writeMode == WAIT) {
+			if (structure == null) {
+				setWriteMode(CANCEL);
+				if (inst != null) {
+					System.err.println("Structure(Header Information) has to be set in advance");
+				}
+			} else {
+				setWriteMode(STRUCTURE_READY);
+			}
+			writeMode = getWriteMode();
+		}
+		if (writeMode == CANCEL) {
+			if (m_Output != null) {
+				m_Output.close();
+				m_Output = null;
+			}
+			cancel();
+		}
+		if (writeMode == STRUCTURE_READY) {
+			if (m_Output == null) {
+				throw new IOException("No destination has been specified");
+			}
+			setWriteMode(WRITE);
+			writeHeader(structure, -1);
+			writeMode = getWriteMode();
+		}
+		if (writeMode == WRITE) {
+			if (structure == null) {
+				throw new IOException("No instances information available.");
+			}
+			if (inst != null) {
+				writeInstance(inst);
+			} else {
+				// close
+				closeOutput();
+				resetStructure();
+			}
+		}
+	}
+
+	/**
+	 * Writes a Batch of instances
+	 *
+	 * @throws IOException
+	 *             throws IOException if saving in batch mode is not possible
+	 */
+	@Override
+	public void writeBatch() throws IOException {
+		if (getInstances() == null) {
+			throw new IOException("No instances to save");
+		}
+		if (getRetrieval() == INCREMENTAL) {
+			throw new IOException("Batch and incremental saving cannot be mixed.");
+		}
+		if (m_Output == null) {
+			throw new IOException("No destination has been specified");
+		}
+		setRetrieval(BATCH);
+		setWriteMode(WRITE);
+
+		Instances data = getInstances();
+		writeHeader(data, data.numInstances());
+		for (int i = 0; i < data.numInstances(); i++) {
+			writeInstance(data.instance(i));
+		}
+		closeOutput();
+
+		setWriteMode(WAIT);
+		setWriteMode(CANCEL);
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+
+	/**
+	 * Main method.
+	 *
+	 * @param args
+	 *            should contain the options of a Saver.
+	 */
+	public static void main(String[] args) {
+		runFileSaver(new BinaryInstancesSaver(), args);
+	}
+}
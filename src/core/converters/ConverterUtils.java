@@ -60,13 +60,15 @@ public class ConverterUtils implements Serializable, RevisionHandler {
 	 * the core loaders - hardcoded list necessary for RMI/Remote Experiments
 	 * (comma-separated list).
 	 */
-	public final static String CORE_FILE_LOADERS = core.converters.ArffLoader.class.getName();
+	public final static String CORE_FILE_LOADERS = core.converters.ArffLoader.class.getName() + ","
+			+ core.converters.BinaryInstancesLoader.class.getName();
 
 	/**
 	 * the core savers - hardcoded list necessary for RMI/Remote Experiments
 	 * (comma-separated list).
 	 */
-	public final static String CORE_FILE_SAVERS = core.converters.ArffSaver.class.getName();
+	public final static String CORE_FILE_SAVERS = core.converters.ArffSaver.class.getName() + ","
+			+ core.converters.BinaryInstancesSaver.class.getName();
 
 	/** all available loaders (extension &lt;-&gt; classname). */
 	protected static Hashtable<String, String> m_FileLoaders;
@@ -1163,6 +1165,23 @@ public class ConverterUtils implements Serializable, RevisionHandler {
 			sink.write(data);
 		}
 
+		/**
+		 * Opens an asynchronous sink that writes the instances handed to it to
+		 * the given file in ARFF format in the background (compressed if the
+		 * name ends with ".gz"), see AsyncDataSink.
+		 * 
+		 * @param filename
+		 *            the file to write the data to
+		 * @param structure
+		 *            the structure of the data
+		 * @return the sink, to be closed when all instances have been written
+		 * @throws IOException
+		 *             if the file cannot be created
+		 */
+		public static AsyncDataSink writeAsync(String filename, Instances structure) throws IOException {
+			return new AsyncDataSink(filename, structure);
+		}
+
 		/**
 		 * for testing only - takes a data file as input and a data file for the
 		 * output.
@@ -0,0 +1,568 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    ParallelArffReader.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core.converters;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import core.Attribute;
+import core.Instance;
+import core.Instances;
+import core.RevisionHandler;
+import core.RevisionUtils;
+import core.SparseInstance;
+import core.Utils;
+import core.converters.ArffLoader.ArffReader;
+
+/**
+ * Reads the data section of an ARFF file in parallel. The data section is cut
+ * into chunks of whole lines, which are parsed on a fork-join pool while the
+ * next chunks are being read. The parsed chunks are appended to the dataset in
+ * their original order, so the row order is the same as with the sequential
+ * ArffReader.
+ * <p/>
+ *
+ * Every chunk is parsed against a private copy of the header. Values of
+ * string and relation-valued attributes are then added to the header of the
+ * dataset while the chunks are appended, row by row, which results in the
+ * same value indices as reading sequentially. Datasets with relation-valued
+ * attributes that contain string attributes are read sequentially.
+ * <p/>
+ *
+ * Typical code:
+ *
+ * <pre>
+ * ArffReader arff = new ArffReader(reader, 1000, true);
+ * Instances data = arff.getStructure();
+ * new ParallelArffReader(arff, 0).readData(data);
+ * </pre>
+ *
+ * @version $Revision$
+ */
+public class ParallelArffReader implements RevisionHandler {
+
+	/** the default number of characters per chunk */
+	public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+	/** the reader that has read the header */
+	protected ArffReader m_Reader;
+
+	/** the number of threads to parse with */
+	protected int m_NumThreads;
+
+	/** the number of characters per chunk */
+	protected int m_ChunkSize = DEFAULT_CHUNK_SIZE;
+
+	/**
+	 * marks string and relational values with local index 0 that were given
+	 * explicitly in a sparse instance (sparse instances drop zeros)
+	 */
+	protected static final double EXPLICIT_ZERO = -1;
+
+	/**
+	 * ArffReader for a single chunk. Sparse instances keep explicitly given
+	 * string and relational values with index 0 as EXPLICIT_ZERO, so they can
+	 * be told apart from values that are absent from the row.
+	 */
+	protected static class ChunkReader extends ArffReader {
+
+		/** the number of values of the last sparse instance */
+		protected int m_LastNumValues = 0;
+
+		/**
+		 * Initializes the reader.
+		 *
+		 * @param reader
+		 *            the reader for the chunk
+		 * @param template
+		 *            the private header of the chunk
+		 * @param lines
+		 *            the line number of the first line of the chunk
+		 * @param syntax
+		 *            the field separator and enclosures
+		 * @throws IOException
+		 *             if something goes wrong
+		 */
+		protected ChunkReader(Reader reader, Instances template, int lines, String... syntax) throws IOException {
+			super(reader, template, lines, 0, true, syntax);
+		}
+
+		/**
+		 * Reads a sparse instance with the tokenizer and marks explicit zeros.
+		 *
+		 * @param flag
+		 *            if method should test for carriage return after each
+		 *            instance
+		 * @return the instance
+		 * @throws IOException
+		 *             if the information is not read successfully
+		 */
+		@Override
+		protected Instance getInstanceSparse(boolean flag) throws IOException {
+			Arrays.fill(m_IndicesBuffer, 0, m_LastNumValues, -1);
+			return markExplicitZeros(super.getInstanceSparse(flag));
+		}
+
+		/**
+		 * Reads a sparse instance with the scanner and marks explicit zeros.
+		 *
+		 * @param flag
+		 *            if method should test for carriage return after each
+		 *            instance
+		 * @return the instance
+		 * @throws IOException
+		 *             if the information is not read successfully
+		 */
+		@Override
+		protected Instance scanInstanceSparse(boolean flag) throws IOException {
+			Arrays.fill(m_IndicesBuffer, 0, m_LastNumValues, -1);
+			return markExplicitZeros(super.scanInstanceSparse(flag));
+		}
+
+		/**
+		 * Sets string and relational values that were read as index 0 to
+		 * EXPLICIT_ZERO.
+		 *
+		 * @param inst
+		 *            the sparse instance that has just been read
+		 * @return the instance
+		 */
+		protected Instance markExplicitZeros(Instance inst) {
+			int numValues = 0;
+			while ((numValues < m_IndicesBuffer.length) && (m_IndicesBuffer[numValues] >= 0)) {
+				if (m_ValueBuffer[numValues] == 0) {
+					Attribute att = m_Data.attribute(m_IndicesBuffer[numValues]);
+					if (att.isString() || att.isRelationValued()) {
+						inst.setValue(m_IndicesBuffer[numValues], EXPLICIT_ZERO);
+					}
+				}
+				numValues++;
+			}
+			m_LastNumValues = numValues;
+			return inst;
+		}
+	}
+
+	/**
+	 * Parses a single chunk of lines against a private copy of the header.
+	 */
+	protected static class ChunkParser implements Callable<List<Instance>> {
+
+		/** the text of the chunk */
+		protected char[] m_Text;
+
+		/** the number of characters in the chunk */
+		protected int m_Length;
+
+		/** the line number of the first line of the chunk */
+		protected int m_FirstLine;
+
+		/** the private copy of the header */
+		protected Instances m_Header;
+
+		/** whether to parse with the scanner */
+		protected boolean m_FastScanning;
+
+		/** the field separator and enclosures, as for ArffReader */
+		protected String[] m_Syntax;
+
+		/** the error that occurred while parsing, if any */
+		protected IOException m_Exception;
+
+		/**
+		 * Initializes the parser.
+		 *
+		 * @param text
+		 *            the text of the chunk
+		 * @param length
+		 *            the number of characters in the chunk
+		 * @param firstLine
+		 *            the line number of the first line of the chunk
+		 * @param header
+		 *            the private copy of the header
+		 * @param fastScanning
+		 *            whether to parse with the scanner
+		 * @param syntax
+		 *            the field separator and enclosures
+		 */
+		protected ChunkParser(char[] text, int length, int firstLine, Instances header, boolean fastScanning,
+				String[] syntax) {
+			m_Text = text;
+			m_Length = length;
+			m_FirstLine = firstLine;
+			m_Header = header;
+			m_FastScanning = fastScanning;
+			m_Syntax = syntax;
+		}
+
+		/**
+		 * Parses the chunk. An error is stored in m_Exception (rather than
+		 * thrown, which would make the fork-join pool wrap it).
+		 *
+		 * @return the instances, referring to the private header, or null if
+		 *         parsing failed
+		 */
+		@Override
+		public List<Instance> call() {
+			List<Instance> result = new ArrayList<>();
+			try {
+				ArffReader reader = new ChunkReader(new CharArrayReader(m_Text, 0, m_Length), m_Header, m_FirstLine,
+						m_Syntax);
+				reader.setFastScanning(m_FastScanning);
+				Instances data = reader.getData();
+				Instance inst;
+				while ((inst = reader.readInstance(data)) != null) {
+					result.add(inst);
+				}
+			} catch (IOException e) {
+				m_Exception = e;
+				result = null;
+			}
+			m_Text = null;
+			return result;
+		}
+	}
+
+	/**
+	 * Initializes the parallel reader.
+	 *
+	 * @param reader
+	 *            the ArffReader that has read the header, but no instances
+	 * @param numThreads
+	 *            the number of threads to use, 0 or less for the number of
+	 *            available processors
+	 */
+	public ParallelArffReader(ArffReader reader, int numThreads) {
+		m_Reader = reader;
+		if (numThreads <= 0) {
+			numThreads = Runtime.getRuntime().availableProcessors();
+		}
+		m_NumThreads = numThreads;
+	}
+
+	/**
+	 * Returns the number of threads used for parsing.
+	 *
+	 * @return the number of threads
+	 */
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+
+	/**
+	 * Sets the number of characters per chunk. Lines longer than that make
+	 * the chunk grow.
+	 *
+	 * @param size
+	 *            the chunk size
+	 * @throws IllegalArgumentException
+	 *             if the size is not positive
+	 */
+	public void setChunkSize(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Chunk size has to be positive!");
+		}
+		m_ChunkSize = size;
+	}
+
+	/**
+	 * Returns the number of characters per chunk.
+	 *
+	 * @return the chunk size
+	 */
+	public int getChunkSize() {
+		return m_ChunkSize;
+	}
+
+	/**
+	 * Produces a copy of the header that shares no attribute objects (and
+	 * therefore no mutable value lists or date formats) with the original.
+	 *
+	 * @param header
+	 *            the header to copy
+	 * @return the copy
+	 */
+	protected static Instances copyHeader(Instances header) {
+		ArrayList<Attribute> atts = new ArrayList<>(header.numAttributes());
+		for (int i = 0; i < header.numAttributes(); i++) {
+			Attribute att = header.attribute(i);
+			switch (att.type()) {
+			case Attribute.NUMERIC:
+				atts.add(new Attribute(att.name()));
+				break;
+			case Attribute.NOMINAL:
+				List<String> values = new ArrayList<>(att.numValues());
+				for (int j = 0; j < att.numValues(); j++) {
+					values.add(att.value(j));
+				}
+				atts.add(new Attribute(att.name(), values));
+				break;
+			case Attribute.STRING:
+				atts.add(new Attribute(att.name(), true));
+				break;
+			case Attribute.DATE:
+				atts.add(new Attribute(att.name(), att.getDateFormat()));
+				break;
+			case Attribute.RELATIONAL:
+				atts.add(new Attribute(att.name(), copyHeader(att.relation())));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown attribute type: " + att.type());
+			}
+		}
+		return new Instances(header.relationName(), atts, 0);
+	}
+
+	/**
+	 * Returns whether the data can be read in parallel with the same result
+	 * as sequentially.
+	 *
+	 * @param data
+	 *            the header of the data
+	 * @return true if the data can be read in parallel
+	 */
+	protected boolean canReadParallel(Instances data) {
+		if (m_NumThreads < 2) {
+			return false;
+		}
+		for (int i = 0; i < data.numAttributes(); i++) {
+			if (data.attribute(i).isRelationValued() && data.attribute(i).relation().checkForStringAttributes()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the position after the last line break in the buffer that
+	 * certainly ends a line, ie. is not escaped within a quoted value and is
+	 * not the CR of a CR/LF pair.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @param length
+	 *            the number of characters in the buffer
+	 * @return the position, 0 if there is none
+	 */
+	protected static int lastLineEnd(char[] buffer, int length) {
+		for (int i = length - 1; i >= 0; i--) {
+			char c = buffer[i];
+			if ((c == '\n') || ((c == '\r') && (i + 1 < length) && (buffer[i + 1] != '\n'))) {
+				if ((i == 0) || (buffer[i - 1] != '\\')) {
+					return i + 1;
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Counts the line breaks in the given part of the buffer, like the
+	 * tokenizer does (CR, LF and CR/LF each count once).
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @param length
+	 *            the number of characters to look at
+	 * @return the number of line breaks
+	 */
+	protected static int countLines(char[] buffer, int length) {
+		int lines = 0;
+		for (int i = 0; i < length; i++) {
+			char c = buffer[i];
+			if ((c == '\n') || ((c == '\r') && ((i + 1 == length) || (buffer[i + 1] != '\n')))) {
+				lines++;
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Reads the data section and appends the instances to the given dataset,
+	 * in the order they appear in the file.
+	 *
+	 * @param data
+	 *            the dataset to add the instances to, needs to share the
+	 *            attributes with the header of the ArffReader (eg. obtained via
+	 *            <code>getStructure()</code>)
+	 * @throws IOException
+	 *             if reading or parsing fails; for malformed data this is the
+	 *             error the sequential reader would have reported
+	 */
+	public void readData(Instances data) throws IOException {
+		if (!canReadParallel(data)) {
+			Instance inst;
+			while ((inst = m_Reader.readInstance(data)) != null) {
+				data.add(inst);
+			}
+			return;
+		}
+
+		String[] syntax = null;
+		if ((m_Reader.m_fieldSeparator != null) || (m_Reader.m_enclosures != null)) {
+			List<String> list = new ArrayList<>();
+			list.add(m_Reader.m_fieldSeparator);
+			if (m_Reader.m_enclosures != null) {
+				list.addAll(m_Reader.m_enclosures);
+			}
+			syntax = list.toArray(new String[list.size()]);
+		}
+
+		Reader source = m_Reader.getDataReader();
+		int line = m_Reader.getLineNo();
+		ForkJoinPool pool = new ForkJoinPool(m_NumThreads);
+		ArrayDeque<ForkJoinTask<List<Instance>>> pending = new ArrayDeque<>();
+		ArrayDeque<ChunkParser> parsers = new ArrayDeque<>();
+		try {
+			char[] buffer = new char[m_ChunkSize];
+			int length = 0;
+			boolean eof = false;
+			while (!eof) {
+				int n = source.read(buffer, length, buffer.length - length);
+				if (n < 0) {
+					eof = true;
+				} else {
+					length += n;
+					if (length < buffer.length) {
+						continue;
+					}
+				}
+
+				int end = eof ? length : lastLineEnd(buffer, length);
+				if (end == 0) {
+					if (!eof) {
+						// a single line longer than the buffer
+						char[] larger = new char[buffer.length * 2];
+						System.arraycopy(buffer, 0, larger, 0, length);
+						buffer = larger;
+					}
+					continue;
+				}
+
+				ChunkParser parser = new ChunkParser(buffer, end, line, copyHeader(data), m_Reader.getFastScanning(),
+						syntax);
+				line += countLines(buffer, end);
+				parsers.add(parser);
+				pending.add(pool.submit(parser));
+
+				char[] next = new char[Math.max(m_ChunkSize, 2 * (length - end))];
+				System.arraycopy(buffer, end, next, 0, length - end);
+				buffer = next;
+				length -= end;
+
+				while (pending.size() >= 2 * m_NumThreads) {
+					append(parsers.poll(), pending.poll(), data);
+				}
+			}
+
+			while (!pending.isEmpty()) {
+				append(parsers.poll(), pending.poll(), data);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Waits for a chunk to be parsed and appends its instances to the
+	 * dataset, translating string and relational values to the dataset's
+	 * header.
+	 *
+	 * @param parser
+	 *            the parser of the chunk
+	 * @param task
+	 *            the task running the parser
+	 * @param data
+	 *            the dataset to append to
+	 * @throws IOException
+	 *             if parsing the chunk failed
+	 */
+	protected void append(ChunkParser parser, ForkJoinTask<List<Instance>> task, Instances data) throws IOException {
+		List<Instance> instances;
+		try {
+			instances = task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading data");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+		if (parser.m_Exception != null) {
+			throw parser.m_Exception;
+		}
+
+		List<Integer> translated = new ArrayList<>();
+		for (int i = 0; i < data.numAttributes(); i++) {
+			if (data.attribute(i).isString() || data.attribute(i).isRelationValued()) {
+				translated.add(i);
+			}
+		}
+
+		for (Instance inst : instances) {
+			for (int i : translated) {
+				double value = inst.value(i);
+				if (Utils.isMissingValue(value)) {
+					continue;
+				}
+				// absent from a sparse row, ie. index 0 of the dataset's header
+				if ((value == 0) && (inst instanceof SparseInstance)) {
+					continue;
+				}
+				int local = (value == EXPLICIT_ZERO) ? 0 : (int) value;
+				Attribute att = data.attribute(i);
+				if (att.isString()) {
+					inst.setValue(i, att.addStringValue(parser.m_Header.attribute(i).value(local)));
+				} else {
+					inst.setValue(i, att.addRelation(parser.m_Header.attribute(i).relation(local)));
+				}
+			}
+			data.add(inst);
+		}
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
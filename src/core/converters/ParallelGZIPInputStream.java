@@ -0,0 +1,460 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    ParallelGZIPInputStream.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core.converters;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import core.RevisionHandler;
+import core.RevisionUtils;
+
+/**
+ * Reads GZIP data, decompressing ahead of the reader on a background thread.
+ * Data written by ParallelGZIPOutputStream, whose members state their size in
+ * their header, is inflated on several threads at once; any other gzip data is
+ * inflated by a single background thread with GZIPInputStream. Either way the
+ * reading thread only copies data that has been decompressed already, and the
+ * amount of data decompressed ahead is bounded.
+ * <p/>
+ *
+ * The background threads are started by the first read and stopped once the
+ * end of the data is reached (or reading fails) or the stream is closed. A
+ * stream that is never read needs no closing beyond that of the underlying
+ * stream, but one that is abandoned halfway must be closed to stop its
+ * threads.
+ *
+ * @version $Revision$
+ * @see ParallelGZIPOutputStream
+ */
+public class ParallelGZIPInputStream extends InputStream implements RevisionHandler {
+
+	/** the size of the chunks read from a GZIPInputStream. */
+	public final static int CHUNK_SIZE = 1 << 16;
+
+	/** marks the end of the data. */
+	protected final static Future<byte[]> END = CompletableFuture.completedFuture(new byte[0]);
+
+	/** the stream to read from. */
+	protected BufferedInputStream m_In;
+
+	/** the number of threads inflating members. */
+	protected int m_NumThreads;
+
+	/** the pool inflating the members. */
+	protected ForkJoinPool m_Pool;
+
+	/** the decompressed chunks, in order. */
+	protected BlockingQueue<Future<byte[]>> m_Chunks;
+
+	/** the thread reading the compressed data, null until the first read. */
+	protected Thread m_Reader;
+
+	/** the current chunk. */
+	protected byte[] m_Chunk = new byte[0];
+
+	/** the position in the current chunk. */
+	protected int m_Position;
+
+	/** whether the end of the data has been reached. */
+	protected boolean m_EndReached;
+
+	/** the error that reading failed with, null if none. */
+	protected IOException m_Failure;
+
+	/** whether the stream has been closed. */
+	protected volatile boolean m_Closed;
+
+	/**
+	 * Creates a stream that uses as many threads as there are processors.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 */
+	public ParallelGZIPInputStream(InputStream in) {
+		this(in, 0);
+	}
+
+	/**
+	 * Creates a stream.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 * @param numThreads
+	 *            the number of threads inflating members, 0 or less for the
+	 *            number of available processors
+	 */
+	public ParallelGZIPInputStream(InputStream in, int numThreads) {
+		if (numThreads <= 0) {
+			numThreads = Runtime.getRuntime().availableProcessors();
+		}
+
+		m_In = new BufferedInputStream(in, 1 << 16);
+		m_NumThreads = numThreads;
+		m_Chunks = new ArrayBlockingQueue<>(2 * numThreads);
+	}
+
+	/**
+	 * Starts the background threads, unless done already.
+	 */
+	protected void start() {
+		if (m_Reader != null) {
+			return;
+		}
+		m_Pool = new ForkJoinPool(m_NumThreads);
+		m_Reader = new Thread(this::readMembers, "ParallelGZIPInputStream-read");
+		m_Reader.setDaemon(true);
+		m_Reader.start();
+	}
+
+	/**
+	 * Stops the background threads once the end of the data has been reached
+	 * or reading failed.
+	 */
+	protected void stop() {
+		m_EndReached = true;
+		m_Reader.interrupt();
+		m_Pool.shutdownNow();
+	}
+
+	/**
+	 * Reads a byte.
+	 *
+	 * @return the byte, -1 at the end of the data
+	 * @throws IOException
+	 *             if reading or decompressing fails
+	 */
+	@Override
+	public int read() throws IOException {
+		if (!nextChunk()) {
+			return -1;
+		}
+		return m_Chunk[m_Position++] & 0xff;
+	}
+
+	/**
+	 * Reads bytes.
+	 *
+	 * @param b
+	 *            the buffer
+	 * @param off
+	 *            the offset in the buffer
+	 * @param len
+	 *            the maximum number of bytes to read
+	 * @return the number of bytes read, -1 at the end of the data
+	 * @throws IOException
+	 *             if reading or decompressing fails
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!nextChunk()) {
+			return -1;
+		}
+		int n = Math.min(len, m_Chunk.length - m_Position);
+		System.arraycopy(m_Chunk, m_Position, b, off, n);
+		m_Position += n;
+		return n;
+	}
+
+	/**
+	 * Returns the number of bytes that can be read without blocking.
+	 *
+	 * @return the number of bytes left in the current chunk
+	 */
+	@Override
+	public int available() {
+		return m_Chunk.length - m_Position;
+	}
+
+	/**
+	 * Makes sure the current chunk has data left, waiting for the next one if
+	 * necessary.
+	 *
+	 * @return false at the end of the data
+	 * @throws IOException
+	 *             if reading or decompressing fails
+	 */
+	protected boolean nextChunk() throws IOException {
+		if (m_Closed) {
+			throw new IOException("Stream closed");
+		}
+		if (m_Failure != null) {
+			throw m_Failure;
+		}
+		start();
+		while (m_Position == m_Chunk.length) {
+			if (m_EndReached) {
+				return false;
+			}
+			try {
+				Future<byte[]> next = m_Chunks.take();
+				if (next == END) {
+					stop();
+					return false;
+				}
+				m_Chunk = next.get();
+				m_Position = 0;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while decompressing", e);
+			} catch (ExecutionException e) {
+				stop();
+				m_Failure = new IOException("Decompression failed", e.getCause());
+				// ForkJoinPool wraps checked exceptions of callables
+				for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+					if (cause instanceof IOException) {
+						m_Failure = new IOException(cause.getMessage(), cause);
+						break;
+					}
+				}
+				throw m_Failure;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stops decompressing and closes the underlying stream.
+	 *
+	 * @throws IOException
+	 *             if closing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		if (m_Closed) {
+			return;
+		}
+		m_Closed = true;
+		if (m_Reader != null) {
+			m_Reader.interrupt();
+			m_Pool.shutdownNow();
+		}
+		m_In.close();
+	}
+
+	/**
+	 * The reader thread: reads the members and queues their decompressed data.
+	 * Switches to GZIPInputStream for data that was not written by
+	 * ParallelGZIPOutputStream.
+	 */
+	protected void readMembers() {
+		try {
+			byte[] header = new byte[ParallelGZIPOutputStream.HEADER_LENGTH];
+			while (true) {
+				m_In.mark(header.length);
+				int n = readFully(header);
+				if (n == 0) {
+					break;
+				}
+				int size = (n == header.length) ? memberSize(header) : -1;
+				if (size < 0) {
+					m_In.reset();
+					readStream();
+					break;
+				}
+				byte[] member = new byte[size - header.length];
+				if (readFully(member) < member.length) {
+					throw new EOFException("Unexpected end of ZLIB input stream");
+				}
+				m_Chunks.put(m_Pool.submit(() -> inflate(member)));
+			}
+			m_Chunks.put(END);
+		} catch (InterruptedException e) {
+			// closed
+		} catch (Throwable t) {
+			CompletableFuture<byte[]> failure = new CompletableFuture<>();
+			failure.completeExceptionally(t);
+			try {
+				m_Chunks.put(failure);
+			} catch (InterruptedException e) {
+				// closed
+			}
+		}
+	}
+
+	/**
+	 * Inflates the rest of the data with a GZIPInputStream and queues it in
+	 * chunks.
+	 *
+	 * @throws IOException
+	 *             if reading or decompressing fails
+	 * @throws InterruptedException
+	 *             if the stream is closed
+	 */
+	protected void readStream() throws IOException, InterruptedException {
+		GZIPInputStream gzip = new GZIPInputStream(m_In, CHUNK_SIZE);
+		while (true) {
+			byte[] chunk = new byte[CHUNK_SIZE];
+			int count = 0;
+			int n;
+			while ((count < chunk.length) && ((n = gzip.read(chunk, count, chunk.length - count)) > 0)) {
+				count += n;
+			}
+			if (count == 0) {
+				break;
+			}
+			if (count < chunk.length) {
+				byte[] shorter = new byte[count];
+				System.arraycopy(chunk, 0, shorter, 0, count);
+				chunk = shorter;
+			}
+			m_Chunks.put(CompletableFuture.completedFuture(chunk));
+			if (m_Closed) {
+				throw new InterruptedException();
+			}
+		}
+	}
+
+	/**
+	 * Reads as many bytes as fit into the buffer, unless the data ends before.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @return the number of bytes read
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	protected int readFully(byte[] buffer) throws IOException {
+		int count = 0;
+		int n;
+		while ((count < buffer.length) && ((n = m_In.read(buffer, count, buffer.length - count)) > 0)) {
+			count += n;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the size of a member if its header was written by
+	 * ParallelGZIPOutputStream.
+	 *
+	 * @param header
+	 *            the first bytes of the member
+	 * @return the size of the member in bytes, -1 if not written by
+	 *         ParallelGZIPOutputStream
+	 */
+	protected static int memberSize(byte[] header) {
+		if (((header[0] & 0xff) != 0x1f) || ((header[1] & 0xff) != 0x8b) || (header[2] != 8) || (header[3] != 4)
+				|| (readShort(header, 10) != 8) || (header[12] != ParallelGZIPOutputStream.SUBFIELD_ID1)
+				|| (header[13] != ParallelGZIPOutputStream.SUBFIELD_ID2) || (readShort(header, 14) != 4)) {
+			return -1;
+		}
+		int size = readInt(header, 16);
+		return (size >= header.length + 8) ? size : -1;
+	}
+
+	/**
+	 * Inflates the data of a member and checks it against the trailer.
+	 *
+	 * @param member
+	 *            the member without its header
+	 * @return the decompressed data
+	 * @throws IOException
+	 *             if the data is corrupt
+	 */
+	protected static byte[] inflate(byte[] member) throws IOException {
+		int length = member.length - 8;
+		int crc = readInt(member, length);
+		int size = readInt(member, length + 4);
+		// deflate cannot compress by more than about 1:1032
+		if ((size < 0) || (size > 1032L * length + 1024)) {
+			throw new IOException("Corrupt GZIP trailer");
+		}
+
+		byte[] result = new byte[size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(member, 0, length);
+			int count = 0;
+			while (count < size) {
+				int n = inflater.inflate(result, count, size - count);
+				if ((n == 0) && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				count += n;
+			}
+			if ((count != size) || (!inflater.finished() && (inflater.inflate(new byte[1]) > 0))) {
+				throw new IOException("Corrupt GZIP trailer");
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e.getMessage(), e);
+		} finally {
+			inflater.end();
+		}
+
+		CRC32 check = new CRC32();
+		check.update(result, 0, size);
+		if ((int) check.getValue() != crc) {
+			throw new IOException("Corrupt GZIP trailer");
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a 16 bit value in little-endian order.
+	 *
+	 * @param b
+	 *            the bytes
+	 * @param off
+	 *            the offset of the value
+	 * @return the value
+	 */
+	protected static int readShort(byte[] b, int off) {
+		return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8);
+	}
+
+	/**
+	 * Reads a 32 bit value in little-endian order.
+	 *
+	 * @param b
+	 *            the bytes
+	 * @param off
+	 *            the offset of the value
+	 * @return the value
+	 */
+	protected static int readInt(byte[] b, int off) {
+		return readShort(b, off) | (readShort(b, off + 2) << 16);
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
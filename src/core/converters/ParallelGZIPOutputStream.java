@@ -0,0 +1,350 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    ParallelGZIPOutputStream.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ */
+
+package core.converters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import core.RevisionHandler;
+import core.RevisionUtils;
+
+/**
+ * Writes GZIP data, compressing blocks of the input on several threads at
+ * once. Every block becomes a gzip member of its own; gzip readers (including
+ * GZIPInputStream and gunzip) read consecutive members as one stream, so the
+ * output is valid gzip. Each member carries an extra header field ("WB", see
+ * RFC 1952) with the size of the member in bytes, which allows
+ * ParallelGZIPInputStream to find the members without inflating them and to
+ * inflate them in parallel as well.
+ * <p/>
+ *
+ * The number of blocks being compressed at a time is bounded, so memory use
+ * does not depend on the amount of data written.
+ *
+ * @version $Revision$
+ * @see ParallelGZIPInputStream
+ */
+public class ParallelGZIPOutputStream extends OutputStream implements RevisionHandler {
+
+	/** the default size of the blocks in bytes. */
+	public final static int BLOCK_SIZE = 1 << 18;
+
+	/** the first byte of the id of the extra field. */
+	public final static int SUBFIELD_ID1 = 'W';
+
+	/** the second byte of the id of the extra field. */
+	public final static int SUBFIELD_ID2 = 'B';
+
+	/** the length of the header of a member. */
+	public final static int HEADER_LENGTH = 20;
+
+	/** the stream to write to. */
+	protected OutputStream m_Out;
+
+	/** the compression level. */
+	protected int m_Level;
+
+	/** the block being filled. */
+	protected byte[] m_Block;
+
+	/** the number of bytes in the current block. */
+	protected int m_Count;
+
+	/** whether any member has been written (or submitted). */
+	protected boolean m_Started;
+
+	/** the pool compressing the blocks. */
+	protected ForkJoinPool m_Pool;
+
+	/** the maximum number of blocks being compressed at a time. */
+	protected int m_MaxPending;
+
+	/** the blocks being compressed, in order. */
+	protected ArrayDeque<ForkJoinTask<byte[]>> m_Pending = new ArrayDeque<>();
+
+	/** whether the stream has been closed. */
+	protected boolean m_Closed;
+
+	/**
+	 * Creates a stream that uses the default compression level, the default
+	 * block size and as many threads as there are processors.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 */
+	public ParallelGZIPOutputStream(OutputStream out) {
+		this(out, Deflater.DEFAULT_COMPRESSION, BLOCK_SIZE, 0);
+	}
+
+	/**
+	 * Creates a stream.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @param level
+	 *            the compression level (see Deflater)
+	 * @param blockSize
+	 *            the number of bytes per block
+	 * @param numThreads
+	 *            the number of threads, 0 or less for the number of available
+	 *            processors
+	 */
+	public ParallelGZIPOutputStream(OutputStream out, int level, int blockSize, int numThreads) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Block size must be at least 1!");
+		}
+		if (numThreads <= 0) {
+			numThreads = Runtime.getRuntime().availableProcessors();
+		}
+
+		m_Out = out;
+		m_Level = level;
+		m_Block = new byte[blockSize];
+		m_Pool = new ForkJoinPool(numThreads);
+		m_MaxPending = 2 * numThreads;
+	}
+
+	/**
+	 * Writes a byte.
+	 *
+	 * @param b
+	 *            the byte
+	 * @throws IOException
+	 *             if compressing or writing fails
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		if (m_Closed) {
+			throw new IOException("Stream closed");
+		}
+		if (m_Count == m_Block.length) {
+			submit();
+		}
+		m_Block[m_Count++] = (byte) b;
+	}
+
+	/**
+	 * Writes bytes.
+	 *
+	 * @param b
+	 *            the bytes
+	 * @param off
+	 *            the offset of the first byte
+	 * @param len
+	 *            the number of bytes
+	 * @throws IOException
+	 *             if compressing or writing fails
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (m_Closed) {
+			throw new IOException("Stream closed");
+		}
+		while (len > 0) {
+			if (m_Count == m_Block.length) {
+				submit();
+			}
+			int n = Math.min(len, m_Block.length - m_Count);
+			System.arraycopy(b, off, m_Block, m_Count, n);
+			m_Count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Compresses the current block in the background and starts a new one.
+	 * Writes the oldest compressed blocks if too many are pending.
+	 *
+	 * @throws IOException
+	 *             if compressing or writing fails
+	 */
+	protected void submit() throws IOException {
+		byte[] block = m_Block;
+		int count = m_Count;
+		int level = m_Level;
+		m_Pending.add(m_Pool.submit(() -> compress(block, count, level)));
+		m_Block = new byte[block.length];
+		m_Count = 0;
+		m_Started = true;
+		while (m_Pending.size() > m_MaxPending) {
+			writePending();
+		}
+	}
+
+	/**
+	 * Waits for the oldest block and writes it.
+	 *
+	 * @throws IOException
+	 *             if compressing or writing fails
+	 */
+	protected void writePending() throws IOException {
+		try {
+			m_Out.write(m_Pending.poll().get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while compressing", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Compression failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Writes all data compressed so far. The current block is only compressed
+	 * once it is full or the stream is closed, so flushing does not reduce the
+	 * compression.
+	 *
+	 * @throws IOException
+	 *             if compressing or writing fails
+	 */
+	@Override
+	public void flush() throws IOException {
+		while (!m_Pending.isEmpty()) {
+			writePending();
+		}
+		m_Out.flush();
+	}
+
+	/**
+	 * Compresses the remaining data, writes it and closes the underlying
+	 * stream.
+	 *
+	 * @throws IOException
+	 *             if compressing or writing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		if (m_Closed) {
+			return;
+		}
+		m_Closed = true;
+
+		try {
+			if ((m_Count > 0) || !m_Started) {
+				submit();
+			}
+			flush();
+		} finally {
+			m_Pool.shutdownNow();
+			m_Out.close();
+		}
+	}
+
+	/**
+	 * Compresses a block into a gzip member.
+	 *
+	 * @param block
+	 *            the data
+	 * @param count
+	 *            the number of bytes of data
+	 * @param level
+	 *            the compression level
+	 * @return the member
+	 */
+	protected static byte[] compress(byte[] block, int count, int level) {
+		ByteArrayOutputStream member = new ByteArrayOutputStream(count / 2 + 64);
+
+		// header, the size is filled in at the end
+		member.write(0x1f);
+		member.write(0x8b);
+		member.write(Deflater.DEFLATED);
+		member.write(4); // FEXTRA
+		writeInt(member, 0); // MTIME
+		member.write(0); // XFL
+		member.write(255); // OS: unknown
+		writeShort(member, 8); // XLEN
+		member.write(SUBFIELD_ID1);
+		member.write(SUBFIELD_ID2);
+		writeShort(member, 4);
+		writeInt(member, 0);
+
+		// data
+		Deflater deflater = new Deflater(level, true);
+		try {
+			deflater.setInput(block, 0, count);
+			deflater.finish();
+			byte[] buffer = new byte[Math.max(count / 2, 1024)];
+			while (!deflater.finished()) {
+				int n = deflater.deflate(buffer);
+				member.write(buffer, 0, n);
+			}
+		} finally {
+			deflater.end();
+		}
+
+		// trailer
+		CRC32 crc = new CRC32();
+		crc.update(block, 0, count);
+		writeInt(member, (int) crc.getValue());
+		writeInt(member, count);
+
+		byte[] result = member.toByteArray();
+		int size = result.length;
+		for (int i = 0; i < 4; i++) {
+			result[HEADER_LENGTH - 4 + i] = (byte) (size >>> (8 * i));
+		}
+		return result;
+	}
+
+	/**
+	 * Writes a 16 bit value in little-endian order.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @param value
+	 *            the value
+	 */
+	protected static void writeShort(ByteArrayOutputStream out, int value) {
+		out.write(value & 0xff);
+		out.write((value >>> 8) & 0xff);
+	}
+
+	/**
+	 * Writes a 32 bit value in little-endian order.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @param value
+	 *            the value
+	 */
+	protected static void writeInt(ByteArrayOutputStream out, int value) {
+		writeShort(out, value & 0xffff);
+		writeShort(out, (value >>> 16) & 0xffff);
+	}
+
+	/**
+	 * Returns the revision string.
+	 *
+	 * @return the revision
+	 */
+	@Override
+	public String getRevision() {
+		return RevisionUtils.extract("$Revision$");
+	}
+}
@@ -1111,7 +1111,7 @@ public class GenericObjectEditor implements PropertyEditor, CustomPanelSupplier
 	}
 
 	/**
-	 * Makes a copy of an object using serialization.
+	 * Makes a copy of an object, see SerializedObject.makeCopy(Object).
 	 * 
 	 * @param source
 	 *            the object to copy
@@ -1120,9 +1120,7 @@ public class GenericObjectEditor implements PropertyEditor, CustomPanelSupplier
 	 *                if the copy fails
 	 */
 	public static Object makeCopy(Object source) throws Exception {
-		SerializedObject so = new SerializedObject(source);
-		Object result = so.getObject();
-		return result;
+		return SerializedObject.makeCopy(source);
 	}
 
 	/**
@@ -123,12 +123,10 @@ public class GenericObjectEditorHistory implements Serializable {
 	 *            the object to copy
 	 */
 	protected Object copy(Object obj) {
-		SerializedObject so;
 		Object result;
 
 		try {
-			so = new SerializedObject(obj);
-			result = so.getObject();
+			result = SerializedObject.makeCopy(obj);
 		} catch (Exception e) {
 			result = null;
 			e.printStackTrace();